@@ -0,0 +1,67 @@
+package com.mapbox.navhud.display;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.mapbox.api.directions.v5.DirectionsCriteria;
+import com.mapbox.services.android.navigation.v5.utils.DistanceUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the distances {@link HudFormatter} serves from its cache read exactly like the
+ * ones {@link DistanceUtils} formats, around every rounding edge.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HudFormatterTest {
+
+  private static final double[] EDGE_FEET = {0, 49, 50, 99, 100, 149, 150, 180, 199, 200, 220, 249, 250, 400.4,
+    400.6, 401};
+  private static final double[] EDGE_MILES = {0.15, 0.25, 1.05, 1.15, 2.25, 2.35, 2.45, 9.95, 10, 10.04, 10.5,
+    11.5, 12.5};
+
+  @Test
+  public void formatDistance_matchesDistanceUtilsAtEdges() throws Exception {
+    for (String unitType : new String[] {DirectionsCriteria.IMPERIAL, DirectionsCriteria.METRIC}) {
+      HudFormatter hudFormatter = new HudFormatter(context(), Locale.US.getLanguage(), unitType);
+      DistanceUtils distanceUtils = new DistanceUtils(context(), Locale.US.getLanguage(), unitType);
+      for (double feet : EDGE_FEET) {
+        // Format a neighbour first, so a shared cache key would hand out its text
+        assertFormatted(hudFormatter, distanceUtils, (feet + 1) * FormatQuantizer.METERS_PER_FOOT);
+        assertFormatted(hudFormatter, distanceUtils, feet * FormatQuantizer.METERS_PER_FOOT);
+        assertFormatted(hudFormatter, distanceUtils, feet);
+      }
+      for (double miles : EDGE_MILES) {
+        assertFormatted(hudFormatter, distanceUtils, (miles + 0.04) * FormatQuantizer.METERS_PER_MILE);
+        assertFormatted(hudFormatter, distanceUtils, miles * FormatQuantizer.METERS_PER_MILE);
+        assertFormatted(hudFormatter, distanceUtils, miles * 1000);
+      }
+    }
+  }
+
+  @Test
+  public void formatDistance_matchesDistanceUtilsAlongRoute() throws Exception {
+    HudFormatter hudFormatter = new HudFormatter(context(), Locale.US.getLanguage(), DirectionsCriteria.IMPERIAL);
+    DistanceUtils distanceUtils = new DistanceUtils(context(), Locale.US.getLanguage(),
+      DirectionsCriteria.IMPERIAL);
+    // Counting down 20 miles in steps of a third of a meter, as progress updates do
+    for (double meters = 20 * FormatQuantizer.METERS_PER_MILE; meters >= 0; meters -= 0.33) {
+      assertFormatted(hudFormatter, distanceUtils, meters);
+    }
+  }
+
+  private static Context context() {
+    return InstrumentationRegistry.getTargetContext();
+  }
+
+  private static void assertFormatted(HudFormatter hudFormatter, DistanceUtils distanceUtils, double meters) {
+    assertEquals(meters + " m", distanceUtils.formatDistance(meters).toString(),
+      hudFormatter.formatDistance(meters).toString());
+  }
+}
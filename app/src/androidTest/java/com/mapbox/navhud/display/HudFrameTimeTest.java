@@ -0,0 +1,124 @@
+package com.mapbox.navhud.display;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import com.mapbox.navhud.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the time a HUD update takes from submitting the state to the frame being drawn,
+ * with the regular layout and with the {@link HudCanvasView}. Both render the same sequence
+ * of states into an offscreen canvas, so the numbers cover measure, layout and draw but not
+ * the GPU. Results are logged and reported as instrumentation status.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HudFrameTimeTest {
+
+  private static final String TAG = HudFrameTimeTest.class.getSimpleName();
+  private static final int WIDTH = 1280;
+  private static final int HEIGHT = 720;
+  private static final int WARMUP_FRAMES = 100;
+  private static final int FRAMES = 1000;
+  private static final int[] MANEUVERS = {
+    R.drawable.direction_turn_left, R.drawable.direction_turn_right,
+    R.drawable.direction_continue_straight, R.drawable.direction_off_ramp_slight_right
+  };
+
+  @Test
+  public void compareFrameTimes() throws Exception {
+    final Context context = new ContextThemeWrapper(InstrumentationRegistry.getTargetContext(),
+      R.style.AppTheme_NoActionBar);
+    final long[] layoutTimes = new long[FRAMES];
+    final long[] canvasTimes = new long[FRAMES];
+    final HudCanvasView[] canvasView = new HudCanvasView[1];
+
+    InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        View layout = LayoutInflater.from(context).inflate(R.layout.activity_display, null);
+        HudRenderer renderer = new HudRenderer((TextView) layout.findViewById(R.id.stepText),
+          (TextView) layout.findViewById(R.id.mphText), (TextView) layout.findViewById(R.id.distanceText),
+          (TextView) layout.findViewById(R.id.distanceRemainingText),
+          (TextView) layout.findViewById(R.id.timeRemainingText),
+          (TextView) layout.findViewById(R.id.arrivalText),
+          (ImageView) layout.findViewById(R.id.maneuverImage),
+          (ProgressBar) layout.findViewById(R.id.stepProgressBar));
+        canvasView[0] = new HudCanvasView(context);
+        canvasView[0].setMaxFrameRate(0);
+        Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        HudState state = new HudState();
+
+        for (int i = -WARMUP_FRAMES; i < FRAMES; i++) {
+          updateState(state, i + WARMUP_FRAMES);
+          long start = System.nanoTime();
+          renderer.submit(state);
+          renderer.doFrame(System.nanoTime());
+          frame(layout, canvas);
+          long layoutTime = System.nanoTime() - start;
+
+          start = System.nanoTime();
+          canvasView[0].submit(state);
+          frame(canvasView[0], canvas);
+          long canvasTime = System.nanoTime() - start;
+          if (i >= 0) {
+            layoutTimes[i] = layoutTime;
+            canvasTimes[i] = canvasTime;
+          }
+        }
+        renderer.release();
+      }
+    });
+
+    Bundle results = new Bundle();
+    report("layout", layoutTimes, results);
+    report("canvas", canvasTimes, results);
+    InstrumentationRegistry.getInstrumentation().sendStatus(0, results);
+    assertEquals(FRAMES + WARMUP_FRAMES, canvasView[0].getFrameCount());
+  }
+
+  /**
+   * A drive with a speed change on every update, new distances every few updates and a new
+   * step every hundred.
+   */
+  private static void updateState(HudState state, int update) {
+    int step = update / 100;
+    state.setStepText("Step Street " + step);
+    state.setManeuverResource(MANEUVERS[step % MANEUVERS.length]);
+    state.setStepDistance(String.format(Locale.US, "%d ft", 1000 - (update % 100) / 5 * 50));
+    state.setRouteDistance(String.format(Locale.US, "%.1f mi", 50 - update / 20 * 0.1));
+    state.setTimeRemaining(String.format(Locale.US, "%d min", 60 - update / 60));
+    state.setArrivalTime("12:30 PM");
+    state.setStepProgress((update % 100) * StepProgressAnimator.PROGRESS_MAX / 100);
+    state.setSpeed(55 + update % 10);
+  }
+
+  private static void frame(View view, Canvas canvas) {
+    if (view.isLayoutRequested()) {
+      view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+      view.layout(0, 0, WIDTH, HEIGHT);
+    }
+    view.draw(canvas);
+  }
+
+  private static void report(String mode, long[] times, Bundle results) {
+    TimingReport.report(TAG, mode, times, results);
+  }
+}
@@ -0,0 +1,114 @@
+package com.mapbox.navhud.display;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.View;
+import android.widget.ImageView;
+
+import com.mapbox.navhud.ManeuverMap;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Measures the cost of the {@link ManeuverGlyphAtlas}: rasterizing every maneuver glyph at
+ * startup, and switching the maneuver shown by an {@link ImageView} from the atlas compared to
+ * {@link ImageView#setImageResource(int)}. Each switch includes drawing the view into an
+ * offscreen canvas. Results are logged and reported as instrumentation status.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ManeuverGlyphTimeTest {
+
+  private static final String TAG = ManeuverGlyphTimeTest.class.getSimpleName();
+  private static final int SIZE = 240;
+  private static final int STARTUP_RUNS = 10;
+  private static final int WARMUP_SWITCHES = 100;
+  private static final int SWITCHES = 1000;
+
+  @Test
+  public void measureStartup() throws Exception {
+    Context context = InstrumentationRegistry.getTargetContext();
+    long[] plainTimes = new long[STARTUP_RUNS];
+    long[] mirroredTimes = new long[STARTUP_RUNS];
+    int bytes = 0;
+    for (int i = 0; i < STARTUP_RUNS; i++) {
+      long start = System.nanoTime();
+      ManeuverGlyphAtlas atlas = new ManeuverGlyphAtlas(context, SIZE, false);
+      plainTimes[i] = System.nanoTime() - start;
+      atlas.recycle();
+
+      start = System.nanoTime();
+      atlas = new ManeuverGlyphAtlas(context, SIZE, true);
+      mirroredTimes[i] = System.nanoTime() - start;
+      bytes = atlas.getByteCount();
+      atlas.recycle();
+    }
+
+    Bundle results = new Bundle();
+    TimingReport.report(TAG, "atlasStartup", plainTimes, results);
+    TimingReport.report(TAG, "mirroredAtlasStartup", mirroredTimes, results);
+    Log.i(TAG, String.format(Locale.US, "%d glyphs of %d px with mirrored variants: %d KB",
+      ManeuverMap.getInstance().getManeuverResources().length, SIZE, bytes / 1024));
+    results.putInt("mirroredAtlasBytes", bytes);
+    InstrumentationRegistry.getInstrumentation().sendStatus(0, results);
+  }
+
+  @Test
+  public void compareSwitchTimes() throws Exception {
+    final Context context = InstrumentationRegistry.getTargetContext();
+    final int[] resources = ManeuverMap.getInstance().getManeuverResources();
+    final long[] resourceTimes = new long[SWITCHES];
+    final long[] atlasTimes = new long[SWITCHES];
+
+    InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        ImageView imageView = new ImageView(context);
+        imageView.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+          View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        imageView.layout(0, 0, SIZE, SIZE);
+        Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        ManeuverGlyphAtlas atlas = new ManeuverGlyphAtlas(context, SIZE, false);
+
+        for (int i = -WARMUP_SWITCHES; i < SWITCHES; i++) {
+          int resource = resources[(i + WARMUP_SWITCHES) % resources.length];
+          long start = System.nanoTime();
+          imageView.setImageResource(resource);
+          imageView.draw(canvas);
+          long resourceTime = System.nanoTime() - start;
+
+          start = System.nanoTime();
+          imageView.setImageDrawable(atlas.getDrawable(resource));
+          imageView.draw(canvas);
+          long atlasTime = System.nanoTime() - start;
+          if (i >= 0) {
+            resourceTimes[i] = resourceTime;
+            atlasTimes[i] = atlasTime;
+          }
+        }
+
+        for (int resource : resources) {
+          assertNotNull(atlas.getGlyph(resource, false));
+          assertSame(atlas.getDrawable(resource), atlas.getDrawable(resource));
+        }
+        imageView.setImageDrawable(null);
+        atlas.recycle();
+      }
+    });
+
+    Bundle results = new Bundle();
+    TimingReport.report(TAG, "setImageResource", resourceTimes, results);
+    TimingReport.report(TAG, "atlasSwitch", atlasTimes, results);
+    InstrumentationRegistry.getInstrumentation().sendStatus(0, results);
+  }
+}
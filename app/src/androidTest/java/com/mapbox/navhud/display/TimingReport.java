@@ -0,0 +1,41 @@
+package com.mapbox.navhud.display;
+
+import android.os.Bundle;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Summarizes the times measured by the timing tests, logged and added to the instrumentation
+ * status results.
+ */
+final class TimingReport {
+
+  private TimingReport() {
+    // No instances
+  }
+
+  /**
+   * Logs average, p90 and p99 of the times and puts them into the results as
+   * {@code <mode>AverageNanos}, {@code <mode>P90Nanos} and {@code <mode>P99Nanos}.
+   *
+   * @param times measured times in nanoseconds, left unchanged
+   */
+  static void report(String tag, String mode, long[] times, Bundle results) {
+    long[] sorted = times.clone();
+    Arrays.sort(sorted);
+    long total = 0;
+    for (long time : sorted) {
+      total += time;
+    }
+    long average = total / sorted.length;
+    long p90 = sorted[(int) (sorted.length * 0.9)];
+    long p99 = sorted[(int) (sorted.length * 0.99)];
+    Log.i(tag, String.format(Locale.US, "%s: average %.1f us, p90 %.1f us, p99 %.1f us", mode,
+      average / 1e3, p90 / 1e3, p99 / 1e3));
+    results.putLong(mode + "AverageNanos", average);
+    results.putLong(mode + "P90Nanos", p90);
+    results.putLong(mode + "P99Nanos", p99);
+  }
+}
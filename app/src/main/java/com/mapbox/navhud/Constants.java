@@ -4,7 +4,35 @@ public class Constants {
 
   public static final double MPH_DOUBLE = 2.2369;
   public static final String MAPBOX_ACCESS_TOKEN = "";
+  // Fleet endpoint receiving trip logs, empty to keep them on the device
+  public static final String TRIP_UPLOAD_URL = "";
   public static final String PLACE_LOCATION_EXTRA = "PLACE_LOCATION_EXTRA";
+  public static final String STOP_LOCATIONS_EXTRA = "STOP_LOCATIONS_EXTRA";
+  public static final String REPLAY_TRACE_EXTRA = "REPLAY_TRACE_EXTRA";
+  public static final String REPLAY_SPEED_EXTRA = "REPLAY_SPEED_EXTRA";
+  public static final String LOW_POWER_HUD_EXTRA = "LOW_POWER_HUD_EXTRA";
+  public static final String HUD_MAX_FRAME_RATE_EXTRA = "HUD_MAX_FRAME_RATE_EXTRA";
+  public static final String INSTRUMENTATION_OVERLAY_EXTRA = "INSTRUMENTATION_OVERLAY_EXTRA";
+  public static final String DUMP_INSTRUMENTATION_ACTION = "com.mapbox.navhud.DUMP_INSTRUMENTATION";
+  // Signature permission the dump broadcast has to be sent with
+  public static final String DUMP_INSTRUMENTATION_PERMISSION = "com.mapbox.navhud.permission.DUMP_INSTRUMENTATION";
+
+  // Step Maneuver Types, the same values as NavigationConstants. The benchmark module
+  // compiles ManeuverMap on a plain JVM, without the navigation SDK that defines those
+  public static final String STEP_MANEUVER_TYPE_TURN = "turn";
+  public static final String STEP_MANEUVER_TYPE_NEW_NAME = "new name";
+  public static final String STEP_MANEUVER_TYPE_DEPART = "depart";
+  public static final String STEP_MANEUVER_TYPE_ARRIVE = "arrive";
+  public static final String STEP_MANEUVER_TYPE_MERGE = "merge";
+  public static final String STEP_MANEUVER_TYPE_ON_RAMP = "on ramp";
+  public static final String STEP_MANEUVER_TYPE_OFF_RAMP = "off ramp";
+  public static final String STEP_MANEUVER_TYPE_FORK = "fork";
+  public static final String STEP_MANEUVER_TYPE_END_OF_ROAD = "end of road";
+  public static final String STEP_MANEUVER_TYPE_CONTINUE = "continue";
+  public static final String STEP_MANEUVER_TYPE_ROUNDABOUT = "roundabout";
+  public static final String STEP_MANEUVER_TYPE_ROTARY = "rotary";
+  public static final String STEP_MANEUVER_TYPE_ROUNDABOUT_TURN = "roundabout turn";
+  public static final String STEP_MANEUVER_TYPE_NOTIFICATION = "notification";
 
   // Step Maneuver Modifiers
   static final String STEP_MANEUVER_MODIFIER_UTURN = "uturn";
@@ -1,7 +1,9 @@
 package com.mapbox.navhud;
 
-import java.util.HashMap;
-import java.util.Map;
+import com.mapbox.api.directions.v5.models.LegStep;
+import com.mapbox.api.directions.v5.models.StepManeuver;
+
+import java.util.Arrays;
 
 import static com.mapbox.navhud.Constants.STEP_MANEUVER_MODIFIER_LEFT;
 import static com.mapbox.navhud.Constants.STEP_MANEUVER_MODIFIER_RIGHT;
@@ -11,176 +13,290 @@ import static com.mapbox.navhud.Constants.STEP_MANEUVER_MODIFIER_SLIGHT_LEFT;
 import static com.mapbox.navhud.Constants.STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT;
 import static com.mapbox.navhud.Constants.STEP_MANEUVER_MODIFIER_STRAIGHT;
 import static com.mapbox.navhud.Constants.STEP_MANEUVER_MODIFIER_UTURN;
-import static com.mapbox.services.android.navigation.v5.navigation.NavigationConstants.STEP_MANEUVER_TYPE_ARRIVE;
-import static com.mapbox.services.android.navigation.v5.navigation.NavigationConstants.STEP_MANEUVER_TYPE_CONTINUE;
-import static com.mapbox.services.android.navigation.v5.navigation.NavigationConstants.STEP_MANEUVER_TYPE_DEPART;
-import static com.mapbox.services.android.navigation.v5.navigation.NavigationConstants.STEP_MANEUVER_TYPE_END_OF_ROAD;
-import static com.mapbox.services.android.navigation.v5.navigation.NavigationConstants.STEP_MANEUVER_TYPE_FORK;
-import static com.mapbox.services.android.navigation.v5.navigation.NavigationConstants.STEP_MANEUVER_TYPE_MERGE;
-import static com.mapbox.services.android.navigation.v5.navigation.NavigationConstants.STEP_MANEUVER_TYPE_NEW_NAME;
-import static com.mapbox.services.android.navigation.v5.navigation.NavigationConstants.STEP_MANEUVER_TYPE_NOTIFICATION;
-import static com.mapbox.services.android.navigation.v5.navigation.NavigationConstants.STEP_MANEUVER_TYPE_OFF_RAMP;
-import static com.mapbox.services.android.navigation.v5.navigation.NavigationConstants.STEP_MANEUVER_TYPE_ON_RAMP;
-import static com.mapbox.services.android.navigation.v5.navigation.NavigationConstants.STEP_MANEUVER_TYPE_ROTARY;
-import static com.mapbox.services.android.navigation.v5.navigation.NavigationConstants.STEP_MANEUVER_TYPE_ROUNDABOUT;
-import static com.mapbox.services.android.navigation.v5.navigation.NavigationConstants.STEP_MANEUVER_TYPE_ROUNDABOUT_TURN;
-import static com.mapbox.services.android.navigation.v5.navigation.NavigationConstants.STEP_MANEUVER_TYPE_TURN;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_ARRIVE;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_CONTINUE;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_DEPART;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_END_OF_ROAD;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_FORK;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_MERGE;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_NEW_NAME;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_NOTIFICATION;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_OFF_RAMP;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_ON_RAMP;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_ROTARY;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_ROUNDABOUT;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_ROUNDABOUT_TURN;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_TURN;
 
+/**
+ * Resolves a step maneuver type / modifier pair to a drawable resource.
+ * <p>
+ * The mapping is stored in a flat table indexed by type and modifier, so a lookup
+ * does not concatenate Strings or box the resulting id. The table is immutable once
+ * built, use {@link #getInstance()} rather than creating a new map per lookup.
+ */
 public class ManeuverMap {
 
-  private Map<String, Integer> maneuverMap;
+  static final int TYPE_COUNT = 14;
+  static final int MODIFIER_COUNT = 9;
+  static final int NO_MODIFIER = 0;
+  static final int INVALID_INDEX = -1;
+
+  private static final ManeuverMap INSTANCE = new ManeuverMap();
+
+  private final int[] maneuverTable = new int[TYPE_COUNT * MODIFIER_COUNT];
+  private final int[] maneuverResources;
+
+  public static ManeuverMap getInstance() {
+    return INSTANCE;
+  }
+
+  private ManeuverMap() {
+    Arrays.fill(maneuverTable, R.drawable.maneuver_starting);
 
-  public ManeuverMap() {
-    maneuverMap = new HashMap<>();
-    maneuverMap.put(STEP_MANEUVER_TYPE_TURN + STEP_MANEUVER_MODIFIER_UTURN,
+    put(STEP_MANEUVER_TYPE_TURN, STEP_MANEUVER_MODIFIER_UTURN,
       R.drawable.direction_uturn);
-    maneuverMap.put(STEP_MANEUVER_TYPE_CONTINUE + STEP_MANEUVER_MODIFIER_UTURN,
+    put(STEP_MANEUVER_TYPE_CONTINUE, STEP_MANEUVER_MODIFIER_UTURN,
       R.drawable.direction_uturn);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_CONTINUE + STEP_MANEUVER_MODIFIER_STRAIGHT,
+    put(STEP_MANEUVER_TYPE_CONTINUE, STEP_MANEUVER_MODIFIER_STRAIGHT,
       R.drawable.direction_continue_straight);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_ARRIVE + STEP_MANEUVER_MODIFIER_LEFT,
+    put(STEP_MANEUVER_TYPE_ARRIVE, STEP_MANEUVER_MODIFIER_LEFT,
       R.drawable.direction_arrive_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ARRIVE + STEP_MANEUVER_MODIFIER_RIGHT,
+    put(STEP_MANEUVER_TYPE_ARRIVE, STEP_MANEUVER_MODIFIER_RIGHT,
       R.drawable.direction_arrive_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ARRIVE,
+    put(STEP_MANEUVER_TYPE_ARRIVE, null,
       R.drawable.direction_arrive);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_DEPART + STEP_MANEUVER_MODIFIER_LEFT,
+    put(STEP_MANEUVER_TYPE_DEPART, STEP_MANEUVER_MODIFIER_LEFT,
       R.drawable.direction_depart_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_DEPART + STEP_MANEUVER_MODIFIER_RIGHT,
+    put(STEP_MANEUVER_TYPE_DEPART, STEP_MANEUVER_MODIFIER_RIGHT,
       R.drawable.direction_depart_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_DEPART, R.drawable.direction_depart);
+    put(STEP_MANEUVER_TYPE_DEPART, null, R.drawable.direction_depart);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_TURN + STEP_MANEUVER_MODIFIER_SHARP_RIGHT,
+    put(STEP_MANEUVER_TYPE_TURN, STEP_MANEUVER_MODIFIER_SHARP_RIGHT,
       R.drawable.direction_turn_sharp_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_TURN + STEP_MANEUVER_MODIFIER_RIGHT,
+    put(STEP_MANEUVER_TYPE_TURN, STEP_MANEUVER_MODIFIER_RIGHT,
       R.drawable.direction_turn_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_TURN + STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT,
+    put(STEP_MANEUVER_TYPE_TURN, STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT,
       R.drawable.direction_turn_slight_right);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_TURN + STEP_MANEUVER_MODIFIER_SHARP_LEFT,
+    put(STEP_MANEUVER_TYPE_TURN, STEP_MANEUVER_MODIFIER_SHARP_LEFT,
       R.drawable.direction_turn_sharp_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_TURN + STEP_MANEUVER_MODIFIER_LEFT,
+    put(STEP_MANEUVER_TYPE_TURN, STEP_MANEUVER_MODIFIER_LEFT,
       R.drawable.direction_turn_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_TURN + STEP_MANEUVER_MODIFIER_SLIGHT_LEFT,
+    put(STEP_MANEUVER_TYPE_TURN, STEP_MANEUVER_MODIFIER_SLIGHT_LEFT,
       R.drawable.direction_turn_slight_left);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_MERGE + STEP_MANEUVER_MODIFIER_LEFT,
+    put(STEP_MANEUVER_TYPE_MERGE, STEP_MANEUVER_MODIFIER_LEFT,
       R.drawable.direction_merge_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_MERGE + STEP_MANEUVER_MODIFIER_SLIGHT_LEFT,
+    put(STEP_MANEUVER_TYPE_MERGE, STEP_MANEUVER_MODIFIER_SLIGHT_LEFT,
       R.drawable.direction_merge_slight_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_MERGE + STEP_MANEUVER_MODIFIER_RIGHT,
+    put(STEP_MANEUVER_TYPE_MERGE, STEP_MANEUVER_MODIFIER_RIGHT,
       R.drawable.direction_merge_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_MERGE + STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT,
+    put(STEP_MANEUVER_TYPE_MERGE, STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT,
       R.drawable.direction_merge_slight_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_MERGE + STEP_MANEUVER_MODIFIER_STRAIGHT,
+    put(STEP_MANEUVER_TYPE_MERGE, STEP_MANEUVER_MODIFIER_STRAIGHT,
       R.drawable.direction_merge_straight);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_ON_RAMP + STEP_MANEUVER_MODIFIER_SHARP_LEFT,
+    put(STEP_MANEUVER_TYPE_ON_RAMP, STEP_MANEUVER_MODIFIER_SHARP_LEFT,
       R.drawable.direction_on_ramp_sharp_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ON_RAMP + STEP_MANEUVER_MODIFIER_LEFT,
+    put(STEP_MANEUVER_TYPE_ON_RAMP, STEP_MANEUVER_MODIFIER_LEFT,
       R.drawable.direction_on_ramp_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ON_RAMP + STEP_MANEUVER_MODIFIER_SLIGHT_LEFT,
+    put(STEP_MANEUVER_TYPE_ON_RAMP, STEP_MANEUVER_MODIFIER_SLIGHT_LEFT,
       R.drawable.direction_on_ramp_slight_left);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_ON_RAMP + STEP_MANEUVER_MODIFIER_SHARP_RIGHT,
+    put(STEP_MANEUVER_TYPE_ON_RAMP, STEP_MANEUVER_MODIFIER_SHARP_RIGHT,
       R.drawable.direction_on_ramp_sharp_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ON_RAMP + STEP_MANEUVER_MODIFIER_RIGHT,
+    put(STEP_MANEUVER_TYPE_ON_RAMP, STEP_MANEUVER_MODIFIER_RIGHT,
       R.drawable.direction_on_ramp_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ON_RAMP + STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT,
+    put(STEP_MANEUVER_TYPE_ON_RAMP, STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT,
       R.drawable.direction_on_ramp_slight_right);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_OFF_RAMP + STEP_MANEUVER_MODIFIER_LEFT,
+    put(STEP_MANEUVER_TYPE_OFF_RAMP, STEP_MANEUVER_MODIFIER_LEFT,
       R.drawable.direction_off_ramp_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_OFF_RAMP + STEP_MANEUVER_MODIFIER_SLIGHT_LEFT,
+    put(STEP_MANEUVER_TYPE_OFF_RAMP, STEP_MANEUVER_MODIFIER_SLIGHT_LEFT,
       R.drawable.direction_off_ramp_slight_left);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_OFF_RAMP + STEP_MANEUVER_MODIFIER_RIGHT,
+    put(STEP_MANEUVER_TYPE_OFF_RAMP, STEP_MANEUVER_MODIFIER_RIGHT,
       R.drawable.direction_off_ramp_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_OFF_RAMP + STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT,
+    put(STEP_MANEUVER_TYPE_OFF_RAMP, STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT,
       R.drawable.direction_off_ramp_slight_right);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_FORK + STEP_MANEUVER_MODIFIER_LEFT,
+    put(STEP_MANEUVER_TYPE_FORK, STEP_MANEUVER_MODIFIER_LEFT,
       R.drawable.direction_fork_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_FORK + STEP_MANEUVER_MODIFIER_SLIGHT_LEFT,
+    put(STEP_MANEUVER_TYPE_FORK, STEP_MANEUVER_MODIFIER_SLIGHT_LEFT,
       R.drawable.direction_fork_slight_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_FORK + STEP_MANEUVER_MODIFIER_RIGHT,
+    put(STEP_MANEUVER_TYPE_FORK, STEP_MANEUVER_MODIFIER_RIGHT,
       R.drawable.direction_fork_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_FORK + STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT,
+    put(STEP_MANEUVER_TYPE_FORK, STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT,
       R.drawable.direction_fork_slight_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_FORK + STEP_MANEUVER_MODIFIER_STRAIGHT,
+    put(STEP_MANEUVER_TYPE_FORK, STEP_MANEUVER_MODIFIER_STRAIGHT,
       R.drawable.direction_fork_straight);
-    maneuverMap.put(STEP_MANEUVER_TYPE_FORK, R.drawable.direction_fork);
+    put(STEP_MANEUVER_TYPE_FORK, null, R.drawable.direction_fork);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_END_OF_ROAD + STEP_MANEUVER_MODIFIER_LEFT,
+    put(STEP_MANEUVER_TYPE_END_OF_ROAD, STEP_MANEUVER_MODIFIER_LEFT,
       R.drawable.direction_end_of_road_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_END_OF_ROAD + STEP_MANEUVER_MODIFIER_RIGHT,
+    put(STEP_MANEUVER_TYPE_END_OF_ROAD, STEP_MANEUVER_MODIFIER_RIGHT,
       R.drawable.direction_end_of_road_right);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROUNDABOUT + STEP_MANEUVER_MODIFIER_LEFT,
+    put(STEP_MANEUVER_TYPE_ROUNDABOUT, STEP_MANEUVER_MODIFIER_LEFT,
       R.drawable.direction_roundabout_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROUNDABOUT + STEP_MANEUVER_MODIFIER_SHARP_LEFT,
+    put(STEP_MANEUVER_TYPE_ROUNDABOUT, STEP_MANEUVER_MODIFIER_SHARP_LEFT,
       R.drawable.direction_roundabout_sharp_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROUNDABOUT + STEP_MANEUVER_MODIFIER_SLIGHT_LEFT,
+    put(STEP_MANEUVER_TYPE_ROUNDABOUT, STEP_MANEUVER_MODIFIER_SLIGHT_LEFT,
       R.drawable.direction_roundabout_slight_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROUNDABOUT + STEP_MANEUVER_MODIFIER_RIGHT,
+    put(STEP_MANEUVER_TYPE_ROUNDABOUT, STEP_MANEUVER_MODIFIER_RIGHT,
       R.drawable.direction_roundabout_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROUNDABOUT + STEP_MANEUVER_MODIFIER_SHARP_RIGHT,
+    put(STEP_MANEUVER_TYPE_ROUNDABOUT, STEP_MANEUVER_MODIFIER_SHARP_RIGHT,
       R.drawable.direction_roundabout_sharp_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROUNDABOUT + STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT,
+    put(STEP_MANEUVER_TYPE_ROUNDABOUT, STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT,
       R.drawable.direction_roundabout_slight_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROUNDABOUT + STEP_MANEUVER_MODIFIER_STRAIGHT,
+    put(STEP_MANEUVER_TYPE_ROUNDABOUT, STEP_MANEUVER_MODIFIER_STRAIGHT,
       R.drawable.direction_roundabout_straight);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROUNDABOUT, R.drawable.direction_roundabout);
+    put(STEP_MANEUVER_TYPE_ROUNDABOUT, null, R.drawable.direction_roundabout);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROTARY + STEP_MANEUVER_MODIFIER_LEFT,
+    put(STEP_MANEUVER_TYPE_ROTARY, STEP_MANEUVER_MODIFIER_LEFT,
       R.drawable.direction_rotary_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROTARY + STEP_MANEUVER_MODIFIER_SHARP_LEFT,
+    put(STEP_MANEUVER_TYPE_ROTARY, STEP_MANEUVER_MODIFIER_SHARP_LEFT,
       R.drawable.direction_rotary_sharp_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROTARY + STEP_MANEUVER_MODIFIER_SLIGHT_LEFT,
+    put(STEP_MANEUVER_TYPE_ROTARY, STEP_MANEUVER_MODIFIER_SLIGHT_LEFT,
       R.drawable.direction_rotary_slight_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROTARY + STEP_MANEUVER_MODIFIER_RIGHT,
+    put(STEP_MANEUVER_TYPE_ROTARY, STEP_MANEUVER_MODIFIER_RIGHT,
       R.drawable.direction_rotary_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROTARY + STEP_MANEUVER_MODIFIER_SHARP_RIGHT,
+    put(STEP_MANEUVER_TYPE_ROTARY, STEP_MANEUVER_MODIFIER_SHARP_RIGHT,
       R.drawable.direction_rotary_sharp_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROTARY + STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT,
+    put(STEP_MANEUVER_TYPE_ROTARY, STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT,
       R.drawable.direction_rotary_slight_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROTARY + STEP_MANEUVER_MODIFIER_STRAIGHT,
+    put(STEP_MANEUVER_TYPE_ROTARY, STEP_MANEUVER_MODIFIER_STRAIGHT,
       R.drawable.direction_rotary_straight);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROTARY, R.drawable.direction_rotary);
+    put(STEP_MANEUVER_TYPE_ROTARY, null, R.drawable.direction_rotary);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROUNDABOUT_TURN + STEP_MANEUVER_MODIFIER_LEFT,
+    put(STEP_MANEUVER_TYPE_ROUNDABOUT_TURN, STEP_MANEUVER_MODIFIER_LEFT,
       R.drawable.direction_turn_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_ROUNDABOUT_TURN + STEP_MANEUVER_MODIFIER_RIGHT,
+    put(STEP_MANEUVER_TYPE_ROUNDABOUT_TURN, STEP_MANEUVER_MODIFIER_RIGHT,
       R.drawable.direction_turn_right);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_NOTIFICATION + STEP_MANEUVER_MODIFIER_LEFT,
+    put(STEP_MANEUVER_TYPE_NOTIFICATION, STEP_MANEUVER_MODIFIER_LEFT,
       R.drawable.direction_notification_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_NOTIFICATION + STEP_MANEUVER_MODIFIER_SHARP_LEFT,
+    put(STEP_MANEUVER_TYPE_NOTIFICATION, STEP_MANEUVER_MODIFIER_SHARP_LEFT,
       R.drawable.direction_notification_sharp_left);
-    maneuverMap.put(STEP_MANEUVER_TYPE_NOTIFICATION + STEP_MANEUVER_MODIFIER_SLIGHT_LEFT,
+    put(STEP_MANEUVER_TYPE_NOTIFICATION, STEP_MANEUVER_MODIFIER_SLIGHT_LEFT,
       R.drawable.direction_notification_slight_left);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_NOTIFICATION + STEP_MANEUVER_MODIFIER_RIGHT,
+    put(STEP_MANEUVER_TYPE_NOTIFICATION, STEP_MANEUVER_MODIFIER_RIGHT,
       R.drawable.direction_notification_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_NOTIFICATION + STEP_MANEUVER_MODIFIER_SHARP_RIGHT,
+    put(STEP_MANEUVER_TYPE_NOTIFICATION, STEP_MANEUVER_MODIFIER_SHARP_RIGHT,
       R.drawable.direction_on_ramp_sharp_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_NOTIFICATION + STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT,
+    put(STEP_MANEUVER_TYPE_NOTIFICATION, STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT,
       R.drawable.direction_notification_slight_right);
-    maneuverMap.put(STEP_MANEUVER_TYPE_NOTIFICATION + STEP_MANEUVER_MODIFIER_STRAIGHT,
+    put(STEP_MANEUVER_TYPE_NOTIFICATION, STEP_MANEUVER_MODIFIER_STRAIGHT,
       R.drawable.direction_notification_straight);
 
-    maneuverMap.put(STEP_MANEUVER_TYPE_NEW_NAME + STEP_MANEUVER_MODIFIER_STRAIGHT,
+    put(STEP_MANEUVER_TYPE_NEW_NAME, STEP_MANEUVER_MODIFIER_STRAIGHT,
       R.drawable.direction_notification_straight);
+
+    int[] sorted = maneuverTable.clone();
+    Arrays.sort(sorted);
+    int count = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        sorted[count++] = sorted[i];
+      }
+    }
+    maneuverResources = Arrays.copyOf(sorted, count);
+  }
+
+  /**
+   * @return every distinct drawable resource a lookup can return, including the fallback
+   */
+  public int[] getManeuverResources() {
+    return maneuverResources.clone();
+  }
+
+  public int getManeuverResource(LegStep step) {
+    if (step == null) {
+      return R.drawable.maneuver_starting;
+    }
+    StepManeuver maneuver = step.maneuver();
+    return getManeuverResource(maneuver.type(), maneuver.modifier());
   }
 
-  public int getManeuverResource(String maneuver) {
-    if (maneuverMap.get(maneuver) != null) {
-      return maneuverMap.get(maneuver);
-    } else {
+  public int getManeuverResource(String type, String modifier) {
+    int typeIndex = typeIndex(type);
+    int modifierIndex = modifierIndex(modifier);
+    if (typeIndex == INVALID_INDEX || modifierIndex == INVALID_INDEX) {
       return R.drawable.maneuver_starting;
     }
+    return maneuverTable[typeIndex * MODIFIER_COUNT + modifierIndex];
+  }
+
+  private void put(String type, String modifier, int resource) {
+    maneuverTable[typeIndex(type) * MODIFIER_COUNT + modifierIndex(modifier)] = resource;
+  }
+
+  static int typeIndex(String type) {
+    if (type == null) {
+      return INVALID_INDEX;
+    }
+    switch (type) {
+      case STEP_MANEUVER_TYPE_TURN:
+        return 0;
+      case STEP_MANEUVER_TYPE_NEW_NAME:
+        return 1;
+      case STEP_MANEUVER_TYPE_DEPART:
+        return 2;
+      case STEP_MANEUVER_TYPE_ARRIVE:
+        return 3;
+      case STEP_MANEUVER_TYPE_MERGE:
+        return 4;
+      case STEP_MANEUVER_TYPE_ON_RAMP:
+        return 5;
+      case STEP_MANEUVER_TYPE_OFF_RAMP:
+        return 6;
+      case STEP_MANEUVER_TYPE_FORK:
+        return 7;
+      case STEP_MANEUVER_TYPE_END_OF_ROAD:
+        return 8;
+      case STEP_MANEUVER_TYPE_CONTINUE:
+        return 9;
+      case STEP_MANEUVER_TYPE_ROUNDABOUT:
+        return 10;
+      case STEP_MANEUVER_TYPE_ROTARY:
+        return 11;
+      case STEP_MANEUVER_TYPE_ROUNDABOUT_TURN:
+        return 12;
+      case STEP_MANEUVER_TYPE_NOTIFICATION:
+        return 13;
+      default:
+        return INVALID_INDEX;
+    }
+  }
+
+  static int modifierIndex(String modifier) {
+    if (modifier == null || modifier.isEmpty()) {
+      return NO_MODIFIER;
+    }
+    switch (modifier) {
+      case STEP_MANEUVER_MODIFIER_UTURN:
+        return 1;
+      case STEP_MANEUVER_MODIFIER_SHARP_RIGHT:
+        return 2;
+      case STEP_MANEUVER_MODIFIER_RIGHT:
+        return 3;
+      case STEP_MANEUVER_MODIFIER_SLIGHT_RIGHT:
+        return 4;
+      case STEP_MANEUVER_MODIFIER_STRAIGHT:
+        return 5;
+      case STEP_MANEUVER_MODIFIER_SLIGHT_LEFT:
+        return 6;
+      case STEP_MANEUVER_MODIFIER_LEFT:
+        return 7;
+      case STEP_MANEUVER_MODIFIER_SHARP_LEFT:
+        return 8;
+      default:
+        return INVALID_INDEX;
+    }
   }
 }
@@ -1,111 +1,223 @@
 package com.mapbox.navhud.display;
 
-import android.animation.ObjectAnimator;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.Configuration;
 import android.location.Location;
+import android.os.AsyncTask;
 import android.os.Bundle;
-import android.speech.tts.TextToSpeech;
 import android.support.annotation.Nullable;
 import android.support.v7.app.AppCompatActivity;
-import android.text.SpannableString;
-import android.text.TextUtils;
-import android.text.format.DateFormat;
 import android.util.Log;
 import android.view.View;
-import android.view.animation.LinearInterpolator;
 import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
-import android.widget.Toast;
 
 import com.mapbox.android.core.location.LocationEngine;
 import com.mapbox.android.core.location.LocationEngineListener;
-import com.mapbox.android.core.location.LocationEngineProvider;
-import com.mapbox.api.directions.v5.DirectionsCriteria;
-import com.mapbox.api.directions.v5.models.DirectionsResponse;
 import com.mapbox.api.directions.v5.models.DirectionsRoute;
-import com.mapbox.api.directions.v5.models.LegStep;
-import com.mapbox.api.directions.v5.models.StepManeuver;
 import com.mapbox.geojson.Point;
-import com.mapbox.navhud.ManeuverMap;
 import com.mapbox.navhud.R;
+import com.mapbox.navhud.instrumentation.HudInstrumentation;
+import com.mapbox.navhud.instrumentation.InstrumentationOverlay;
+import com.mapbox.navhud.instrumentation.StartupTrace;
+import com.mapbox.navhud.location.AdaptiveLocationScheduler;
+import com.mapbox.navhud.location.LocationTraceParser;
+import com.mapbox.navhud.location.ReplayLocationEngine;
+import com.mapbox.navhud.quality.QualityGovernor;
+import com.mapbox.navhud.quality.QualityTier;
+import com.mapbox.navhud.quality.QualityTransition;
+import com.mapbox.navhud.route.BinaryRoute;
+import com.mapbox.navhud.route.RerouteManager;
+import com.mapbox.navhud.route.RouteGeometryIndex;
+import com.mapbox.navhud.route.RouteRepository;
+import com.mapbox.navhud.trip.TripRecorder;
+import com.mapbox.navhud.voice.VoiceInstructionPlayer;
 import com.mapbox.services.android.navigation.v5.milestone.Milestone;
 import com.mapbox.services.android.navigation.v5.milestone.MilestoneEventListener;
 import com.mapbox.services.android.navigation.v5.navigation.MapboxNavigation;
-import com.mapbox.services.android.navigation.v5.navigation.NavigationRoute;
-import com.mapbox.services.android.navigation.v5.navigation.NavigationTimeFormat;
 import com.mapbox.services.android.navigation.v5.routeprogress.ProgressChangeListener;
 import com.mapbox.services.android.navigation.v5.routeprogress.RouteProgress;
-import com.mapbox.services.android.navigation.v5.utils.DistanceUtils;
-import com.mapbox.services.android.navigation.v5.utils.time.TimeUtils;
 
-import java.util.Calendar;
-import java.util.Locale;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
 import butterknife.OnClick;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import butterknife.OnLongClick;
 
-import static com.mapbox.android.core.location.LocationEnginePriority.HIGH_ACCURACY;
+import static com.mapbox.navhud.Constants.DUMP_INSTRUMENTATION_ACTION;
+import static com.mapbox.navhud.Constants.DUMP_INSTRUMENTATION_PERMISSION;
+import static com.mapbox.navhud.Constants.HUD_MAX_FRAME_RATE_EXTRA;
+import static com.mapbox.navhud.Constants.INSTRUMENTATION_OVERLAY_EXTRA;
+import static com.mapbox.navhud.Constants.LOW_POWER_HUD_EXTRA;
 import static com.mapbox.navhud.Constants.MAPBOX_ACCESS_TOKEN;
-import static com.mapbox.navhud.Constants.MPH_DOUBLE;
 import static com.mapbox.navhud.Constants.PLACE_LOCATION_EXTRA;
-import static com.mapbox.services.android.navigation.v5.utils.time.TimeUtils.formatTimeRemaining;
+import static com.mapbox.navhud.Constants.REPLAY_SPEED_EXTRA;
+import static com.mapbox.navhud.Constants.REPLAY_TRACE_EXTRA;
+import static com.mapbox.navhud.Constants.STOP_LOCATIONS_EXTRA;
+import static com.mapbox.navhud.Constants.TRIP_UPLOAD_URL;
 
 public class DisplayActivity extends AppCompatActivity implements LocationEngineListener,
-  ProgressChangeListener, MilestoneEventListener, Callback<DirectionsResponse>, TextToSpeech.OnInitListener {
+  ProgressChangeListener, MilestoneEventListener, RouteRepository.RouteListener,
+  RouteRepository.BinaryRouteListener, RerouteManager.RerouteListener, QualityGovernor.Listener {
 
   private static final String TAG = DisplayActivity.class.getSimpleName();
 
+  // Only in the regular layout
+  @Nullable
   @BindView(R.id.stepText)
   TextView stepText;
+  @Nullable
   @BindView(R.id.mphText)
   TextView mphText;
+  @Nullable
   @BindView(R.id.distanceText)
   TextView stepDistanceText;
+  @Nullable
   @BindView(R.id.distanceRemainingText)
   TextView routeDistanceText;
+  @Nullable
   @BindView(R.id.timeRemainingText)
   TextView timeRemainingText;
+  @Nullable
   @BindView(R.id.arrivalText)
   TextView arrivalText;
+  @Nullable
   @BindView(R.id.maneuverImage)
   ImageView maneuverImage;
+  @Nullable
   @BindView(R.id.stepProgressBar)
   ProgressBar stepProgressBar;
-
-  private Point currentUserPoint;
+  // Only in the low power layout
+  @Nullable
+  @BindView(R.id.hudCanvasView)
+  HudCanvasView hudCanvasView;
+  @BindView(R.id.instrumentationText)
+  TextView instrumentationText;
+
+  private StartupOrchestrator.WarmStart warmStart;
   private MapboxNavigation navigation;
   private LocationEngine locationEngine;
+  private AdaptiveLocationScheduler locationScheduler;
   private boolean mirroring;
-  private TextToSpeech tts;
-  private DistanceUtils distanceUtils;
+  private VoiceInstructionPlayer voicePlayer;
+  private HudFormatter hudFormatter;
+  private HudRenderer hudRenderer;
+  private HudStateEngine hudStateEngine;
+  private RouteRepository routeRepository;
+  private RerouteManager rerouteManager;
+  private TripRecorder tripRecorder;
+  private QualityGovernor qualityGovernor;
+  private int maxFrameRate;
+  private boolean navigationStarted;
+  private final HudInstrumentation instrumentation = HudInstrumentation.getInstance();
+  private InstrumentationOverlay instrumentationOverlay;
+
+  private final BroadcastReceiver dumpInstrumentationReceiver = new BroadcastReceiver() {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+      dumpInstrumentation();
+    }
+  };
 
   @Override
   protected void onCreate(@Nullable Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
-    setContentView(R.layout.activity_display);
+    boolean lowPower = getIntent().getBooleanExtra(LOW_POWER_HUD_EXTRA, false);
+    setContentView(lowPower ? R.layout.activity_display_canvas : R.layout.activity_display);
     ButterKnife.bind(this);
     hideNavigationFullscreen();
+    final HudRenderTarget renderTarget;
+    if (hudCanvasView != null) {
+      maxFrameRate = getIntent().getIntExtra(HUD_MAX_FRAME_RATE_EXTRA, HudCanvasView.DEFAULT_MAX_FRAME_RATE);
+      hudCanvasView.setMaxFrameRate(maxFrameRate);
+      renderTarget = hudCanvasView;
+    } else {
+      maxFrameRate = getIntent().getIntExtra(HUD_MAX_FRAME_RATE_EXTRA, 0);
+      hudRenderer = new HudRenderer(stepText, mphText, stepDistanceText, routeDistanceText,
+        timeRemainingText, arrivalText, maneuverImage, stepProgressBar);
+      hudRenderer.setMaxFrameRate(maxFrameRate);
+      hudRenderer.setProgressExtrapolationEnabled(true);
+      renderTarget = hudRenderer;
+    }
 
-    tts = new TextToSpeech(this, this);
-
-    activateLocationEngine();
+    takeWarmStart();
+    hudStateEngine = new HudStateEngine(hudFormatter,
+      hudCanvasView != null ? hudCanvasView.createStepTextMeasurer() : null);
+    hudStateEngine.subscribe(new HudStateStream.Subscriber() {
+      @Override
+      public void onHudState(HudState state, int changedFields) {
+        renderTarget.submit(state);
+      }
+    }, 0);
+    // Ahead of the other listeners, the HUD is the most latency sensitive
+    hudStateEngine.attach(navigation, locationEngine);
+    rerouteManager = new RerouteManager(MAPBOX_ACCESS_TOKEN, this);
+    tripRecorder = new TripRecorder(this, TRIP_UPLOAD_URL);
+    tripRecorder.start();
+
+    instrumentationOverlay = new InstrumentationOverlay(instrumentationText, instrumentation);
+    instrumentationOverlay.setShown(getIntent().getBooleanExtra(INSTRUMENTATION_OVERLAY_EXTRA, false));
+    registerReceiver(dumpInstrumentationReceiver, new IntentFilter(DUMP_INSTRUMENTATION_ACTION),
+      DUMP_INSTRUMENTATION_PERMISSION, null);
+
+    initLocationScheduler();
     initMapboxNavigation();
-    initDistanceUtils();
+    qualityGovernor = new QualityGovernor(this, this);
+    qualityGovernor.start();
   }
 
   @Override
   protected void onDestroy() {
     super.onDestroy();
+    unregisterReceiver(dumpInstrumentationReceiver);
+    qualityGovernor.stop();
+    instrumentationOverlay.release();
+    routeRepository.shutdown();
+    rerouteManager.shutdown();
+    tripRecorder.stop();
+    voicePlayer.shutdown();
+    hudStateEngine.release();
+    if (hudRenderer != null) {
+      hudRenderer.release();
+    }
     navigation.onDestroy();
-    deactivateLocationEngine();
+    locationEngine.removeLocationEngineListener(this);
+    // Deactivates the engine unless the next trip already uses it
+    warmStart.release();
+  }
+
+  @Override
+  public void onConfigurationChanged(Configuration newConfig) {
+    super.onConfigurationChanged(newConfig);
+    hudStateEngine.post(new Runnable() {
+      @Override
+      public void run() {
+        hudFormatter.refreshTimeFormat();
+      }
+    });
   }
 
   @OnClick(R.id.fabMirrorView)
   public void onMirrorClick() {
+    if (hudCanvasView != null) {
+      mirroring = !mirroring;
+      hudCanvasView.setMirrored(mirroring);
+      hideNavigationFullscreen();
+      return;
+    }
     View contentView = findViewById(android.R.id.content);
     if (mirroring) {
       contentView.setScaleY(1);
@@ -117,166 +229,198 @@ public class DisplayActivity extends AppCompatActivity implements LocationEngine
     hideNavigationFullscreen();
   }
 
-  @SuppressWarnings( {"MissingPermission"})
+  @OnLongClick(R.id.fabMirrorView)
+  public boolean onMirrorLongClick() {
+    instrumentationOverlay.setShown(!instrumentationOverlay.isShown());
+    return true;
+  }
+
   @Override
   public void onConnected() {
-    locationEngine.requestLocationUpdates();
-
-    if (locationEngine.getLastLocation() != null) {
-      Location lastLocation = locationEngine.getLastLocation();
-      currentUserPoint = Point.fromLngLat(lastLocation.getLongitude(), lastLocation.getLatitude());
-      checkIntentExtras();
-    }
+    // Location updates are requested by the warm start, which also takes the origin
   }
 
   @Override
   public void onLocationChanged(Location location) {
-    currentUserPoint = Point.fromLngLat(location.getLongitude(), location.getLatitude());
-    calculateMph(location);
+    tripRecorder.recordFix(location);
+    locationScheduler.onLocationChanged(location);
   }
 
   @Override
   public void onProgressChange(Location location, RouteProgress routeProgress) {
-    updateUi(routeProgress);
+    tripRecorder.recordProgress(routeProgress);
+    locationScheduler.onProgressChange(routeProgress.currentLegProgress().currentStepProgress()
+      .distanceRemaining());
+    rerouteManager.onProgressChange(routeProgress);
   }
 
   @Override
   public void onMilestoneEvent(RouteProgress routeProgress, String instruction, Milestone milestone) {
-    tts.speak(instruction, TextToSpeech.QUEUE_FLUSH, null, null);
+    tripRecorder.recordMilestone(routeProgress, milestone);
+    locationScheduler.onMilestone();
+    voicePlayer.play(instruction);
   }
 
   @Override
-  public void onResponse(Call<DirectionsResponse> call, Response<DirectionsResponse> response) {
-    if (response.body() != null && response.body().routes().size() > 0) {
-      DirectionsRoute currentRoute = response.body().routes().get(0);
+  public void onRouteReady(DirectionsRoute route, boolean fromCache) {
+    if (!navigationStarted) {
+      navigationStarted = true;
       navigation.setLocationEngine(locationEngine);
-      navigation.startNavigation(currentRoute);
+      navigation.startNavigation(route);
+      instrumentation.getStartupTrace().mark(StartupTrace.Phase.NAVIGATION_STARTED);
+      routeRepository.openBinaryRoute(route, this);
+      voicePlayer.prepare(route);
+      rerouteManager.setRoute(route, warmStart.getDestination());
     }
   }
 
   @Override
-  public void onFailure(Call<DirectionsResponse> call, Throwable throwable) {
-    Log.e(TAG, throwable.getMessage());
+  public void onRerouted(DirectionsRoute route, boolean prefetched) {
+    // The mapped route no longer matches the step indices until the new one is ready
+    hudStateEngine.setRoute(null, null);
+    navigation.startNavigation(route);
+    routeRepository.openBinaryRoute(route, this);
+    voicePlayer.prepare(route);
+    rerouteManager.setRoute(route, warmStart.getDestination());
   }
 
   @Override
-  public void onInit(int status) {
-    tts.setLanguage(Locale.getDefault());
+  public void onRerouteError(Throwable throwable) {
+    Log.e(TAG, "Reroute failed", throwable);
   }
 
-  private void hideNavigationFullscreen() {
-    getWindow().getDecorView().setSystemUiVisibility(View.SYSTEM_UI_FLAG_HIDE_NAVIGATION
-      | View.SYSTEM_UI_FLAG_FULLSCREEN);
+  @Override
+  public void onBinaryRouteReady(BinaryRoute binaryRoute, RouteGeometryIndex routeIndex) {
+    hudStateEngine.setRoute(binaryRoute, routeIndex);
+    rerouteManager.setRouteIndex(routeIndex);
   }
 
-  private void activateLocationEngine() {
-    LocationEngineProvider locationEngineProvider = new LocationEngineProvider(this);
-    locationEngine = locationEngineProvider.obtainBestLocationEngineAvailable();
-    locationEngine.setPriority(HIGH_ACCURACY);
-    locationEngine.setInterval(0);
-    locationEngine.setFastestInterval(1000);
-    locationEngine.addLocationEngineListener(this);
-    locationEngine.activate();
+  @Override
+  public void onRouteError(Throwable throwable) {
+    Log.e(TAG, throwable.getMessage());
   }
 
-  private void deactivateLocationEngine() {
-    locationEngine.removeLocationUpdates();
-    locationEngine.removeLocationEngineListener(this);
-    locationEngine.deactivate();
+  @Override
+  public void onQualityChanged(QualityTransition transition) {
+    Log.i(TAG, "HUD quality " + transition);
+    QualityTier tier = transition.getTier();
+    if (hudCanvasView != null) {
+      hudCanvasView.setMaxFrameRate(tier.capFrameRate(maxFrameRate));
+      hudCanvasView.setProgressExtrapolationEnabled(tier.isProgressAnimated());
+    } else {
+      hudRenderer.setMaxFrameRate(tier.capFrameRate(maxFrameRate));
+      hudRenderer.setProgressAnimationEnabled(tier.isProgressAnimated());
+    }
+    locationScheduler.setMinInterval(tier.getMinFixInterval());
+    voicePlayer.setLiveSpeechEnabled(tier.isLiveSpeech());
+    tripRecorder.recordQualityChange(transition);
   }
 
-  private void initMapboxNavigation() {
-    navigation = new MapboxNavigation(this, MAPBOX_ACCESS_TOKEN);
-    navigation.addProgressChangeListener(this);
-    navigation.addMilestoneEventListener(this);
+  private void hideNavigationFullscreen() {
+    getWindow().getDecorView().setSystemUiVisibility(View.SYSTEM_UI_FLAG_HIDE_NAVIGATION
+      | View.SYSTEM_UI_FLAG_FULLSCREEN);
   }
 
-  private void initDistanceUtils() {
-    String language = getResources().getConfiguration().locale.getLanguage();
-    distanceUtils = new DistanceUtils(this, language, DirectionsCriteria.IMPERIAL);
+  /**
+   * Takes over what {@link StartupOrchestrator} warmed up while the destination was picked,
+   * the route to it may already be on its way.
+   */
+  private void takeWarmStart() {
+    StartupOrchestrator startup = StartupOrchestrator.getInstance(this);
+    List<Point> stops = obtainStops();
+    if (!stops.isEmpty()) {
+      startup.setStops(stops);
+    }
+    warmStart = startup.handOff(obtainReplayLocationEngine(), this);
+    hudFormatter = warmStart.getHudFormatter();
+    voicePlayer = warmStart.getVoicePlayer();
+    navigation = warmStart.getNavigation();
+    locationEngine = warmStart.getLocationEngine();
+    routeRepository = warmStart.getRouteRepository();
   }
 
-  private void checkIntentExtras() {
-    if (getIntent().hasExtra(PLACE_LOCATION_EXTRA)) {
+  /**
+   * @return the stops from {@code STOP_LOCATIONS_EXTRA} in driving order, or the single
+   * destination from {@code PLACE_LOCATION_EXTRA}
+   */
+  private List<Point> obtainStops() {
+    List<Point> stops = new ArrayList<>();
+    List<Location> stopLocations = getIntent().getParcelableArrayListExtra(STOP_LOCATIONS_EXTRA);
+    if (stopLocations == null) {
       Location placeLocation = getIntent().getParcelableExtra(PLACE_LOCATION_EXTRA);
-      Point destination = Point.fromLngLat(placeLocation.getLongitude(), placeLocation.getLatitude());
-
-      if (currentUserPoint != null) {
-        NavigationRoute.builder(this)
-          .accessToken(MAPBOX_ACCESS_TOKEN)
-          .origin(currentUserPoint)
-          .destination(destination)
-          .build().getRoute(this);
-      } else {
-        Toast.makeText(this, "Current Location is null", Toast.LENGTH_LONG).show();
-      }
+      stopLocations = placeLocation != null ? Collections.singletonList(placeLocation)
+        : Collections.<Location>emptyList();
     }
-  }
-
-  private void calculateMph(Location location) {
-    if (location.hasSpeed()) {
-      int speed = (int) (location.getSpeed() * MPH_DOUBLE);
-      mphText.setText(String.valueOf(speed));
-    } else {
-      mphText.setText(String.valueOf(0));
+    for (Location location : stopLocations) {
+      stops.add(Point.fromLngLat(location.getLongitude(), location.getLatitude()));
     }
+    return stops;
   }
 
-  private void updateUi(RouteProgress progress) {
-    extractLegStep(progress);
-    stepDistanceText.setText(formatStepDistanceRemaining(progress.currentLegProgress()
-      .currentStepProgress().distanceRemaining()));
-    routeDistanceText.setText(formatRouteDistanceRemaining(progress.distanceRemaining()));
-    timeRemainingText.setText(formatTimeRemaining(progress.durationRemaining()));
-    arrivalText.setText(formatArrivalTime(progress.durationRemaining()));
-    setStepProgressBar(progress.currentLegProgress().currentStepProgress().fractionTraveled());
+  private void initLocationScheduler() {
+    locationScheduler = new AdaptiveLocationScheduler(this, locationEngine);
+    locationEngine.addLocationEngineListener(this);
   }
 
-  private void extractLegStep(RouteProgress progress) {
-    LegStep upComingStep = progress.currentLegProgress().upComingStep();
-    if (upComingStep != null) {
-      maneuverImage.setImageResource(obtainManeuverResource(upComingStep));
-      if (!TextUtils.isEmpty(upComingStep.name())) {
-        stepText.setText(upComingStep.name());
-      } else if (!TextUtils.isEmpty(upComingStep.maneuver().instruction())) {
-        stepText.setText(upComingStep.maneuver().instruction());
-      }
+  /**
+   * @return an engine playing back the trace passed with {@code REPLAY_TRACE_EXTRA},
+   * null to use the GPS
+   */
+  @Nullable
+  private LocationEngine obtainReplayLocationEngine() {
+    String tracePath = getIntent().getStringExtra(REPLAY_TRACE_EXTRA);
+    if (tracePath == null) {
+      return null;
     }
-  }
-
-  private static int obtainManeuverResource(LegStep step) {
-    ManeuverMap maneuverMap = new ManeuverMap();
-    if (step != null) {
-      StepManeuver maneuver = step.maneuver();
-      if (!TextUtils.isEmpty(maneuver.modifier())) {
-        return maneuverMap.getManeuverResource(maneuver.type() + maneuver.modifier());
-      } else {
-        return maneuverMap.getManeuverResource(maneuver.type());
-      }
+    File traceFile = new File(tracePath);
+    try (InputStream input = new FileInputStream(traceFile)) {
+      float speedFactor = getIntent().getFloatExtra(REPLAY_SPEED_EXTRA, 1);
+      return new ReplayLocationEngine(LocationTraceParser.parse(input, traceFile.getName()), speedFactor);
+    } catch (IOException exception) {
+      Log.e(TAG, "Unable to replay " + tracePath, exception);
+      return null;
     }
-    return R.drawable.maneuver_starting;
   }
 
-  public String formatArrivalTime(double routeDurationRemaining) {
-    Calendar calendar = Calendar.getInstance();
-    boolean isTwentyFourHourFormat = DateFormat.is24HourFormat(this);
-    return TimeUtils.formatTime(calendar, routeDurationRemaining,
-      NavigationTimeFormat.TWELVE_HOURS, isTwentyFourHourFormat);
-  }
-
-  private SpannableString formatRouteDistanceRemaining(double routeDistanceRemaining) {
-    return distanceUtils.formatDistance(routeDistanceRemaining);
-  }
-
-  private SpannableString formatStepDistanceRemaining(double distance) {
-    return distanceUtils.formatDistance(distance);
+  /**
+   * Writes the instrumentation histograms and the HUD quality changes to logcat and to a file
+   * in the external files directory, triggered on a debuggable build with
+   * {@code adb shell run-as com.mapbox.navhud am broadcast -a com.mapbox.navhud.DUMP_INSTRUMENTATION}.
+   */
+  private void dumpInstrumentation() {
+    final File file = new File(getExternalFilesDir(null), "hud-instrumentation-"
+      + System.currentTimeMillis() + ".txt");
+    final StringBuilder qualityDump = new StringBuilder();
+    try {
+      qualityGovernor.dump(qualityDump);
+    } catch (IOException exception) {
+      // Not thrown by a StringBuilder
+    }
+    AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          StringBuilder dump = new StringBuilder();
+          instrumentation.dump(dump);
+          dump.append(qualityDump);
+          for (String line : dump.toString().split("\n")) {
+            Log.i(TAG, line);
+          }
+          try (Writer writer = new FileWriter(file)) {
+            writer.append(dump);
+          }
+          Log.i(TAG, "Instrumentation written to " + file);
+        } catch (IOException exception) {
+          Log.e(TAG, "Unable to write " + file, exception);
+        }
+      }
+    });
   }
 
-  private void setStepProgressBar(float fractionRemaining) {
-    ObjectAnimator animation = ObjectAnimator.ofInt(stepProgressBar, "progress",
-      Math.round(fractionRemaining * 10000));
-    animation.setInterpolator(new LinearInterpolator());
-    animation.setDuration(1000);
-    animation.start();
+  private void initMapboxNavigation() {
+    navigation.addProgressChangeListener(this);
+    navigation.addMilestoneEventListener(this);
+    navigation.addOffRouteListener(rerouteManager);
+    navigation.setOffRouteEngine(rerouteManager.getOffRouteEngine());
   }
 }
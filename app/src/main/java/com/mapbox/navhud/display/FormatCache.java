@@ -0,0 +1,66 @@
+package com.mapbox.navhud.display;
+
+/**
+ * Small fixed size cache of formatted HUD values keyed by a quantized primitive value.
+ * <p>
+ * Entries are stored in a direct mapped table, a new key simply replaces whatever was
+ * stored in its slot. Lookups and inserts do not allocate, which keeps the per tick
+ * formatting path garbage free once the displayed values have been seen.
+ */
+class FormatCache {
+
+  private final long[] keys;
+  private final CharSequence[] values;
+  private final int mask;
+  private long hits;
+  private long misses;
+
+  /**
+   * @param capacity number of slots, rounded up to the next power of two
+   */
+  FormatCache(int capacity) {
+    int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+    keys = new long[size];
+    values = new CharSequence[size];
+    mask = size - 1;
+  }
+
+  CharSequence get(long key) {
+    int slot = slot(key);
+    if (values[slot] != null && keys[slot] == key) {
+      hits++;
+      return values[slot];
+    }
+    misses++;
+    return null;
+  }
+
+  void put(long key, CharSequence value) {
+    int slot = slot(key);
+    keys[slot] = key;
+    values[slot] = value;
+  }
+
+  void clear() {
+    for (int i = 0; i < values.length; i++) {
+      values[i] = null;
+    }
+  }
+
+  int capacity() {
+    return values.length;
+  }
+
+  long getHitCount() {
+    return hits;
+  }
+
+  long getMissCount() {
+    return misses;
+  }
+
+  private int slot(long key) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash >>> 32) & mask;
+  }
+}
@@ -0,0 +1,94 @@
+package com.mapbox.navhud.display;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Reduces raw route values to the precision the HUD actually displays.
+ * <p>
+ * Two inputs that produce the same key are guaranteed to format to the same text, so the
+ * key can be used to look up previously formatted output in a {@link FormatCache}. Distances
+ * follow the Navigation SDK's {@code DistanceUtils}: units are converted with Turf's length
+ * factors, short distances are rounded down to the next 50 feet or meters with 50 as the
+ * minimum, and longer ones are rounded half even to a tenth or a whole unit like its
+ * {@code NumberFormat}. Times follow {@code TimeUtils}.
+ */
+final class FormatQuantizer {
+
+  // Earth radius in each unit, Turf converts lengths through radians with these factors
+  private static final double EARTH_RADIUS_METERS = 6373000;
+  private static final double EARTH_RADIUS_FEET = 20908792.65;
+  private static final double EARTH_RADIUS_MILES = 3960;
+  private static final double EARTH_RADIUS_KILOMETERS = 6373;
+
+  static final double METERS_PER_FOOT = EARTH_RADIUS_METERS / EARTH_RADIUS_FEET;
+  static final double METERS_PER_MILE = EARTH_RADIUS_METERS / EARTH_RADIUS_MILES;
+
+  private static final double SMALL_UNIT_THRESHOLD = 401;
+  private static final double LARGE_UNIT_THRESHOLD = 10;
+  private static final int SMALL_UNIT_INCREMENT = 50;
+  private static final double TIE_TOLERANCE = 1e-6;
+
+  private static final long BAND_SMALL_UNIT = 1L << 32;
+  private static final long BAND_LARGE_UNIT_TENTHS = 2L << 32;
+  private static final long BAND_LARGE_UNIT = 3L << 32;
+
+  private FormatQuantizer() {
+    // Prevent instantiation
+  }
+
+  /**
+   * @param meters   distance to display
+   * @param imperial true for feet / miles, false for meters / kilometers
+   * @return key identifying the displayed distance text
+   */
+  static long distanceKey(double meters, boolean imperial) {
+    double radians = meters / EARTH_RADIUS_METERS;
+    double smallUnit = radians * (imperial ? EARTH_RADIUS_FEET : EARTH_RADIUS_METERS);
+    double largeUnit = radians * (imperial ? EARTH_RADIUS_MILES : EARTH_RADIUS_KILOMETERS);
+    if (largeUnit > LARGE_UNIT_THRESHOLD) {
+      return BAND_LARGE_UNIT | round(largeUnit, 0);
+    } else if (smallUnit < SMALL_UNIT_THRESHOLD) {
+      int rounded = (int) Math.round(smallUnit) / SMALL_UNIT_INCREMENT * SMALL_UNIT_INCREMENT;
+      return BAND_SMALL_UNIT | Math.max(SMALL_UNIT_INCREMENT, rounded);
+    } else {
+      return BAND_LARGE_UNIT_TENTHS | round(largeUnit, 1);
+    }
+  }
+
+  /**
+   * @return the value rounded half even to 0 or 1 decimals and scaled to an integer, the way
+   * Android's {@code NumberFormat} rounds its shortest decimal representation
+   */
+  private static long round(double value, int decimals) {
+    double scaled = decimals == 0 ? value : value * 10;
+    double floor = Math.floor(scaled);
+    double fraction = scaled - floor;
+    if (Math.abs(fraction - 0.5) > TIE_TOLERANCE) {
+      return (long) floor + (fraction > 0.5 ? 1 : 0);
+    }
+    // Only the decimal representation tells which way a near tie goes, rare enough to allocate
+    return BigDecimal.valueOf(value).setScale(decimals, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+  }
+
+  /**
+   * Time remaining is shown in whole minutes, with 30 seconds or more rounding up.
+   *
+   * @param durationSeconds remaining route duration
+   * @return key identifying the displayed time remaining text
+   */
+  static long timeRemainingKey(double durationSeconds) {
+    return Math.max(0, (long) durationSeconds) / 30;
+  }
+
+  /**
+   * @param nowMillis       current wall clock time
+   * @param durationSeconds remaining route duration
+   * @param twentyFourHour  whether the arrival time is shown in 24 hour format
+   * @return key identifying the displayed arrival time text
+   */
+  static long arrivalTimeKey(long nowMillis, double durationSeconds, boolean twentyFourHour) {
+    long arrivalMinute = (nowMillis + (long) durationSeconds * 1000) / 60000;
+    return arrivalMinute << 1 | (twentyFourHour ? 1 : 0);
+  }
+}
@@ -0,0 +1,371 @@
+package com.mapbox.navhud.display;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+import com.mapbox.navhud.R;
+import com.mapbox.navhud.instrumentation.HudInstrumentation;
+
+/**
+ * Low power rendering of the HUD: a single view drawing speed, maneuver, distances, time
+ * remaining, arrival time and step progress in one {@link #onDraw(Canvas)}, instead of a
+ * layout of separate views that are measured and laid out again when their text changes.
+ * <p>
+ * Numbers and units are drawn from a {@link TextGlyphAtlas} and maneuver glyphs from a
+ * {@link ManeuverGlyphAtlas}, so a frame is mostly bitmap copies. Mirroring flips the canvas,
+ * except for the maneuver glyph which has a pre-mirrored variant. Frames can be capped with
+ * {@link #setMaxFrameRate(int)} and the step progress is extrapolated between updates at the
+ * capped frame rate.
+ */
+public class HudCanvasView extends View implements HudRenderTarget {
+
+  static final int DEFAULT_MAX_FRAME_RATE = 15;
+  private static final String SPEED_LABEL = "MPH";
+  private static final String TRIP_SUMMARY_LABEL = "Trip Summary:";
+  private static final long MAX_EXTRAPOLATION_MILLIS = 3000;
+  private static final int STEP_CHANGE_THRESHOLD = StepProgressAnimator.PROGRESS_MAX / 10;
+
+  private final HudState state = new HudState();
+  private final HudState drawnState = new HudState();
+  private final TextPaint stepTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint speedPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint valuePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint borderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint dividerPaint = new Paint();
+  private final Paint glyphPaint = new Paint();
+  private final Paint progressPaint = new Paint();
+  private final Paint progressBackgroundPaint = new Paint();
+  private final RectF rect = new RectF();
+  private final HudInstrumentation instrumentation = HudInstrumentation.getInstance();
+  private final int accentColor;
+  private final float padding;
+  private final float cornerRadius;
+  private final float progressHeight;
+
+  private TextGlyphAtlas speedAtlas;
+  private TextGlyphAtlas labelAtlas;
+  private TextGlyphAtlas valueAtlas;
+  private ManeuverGlyphAtlas maneuverAtlas;
+  private CharSequence speedText = "0";
+  private CharSequence stepTextLine;
+  private float stepTextWidth;
+  private int glyphSize;
+  private boolean mirrored;
+  private long minFrameIntervalMillis;
+  private long lastFrameTime;
+  private boolean frameRequested;
+  private long frameCount;
+
+  private boolean progressExtrapolationEnabled = true;
+  private float progressBase;
+  private float progressRate;
+  private long progressTime;
+
+  public HudCanvasView(Context context) {
+    this(context, null);
+  }
+
+  public HudCanvasView(Context context, @Nullable AttributeSet attrs) {
+    super(context, attrs);
+    accentColor = context.getColor(R.color.colorAccent);
+    padding = dp(8);
+    cornerRadius = dp(8);
+    progressHeight = dp(6);
+
+    stepTextPaint.setColor(Color.WHITE);
+    stepTextPaint.setTypeface(Typeface.create(Typeface.SANS_SERIF, Typeface.BOLD));
+    stepTextPaint.setTextSize(sp(24));
+    speedPaint.setColor(Color.WHITE);
+    speedPaint.setTypeface(Typeface.create("sans-serif-smallcaps", Typeface.BOLD));
+    speedPaint.setTextSize(sp(60));
+    labelPaint.setColor(accentColor);
+    labelPaint.setTypeface(Typeface.create("sans-serif-smallcaps", Typeface.BOLD));
+    labelPaint.setTextSize(sp(24));
+    valuePaint.setColor(Color.WHITE);
+    valuePaint.setTypeface(Typeface.DEFAULT_BOLD);
+    valuePaint.setTextSize(sp(18));
+    borderPaint.setColor(accentColor);
+    borderPaint.setStyle(Paint.Style.STROKE);
+    borderPaint.setStrokeWidth(dp(1));
+    dividerPaint.setColor(Color.WHITE);
+    dividerPaint.setStrokeWidth(dp(1));
+    glyphPaint.setColor(accentColor);
+    progressPaint.setColor(accentColor);
+    progressBackgroundPaint.setColor(Color.DKGRAY);
+    setMaxFrameRate(DEFAULT_MAX_FRAME_RATE);
+  }
+
+  /**
+   * @param framesPerSecond most frames drawn per second, 0 to draw on every frame
+   */
+  public void setMaxFrameRate(int framesPerSecond) {
+    minFrameIntervalMillis = framesPerSecond > 0 ? 1000 / framesPerSecond : 0;
+  }
+
+  /**
+   * @param enabled whether the step progress keeps moving between updates, redrawing at the
+   *                capped frame rate, or only changes with them
+   */
+  public void setProgressExtrapolationEnabled(boolean enabled) {
+    if (!enabled && progressExtrapolationEnabled) {
+      // Keep the bar where the extrapolation took it
+      progressBase = displayedProgress();
+      progressTime = SystemClock.uptimeMillis();
+      progressRate = 0;
+    }
+    progressExtrapolationEnabled = enabled;
+  }
+
+  public void setMirrored(boolean mirrored) {
+    this.mirrored = mirrored;
+    requestFrame();
+  }
+
+  /**
+   * @return measures step texts as this view draws them, from any thread
+   */
+  RouteHudTable.TextMeasurer createStepTextMeasurer() {
+    final TextPaint paint = new TextPaint(stepTextPaint);
+    return new RouteHudTable.TextMeasurer() {
+      @Override
+      public float measure(CharSequence text) {
+        return paint.measureText(text, 0, text.length());
+      }
+    };
+  }
+
+  /**
+   * @return number of frames drawn so far
+   */
+  public long getFrameCount() {
+    return frameCount;
+  }
+
+  @Override
+  public void submit(HudState newState) {
+    state.copyFrom(newState);
+    int changed = drawnState.diff(state);
+    if ((changed & HudState.FIELD_STEP_TEXT) != 0) {
+      stepTextLine = null;
+    }
+    if ((changed & HudState.FIELD_SPEED) != 0) {
+      speedText = String.valueOf(state.getSpeed());
+    }
+    if ((changed & HudState.FIELD_STEP_PROGRESS) != 0) {
+      updateProgress();
+    }
+    progressRate = progressExtrapolationEnabled ? state.getStepProgressRate() : 0;
+    if (changed != 0) {
+      requestFrame();
+    }
+  }
+
+  @Override
+  protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+    super.onSizeChanged(width, height, oldWidth, oldHeight);
+    stepTextLine = null;
+    glyphSize = (int) Math.max(1, Math.min(width / 2 - 2 * padding,
+      height / 2 - stepTextHeight() - 5 * padding - valuePaint.getTextSize()));
+    if (maneuverAtlas != null && maneuverAtlas.getSize() != glyphSize) {
+      recycleManeuverAtlas();
+    }
+  }
+
+  @Override
+  protected void onDetachedFromWindow() {
+    super.onDetachedFromWindow();
+    frameRequested = false;
+    if (speedAtlas != null) {
+      speedAtlas.recycle();
+      labelAtlas.recycle();
+      valueAtlas.recycle();
+      speedAtlas = null;
+      labelAtlas = null;
+      valueAtlas = null;
+    }
+    recycleManeuverAtlas();
+  }
+
+  @Override
+  protected void onDraw(Canvas canvas) {
+    long drawStart = SystemClock.elapsedRealtimeNanos();
+    frameRequested = false;
+    lastFrameTime = SystemClock.uptimeMillis();
+    frameCount++;
+    if (speedAtlas == null) {
+      speedAtlas = new TextGlyphAtlas(speedPaint, TextGlyphAtlas.HUD_CHARACTERS);
+      labelAtlas = new TextGlyphAtlas(labelPaint, TextGlyphAtlas.HUD_CHARACTERS);
+      valueAtlas = new TextGlyphAtlas(valuePaint, TextGlyphAtlas.HUD_CHARACTERS);
+    }
+    if (maneuverAtlas == null && glyphSize > 0) {
+      maneuverAtlas = new ManeuverGlyphAtlas(getContext(), glyphSize, true);
+    }
+    int width = getWidth();
+    int height = getHeight();
+    float middleX = width / 2f;
+    float middleY = height / 2f;
+
+    canvas.save();
+    if (mirrored) {
+      canvas.scale(1, -1, 0, middleY);
+    }
+
+    // Step text, centered in a rounded border at the top
+    float stepTextHeight = stepTextHeight();
+    if (stepTextLine == null && state.getStepText() != null) {
+      float measuredWidth = state.getStepTextWidth();
+      if (measuredWidth >= 0 && measuredWidth <= width - 8 * padding) {
+        // Measured when the route was compiled and fits as it is
+        stepTextLine = state.getStepText();
+        stepTextWidth = measuredWidth;
+      } else {
+        stepTextLine = TextUtils.ellipsize(state.getStepText(), stepTextPaint, width - 8 * padding,
+          TextUtils.TruncateAt.END);
+        stepTextWidth = stepTextPaint.measureText(stepTextLine, 0, stepTextLine.length());
+      }
+    }
+    if (stepTextLine != null && stepTextLine.length() > 0) {
+      rect.set(middleX - stepTextWidth / 2 - 4 * padding, padding,
+        middleX + stepTextWidth / 2 + 4 * padding, padding + stepTextHeight);
+      canvas.drawRoundRect(rect, cornerRadius, cornerRadius, borderPaint);
+      canvas.drawText(stepTextLine, 0, stepTextLine.length(), middleX - stepTextWidth / 2,
+        rect.centerY() - (stepTextPaint.ascent() + stepTextPaint.descent()) / 2, stepTextPaint);
+    }
+
+    // Speed and unit, on the left half
+    float contentTop = 2 * padding + stepTextHeight;
+    float contentBottom = height - progressHeight - padding;
+    float speedBaseline = (contentTop + contentBottom) / 2 - (speedPaint.ascent() + speedPaint.descent()) / 2;
+    float speedX = width / 8f;
+    float speedWidth = drawText(canvas, speedText, speedX, speedBaseline, speedPaint, speedAtlas);
+    drawText(canvas, SPEED_LABEL, speedX + speedWidth + padding, speedBaseline, labelPaint, labelAtlas);
+
+    // Step distance under the maneuver glyph, on the upper right quarter
+    float stepDistanceBaseline = middleY - 2 * padding;
+    drawCentered(canvas, state.getStepDistance(), middleX + middleX / 2, stepDistanceBaseline);
+    canvas.drawLine(middleX + 2 * padding, middleY, width - 2 * padding, middleY, dividerPaint);
+
+    // Trip summary, on the lower right quarter
+    float lineHeight = valuePaint.getFontSpacing() + padding;
+    float summaryX = middleX + 2 * padding;
+    float baseline = middleY + 2 * padding - labelPaint.ascent();
+    drawText(canvas, TRIP_SUMMARY_LABEL, summaryX, baseline, labelPaint, labelAtlas);
+    baseline += lineHeight + labelPaint.descent();
+    drawText(canvas, state.getRouteDistance(), summaryX + padding, baseline, valuePaint, valueAtlas);
+    baseline += lineHeight;
+    drawText(canvas, state.getTimeRemaining(), summaryX + padding, baseline, valuePaint, valueAtlas);
+    baseline += lineHeight;
+    drawText(canvas, state.getArrivalTime(), summaryX + padding, baseline, valuePaint, valueAtlas);
+
+    // Step progress along the bottom edge
+    float progress = displayedProgress();
+    float progressTop = height - progressHeight;
+    canvas.drawRect(0, progressTop, width, height, progressBackgroundPaint);
+    canvas.drawRect(0, progressTop, width * progress / StepProgressAnimator.PROGRESS_MAX, height, progressPaint);
+
+    canvas.restore();
+
+    // Maneuver glyph above the step distance, outside the flipped canvas, mirror mode copies
+    // the pre-mirrored variant to the mirrored position
+    Bitmap glyph = maneuverAtlas == null ? null
+      : maneuverAtlas.getGlyph(state.getManeuverResource(), mirrored);
+    if (glyph != null) {
+      float glyphTop = mirrored ? height - contentTop - glyphSize : contentTop;
+      canvas.drawBitmap(glyph, middleX + (middleX - glyphSize) / 2, glyphTop, glyphPaint);
+    }
+    drawnState.copyFrom(state);
+    instrumentation.onFrameDrawn(drawStart);
+
+    if (isExtrapolating()) {
+      requestFrame();
+    }
+  }
+
+  private void requestFrame() {
+    if (frameRequested) {
+      return;
+    }
+    frameRequested = true;
+    long delay = minFrameIntervalMillis - (SystemClock.uptimeMillis() - lastFrameTime);
+    if (delay > 0) {
+      postInvalidateDelayed(delay);
+    } else {
+      invalidate();
+    }
+  }
+
+  private void updateProgress() {
+    float current = displayedProgress();
+    int progress = state.getStepProgress();
+    // Moved on to a new step, don't carry the extrapolated progress over
+    progressBase = current - progress > STEP_CHANGE_THRESHOLD ? progress : Math.max(progress, current);
+    progressTime = SystemClock.uptimeMillis();
+  }
+
+  private float displayedProgress() {
+    long elapsed = Math.min(SystemClock.uptimeMillis() - progressTime, MAX_EXTRAPOLATION_MILLIS);
+    return Math.min(StepProgressAnimator.PROGRESS_MAX, progressBase + progressRate * elapsed / 1000f);
+  }
+
+  private boolean isExtrapolating() {
+    return progressRate > 0 && displayedProgress() < StepProgressAnimator.PROGRESS_MAX
+      && SystemClock.uptimeMillis() - progressTime < MAX_EXTRAPOLATION_MILLIS;
+  }
+
+  /**
+   * @return width of the drawn text
+   */
+  private float drawText(Canvas canvas, CharSequence text, float x, float baseline, Paint paint,
+                         TextGlyphAtlas atlas) {
+    if (text == null) {
+      return 0;
+    }
+    if (atlas.canDraw(text)) {
+      atlas.draw(canvas, text, x, baseline, paint);
+      return atlas.measure(text);
+    }
+    canvas.drawText(text, 0, text.length(), x, baseline, paint);
+    return paint.measureText(text, 0, text.length());
+  }
+
+  private void drawCentered(Canvas canvas, CharSequence text, float centerX, float baseline) {
+    if (text == null) {
+      return;
+    }
+    float textWidth = valueAtlas.canDraw(text) ? valueAtlas.measure(text)
+      : valuePaint.measureText(text, 0, text.length());
+    drawText(canvas, text, centerX - textWidth / 2, baseline, valuePaint, valueAtlas);
+  }
+
+  private void recycleManeuverAtlas() {
+    if (maneuverAtlas != null) {
+      maneuverAtlas.recycle();
+      maneuverAtlas = null;
+    }
+  }
+
+  private float stepTextHeight() {
+    return stepTextPaint.getFontSpacing() + 2 * padding;
+  }
+
+  private float dp(float value) {
+    return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value, getResources().getDisplayMetrics());
+  }
+
+  private float sp(float value) {
+    return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, value, getResources().getDisplayMetrics());
+  }
+}
@@ -0,0 +1,87 @@
+package com.mapbox.navhud.display;
+
+import android.content.Context;
+import android.text.format.DateFormat;
+
+import com.mapbox.api.directions.v5.DirectionsCriteria;
+import com.mapbox.services.android.navigation.v5.navigation.NavigationTimeFormat;
+import com.mapbox.services.android.navigation.v5.utils.DistanceUtils;
+import com.mapbox.services.android.navigation.v5.utils.time.TimeUtils;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Formats the distance, time remaining and arrival time shown on the HUD.
+ * <p>
+ * Inputs are quantized to the displayed precision with {@link FormatQuantizer} and the
+ * formatted text is memoized per key, so consecutive progress updates that would display
+ * the same text reuse the previously formatted instance instead of building a new one.
+ */
+class HudFormatter implements RouteHudTracker.Formatter {
+
+  private static final int DISTANCE_CACHE_SIZE = 64;
+  private static final int TIME_REMAINING_CACHE_SIZE = 16;
+  private static final int ARRIVAL_TIME_CACHE_SIZE = 16;
+
+  private final Context context;
+  private final DistanceUtils distanceUtils;
+  private final boolean imperial;
+  private final Calendar calendar = Calendar.getInstance();
+  private final FormatCache distanceCache = new FormatCache(DISTANCE_CACHE_SIZE);
+  private final FormatCache timeRemainingCache = new FormatCache(TIME_REMAINING_CACHE_SIZE);
+  private final FormatCache arrivalTimeCache = new FormatCache(ARRIVAL_TIME_CACHE_SIZE);
+  private boolean twentyFourHourFormat;
+
+  HudFormatter(Context context, String language, String unitType) {
+    this.context = context.getApplicationContext();
+    this.distanceUtils = new DistanceUtils(context, language, unitType);
+    this.imperial = DirectionsCriteria.IMPERIAL.equals(unitType);
+    refreshTimeFormat();
+  }
+
+  /**
+   * Re-reads the device time settings, should be called when the configuration changes.
+   */
+  void refreshTimeFormat() {
+    twentyFourHourFormat = DateFormat.is24HourFormat(context);
+    calendar.setTimeZone(TimeZone.getDefault());
+    arrivalTimeCache.clear();
+  }
+
+  @Override
+  public CharSequence formatDistance(double distance) {
+    long key = FormatQuantizer.distanceKey(distance, imperial);
+    CharSequence formatted = distanceCache.get(key);
+    if (formatted == null) {
+      formatted = distanceUtils.formatDistance(distance);
+      distanceCache.put(key, formatted);
+    }
+    return formatted;
+  }
+
+  @Override
+  public CharSequence formatTimeRemaining(double routeDurationRemaining) {
+    long key = FormatQuantizer.timeRemainingKey(routeDurationRemaining);
+    CharSequence formatted = timeRemainingCache.get(key);
+    if (formatted == null) {
+      formatted = TimeUtils.formatTimeRemaining(routeDurationRemaining);
+      timeRemainingCache.put(key, formatted);
+    }
+    return formatted;
+  }
+
+  @Override
+  public CharSequence formatArrivalTime(double routeDurationRemaining) {
+    long now = System.currentTimeMillis();
+    long key = FormatQuantizer.arrivalTimeKey(now, routeDurationRemaining, twentyFourHourFormat);
+    CharSequence formatted = arrivalTimeCache.get(key);
+    if (formatted == null) {
+      calendar.setTimeInMillis(now);
+      formatted = TimeUtils.formatTime(calendar, routeDurationRemaining,
+        NavigationTimeFormat.TWELVE_HOURS, twentyFourHourFormat);
+      arrivalTimeCache.put(key, formatted);
+    }
+    return formatted;
+  }
+}
@@ -0,0 +1,16 @@
+package com.mapbox.navhud.display;
+
+/**
+ * Shows the {@link HudState} published by the {@link HudUpdatePipeline}, subscribed to its
+ * {@link HudStateStream} on the main thread.
+ */
+interface HudRenderTarget {
+
+  /**
+   * Queues the given state to be rendered on the next frame. The state is copied, so the
+   * caller is free to keep mutating it.
+   * <p>
+   * Must be called from the main thread.
+   */
+  void submit(HudState state);
+}
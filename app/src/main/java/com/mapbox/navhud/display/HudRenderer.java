@@ -0,0 +1,205 @@
+package com.mapbox.navhud.display;
+
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import com.mapbox.navhud.instrumentation.HudInstrumentation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies {@link HudState} updates to the HUD views.
+ * <p>
+ * Submitted states are coalesced until the next frame, then only the fields that differ
+ * from the last rendered state are pushed to their views. Views whose value did not change
+ * are left alone, so they are not measured, laid out or invalidated again.
+ * <p>
+ * Maneuver glyphs come from a {@link ManeuverGlyphAtlas} rasterized at the size of the
+ * maneuver view once it is laid out, so a new maneuver only swaps the drawable. Mirror mode
+ * flips the whole layout, mirrored glyph variants are not needed here.
+ * <p>
+ * With a maximum frame rate set, a state arriving sooner after the last rendered one waits
+ * for a later frame. Every rendered frame is timed from its vsync until the views are drawn.
+ */
+class HudRenderer implements HudRenderTarget, Choreographer.FrameCallback, View.OnLayoutChangeListener {
+
+  private final TextView stepText;
+  private final TextView mphText;
+  private final TextView stepDistanceText;
+  private final TextView routeDistanceText;
+  private final TextView timeRemainingText;
+  private final TextView arrivalText;
+  private final ImageView maneuverImage;
+  private final StepProgressAnimator stepProgressAnimator;
+  private final HudInstrumentation instrumentation = HudInstrumentation.getInstance();
+
+  private final HudState pendingState = new HudState();
+  private final HudState renderedState = new HudState();
+  private ManeuverGlyphAtlas maneuverAtlas;
+  private boolean maneuverShown;
+  private boolean frameScheduled;
+  private long minFrameIntervalNanos;
+  private long lastFrameTime;
+  private long renderStart;
+
+  private final Runnable frameDrawnRunnable = new Runnable() {
+    @Override
+    public void run() {
+      // Choreographer frame times are on the System.nanoTime() clock
+      instrumentation.onFrameDrawn(renderStart, System.nanoTime() - lastFrameTime);
+    }
+  };
+
+  private long appliedUpdates;
+  private long skippedUpdates;
+
+  HudRenderer(TextView stepText, TextView mphText, TextView stepDistanceText, TextView routeDistanceText,
+              TextView timeRemainingText, TextView arrivalText, ImageView maneuverImage,
+              ProgressBar stepProgressBar) {
+    this.stepText = stepText;
+    this.mphText = mphText;
+    this.stepDistanceText = stepDistanceText;
+    this.routeDistanceText = routeDistanceText;
+    this.timeRemainingText = timeRemainingText;
+    this.arrivalText = arrivalText;
+    this.maneuverImage = maneuverImage;
+    this.stepProgressAnimator = new StepProgressAnimator(stepProgressBar);
+    maneuverImage.addOnLayoutChangeListener(this);
+  }
+
+  @Override
+  public void submit(HudState state) {
+    pendingState.copyFrom(state);
+    if (!frameScheduled) {
+      frameScheduled = true;
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+  }
+
+  void release() {
+    Choreographer.getInstance().removeFrameCallback(this);
+    frameScheduled = false;
+    maneuverImage.removeCallbacks(frameDrawnRunnable);
+    stepProgressAnimator.cancel();
+    maneuverImage.removeOnLayoutChangeListener(this);
+    if (maneuverAtlas != null) {
+      maneuverImage.setImageDrawable(null);
+      maneuverAtlas.recycle();
+      maneuverAtlas = null;
+    }
+  }
+
+  /**
+   * @param framesPerSecond most frames rendered per second, 0 to render on every frame
+   */
+  void setMaxFrameRate(int framesPerSecond) {
+    minFrameIntervalNanos = framesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / framesPerSecond : 0;
+  }
+
+  void setProgressExtrapolationEnabled(boolean enabled) {
+    stepProgressAnimator.setExtrapolationEnabled(enabled);
+  }
+
+  void setProgressAnimationEnabled(boolean enabled) {
+    stepProgressAnimator.setAnimationEnabled(enabled);
+  }
+
+  /**
+   * @return number of field updates that were pushed to a view
+   */
+  long getAppliedUpdateCount() {
+    return appliedUpdates;
+  }
+
+  /**
+   * @return number of field updates that were dropped because the value was already shown
+   */
+  long getSkippedUpdateCount() {
+    return skippedUpdates;
+  }
+
+  @Override
+  public void onLayoutChange(View view, int left, int top, int right, int bottom, int oldLeft, int oldTop,
+                             int oldRight, int oldBottom) {
+    int size = Math.min(right - left - view.getPaddingLeft() - view.getPaddingRight(),
+      bottom - top - view.getPaddingTop() - view.getPaddingBottom());
+    if (size <= 0 || (maneuverAtlas != null && maneuverAtlas.getSize() == size)) {
+      return;
+    }
+    ManeuverGlyphAtlas previous = maneuverAtlas;
+    maneuverAtlas = new ManeuverGlyphAtlas(view.getContext(), size, false);
+    if (maneuverShown) {
+      showManeuver(renderedState.getManeuverResource());
+    }
+    if (previous != null) {
+      previous.recycle();
+    }
+  }
+
+  @Override
+  public void doFrame(long frameTimeNanos) {
+    long wait = minFrameIntervalNanos - (frameTimeNanos - lastFrameTime);
+    if (lastFrameTime != 0 && wait > 0) {
+      // Still scheduled, later states keep coalescing into the pending one
+      Choreographer.getInstance().postFrameCallbackDelayed(this, TimeUnit.NANOSECONDS.toMillis(wait));
+      return;
+    }
+    frameScheduled = false;
+    int changed = renderedState.diff(pendingState);
+    int changedCount = Integer.bitCount(changed);
+    appliedUpdates += changedCount;
+    skippedUpdates += HudState.FIELD_COUNT - changedCount;
+    if (changed == 0) {
+      return;
+    }
+    lastFrameTime = frameTimeNanos;
+    renderStart = SystemClock.elapsedRealtimeNanos();
+    render(changed, pendingState);
+    renderedState.copyFrom(pendingState);
+    // The views are laid out and drawn by the traversal of this same frame, anything posted
+    // from here runs once they are
+    maneuverImage.post(frameDrawnRunnable);
+  }
+
+  private void render(int changed, HudState state) {
+    if ((changed & HudState.FIELD_STEP_TEXT) != 0 && state.getStepText() != null) {
+      stepText.setText(state.getStepText());
+    }
+    if ((changed & HudState.FIELD_MANEUVER) != 0) {
+      showManeuver(state.getManeuverResource());
+    }
+    if ((changed & HudState.FIELD_STEP_DISTANCE) != 0) {
+      stepDistanceText.setText(state.getStepDistance());
+    }
+    if ((changed & HudState.FIELD_ROUTE_DISTANCE) != 0) {
+      routeDistanceText.setText(state.getRouteDistance());
+    }
+    if ((changed & HudState.FIELD_TIME_REMAINING) != 0) {
+      timeRemainingText.setText(state.getTimeRemaining());
+    }
+    if ((changed & HudState.FIELD_ARRIVAL_TIME) != 0) {
+      arrivalText.setText(state.getArrivalTime());
+    }
+    if ((changed & HudState.FIELD_STEP_PROGRESS) != 0) {
+      stepProgressAnimator.animateTo(state.getStepProgress(), state.getStepProgressRate());
+    }
+    if ((changed & HudState.FIELD_SPEED) != 0) {
+      mphText.setText(String.valueOf(state.getSpeed()));
+    }
+  }
+
+  private void showManeuver(int resource) {
+    Drawable glyph = maneuverAtlas != null ? maneuverAtlas.getDrawable(resource) : null;
+    if (glyph != null) {
+      maneuverImage.setImageDrawable(glyph);
+    } else {
+      maneuverImage.setImageResource(resource);
+    }
+    maneuverShown = true;
+  }
+}
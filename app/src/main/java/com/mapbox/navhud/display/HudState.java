@@ -0,0 +1,189 @@
+package com.mapbox.navhud.display;
+
+import com.mapbox.navhud.R;
+
+/**
+ * Values currently shown on the HUD.
+ * <p>
+ * Instances are mutable and meant to be reused between progress updates, use
+ * {@link #copyFrom(HudState)} to take a snapshot and {@link #diff(HudState)} to find the
+ * fields that need to be rendered again.
+ */
+public class HudState {
+
+  public static final int FIELD_STEP_TEXT = 1;
+  public static final int FIELD_MANEUVER = 1 << 1;
+  public static final int FIELD_STEP_DISTANCE = 1 << 2;
+  public static final int FIELD_ROUTE_DISTANCE = 1 << 3;
+  public static final int FIELD_TIME_REMAINING = 1 << 4;
+  public static final int FIELD_ARRIVAL_TIME = 1 << 5;
+  public static final int FIELD_STEP_PROGRESS = 1 << 6;
+  public static final int FIELD_SPEED = 1 << 7;
+  public static final int FIELD_COUNT = 8;
+  public static final int ALL_FIELDS = (1 << FIELD_COUNT) - 1;
+
+  private CharSequence stepText;
+  private float stepTextWidth = -1;
+  private int maneuverResource = R.drawable.maneuver_starting;
+  private CharSequence stepDistance;
+  private CharSequence routeDistance;
+  private CharSequence timeRemaining;
+  private CharSequence arrivalTime;
+  private int stepProgress;
+  private float stepProgressRate;
+  private int speed;
+
+  public CharSequence getStepText() {
+    return stepText;
+  }
+
+  public void setStepText(CharSequence stepText) {
+    this.stepText = stepText;
+  }
+
+  /**
+   * @return width of the step text measured ahead of rendering, negative if it was not. Set
+   * together with the text, so it does not take part in {@link #diff(HudState)}.
+   */
+  public float getStepTextWidth() {
+    return stepTextWidth;
+  }
+
+  public void setStepTextWidth(float stepTextWidth) {
+    this.stepTextWidth = stepTextWidth;
+  }
+
+  public int getManeuverResource() {
+    return maneuverResource;
+  }
+
+  public void setManeuverResource(int maneuverResource) {
+    this.maneuverResource = maneuverResource;
+  }
+
+  public CharSequence getStepDistance() {
+    return stepDistance;
+  }
+
+  public void setStepDistance(CharSequence stepDistance) {
+    this.stepDistance = stepDistance;
+  }
+
+  public CharSequence getRouteDistance() {
+    return routeDistance;
+  }
+
+  public void setRouteDistance(CharSequence routeDistance) {
+    this.routeDistance = routeDistance;
+  }
+
+  public CharSequence getTimeRemaining() {
+    return timeRemaining;
+  }
+
+  public void setTimeRemaining(CharSequence timeRemaining) {
+    this.timeRemaining = timeRemaining;
+  }
+
+  public CharSequence getArrivalTime() {
+    return arrivalTime;
+  }
+
+  public void setArrivalTime(CharSequence arrivalTime) {
+    this.arrivalTime = arrivalTime;
+  }
+
+  /**
+   * @return step progress scaled to the progress bar range of 0 - 10000
+   */
+  public int getStepProgress() {
+    return stepProgress;
+  }
+
+  public void setStepProgress(int stepProgress) {
+    this.stepProgress = stepProgress;
+  }
+
+  /**
+   * @return expected step progress change per second, 0 if unknown. Only used to animate the
+   * progress bar between updates, so it does not take part in {@link #diff(HudState)}.
+   */
+  public float getStepProgressRate() {
+    return stepProgressRate;
+  }
+
+  public void setStepProgressRate(float stepProgressRate) {
+    this.stepProgressRate = stepProgressRate;
+  }
+
+  public int getSpeed() {
+    return speed;
+  }
+
+  public void setSpeed(int speed) {
+    this.speed = speed;
+  }
+
+  public void copyFrom(HudState other) {
+    stepText = other.stepText;
+    stepTextWidth = other.stepTextWidth;
+    maneuverResource = other.maneuverResource;
+    stepDistance = other.stepDistance;
+    routeDistance = other.routeDistance;
+    timeRemaining = other.timeRemaining;
+    arrivalTime = other.arrivalTime;
+    stepProgress = other.stepProgress;
+    stepProgressRate = other.stepProgressRate;
+    speed = other.speed;
+  }
+
+  /**
+   * Compares this state with another one field by field.
+   *
+   * @param other state to compare with
+   * @return bit mask of the {@code FIELD_*} values that differ
+   */
+  int diff(HudState other) {
+    int changed = 0;
+    if (!contentEquals(stepText, other.stepText)) {
+      changed |= FIELD_STEP_TEXT;
+    }
+    if (maneuverResource != other.maneuverResource) {
+      changed |= FIELD_MANEUVER;
+    }
+    if (!contentEquals(stepDistance, other.stepDistance)) {
+      changed |= FIELD_STEP_DISTANCE;
+    }
+    if (!contentEquals(routeDistance, other.routeDistance)) {
+      changed |= FIELD_ROUTE_DISTANCE;
+    }
+    if (!contentEquals(timeRemaining, other.timeRemaining)) {
+      changed |= FIELD_TIME_REMAINING;
+    }
+    if (!contentEquals(arrivalTime, other.arrivalTime)) {
+      changed |= FIELD_ARRIVAL_TIME;
+    }
+    if (stepProgress != other.stepProgress) {
+      changed |= FIELD_STEP_PROGRESS;
+    }
+    if (speed != other.speed) {
+      changed |= FIELD_SPEED;
+    }
+    return changed;
+  }
+
+  private static boolean contentEquals(CharSequence first, CharSequence second) {
+    if (first == second) {
+      return true;
+    }
+    if (first == null || second == null || first.length() != second.length()) {
+      return false;
+    }
+    for (int i = 0; i < first.length(); i++) {
+      if (first.charAt(i) != second.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,161 @@
+package com.mapbox.navhud.display;
+
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.mapbox.android.core.location.LocationEngine;
+import com.mapbox.android.core.location.LocationEngineListener;
+import com.mapbox.navhud.ManeuverMap;
+import com.mapbox.navhud.instrumentation.HudInstrumentation;
+import com.mapbox.navhud.route.BinaryRoute;
+import com.mapbox.navhud.route.RouteGeometryIndex;
+import com.mapbox.services.android.navigation.v5.navigation.MapboxNavigation;
+import com.mapbox.services.android.navigation.v5.routeprogress.ProgressChangeListener;
+import com.mapbox.services.android.navigation.v5.routeprogress.RouteProgress;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Turns the fixes and progress of a navigation session into a stream of {@link HudState}s,
+ * independent of what shows them.
+ * <p>
+ * The engine listens to the {@link LocationEngine} and {@link MapboxNavigation} itself and
+ * computes the state once in a {@link HudUpdatePipeline}. Every output, the windshield HUD as
+ * well as a cluster display, a cast target or a logger, subscribes to the
+ * {@link HudStateStream} with its own executor and rate limit.
+ * <p>
+ * Everything the HUD shows for the steps of a route is compiled into a {@link RouteHudTable}
+ * on a thread of its own whenever the route is set, so loading a long route or rerouting never
+ * delays an update.
+ * <p>
+ * Must be attached, subscribed to and released from the main thread.
+ */
+public class HudStateEngine implements LocationEngineListener, ProgressChangeListener {
+
+  private final HudStateStream stateStream = new HudStateStream();
+  private final HudUpdatePipeline pipeline;
+  private final HudInstrumentation instrumentation = HudInstrumentation.getInstance();
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private final Executor mainExecutor = new Executor() {
+    @Override
+    public void execute(Runnable runnable) {
+      mainHandler.post(runnable);
+    }
+  };
+  private final ExecutorService routeCompiler = Executors.newSingleThreadExecutor();
+  private final AtomicInteger routeGeneration = new AtomicInteger();
+  private final RouteHudTable.TextMeasurer textMeasurer;
+  private MapboxNavigation navigation;
+  private LocationEngine locationEngine;
+
+  /**
+   * @param textMeasurer measures the step texts as the renderer draws them, null if it does
+   *                     not need them measured
+   */
+  HudStateEngine(HudFormatter hudFormatter, RouteHudTable.TextMeasurer textMeasurer) {
+    this.textMeasurer = textMeasurer;
+    pipeline = new HudUpdatePipeline(hudFormatter, stateStream);
+  }
+
+  public void attach(MapboxNavigation navigation, LocationEngine locationEngine) {
+    this.navigation = navigation;
+    this.locationEngine = locationEngine;
+    locationEngine.addLocationEngineListener(this);
+    navigation.addProgressChangeListener(this);
+  }
+
+  /**
+   * Delivers the states on the main thread.
+   *
+   * @param minIntervalMillis minimum time between two states, 0 for every state
+   */
+  public HudStateStream.Subscription subscribe(HudStateStream.Subscriber subscriber, long minIntervalMillis) {
+    return stateStream.subscribe(subscriber, mainExecutor, minIntervalMillis);
+  }
+
+  /**
+   * Delivers the states on the given executor, e.g. a background thread for a logger.
+   */
+  public HudStateStream.Subscription subscribe(HudStateStream.Subscriber subscriber, Executor executor,
+                                               long minIntervalMillis) {
+    return stateStream.subscribe(subscriber, executor, minIntervalMillis);
+  }
+
+  /**
+   * Compiles the route in the background and hands it to the pipeline, a route set again
+   * before that, e.g. on a reroute, replaces it. Without a mapped route only the geometry
+   * index is used, the upcoming step is then read from the route progress.
+   *
+   * @see HudUpdatePipeline#setRoute(RouteHudTable, RouteGeometryIndex)
+   */
+  public void setRoute(final BinaryRoute route, final RouteGeometryIndex routeIndex) {
+    final int generation = routeGeneration.incrementAndGet();
+    if (route == null) {
+      installRoute(generation, null, routeIndex);
+      return;
+    }
+    routeCompiler.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (generation == routeGeneration.get()) {
+          installRoute(generation, RouteHudTable.build(route, routeIndex, ManeuverMap.getInstance(), textMeasurer),
+            routeIndex);
+        }
+      }
+    });
+  }
+
+  /**
+   * Runs a task on the thread computing the state, after the updates queued so far.
+   */
+  public void post(Runnable task) {
+    pipeline.post(task);
+  }
+
+  private void installRoute(final int generation, final RouteHudTable routeTable,
+                            final RouteGeometryIndex routeIndex) {
+    pipeline.post(new Runnable() {
+      @Override
+      public void run() {
+        if (generation == routeGeneration.get()) {
+          pipeline.setRoute(routeTable, routeIndex);
+        }
+      }
+    });
+  }
+
+  @Override
+  public void onConnected() {
+    // Updates are requested by whoever owns the engine
+  }
+
+  @Override
+  public void onLocationChanged(Location location) {
+    instrumentation.onFixReceived(location);
+    pipeline.onLocationChanged(location);
+  }
+
+  @Override
+  public void onProgressChange(Location location, RouteProgress routeProgress) {
+    instrumentation.onProgressComputed();
+    pipeline.onProgressChange(location, routeProgress);
+  }
+
+  /**
+   * Stops listening, cancels all subscriptions and stops the compiling and pipeline threads.
+   */
+  public void release() {
+    routeCompiler.shutdownNow();
+    if (locationEngine != null) {
+      locationEngine.removeLocationEngineListener(this);
+      navigation.removeProgressChangeListener(this);
+    }
+    stateStream.close();
+    pipeline.quit();
+    mainHandler.removeCallbacksAndMessages(null);
+  }
+}
@@ -0,0 +1,210 @@
+package com.mapbox.navhud.display;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans the published {@link HudState} out to any number of subscribers, e.g. the windshield
+ * renderer, a cluster display or a logger.
+ * <p>
+ * Every subscriber has its own slot holding only the latest state, a state published before
+ * the previous one was delivered replaces it. Deliveries run on the subscriber's executor, at
+ * most one at a time and no more often than its minimum interval, so a slow or rate limited
+ * subscriber only ever falls behind itself. Publishing copies the state into each slot and
+ * never waits for a subscriber, for subscribers without a minimum interval nothing is
+ * allocated per state.
+ * <p>
+ * Subscribers receive a state owned by their slot, which is reused for the next delivery. It
+ * must not be modified or kept after the callback returns, copy it to keep it.
+ */
+public class HudStateStream {
+
+  public interface Subscriber {
+
+    /**
+     * Called on the subscriber's executor.
+     *
+     * @param changedFields {@code HudState.FIELD_*} bits that differ from the previous state
+     *                      delivered to this subscriber, all of them on the first one
+     */
+    void onHudState(HudState state, int changedFields);
+  }
+
+  public interface Subscription {
+
+    /**
+     * Stops deliveries, one already running completes.
+     */
+    void cancel();
+
+    /**
+     * @return states replaced by a newer one before they were delivered
+     */
+    long getConflatedCount();
+  }
+
+  private final CopyOnWriteArrayList<Slot> slots = new CopyOnWriteArrayList<>();
+  private ScheduledExecutorService timer;
+
+  /**
+   * @param executor           runs the deliveries, e.g. posting to the subscriber's thread
+   * @param minIntervalMillis  minimum time between two deliveries, 0 for every state
+   */
+  public Subscription subscribe(Subscriber subscriber, Executor executor, long minIntervalMillis) {
+    Slot slot = new Slot(subscriber, executor, TimeUnit.MILLISECONDS.toNanos(minIntervalMillis));
+    if (minIntervalMillis > 0) {
+      startTimer();
+    }
+    slots.add(slot);
+    return slot;
+  }
+
+  /**
+   * Hands the state to every subscriber. The state is copied, the caller is free to keep
+   * mutating it. Called from one thread at a time.
+   */
+  public void publish(HudState state) {
+    for (Slot slot : slots) {
+      slot.offer(state);
+    }
+  }
+
+  public int getSubscriberCount() {
+    return slots.size();
+  }
+
+  /**
+   * Cancels all subscriptions and stops the timer of the rate limited ones.
+   */
+  public synchronized void close() {
+    for (Slot slot : slots) {
+      slot.cancel();
+    }
+    if (timer != null) {
+      timer.shutdownNow();
+      timer = null;
+    }
+  }
+
+  private synchronized void startTimer() {
+    if (timer == null) {
+      timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "HudStateStreamTimer");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+  }
+
+  private synchronized void scheduleDelayed(Slot slot, long delayNanos) {
+    if (timer == null) {
+      slot.scheduled.set(false);
+      return;
+    }
+    timer.schedule(slot.delayedDelivery, delayNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private final class Slot implements Subscription, Runnable {
+
+    private final Subscriber subscriber;
+    private final Executor executor;
+    private final long minIntervalNanos;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    // Guarded by this
+    private final HudState pendingState = new HudState();
+    private boolean hasPending;
+    private long conflatedCount;
+    // Only accessed from the delivering thread
+    private final HudState deliveredState = new HudState();
+    private final HudState previousState = new HudState();
+    private boolean delivered;
+    private volatile long lastDeliveryTime;
+    private volatile boolean cancelled;
+
+    private final Runnable delayedDelivery = new Runnable() {
+      @Override
+      public void run() {
+        executor.execute(Slot.this);
+      }
+    };
+
+    Slot(Subscriber subscriber, Executor executor, long minIntervalNanos) {
+      this.subscriber = subscriber;
+      this.executor = executor;
+      this.minIntervalNanos = minIntervalNanos;
+      lastDeliveryTime = System.nanoTime() - minIntervalNanos;
+    }
+
+    void offer(HudState state) {
+      synchronized (this) {
+        pendingState.copyFrom(state);
+        if (hasPending) {
+          conflatedCount++;
+        }
+        hasPending = true;
+      }
+      schedule();
+    }
+
+    @Override
+    public void run() {
+      boolean taken = false;
+      if (!cancelled) {
+        synchronized (this) {
+          if (hasPending) {
+            deliveredState.copyFrom(pendingState);
+            hasPending = false;
+            taken = true;
+          }
+        }
+      }
+      if (taken) {
+        lastDeliveryTime = System.nanoTime();
+        int changedFields = delivered ? deliveredState.diff(previousState) : HudState.ALL_FIELDS;
+        delivered = true;
+        subscriber.onHudState(deliveredState, changedFields);
+        previousState.copyFrom(deliveredState);
+      }
+      scheduled.set(false);
+      // States published during the delivery found it still scheduled
+      boolean pending;
+      synchronized (this) {
+        pending = hasPending;
+      }
+      if (pending) {
+        schedule();
+      }
+    }
+
+    private void schedule() {
+      if (cancelled || !scheduled.compareAndSet(false, true)) {
+        return;
+      }
+      long delay = lastDeliveryTime + minIntervalNanos - System.nanoTime();
+      if (delay > 0) {
+        scheduleDelayed(this, delay);
+      } else {
+        executor.execute(this);
+      }
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      slots.remove(this);
+    }
+
+    @Override
+    public synchronized long getConflatedCount() {
+      return conflatedCount;
+    }
+  }
+}
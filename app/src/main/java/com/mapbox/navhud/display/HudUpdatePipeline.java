@@ -0,0 +1,310 @@
+package com.mapbox.navhud.display;
+
+import android.location.Location;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import com.mapbox.api.directions.v5.models.LegStep;
+import com.mapbox.navhud.ManeuverMap;
+import com.mapbox.navhud.R;
+import com.mapbox.navhud.instrumentation.HudInstrumentation;
+import com.mapbox.navhud.instrumentation.StartupTrace;
+import com.mapbox.navhud.location.SpeedFilter;
+import com.mapbox.navhud.route.RouteGeometryIndex;
+import com.mapbox.services.android.navigation.v5.routeprogress.RouteProgress;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.mapbox.navhud.Constants.MPH_DOUBLE;
+
+/**
+ * Computes the {@link HudState} on a background thread.
+ * <p>
+ * Location and progress updates are handed over from the main thread and coalesced, if
+ * several arrive before the background thread gets to them only the latest one is
+ * processed. The resulting state is published to a {@link HudStateStream}, which hands it to
+ * the renderers and any other subscriber.
+ * <p>
+ * Once a {@link RouteGeometryIndex} is set, every progress location is snapped to the route
+ * by a {@link RouteHudTracker} and the current step and remaining distances are taken from
+ * the snap, falling back to the values of the {@link RouteProgress} while the location is
+ * away from the route. Distances
+ * and times remaining are to the end of the current leg, the next stop on routes with
+ * several.
+ * <p>
+ * Fixes only feed a {@link SpeedFilter}, the speed readout is sampled from it at a fixed
+ * cadence while it has an estimate and a state is only published when the rounded value
+ * changes.
+ */
+class HudUpdatePipeline {
+
+  private static final String THREAD_NAME = "HudUpdatePipeline";
+  private static final double SNAP_RADIUS = 50;
+  private static final long SPEED_READOUT_INTERVAL_MILLIS = 250;
+  private static final double SPEED_READOUT_HYSTERESIS = 0.3;
+
+  private final HudFormatter hudFormatter;
+  private final RouteHudTracker routeTracker;
+  private final HudStateStream stateStream;
+  private final ManeuverMap maneuverMap = ManeuverMap.getInstance();
+  private final HudInstrumentation instrumentation = HudInstrumentation.getInstance();
+  private final HandlerThread thread;
+  private final Handler handler;
+
+  private final AtomicReference<Location> pendingLocation = new AtomicReference<>();
+  private final AtomicReference<RouteProgress> pendingProgress = new AtomicReference<>();
+  private final AtomicReference<Location> pendingProgressLocation = new AtomicReference<>();
+  private final AtomicBoolean processScheduled = new AtomicBoolean();
+  private final AtomicInteger queueDepth = new AtomicInteger();
+  private final AtomicLong oldestPendingTime = new AtomicLong();
+
+  // Only accessed from the pipeline thread
+  private final HudState workingState = new HudState();
+  private LegStep cachedManeuverStep;
+  private int cachedManeuverResource = R.drawable.maneuver_starting;
+  private final SpeedFilter speedFilter = new SpeedFilter();
+  private boolean speedReadoutScheduled;
+  private long nextSpeedReadoutTime;
+  private boolean instructionPublished;
+
+  private volatile int maxQueueDepth;
+  private volatile long processedBatches;
+  private volatile long coalescedUpdates;
+  private volatile long totalLatencyNanos;
+  private volatile long maxLatencyNanos;
+
+  private final Runnable processRunnable = new Runnable() {
+    @Override
+    public void run() {
+      process();
+    }
+  };
+
+  private final Runnable speedReadoutRunnable = new Runnable() {
+    @Override
+    public void run() {
+      updateSpeedReadout();
+    }
+  };
+
+  HudUpdatePipeline(HudFormatter hudFormatter, HudStateStream stateStream) {
+    this.hudFormatter = hudFormatter;
+    this.routeTracker = new RouteHudTracker(hudFormatter, SNAP_RADIUS);
+    this.stateStream = stateStream;
+    thread = new HandlerThread(THREAD_NAME, Process.THREAD_PRIORITY_DISPLAY);
+    thread.start();
+    handler = new Handler(thread.getLooper());
+  }
+
+  void onLocationChanged(Location location) {
+    pendingLocation.set(location);
+    enqueue();
+  }
+
+  void onProgressChange(Location location, RouteProgress routeProgress) {
+    pendingProgressLocation.set(location);
+    pendingProgress.set(routeProgress);
+    enqueue();
+  }
+
+  /**
+   * Switches the upcoming step lookup over to a {@link RouteHudTable} compiled from the mapped
+   * route and the distances over to the geometry index, both have to match the route
+   * navigation was started with. Pass nulls to go back to the {@link RouteProgress} values.
+   * <p>
+   * Must be called on the pipeline thread, see {@link #post(Runnable)}.
+   */
+  void setRoute(RouteHudTable routeTable, RouteGeometryIndex routeIndex) {
+    routeTracker.setRoute(routeTable, routeIndex);
+  }
+
+  /**
+   * Runs a task on the pipeline thread, after the updates queued so far.
+   */
+  void post(Runnable task) {
+    handler.post(task);
+  }
+
+  void quit() {
+    handler.removeCallbacksAndMessages(null);
+    thread.quitSafely();
+  }
+
+  /**
+   * @return number of updates currently waiting to be processed
+   */
+  int getQueueDepth() {
+    return queueDepth.get();
+  }
+
+  int getMaxQueueDepth() {
+    return maxQueueDepth;
+  }
+
+  /**
+   * @return number of updates that were dropped because a newer one arrived first
+   */
+  long getCoalescedUpdateCount() {
+    return coalescedUpdates;
+  }
+
+  long getProcessedBatchCount() {
+    return processedBatches;
+  }
+
+  /**
+   * @return average time from an update arriving to its state being published, in nanoseconds
+   */
+  long getAverageLatencyNanos() {
+    long batches = processedBatches;
+    return batches == 0 ? 0 : totalLatencyNanos / batches;
+  }
+
+  long getMaxLatencyNanos() {
+    return maxLatencyNanos;
+  }
+
+  private void enqueue() {
+    oldestPendingTime.compareAndSet(0, SystemClock.elapsedRealtimeNanos());
+    int depth = queueDepth.incrementAndGet();
+    if (depth > maxQueueDepth) {
+      maxQueueDepth = depth;
+    }
+    if (processScheduled.compareAndSet(false, true)) {
+      handler.post(processRunnable);
+    }
+  }
+
+  private void process() {
+    processScheduled.set(false);
+    long submittedTime = oldestPendingTime.getAndSet(0);
+    int batchSize = queueDepth.getAndSet(0);
+
+    Location location = pendingLocation.getAndSet(null);
+    if (location != null) {
+      updateSpeedFilter(location);
+    }
+    RouteProgress progress = pendingProgress.getAndSet(null);
+    if (progress != null) {
+      Location progressLocation = pendingProgressLocation.getAndSet(null);
+      updateStepProgressRate(progressLocation, progress);
+      updateUi(progressLocation, progress);
+    }
+    publish();
+    instrumentation.onStatePublished(submittedTime);
+    if (progress != null && !instructionPublished) {
+      instructionPublished = true;
+      instrumentation.getStartupTrace().mark(StartupTrace.Phase.FIRST_INSTRUCTION);
+    }
+
+    long latency = SystemClock.elapsedRealtimeNanos() - submittedTime;
+    totalLatencyNanos += latency;
+    if (latency > maxLatencyNanos) {
+      maxLatencyNanos = latency;
+    }
+    if (batchSize > 1) {
+      coalescedUpdates += batchSize - 1;
+    }
+    processedBatches++;
+  }
+
+  private void publish() {
+    stateStream.publish(workingState);
+  }
+
+  private void updateSpeedFilter(Location location) {
+    long fixTime = location.getElapsedRealtimeNanos() > 0
+      ? location.getElapsedRealtimeNanos() / 1000000 : SystemClock.elapsedRealtime();
+    speedFilter.update(fixTime, location.getLatitude(), location.getLongitude(), location.hasSpeed(),
+      location.getSpeed(), location.hasBearing(), location.getBearing(),
+      location.hasAccuracy() ? location.getAccuracy() : 0);
+    if (!speedReadoutScheduled) {
+      speedReadoutScheduled = true;
+      nextSpeedReadoutTime = SystemClock.uptimeMillis();
+      handler.post(speedReadoutRunnable);
+    }
+  }
+
+  /**
+   * Samples the filtered speed, runs every {@link #SPEED_READOUT_INTERVAL_MILLIS} until the
+   * filter has no estimate any more.
+   */
+  private void updateSpeedReadout() {
+    long now = SystemClock.elapsedRealtime();
+    int shown = workingState.getSpeed();
+    int speed = SpeedFilter.roundStable(speedFilter.getSpeed(now) * MPH_DOUBLE, shown,
+      SPEED_READOUT_HYSTERESIS);
+    if (speed != shown) {
+      workingState.setSpeed(speed);
+      publish();
+    }
+    if (speedFilter.hasEstimate(now)) {
+      nextSpeedReadoutTime = Math.max(nextSpeedReadoutTime + SPEED_READOUT_INTERVAL_MILLIS,
+        SystemClock.uptimeMillis());
+      handler.postAtTime(speedReadoutRunnable, nextSpeedReadoutTime);
+    } else {
+      speedReadoutScheduled = false;
+    }
+  }
+
+  private void updateStepProgressRate(Location location, RouteProgress progress) {
+    double stepDistance = progress.currentLegProgress().currentStep().distance();
+    double speed = speedFilter.getSpeed(SystemClock.elapsedRealtime());
+    if (location != null && speed > 0 && stepDistance > 0) {
+      workingState.setStepProgressRate((float) (speed / stepDistance * StepProgressAnimator.PROGRESS_MAX));
+    } else {
+      workingState.setStepProgressRate(0);
+    }
+  }
+
+  private void updateUi(Location location, RouteProgress progress) {
+    if (location != null && routeTracker.track(location.getLatitude(), location.getLongitude())) {
+      if (!routeTracker.updateFromSnap(workingState)) {
+        extractLegStep(progress);
+        workingState.setRouteDistance(hudFormatter.formatDistance(progress.currentLegProgress()
+          .distanceRemaining()));
+      }
+    } else {
+      extractLegStep(progress);
+      workingState.setStepDistance(hudFormatter.formatDistance(progress.currentLegProgress()
+        .currentStepProgress().distanceRemaining()));
+      workingState.setRouteDistance(hudFormatter.formatDistance(progress.currentLegProgress()
+        .distanceRemaining()));
+      workingState.setStepProgress(Math.round(progress.currentLegProgress().currentStepProgress()
+        .fractionTraveled() * StepProgressAnimator.PROGRESS_MAX));
+    }
+    routeTracker.updateTimes(progress.currentLegProgress().durationRemaining(), workingState);
+  }
+
+  private void extractLegStep(RouteProgress progress) {
+    if (routeTracker.updateUpcomingStep(progress.legIndex(), progress.currentLegProgress().stepIndex(),
+      workingState)) {
+      return;
+    }
+    LegStep upComingStep = progress.currentLegProgress().upComingStep();
+    if (upComingStep != null) {
+      workingState.setManeuverResource(obtainManeuverResource(upComingStep));
+      if (!TextUtils.isEmpty(upComingStep.name())) {
+        workingState.setStepText(upComingStep.name());
+        workingState.setStepTextWidth(-1);
+      } else if (!TextUtils.isEmpty(upComingStep.maneuver().instruction())) {
+        workingState.setStepText(upComingStep.maneuver().instruction());
+        workingState.setStepTextWidth(-1);
+      }
+    }
+  }
+
+  private int obtainManeuverResource(LegStep step) {
+    if (step != cachedManeuverStep) {
+      cachedManeuverStep = step;
+      cachedManeuverResource = maneuverMap.getManeuverResource(step);
+    }
+    return cachedManeuverResource;
+  }
+}
@@ -0,0 +1,62 @@
+package com.mapbox.navhud.display;
+
+import com.mapbox.android.core.location.LocationEngine;
+import com.mapbox.android.core.location.LocationEngineListener;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Activates location engines for as long as someone uses them.
+ * <p>
+ * The best engine available is shared by the whole process, so a new trip warming up gets the
+ * same instance the previous {@link DisplayActivity} is still using. Every user takes a lease,
+ * the engine is activated for the first and deactivated when the last one is released. Must be
+ * used from the main thread.
+ */
+class LocationEngineLeases {
+
+  private final Map<LocationEngine, Integer> leaseCounts = new IdentityHashMap<>();
+
+  /**
+   * Adds the listener and activates the engine unless it already is. The engine does not call
+   * {@link LocationEngineListener#onConnected()} again when it is activated already, a listener
+   * joining a connected engine is told right away.
+   */
+  void acquire(LocationEngine engine, LocationEngineListener listener) {
+    Integer count = leaseCounts.get(engine);
+    leaseCounts.put(engine, count == null ? 1 : count + 1);
+    engine.addLocationEngineListener(listener);
+    if (count == null) {
+      engine.activate();
+    } else if (engine.isConnected()) {
+      listener.onConnected();
+    }
+  }
+
+  /**
+   * Removes the listener, and deactivates the engine if this was its last lease.
+   */
+  void release(LocationEngine engine, LocationEngineListener listener) {
+    engine.removeLocationEngineListener(listener);
+    Integer count = leaseCounts.get(engine);
+    if (count == null) {
+      return;
+    }
+    if (count > 1) {
+      leaseCounts.put(engine, count - 1);
+      return;
+    }
+    leaseCounts.remove(engine);
+    engine.removeLocationUpdates();
+    engine.deactivate();
+  }
+
+  /**
+   * @return number of leases the engine is active for
+   */
+  int getLeaseCount(LocationEngine engine) {
+    Integer count = leaseCounts.get(engine);
+    return count != null ? count : 0;
+  }
+}
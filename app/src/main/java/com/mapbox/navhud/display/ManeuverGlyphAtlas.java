@@ -0,0 +1,141 @@
+package com.mapbox.navhud.display;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.Nullable;
+import android.util.SparseIntArray;
+
+import com.mapbox.navhud.ManeuverMap;
+
+/**
+ * Every maneuver drawable {@link ManeuverMap} can resolve to, rasterized once at the size it
+ * is shown at.
+ * <p>
+ * Glyphs are kept as square alpha bitmaps, the color they are drawn with is taken from the
+ * paint, or from the tint of the {@link android.widget.ImageView} showing them. Switching
+ * maneuvers is then a lookup returning an existing bitmap or drawable, the vector drawables
+ * are not inflated, parsed or rasterized again while driving. Optionally each glyph also has
+ * a vertically flipped variant, so mirror mode can copy it without drawing through a flipped
+ * matrix.
+ * <p>
+ * The atlas holds {@code resources * size * size} bytes, twice that with mirrored variants,
+ * and has to be {@link #recycle() recycled} once it is no longer shown.
+ */
+class ManeuverGlyphAtlas {
+
+  private static final int NO_GLYPH = -1;
+
+  private final int size;
+  private final SparseIntArray glyphIndexes = new SparseIntArray();
+  private final Bitmap[] glyphs;
+  @Nullable
+  private final Bitmap[] mirroredGlyphs;
+  private final Drawable[] drawables;
+
+  /**
+   * Rasterizes all maneuver glyphs, takes a few milliseconds per glyph so it is done once
+   * when the HUD is laid out.
+   *
+   * @param size     width and height of the glyphs in pixels
+   * @param mirrored whether to also rasterize vertically flipped variants
+   */
+  ManeuverGlyphAtlas(Context context, int size, boolean mirrored) {
+    this.size = size;
+    int[] resources = ManeuverMap.getInstance().getManeuverResources();
+    glyphs = new Bitmap[resources.length];
+    mirroredGlyphs = mirrored ? new Bitmap[resources.length] : null;
+    drawables = new Drawable[resources.length];
+    Resources res = context.getResources();
+    for (int i = 0; i < resources.length; i++) {
+      Drawable drawable = context.getDrawable(resources[i]);
+      if (drawable == null) {
+        continue;
+      }
+      drawable.setBounds(0, 0, size, size);
+      glyphs[i] = rasterize(drawable, false);
+      if (mirroredGlyphs != null) {
+        mirroredGlyphs[i] = rasterize(drawable, true);
+      }
+      drawables[i] = new BitmapDrawable(res, glyphs[i]);
+      glyphIndexes.put(resources[i], i);
+    }
+  }
+
+  int getSize() {
+    return size;
+  }
+
+  /**
+   * @return the glyph of a maneuver resource, null if it is not one from {@link ManeuverMap}
+   * or mirrored variants were not rasterized
+   */
+  @Nullable
+  Bitmap getGlyph(int resource, boolean mirrored) {
+    int index = glyphIndexes.get(resource, NO_GLYPH);
+    if (index == NO_GLYPH) {
+      return null;
+    }
+    if (mirrored) {
+      return mirroredGlyphs != null ? mirroredGlyphs[index] : null;
+    }
+    return glyphs[index];
+  }
+
+  /**
+   * @return the same drawable instance on every call for a resource, so an
+   * {@link android.widget.ImageView} switching to it only swaps a reference
+   */
+  @Nullable
+  Drawable getDrawable(int resource) {
+    int index = glyphIndexes.get(resource, NO_GLYPH);
+    return index == NO_GLYPH ? null : drawables[index];
+  }
+
+  /**
+   * @return bytes held by the glyph bitmaps
+   */
+  int getByteCount() {
+    int bytes = 0;
+    for (int i = 0; i < glyphs.length; i++) {
+      bytes += byteCount(glyphs[i]);
+      if (mirroredGlyphs != null) {
+        bytes += byteCount(mirroredGlyphs[i]);
+      }
+    }
+    return bytes;
+  }
+
+  void recycle() {
+    for (int i = 0; i < glyphs.length; i++) {
+      recycle(glyphs[i]);
+      if (mirroredGlyphs != null) {
+        recycle(mirroredGlyphs[i]);
+      }
+    }
+    glyphIndexes.clear();
+  }
+
+  private Bitmap rasterize(Drawable drawable, boolean mirrored) {
+    Bitmap glyph = Bitmap.createBitmap(size, size, Bitmap.Config.ALPHA_8);
+    Canvas canvas = new Canvas(glyph);
+    if (mirrored) {
+      canvas.scale(1, -1, 0, size / 2f);
+    }
+    drawable.draw(canvas);
+    return glyph;
+  }
+
+  private static int byteCount(@Nullable Bitmap bitmap) {
+    return bitmap == null ? 0 : bitmap.getAllocationByteCount();
+  }
+
+  private static void recycle(@Nullable Bitmap bitmap) {
+    if (bitmap != null) {
+      bitmap.recycle();
+    }
+  }
+}
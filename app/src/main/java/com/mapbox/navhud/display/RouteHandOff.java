@@ -0,0 +1,120 @@
+package com.mapbox.navhud.display;
+
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.navhud.route.RouteRepository;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Holds the route requested during the warm up until there is a listener to take it.
+ * <p>
+ * Only the latest request counts, routes and errors of earlier ones are dropped. Until the
+ * hand off a fresh route replaces a cached one but not the other way round, and an error is
+ * only kept if no route arrived. What was held back is delivered through the executor, so the
+ * listener can finish setting up first. Must be used from the thread the routes are delivered
+ * on, which is also the one the executor runs on.
+ */
+class RouteHandOff {
+
+  private final Executor deliveryExecutor;
+  private int request;
+  private RouteRepository.RouteListener listener;
+  private DirectionsRoute pendingRoute;
+  private boolean pendingFromCache;
+  private Throwable pendingError;
+
+  RouteHandOff(Executor deliveryExecutor) {
+    this.deliveryExecutor = deliveryExecutor;
+  }
+
+  /**
+   * Starts a new request, routes of the earlier ones are ignored from now on.
+   *
+   * @return listener to pass the route of the new request to
+   */
+  RouteRepository.RouteListener newRequest() {
+    discard();
+    final int request = this.request;
+    return new RouteRepository.RouteListener() {
+      @Override
+      public void onRouteReady(DirectionsRoute route, boolean fromCache) {
+        if (request == RouteHandOff.this.request) {
+          deliverRoute(route, fromCache);
+        }
+      }
+
+      @Override
+      public void onRouteError(Throwable throwable) {
+        if (request == RouteHandOff.this.request) {
+          deliverError(throwable);
+        }
+      }
+    };
+  }
+
+  /**
+   * Ignores the current request, also what it delivered but was not handed off yet.
+   */
+  void discard() {
+    request++;
+    pendingRoute = null;
+    pendingError = null;
+  }
+
+  /**
+   * Passes routes to the listener from now on. A route or error that arrived before is
+   * delivered through the executor, unless the request was discarded by then.
+   */
+  void handOff(RouteRepository.RouteListener listener) {
+    this.listener = listener;
+    if (pendingRoute == null && pendingError == null) {
+      return;
+    }
+    final DirectionsRoute route = pendingRoute;
+    final boolean fromCache = pendingFromCache;
+    final Throwable error = pendingError;
+    final int request = this.request;
+    pendingRoute = null;
+    pendingError = null;
+    deliveryExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (request != RouteHandOff.this.request || RouteHandOff.this.listener == null) {
+          return;
+        }
+        if (route != null) {
+          RouteHandOff.this.listener.onRouteReady(route, fromCache);
+        } else {
+          RouteHandOff.this.listener.onRouteError(error);
+        }
+      }
+    });
+  }
+
+  /**
+   * Drops the current request and delivers nothing anymore.
+   */
+  void cancel() {
+    discard();
+    listener = null;
+  }
+
+  private void deliverRoute(DirectionsRoute route, boolean fromCache) {
+    if (listener != null) {
+      listener.onRouteReady(route, fromCache);
+    } else if (pendingRoute == null || pendingFromCache) {
+      // A fresh route replaces a cached one, not the other way round
+      pendingRoute = route;
+      pendingFromCache = fromCache;
+      pendingError = null;
+    }
+  }
+
+  private void deliverError(Throwable throwable) {
+    if (listener != null) {
+      listener.onRouteError(throwable);
+    } else if (pendingRoute == null) {
+      pendingError = throwable;
+    }
+  }
+}
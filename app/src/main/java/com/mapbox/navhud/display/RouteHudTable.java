@@ -0,0 +1,151 @@
+package com.mapbox.navhud.display;
+
+import com.mapbox.navhud.ManeuverMap;
+import com.mapbox.navhud.route.BinaryRoute;
+import com.mapbox.navhud.route.RouteGeometryIndex;
+
+/**
+ * What the HUD shows for every step of a route, compiled once per route off the HUD thread.
+ * <p>
+ * Maneuver resources, step texts with their measured widths, distances along the route and
+ * the legs are kept in flat arrays indexed by the step's position on the whole route, so
+ * finding the upcoming step, also across a stop, and the distances to the end of the step and
+ * of the leg are array reads whatever the number of steps and stops. Immutable.
+ */
+class RouteHudTable {
+
+  /**
+   * Measures step texts as the HUD draws them, called from the compiling thread only.
+   */
+  interface TextMeasurer {
+
+    float measure(CharSequence text);
+  }
+
+  private final int[] legFirstSteps;
+  private final int[] stepLegs;
+  private final int[] maneuverResources;
+  private final String[] stepTexts;
+  private final float[] stepTextWidths;
+  private final double[] stepEndDistances;
+  private final double[] legEndDistances;
+
+  /**
+   * @param routeIndex   geometry index of the same route, for the distances along it
+   * @param textMeasurer measures the step texts, null to leave them to the renderer
+   */
+  static RouteHudTable build(BinaryRoute route, RouteGeometryIndex routeIndex, ManeuverMap maneuverMap,
+                             TextMeasurer textMeasurer) {
+    int legCount = route.getLegCount();
+    int stepCount = route.getStepCount();
+    int[] legFirstSteps = new int[legCount + 1];
+    for (int leg = 0; leg < legCount; leg++) {
+      legFirstSteps[leg] = route.stepIndex(leg, 0);
+    }
+    legFirstSteps[legCount] = stepCount;
+
+    // Distances along the geometry, like the snapped locations, unless it does not cover the steps
+    boolean indexed = routeIndex.getStepCount() == stepCount;
+    double[] stepEndDistances = new double[stepCount];
+    double distance = 0;
+    for (int step = 0; step < stepCount; step++) {
+      distance = indexed ? routeIndex.getStepEndDistance(step) : distance + route.distance(step);
+      stepEndDistances[step] = distance;
+    }
+
+    int[] stepLegs = new int[stepCount];
+    double[] legEndDistances = new double[legCount];
+    for (int leg = 0; leg < legCount; leg++) {
+      for (int step = legFirstSteps[leg]; step < legFirstSteps[leg + 1]; step++) {
+        stepLegs[step] = leg;
+      }
+      int lastStep = legFirstSteps[leg + 1] - 1;
+      legEndDistances[leg] = lastStep >= 0 ? stepEndDistances[lastStep] : 0;
+    }
+
+    int[] maneuverResources = new int[stepCount];
+    String[] stepTexts = new String[stepCount];
+    float[] stepTextWidths = new float[stepCount];
+    for (int step = 0; step < stepCount; step++) {
+      maneuverResources[step] = maneuverMap.getManeuverResource(route.maneuverType(step),
+        route.maneuverModifier(step));
+      String name = route.name(step);
+      String text = !isEmpty(name) ? name : !isEmpty(route.instruction(step)) ? route.instruction(step) : null;
+      stepTexts[step] = text;
+      stepTextWidths[step] = textMeasurer == null ? -1 : text == null ? 0 : textMeasurer.measure(text);
+    }
+    return new RouteHudTable(legFirstSteps, stepLegs, maneuverResources, stepTexts, stepTextWidths,
+      stepEndDistances, legEndDistances);
+  }
+
+  private RouteHudTable(int[] legFirstSteps, int[] stepLegs, int[] maneuverResources, String[] stepTexts,
+                        float[] stepTextWidths, double[] stepEndDistances, double[] legEndDistances) {
+    this.legFirstSteps = legFirstSteps;
+    this.stepLegs = stepLegs;
+    this.maneuverResources = maneuverResources;
+    this.stepTexts = stepTexts;
+    this.stepTextWidths = stepTextWidths;
+    this.stepEndDistances = stepEndDistances;
+    this.legEndDistances = legEndDistances;
+  }
+
+  int getStepCount() {
+    return stepLegs.length;
+  }
+
+  int getLegCount() {
+    return legEndDistances.length;
+  }
+
+  /**
+   * @return position on the whole route of a step within its leg, the steps of the next leg
+   * follow the last one of a leg
+   */
+  int stepIndex(int leg, int legStep) {
+    return legFirstSteps[leg] + legStep;
+  }
+
+  int getLeg(int step) {
+    return stepLegs[step];
+  }
+
+  int getManeuverResource(int step) {
+    return maneuverResources[step];
+  }
+
+  /**
+   * @return the street name of the step, its instruction without one, null without either
+   */
+  String getStepText(int step) {
+    return stepTexts[step];
+  }
+
+  /**
+   * @return width of the step text as measured when compiling, negative if it was not
+   */
+  float getStepTextWidth(int step) {
+    return stepTextWidths[step];
+  }
+
+  /**
+   * @return distance along the route from its start to the start of the step
+   */
+  double getStepStartDistance(int step) {
+    return step == 0 ? 0 : stepEndDistances[step - 1];
+  }
+
+  double getStepEndDistance(int step) {
+    return stepEndDistances[step];
+  }
+
+  /**
+   * @return distance along the route from its start to the stop ending the leg
+   */
+  double getLegEndDistance(int leg) {
+    return legEndDistances[leg];
+  }
+
+  private static boolean isEmpty(String value) {
+    return value == null || value.isEmpty();
+  }
+}
@@ -0,0 +1,133 @@
+package com.mapbox.navhud.display;
+
+import com.mapbox.navhud.route.RouteGeometryIndex;
+import com.mapbox.navhud.route.RouteSnap;
+
+/**
+ * The part of the {@link HudUpdatePipeline} update that follows a location along the route:
+ * snapping it to the {@link RouteGeometryIndex} and filling the upcoming step, distances,
+ * step progress and times of a {@link HudState} from the snap and the {@link RouteHudTable}.
+ * <p>
+ * Free of Android and navigation SDK types, so the benchmark module runs the same code. Not
+ * thread safe, used from the pipeline thread only.
+ */
+class RouteHudTracker {
+
+  /**
+   * Scale of {@link HudState#getStepProgress()}.
+   */
+  static final int PROGRESS_MAX = 10000;
+
+  /**
+   * Formats the HUD texts, {@link HudFormatter} on the device.
+   */
+  interface Formatter {
+
+    CharSequence formatDistance(double distance);
+
+    CharSequence formatTimeRemaining(double durationRemaining);
+
+    CharSequence formatArrivalTime(double durationRemaining);
+  }
+
+  private final Formatter formatter;
+  private final double snapRadius;
+  private RouteHudTable routeTable;
+  private RouteGeometryIndex routeIndex;
+  private RouteSnap routeSnap = new RouteSnap();
+
+  RouteHudTracker(Formatter formatter, double snapRadius) {
+    this.formatter = formatter;
+    this.snapRadius = snapRadius;
+  }
+
+  /**
+   * @param routeTable compiled steps of the route, null while it is compiling
+   * @param routeIndex geometry of the same route, null to stop tracking
+   */
+  void setRoute(RouteHudTable routeTable, RouteGeometryIndex routeIndex) {
+    this.routeTable = routeTable;
+    this.routeIndex = routeIndex;
+    routeSnap = new RouteSnap();
+  }
+
+  /**
+   * Snaps the location to the route, see {@link #getSnap()}.
+   *
+   * @return false without a route or while the location is away from it
+   */
+  boolean track(double latitude, double longitude) {
+    return routeIndex != null && routeIndex.track(latitude, longitude, snapRadius, routeSnap);
+  }
+
+  /**
+   * @return the last successful snap, reused by the next {@link #track(double, double)}
+   */
+  RouteSnap getSnap() {
+    return routeSnap;
+  }
+
+  /**
+   * Sets the step distance and progress from the last snap, and the upcoming step and the
+   * distance to the end of the leg when the route table covers it.
+   *
+   * @return false if the upcoming step and the leg distance were left to the caller, the
+   * index alone does not know where the legs end
+   */
+  boolean updateFromSnap(HudState state) {
+    int step = routeSnap.getStepIndex();
+    double traveled = routeSnap.getDistanceAlongRoute();
+    double stepStart;
+    double stepEnd;
+    boolean stepResolved = routeTable != null && step < routeTable.getStepCount();
+    if (stepResolved) {
+      updateRouteStep(step + 1, state);
+      stepStart = routeTable.getStepStartDistance(step);
+      stepEnd = routeTable.getStepEndDistance(step);
+      double legEnd = routeTable.getLegEndDistance(routeTable.getLeg(step));
+      state.setRouteDistance(formatter.formatDistance(Math.max(0, legEnd - traveled)));
+    } else {
+      stepStart = routeIndex.getStepStartDistance(step);
+      stepEnd = routeIndex.getStepEndDistance(step);
+    }
+    state.setStepDistance(formatter.formatDistance(Math.max(0, stepEnd - traveled)));
+    double fraction = stepEnd > stepStart ? (traveled - stepStart) / (stepEnd - stepStart) : 1;
+    state.setStepProgress((int) Math.round(fraction * PROGRESS_MAX));
+    return stepResolved;
+  }
+
+  /**
+   * Sets the step following the given one of a leg from the route table.
+   *
+   * @return false without a table covering the leg
+   */
+  boolean updateUpcomingStep(int leg, int legStep, HudState state) {
+    if (routeTable == null || leg >= routeTable.getLegCount()) {
+      return false;
+    }
+    updateRouteStep(routeTable.stepIndex(leg, legStep + 1), state);
+    return true;
+  }
+
+  /**
+   * Sets the time remaining and arrival time.
+   *
+   * @param legDurationRemaining seconds to the end of the current leg
+   */
+  void updateTimes(double legDurationRemaining, HudState state) {
+    state.setTimeRemaining(formatter.formatTimeRemaining(legDurationRemaining));
+    state.setArrivalTime(formatter.formatArrivalTime(legDurationRemaining));
+  }
+
+  private void updateRouteStep(int upComingStepIndex, HudState state) {
+    if (upComingStepIndex >= routeTable.getStepCount()) {
+      return;
+    }
+    state.setManeuverResource(routeTable.getManeuverResource(upComingStepIndex));
+    String stepText = routeTable.getStepText(upComingStepIndex);
+    if (stepText != null) {
+      state.setStepText(stepText);
+      state.setStepTextWidth(routeTable.getStepTextWidth(upComingStepIndex));
+    }
+  }
+}
@@ -0,0 +1,395 @@
+package com.mapbox.navhud.display;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+import android.support.v4.content.ContextCompat;
+
+import com.mapbox.android.core.location.LocationEngine;
+import com.mapbox.android.core.location.LocationEngineListener;
+import com.mapbox.android.core.location.LocationEngineProvider;
+import com.mapbox.api.directions.v5.DirectionsCriteria;
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.geojson.Point;
+import com.mapbox.navhud.instrumentation.HudInstrumentation;
+import com.mapbox.navhud.instrumentation.StartupTrace;
+import com.mapbox.navhud.route.RouteRepository;
+import com.mapbox.navhud.voice.VoiceInstructionPlayer;
+import com.mapbox.services.android.navigation.v5.navigation.MapboxNavigation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.mapbox.navhud.Constants.MAPBOX_ACCESS_TOKEN;
+
+/**
+ * Warms up what navigation needs while the user is still picking a destination. The voice
+ * player with its text to speech engine and the HUD formatter are created on background
+ * threads, the location engine is activated and {@link MapboxNavigation} created on the main
+ * thread in between. The route is requested as soon as both a fix and the destination are
+ * known, often before {@link DisplayActivity} is even created.
+ * <p>
+ * {@link #handOff(LocationEngine, RouteRepository.RouteListener)} passes the warm instances
+ * to the activity, which owns them from then on, the next {@link #warmUp()} starts over. The
+ * location engine may be shared with the previous trip, it stays leased until
+ * {@link WarmStart#release()}.
+ * Every phase is recorded in the {@link StartupTrace}. Must be used from the main thread.
+ */
+public class StartupOrchestrator {
+
+  private static final int WARM_UP_THREADS = 2;
+  private static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+
+  private static StartupOrchestrator instance;
+
+  private final Context context;
+  private final ThreadPoolExecutor executor;
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private final StartupTrace trace = HudInstrumentation.getInstance().getStartupTrace();
+  private final LocationEngineLeases locationEngineLeases = new LocationEngineLeases();
+  private WarmStart warmStart;
+
+  public static StartupOrchestrator getInstance(Context context) {
+    if (instance == null) {
+      instance = new StartupOrchestrator(context.getApplicationContext());
+    }
+    return instance;
+  }
+
+  private StartupOrchestrator(Context context) {
+    this.context = context;
+    executor = new ThreadPoolExecutor(WARM_UP_THREADS, WARM_UP_THREADS, THREAD_KEEP_ALIVE_SECONDS,
+      TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Starts warming up unless that is already in progress. The location engine is only
+   * activated once location permission is granted, call again after it was.
+   */
+  public void warmUp() {
+    if (warmStart == null) {
+      trace.start();
+      warmStart = new WarmStart();
+    }
+    if (hasLocationPermission()) {
+      warmStart.activateLocationEngine(null);
+    }
+  }
+
+  /**
+   * Requests the route to the destination as soon as there is a fix.
+   */
+  public void setDestination(Point destination) {
+    setStops(Collections.singletonList(destination));
+  }
+
+  /**
+   * Requests a route through the stops as soon as there is a fix.
+   *
+   * @param stops stops in driving order, the last one is the destination
+   */
+  public void setStops(List<Point> stops) {
+    warmUp();
+    warmStart.setStops(stops);
+  }
+
+  /**
+   * Passes the warm instances on, warming up first if that did not happen. Waits for the
+   * parts still being created in the background.
+   *
+   * @param locationEngine engine to use instead of the warm one, e.g. for a replay
+   * @param routeListener  receives the route requested during the warm up, also if it
+   *                       arrived before the hand off
+   */
+  public WarmStart handOff(@Nullable LocationEngine locationEngine,
+                           RouteRepository.RouteListener routeListener) {
+    warmUp();
+    WarmStart handedOff = warmStart;
+    warmStart = null;
+    handedOff.activateLocationEngine(locationEngine);
+    handedOff.complete(routeListener);
+    trace.mark(StartupTrace.Phase.HANDED_OFF);
+    return handedOff;
+  }
+
+  /**
+   * Releases what was warmed up but not handed off, e.g. when the user leaves without
+   * starting navigation.
+   */
+  public void cancel() {
+    if (warmStart != null) {
+      warmStart.shutdown();
+      warmStart = null;
+    }
+  }
+
+  private boolean hasLocationPermission() {
+    return ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION)
+      == PackageManager.PERMISSION_GRANTED;
+  }
+
+  /**
+   * Instances warmed up for one trip. Until the route is requested it listens to the location
+   * engine for the origin.
+   */
+  public class WarmStart implements LocationEngineListener {
+
+    private final Future<HudFormatter> hudFormatterFuture;
+    private final Future<VoiceInstructionPlayer> voicePlayerFuture;
+    private final RouteRepository routeRepository;
+    // After the activity is done setting up
+    private final RouteHandOff routeHandOff = new RouteHandOff(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        mainHandler.post(command);
+      }
+    });
+    private HudFormatter hudFormatter;
+    private VoiceInstructionPlayer voicePlayer;
+    private MapboxNavigation navigation;
+    private LocationEngine locationEngine;
+    private Point origin;
+    private List<Point> stops;
+    private boolean routeRequested;
+    private boolean released;
+
+    private WarmStart() {
+      hudFormatterFuture = executor.submit(new Callable<HudFormatter>() {
+        @Override
+        public HudFormatter call() {
+          String language = context.getResources().getConfiguration().locale.getLanguage();
+          HudFormatter formatter = new HudFormatter(context, language, DirectionsCriteria.IMPERIAL);
+          trace.mark(StartupTrace.Phase.FORMATTER_READY);
+          return formatter;
+        }
+      });
+      voicePlayerFuture = executor.submit(new Callable<VoiceInstructionPlayer>() {
+        @Override
+        public VoiceInstructionPlayer call() {
+          return new VoiceInstructionPlayer(context);
+        }
+      });
+      routeRepository = new RouteRepository(context, MAPBOX_ACCESS_TOKEN);
+      // Lets the activity draw its first frame before the slowest part on the main thread
+      mainHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          if (!released) {
+            createNavigation();
+          }
+        }
+      });
+    }
+
+    HudFormatter getHudFormatter() {
+      return hudFormatter;
+    }
+
+    public VoiceInstructionPlayer getVoicePlayer() {
+      return voicePlayer;
+    }
+
+    public MapboxNavigation getNavigation() {
+      return navigation;
+    }
+
+    public LocationEngine getLocationEngine() {
+      return locationEngine;
+    }
+
+    public RouteRepository getRouteRepository() {
+      return routeRepository;
+    }
+
+    @Nullable
+    public Point getDestination() {
+      return stops != null ? stops.get(stops.size() - 1) : null;
+    }
+
+    /**
+     * Requests a new route if the stops changed after the hand off.
+     */
+    public void setStops(List<Point> stops) {
+      if (stops.isEmpty() || stops.equals(this.stops)) {
+        return;
+      }
+      this.stops = new ArrayList<>(stops);
+      trace.mark(StartupTrace.Phase.DESTINATION_KNOWN);
+      discardRoute();
+      requestRouteIfReady();
+    }
+
+    /**
+     * Drops routes still to be delivered and releases the lease on the location engine, which
+     * is deactivated unless the next trip uses it too. The other handed off instances are left
+     * to their new owner. Can be called more than once.
+     */
+    public void release() {
+      if (released) {
+        return;
+      }
+      released = true;
+      routeHandOff.cancel();
+      if (locationEngine != null) {
+        locationEngineLeases.release(locationEngine, this);
+      }
+    }
+
+    @SuppressWarnings( {"MissingPermission"})
+    @Override
+    public void onConnected() {
+      locationEngine.requestLocationUpdates();
+      Location lastLocation = locationEngine.getLastLocation();
+      if (lastLocation != null) {
+        setOrigin(lastLocation);
+      }
+    }
+
+    @Override
+    public void onLocationChanged(Location location) {
+      setOrigin(location);
+    }
+
+    private void createNavigation() {
+      if (navigation == null) {
+        navigation = new MapboxNavigation(context, MAPBOX_ACCESS_TOKEN);
+        trace.mark(StartupTrace.Phase.NAVIGATION_READY);
+      }
+    }
+
+    private void activateLocationEngine(@Nullable LocationEngine replacement) {
+      if (replacement == null && locationEngine != null) {
+        return;
+      }
+      if (locationEngine != null) {
+        locationEngineLeases.release(locationEngine, this);
+        origin = null;
+        discardRoute();
+      }
+      locationEngine = replacement != null ? replacement
+        : new LocationEngineProvider(context).obtainBestLocationEngineAvailable();
+      locationEngineLeases.acquire(locationEngine, this);
+      trace.mark(StartupTrace.Phase.LOCATION_ACTIVATED);
+    }
+
+    private void complete(RouteRepository.RouteListener listener) {
+      createNavigation();
+      hudFormatter = getDone(hudFormatterFuture);
+      voicePlayer = getDone(voicePlayerFuture);
+      routeHandOff.handOff(listener);
+    }
+
+    private void setOrigin(Location location) {
+      if (routeRequested) {
+        return;
+      }
+      origin = Point.fromLngLat(location.getLongitude(), location.getLatitude());
+      trace.mark(StartupTrace.Phase.ORIGIN_KNOWN);
+      requestRouteIfReady();
+    }
+
+    private void requestRouteIfReady() {
+      if (routeRequested || origin == null || stops == null) {
+        return;
+      }
+      routeRequested = true;
+      stopListening();
+      final RouteRepository.RouteListener handOffListener = routeHandOff.newRequest();
+      trace.mark(StartupTrace.Phase.ROUTE_REQUESTED);
+      routeRepository.requestRoute(origin, stops, new RouteRepository.RouteListener() {
+        @Override
+        public void onRouteReady(DirectionsRoute route, boolean fromCache) {
+          trace.mark(StartupTrace.Phase.ROUTE_READY);
+          handOffListener.onRouteReady(route, fromCache);
+        }
+
+        @Override
+        public void onRouteError(Throwable throwable) {
+          handOffListener.onRouteError(throwable);
+        }
+      });
+    }
+
+    /**
+     * Ignores the route requested so far, a new one is requested once origin and destination
+     * are known.
+     */
+    private void discardRoute() {
+      routeRequested = false;
+      routeHandOff.discard();
+    }
+
+    private void stopListening() {
+      final LocationEngine engine = locationEngine;
+      if (engine == null) {
+        return;
+      }
+      // Not while the engine is dispatching to its listeners
+      mainHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          engine.removeLocationEngineListener(WarmStart.this);
+        }
+      });
+    }
+
+    private void shutdown() {
+      release();
+      routeRepository.shutdown();
+      if (navigation != null) {
+        navigation.onDestroy();
+      }
+      // Created in the background, shut down on the main thread once it exists
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          final VoiceInstructionPlayer player;
+          try {
+            player = getDone(voicePlayerFuture);
+          } catch (IllegalStateException exception) {
+            // Failed to warm up, nothing to shut down
+            return;
+          }
+          mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+              player.shutdown();
+            }
+          });
+        }
+      });
+    }
+  }
+
+  private static <T> T getDone(Future<T> future) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return future.get();
+        } catch (InterruptedException exception) {
+          interrupted = true;
+        }
+      }
+    } catch (ExecutionException exception) {
+      throw new IllegalStateException("Warm up failed", exception.getCause());
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package com.mapbox.navhud.display;
+
+import android.animation.ValueAnimator;
+import android.os.SystemClock;
+import android.view.animation.LinearInterpolator;
+import android.widget.ProgressBar;
+
+/**
+ * Animates a {@link ProgressBar} towards the latest step progress.
+ * <p>
+ * A single animator is kept for the bar and retargeted from the currently displayed value
+ * whenever a new progress value arrives, so updates never stack animations on top of each
+ * other and no animator is allocated per update. When extrapolation is enabled the bar keeps
+ * moving between location fixes at the rate reported with the last update. With animation
+ * disabled the bar is set to each new value, no frames are drawn in between.
+ */
+class StepProgressAnimator implements ValueAnimator.AnimatorUpdateListener {
+
+  static final int PROGRESS_MAX = RouteHudTracker.PROGRESS_MAX;
+  private static final long DEFAULT_UPDATE_INTERVAL = 1000;
+  private static final long MAX_UPDATE_INTERVAL = 3000;
+  private static final int STEP_CHANGE_THRESHOLD = PROGRESS_MAX / 10;
+
+  private final ProgressBar progressBar;
+  private final ValueAnimator animator;
+  private boolean extrapolationEnabled;
+  private boolean animationEnabled = true;
+  private int startProgress;
+  private int endProgress;
+  private long lastUpdateTime;
+  private long updateInterval = DEFAULT_UPDATE_INTERVAL;
+
+  StepProgressAnimator(ProgressBar progressBar) {
+    this.progressBar = progressBar;
+    animator = ValueAnimator.ofFloat(0f, 1f);
+    animator.setInterpolator(new LinearInterpolator());
+    animator.addUpdateListener(this);
+  }
+
+  void setExtrapolationEnabled(boolean extrapolationEnabled) {
+    this.extrapolationEnabled = extrapolationEnabled;
+  }
+
+  void setAnimationEnabled(boolean animationEnabled) {
+    this.animationEnabled = animationEnabled;
+    if (!animationEnabled) {
+      animator.cancel();
+    }
+  }
+
+  /**
+   * Retargets the bar to a new progress value.
+   *
+   * @param progress     new progress in the range of 0 - {@link #PROGRESS_MAX}
+   * @param progressRate expected progress change per second, used when extrapolating,
+   *                     0 if unknown
+   */
+  void animateTo(int progress, float progressRate) {
+    long now = SystemClock.uptimeMillis();
+    if (lastUpdateTime > 0) {
+      updateInterval = Math.min(now - lastUpdateTime, MAX_UPDATE_INTERVAL);
+    }
+    lastUpdateTime = now;
+
+    int currentProgress = progressBar.getProgress();
+    animator.cancel();
+    if (!animationEnabled) {
+      progressBar.setProgress(progress);
+      return;
+    }
+    if (currentProgress - progress > STEP_CHANGE_THRESHOLD) {
+      // Moved on to a new step, don't animate backwards over the whole bar
+      progressBar.setProgress(progress);
+      currentProgress = progress;
+    }
+
+    int target = progress;
+    if (extrapolationEnabled && progressRate > 0) {
+      target += Math.round(progressRate * updateInterval / 1000f);
+    }
+    startProgress = currentProgress;
+    endProgress = Math.min(target, PROGRESS_MAX);
+    animator.setDuration(updateInterval);
+    animator.start();
+  }
+
+  void cancel() {
+    animator.cancel();
+  }
+
+  @Override
+  public void onAnimationUpdate(ValueAnimator animation) {
+    float fraction = animation.getAnimatedFraction();
+    progressBar.setProgress(startProgress + Math.round((endProgress - startProgress) * fraction));
+  }
+}
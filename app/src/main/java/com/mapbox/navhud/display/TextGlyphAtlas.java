@@ -0,0 +1,112 @@
+package com.mapbox.navhud.display;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.util.Arrays;
+
+/**
+ * A fixed set of characters rasterized once into a single alpha bitmap, so text made of them
+ * is drawn as bitmap copies instead of being laid out and rasterized on every frame.
+ * <p>
+ * Glyphs are placed at their advance widths without kerning, which is fine for the numbers
+ * and unit labels of the HUD. Text containing a character outside the atlas, see
+ * {@link #canDraw(CharSequence)}, has to be drawn with {@link Canvas#drawText} instead. The
+ * color of the paint passed to {@link #draw} tints the glyphs.
+ */
+class TextGlyphAtlas {
+
+  static final String HUD_CHARACTERS = " 0123456789.,:-/'%abcdefghijklmnopqrstuvwxyz"
+    + "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+  // Room for glyphs that draw outside their advance width
+  private static final int PADDING = 2;
+  private static final int MAX_CHARACTER = 128;
+
+  private final Bitmap bitmap;
+  private final int[] glyphs = new int[MAX_CHARACTER];
+  private final int[] lefts;
+  private final int[] widths;
+  private final float[] advances;
+  private final float ascent;
+  private final int height;
+  private final Rect source = new Rect();
+  private final RectF destination = new RectF();
+
+  TextGlyphAtlas(Paint paint, String characters) {
+    Paint glyphPaint = new Paint(paint);
+    glyphPaint.setColor(Color.WHITE);
+    Paint.FontMetrics metrics = glyphPaint.getFontMetrics();
+    ascent = metrics.ascent;
+    height = (int) Math.ceil(metrics.descent - metrics.ascent) + 2 * PADDING;
+
+    Arrays.fill(glyphs, -1);
+    lefts = new int[characters.length()];
+    widths = new int[characters.length()];
+    advances = new float[characters.length()];
+    int width = 0;
+    for (int i = 0; i < characters.length(); i++) {
+      char character = characters.charAt(i);
+      if (character >= MAX_CHARACTER) {
+        throw new IllegalArgumentException("Not an ASCII character: " + character);
+      }
+      glyphs[character] = i;
+      advances[i] = glyphPaint.measureText(characters, i, i + 1);
+      lefts[i] = width;
+      widths[i] = (int) Math.ceil(advances[i]) + 2 * PADDING;
+      width += widths[i];
+    }
+
+    bitmap = Bitmap.createBitmap(Math.max(1, width), height, Bitmap.Config.ALPHA_8);
+    Canvas canvas = new Canvas(bitmap);
+    for (int i = 0; i < characters.length(); i++) {
+      canvas.drawText(characters, i, i + 1, lefts[i] + PADDING, PADDING - ascent, glyphPaint);
+    }
+  }
+
+  /**
+   * @return true if every character of the text is in the atlas
+   */
+  boolean canDraw(CharSequence text) {
+    for (int i = 0; i < text.length(); i++) {
+      char character = text.charAt(i);
+      if (character >= MAX_CHARACTER || glyphs[character] < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return width of the text in pixels, only valid if {@link #canDraw(CharSequence)}
+   */
+  float measure(CharSequence text) {
+    float width = 0;
+    for (int i = 0; i < text.length(); i++) {
+      width += advances[glyphs[text.charAt(i)]];
+    }
+    return width;
+  }
+
+  /**
+   * Draws text that {@link #canDraw(CharSequence)}, starting at x on the given baseline.
+   */
+  void draw(Canvas canvas, CharSequence text, float x, float baseline, Paint paint) {
+    float top = baseline + ascent - PADDING;
+    for (int i = 0; i < text.length(); i++) {
+      int glyph = glyphs[text.charAt(i)];
+      source.set(lefts[glyph], 0, lefts[glyph] + widths[glyph], height);
+      destination.set(x - PADDING, top, x - PADDING + widths[glyph], top + height);
+      canvas.drawBitmap(bitmap, source, destination, paint);
+      x += advances[glyph];
+    }
+  }
+
+  void recycle() {
+    bitmap.recycle();
+  }
+}
@@ -9,8 +9,15 @@ import android.support.v4.app.ActivityCompat;
 import android.support.v4.content.ContextCompat;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.EditText;
+import android.widget.ListView;
 import android.widget.Toast;
 
 import com.google.android.gms.common.GooglePlayServicesNotAvailableException;
@@ -18,8 +25,18 @@ import com.google.android.gms.common.GooglePlayServicesRepairableException;
 import com.google.android.gms.common.api.Status;
 import com.google.android.gms.location.places.Place;
 import com.google.android.gms.location.places.ui.PlaceAutocomplete;
+import com.mapbox.geojson.Point;
 import com.mapbox.navhud.R;
 import com.mapbox.navhud.display.DisplayActivity;
+import com.mapbox.navhud.display.StartupOrchestrator;
+import com.mapbox.navhud.place.PlaceStore;
+import com.mapbox.navhud.place.StoredPlace;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.mapbox.navhud.Constants.PLACE_LOCATION_EXTRA;
 
@@ -28,11 +45,22 @@ public class GeocodeActivity extends AppCompatActivity {
   private static final String TAG = GeocodeActivity.class.getSimpleName();
   private static final int REQUEST_LOCATION_PERMISSION = 2;
   private static final int PLACE_AUTOCOMPLETE_REQUEST_CODE = 1;
+  private static final String PLACE_STORE_FILE = "places.bin";
+  private static final int MAX_STORED_PLACES = 1000;
+  private static final int SUGGESTION_LIMIT = 8;
+
+  private final ExecutorService placeStoreExecutor = Executors.newSingleThreadExecutor();
+  private StartupOrchestrator startup;
+  private PlaceStore placeStore;
+  private EditText searchText;
+  private ArrayAdapter<StoredPlace> suggestionAdapter;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
     setContentView(R.layout.activity_geocode);
+    startup = StartupOrchestrator.getInstance(this);
+    initPlaceStore();
 
     FloatingActionButton fab = (FloatingActionButton) findViewById(R.id.fab);
     fab.setOnClickListener(new View.OnClickListener() {
@@ -45,13 +73,46 @@ public class GeocodeActivity extends AppCompatActivity {
     requestLocationPermission();
   }
 
+  /**
+   * Navigation is warmed up while the destination is picked, and again when coming back from
+   * the HUD for the next trip.
+   */
+  @Override
+  protected void onStart() {
+    super.onStart();
+    startup.warmUp();
+  }
+
+  @Override
+  protected void onStop() {
+    super.onStop();
+    // Already handed off when the HUD was started
+    startup.cancel();
+  }
+
+  @Override
+  public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
+                                         @NonNull int[] grantResults) {
+    super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+    if (requestCode == REQUEST_LOCATION_PERMISSION) {
+      startup.warmUp();
+    }
+  }
+
+  @Override
+  protected void onDestroy() {
+    super.onDestroy();
+    placeStoreExecutor.shutdown();
+  }
+
   @Override
   protected void onActivityResult(int requestCode, int resultCode, Intent data) {
     if (requestCode == PLACE_AUTOCOMPLETE_REQUEST_CODE) {
       if (resultCode == RESULT_OK) {
         Place place = PlaceAutocomplete.getPlace(this, data);
         Toast.makeText(this, "Place picked: " + place.getName(), Toast.LENGTH_SHORT).show();
-        launchDisplay(place);
+        rememberPlace(place);
+        launchDisplay(place.getLatLng().latitude, place.getLatLng().longitude);
       } else if (resultCode == PlaceAutocomplete.RESULT_ERROR) {
         Status status = PlaceAutocomplete.getStatus(this, data);
         Log.i(TAG, status.getStatusMessage());
@@ -83,11 +144,127 @@ public class GeocodeActivity extends AppCompatActivity {
     }
   }
 
-  private void launchDisplay(Place place) {
+  private void initPlaceStore() {
+    placeStore = new PlaceStore(new File(getFilesDir(), PLACE_STORE_FILE), MAX_STORED_PLACES);
+    suggestionAdapter = new ArrayAdapter<>(this, R.layout.item_stored_place);
+    ListView suggestionList = (ListView) findViewById(R.id.suggestionList);
+    suggestionList.setAdapter(suggestionAdapter);
+    suggestionList.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+      @Override
+      public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+        StoredPlace place = suggestionAdapter.getItem(position);
+        recordVisit(place.getName(), place.getAddress(), place.getLatitude(), place.getLongitude());
+        launchDisplay(place.getLatitude(), place.getLongitude());
+      }
+    });
+    suggestionList.setOnItemLongClickListener(new AdapterView.OnItemLongClickListener() {
+      @Override
+      public boolean onItemLongClick(AdapterView<?> parent, View view, int position, long id) {
+        toggleFavorite(suggestionAdapter.getItem(position));
+        return true;
+      }
+    });
+
+    searchText = (EditText) findViewById(R.id.searchText);
+    searchText.addTextChangedListener(new TextWatcher() {
+      @Override
+      public void beforeTextChanged(CharSequence text, int start, int count, int after) {
+      }
+
+      @Override
+      public void onTextChanged(CharSequence text, int start, int before, int count) {
+      }
+
+      @Override
+      public void afterTextChanged(Editable text) {
+        updateSuggestions();
+      }
+    });
+
+    runOnPlaceStore(new Runnable() {
+      @Override
+      public void run() {
+        placeStore.load();
+      }
+    });
+  }
+
+  /**
+   * Suggestions come from the in memory index of the place store, fast enough to run on
+   * every key press.
+   */
+  private void updateSuggestions() {
+    List<StoredPlace> suggestions = placeStore.search(searchText.getText().toString(), SUGGESTION_LIMIT);
+    suggestionAdapter.clear();
+    suggestionAdapter.addAll(suggestions);
+  }
+
+  private void rememberPlace(Place place) {
+    CharSequence address = place.getAddress();
+    recordVisit(place.getName().toString(), address == null ? "" : address.toString(),
+      place.getLatLng().latitude, place.getLatLng().longitude);
+  }
+
+  private void recordVisit(final String name, final String address, final double latitude,
+                           final double longitude) {
+    runOnPlaceStore(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          placeStore.recordVisit(name, address, latitude, longitude);
+        } catch (IOException exception) {
+          Log.e(TAG, "Unable to store place " + name, exception);
+        }
+      }
+    });
+  }
+
+  private void toggleFavorite(final StoredPlace place) {
+    final boolean favorite = !place.isFavorite();
+    Toast.makeText(this, (favorite ? "Added to favorites: " : "Removed from favorites: ")
+      + place.getName(), Toast.LENGTH_SHORT).show();
+    runOnPlaceStore(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          placeStore.setFavorite(place, favorite);
+        } catch (IOException exception) {
+          Log.e(TAG, "Unable to update place " + place.getName(), exception);
+        }
+      }
+    });
+  }
+
+  /**
+   * Runs a task on the place store thread, then refreshes the suggestions on the main thread.
+   */
+  private void runOnPlaceStore(final Runnable task) {
+    placeStoreExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        task.run();
+        runOnUiThread(new Runnable() {
+          @Override
+          public void run() {
+            if (!isDestroyed()) {
+              updateSuggestions();
+            }
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Starts navigation to a location, stored places are launched this way without any
+   * network request. The route is requested before the HUD is created.
+   */
+  private void launchDisplay(double latitude, double longitude) {
+    startup.setDestination(Point.fromLngLat(longitude, latitude));
     Intent displayActivity = new Intent(this, DisplayActivity.class);
     Location placeLocation = new Location(TAG);
-    placeLocation.setLatitude(place.getLatLng().latitude);
-    placeLocation.setLongitude(place.getLatLng().longitude);
+    placeLocation.setLatitude(latitude);
+    placeLocation.setLongitude(longitude);
     displayActivity.putExtra(PLACE_LOCATION_EXTRA, placeLocation);
     startActivity(displayActivity);
   }
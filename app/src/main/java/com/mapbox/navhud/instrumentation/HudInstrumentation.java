@@ -0,0 +1,169 @@
+package com.mapbox.navhud.instrumentation;
+
+import android.location.Location;
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Timestamps every stage a location fix goes through on its way to the HUD and aggregates
+ * the time between them into {@link LatencyHistogram}s:
+ * <ul>
+ * <li>fix delivery: from the fix being taken to {@code onLocationChanged}</li>
+ * <li>progress: from the fix being received to {@code onProgressChange}</li>
+ * <li>state update: from an update being handed to the HUD pipeline to the state computed
+ * by {@code updateUi} being published</li>
+ * <li>frame: from the state being published to the frame showing it being drawn</li>
+ * <li>fix to frame: from the fix being received to the frame showing it, end to end</li>
+ * <li>render: time spent applying a state to the views until they are drawn, or drawing it on
+ * the canvas</li>
+ * </ul>
+ * Marking a stage is a clock read and a few atomic operations, so instrumentation stays on
+ * in production builds. Every stage keeps only the latest timestamp, when updates are
+ * coalesced the skipped ones are not measured.
+ * <p>
+ * Frames taking longer than {@link #SLOW_FRAME_NANOS} on the main thread are counted as slow.
+ * <p>
+ * The phases of getting to the first instruction are kept by a {@link StartupTrace}.
+ */
+public class HudInstrumentation {
+
+  /**
+   * Rendering budget of a frame, a whole frame at 60 Hz.
+   */
+  public static final long SLOW_FRAME_NANOS = 16000000;
+
+  private static final HudInstrumentation INSTANCE = new HudInstrumentation();
+
+  private final LatencyHistogram fixDelivery = new LatencyHistogram("fix delivery");
+  private final LatencyHistogram progress = new LatencyHistogram("progress");
+  private final LatencyHistogram stateUpdate = new LatencyHistogram("state update");
+  private final LatencyHistogram frame = new LatencyHistogram("frame");
+  private final LatencyHistogram fixToFrame = new LatencyHistogram("fix to frame");
+  private final LatencyHistogram render = new LatencyHistogram("render");
+  private final LatencyHistogram[] histograms = {
+    fixDelivery, progress, stateUpdate, frame, fixToFrame, render
+  };
+
+  private final StartupTrace startupTrace = new StartupTrace();
+
+  private volatile long fixTime;
+  private volatile long progressFixTime;
+  private volatile long stateTime;
+  private volatile long stateFixTime;
+  private long drawnStateTime;
+  private volatile long frameCount;
+  private volatile long slowFrameCount;
+
+  public static HudInstrumentation getInstance() {
+    return INSTANCE;
+  }
+
+  private HudInstrumentation() {
+    // Use getInstance()
+  }
+
+  public void onFixReceived(Location location) {
+    long now = SystemClock.elapsedRealtimeNanos();
+    long fixAge = now - location.getElapsedRealtimeNanos();
+    if (location.getElapsedRealtimeNanos() > 0 && fixAge >= 0) {
+      fixDelivery.recordNanos(fixAge);
+    }
+    fixTime = now;
+  }
+
+  public void onProgressComputed() {
+    long received = fixTime;
+    if (received > 0) {
+      progress.recordNanos(SystemClock.elapsedRealtimeNanos() - received);
+    }
+    progressFixTime = received;
+  }
+
+  /**
+   * @param submittedTime {@link SystemClock#elapsedRealtimeNanos()} of the oldest update that
+   *                      went into the state
+   */
+  public void onStatePublished(long submittedTime) {
+    long now = SystemClock.elapsedRealtimeNanos();
+    stateUpdate.recordNanos(now - submittedTime);
+    stateFixTime = progressFixTime;
+    stateTime = now;
+  }
+
+  /**
+   * Called on the main thread once a frame is drawn, when drawing is all the frame does.
+   *
+   * @param renderStartTime {@link SystemClock#elapsedRealtimeNanos()} when rendering started
+   */
+  public void onFrameDrawn(long renderStartTime) {
+    onFrameDrawn(renderStartTime, SystemClock.elapsedRealtimeNanos() - renderStartTime);
+  }
+
+  /**
+   * Called on the main thread once a frame is drawn.
+   *
+   * @param renderStartTime {@link SystemClock#elapsedRealtimeNanos()} when rendering started
+   * @param frameNanos      time the frame took on the main thread, from its vsync until drawn
+   */
+  public void onFrameDrawn(long renderStartTime, long frameNanos) {
+    long now = SystemClock.elapsedRealtimeNanos();
+    render.recordNanos(now - renderStartTime);
+    frameCount++;
+    if (frameNanos > SLOW_FRAME_NANOS) {
+      slowFrameCount++;
+    }
+    long published = stateTime;
+    if (published == 0 || published == drawnStateTime) {
+      // Nothing new on this frame, e.g. an extrapolated progress bar
+      return;
+    }
+    drawnStateTime = published;
+    frame.recordNanos(now - published);
+    long received = stateFixTime;
+    if (received > 0) {
+      fixToFrame.recordNanos(now - received);
+    }
+  }
+
+  /**
+   * @return frames drawn since the process started, not affected by {@link #reset()}
+   */
+  public long getFrameCount() {
+    return frameCount;
+  }
+
+  public long getSlowFrameCount() {
+    return slowFrameCount;
+  }
+
+  public StartupTrace getStartupTrace() {
+    return startupTrace;
+  }
+
+  public LatencyHistogram[] getHistograms() {
+    return histograms.clone();
+  }
+
+  public void reset() {
+    for (LatencyHistogram histogram : histograms) {
+      histogram.reset();
+    }
+  }
+
+  /**
+   * Writes one line per stage with count, mean, percentiles and max in milliseconds,
+   * followed by the startup phases.
+   */
+  public void dump(Appendable out) throws IOException {
+    for (LatencyHistogram histogram : histograms) {
+      out.append(String.format(Locale.US,
+        "%-13s n=%-7d mean=%7.2f p50=%7.2f p90=%7.2f p99=%7.2f max=%7.2f ms%n",
+        histogram.getName(), histogram.getCount(), histogram.getMeanNanos() / 1e6,
+        histogram.getPercentileNanos(50) / 1e6, histogram.getPercentileNanos(90) / 1e6,
+        histogram.getPercentileNanos(99) / 1e6, histogram.getMaxNanos() / 1e6));
+    }
+    startupTrace.dump(out);
+  }
+}
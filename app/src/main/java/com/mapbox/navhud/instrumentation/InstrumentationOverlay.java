@@ -0,0 +1,61 @@
+package com.mapbox.navhud.instrumentation;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.widget.TextView;
+
+import java.io.IOException;
+
+/**
+ * Shows the {@link HudInstrumentation} histograms in a text view on top of the HUD,
+ * refreshed once a second while visible.
+ */
+public class InstrumentationOverlay {
+
+  private static final long REFRESH_INTERVAL_MILLIS = 1000;
+
+  private final TextView textView;
+  private final HudInstrumentation instrumentation;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final StringBuilder text = new StringBuilder();
+
+  private final Runnable refreshRunnable = new Runnable() {
+    @Override
+    public void run() {
+      refresh();
+      handler.postDelayed(this, REFRESH_INTERVAL_MILLIS);
+    }
+  };
+
+  public InstrumentationOverlay(TextView textView, HudInstrumentation instrumentation) {
+    this.textView = textView;
+    this.instrumentation = instrumentation;
+  }
+
+  public boolean isShown() {
+    return textView.getVisibility() == View.VISIBLE;
+  }
+
+  public void setShown(boolean shown) {
+    handler.removeCallbacks(refreshRunnable);
+    textView.setVisibility(shown ? View.VISIBLE : View.GONE);
+    if (shown) {
+      refreshRunnable.run();
+    }
+  }
+
+  public void release() {
+    handler.removeCallbacks(refreshRunnable);
+  }
+
+  private void refresh() {
+    text.setLength(0);
+    try {
+      instrumentation.dump(text);
+    } catch (IOException exception) {
+      // StringBuilder does not throw
+    }
+    textView.setText(text);
+  }
+}
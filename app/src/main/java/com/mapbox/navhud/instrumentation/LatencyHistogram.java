@@ -0,0 +1,117 @@
+package com.mapbox.navhud.instrumentation;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram with log linear buckets, in the style of HdrHistogram.
+ * <p>
+ * Values are recorded in microseconds. Up to {@link #LINEAR_LIMIT} every value has its own
+ * bucket, above that each power of two is split into {@link #SUB_BUCKET_COUNT} buckets, so
+ * percentiles are within about 3% of the recorded values up to a bit over a day. Recording
+ * is a couple of atomic increments and never blocks, it can be left on in production and
+ * called from any thread.
+ * <p>
+ * Reads are not synchronized with writes, a percentile read while values are recorded may
+ * miss the most recent ones.
+ */
+public class LatencyHistogram {
+
+  static final int SUB_BUCKET_BITS = 5;
+  static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  static final int LINEAR_LIMIT = 2 * SUB_BUCKET_COUNT;
+  // Values above 2^37 microseconds, about 38 hours, are clamped
+  static final int MAX_EXPONENT = 37;
+  static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  private final String name;
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong totalMicros = new AtomicLong();
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  public LatencyHistogram(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void recordNanos(long nanos) {
+    long micros = Math.max(0, nanos / 1000);
+    buckets.incrementAndGet(bucketIndex(micros));
+    count.incrementAndGet();
+    totalMicros.addAndGet(micros);
+    long max = maxMicros.get();
+    while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+      max = maxMicros.get();
+    }
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getMaxNanos() {
+    return maxMicros.get() * 1000;
+  }
+
+  public long getMeanNanos() {
+    long recorded = count.get();
+    return recorded == 0 ? 0 : totalMicros.get() * 1000 / recorded;
+  }
+
+  /**
+   * @param percentile from 0 to 100
+   * @return highest value in the bucket the percentile falls in, 0 if nothing was recorded
+   */
+  public long getPercentileNanos(double percentile) {
+    // Buckets are incremented before the count, so they hold at least as many values
+    long recorded = count.get();
+    if (recorded == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * recorded));
+    long cumulative = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      cumulative += buckets.get(i);
+      if (cumulative >= rank) {
+        return Math.min(bucketUpperBound(i), maxMicros.get()) * 1000;
+      }
+    }
+    return maxMicros.get() * 1000;
+  }
+
+  /**
+   * Clears the recorded values. Values recorded concurrently may be partly kept.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets.set(i, 0);
+    }
+    count.set(0);
+    totalMicros.set(0);
+    maxMicros.set(0);
+  }
+
+  static int bucketIndex(long micros) {
+    if (micros < LINEAR_LIMIT) {
+      return (int) micros;
+    }
+    int exponent = Math.min(MAX_EXPONENT, 63 - Long.numberOfLeadingZeros(micros));
+    int shift = exponent - SUB_BUCKET_BITS;
+    long subBucket = exponent == MAX_EXPONENT && micros >>> shift >= 2 * SUB_BUCKET_COUNT
+      ? SUB_BUCKET_COUNT - 1 : (micros >>> shift) - SUB_BUCKET_COUNT;
+    return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + (int) subBucket;
+  }
+
+  static long bucketUpperBound(int index) {
+    if (index < LINEAR_LIMIT) {
+      return index;
+    }
+    int shift = (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT + 1;
+    long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
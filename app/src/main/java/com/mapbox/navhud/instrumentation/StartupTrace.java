@@ -0,0 +1,96 @@
+package com.mapbox.navhud.instrumentation;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Times the phases between starting to warm up navigation and the first instruction on the
+ * HUD. Every phase keeps the first time it is reached since the last {@link #start()}, marks
+ * can come from any thread.
+ */
+public class StartupTrace {
+
+  private static final String TAG = StartupTrace.class.getSimpleName();
+
+  public enum Phase {
+    WARM_UP("warm up"),
+    FORMATTER_READY("formatter ready"),
+    VOICE_READY("voice ready"),
+    LOCATION_ACTIVATED("location activated"),
+    NAVIGATION_READY("navigation ready"),
+    DESTINATION_KNOWN("destination known"),
+    ORIGIN_KNOWN("origin known"),
+    ROUTE_REQUESTED("route requested"),
+    ROUTE_READY("route ready"),
+    HANDED_OFF("handed off"),
+    NAVIGATION_STARTED("navigation started"),
+    FIRST_INSTRUCTION("first instruction");
+
+    private final String label;
+
+    Phase(String label) {
+      this.label = label;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+  }
+
+  private final AtomicLongArray phaseTimes = new AtomicLongArray(Phase.values().length);
+
+  /**
+   * Forgets the previous startup and marks {@link Phase#WARM_UP}.
+   */
+  public void start() {
+    start(SystemClock.elapsedRealtimeNanos());
+  }
+
+  public void mark(Phase phase) {
+    long now = SystemClock.elapsedRealtimeNanos();
+    if (mark(phase, now)) {
+      Log.d(TAG, String.format(Locale.US, "%s after %.1f ms", phase.getLabel(),
+        getElapsedNanos(phase) / 1e6));
+    }
+  }
+
+  void start(long nanos) {
+    for (int i = 1; i < phaseTimes.length(); i++) {
+      phaseTimes.set(i, 0);
+    }
+    phaseTimes.set(Phase.WARM_UP.ordinal(), nanos);
+  }
+
+  /**
+   * @return whether this was the first time the phase was reached
+   */
+  boolean mark(Phase phase, long nanos) {
+    return phaseTimes.get(Phase.WARM_UP.ordinal()) != 0
+      && phaseTimes.compareAndSet(phase.ordinal(), 0, nanos);
+  }
+
+  /**
+   * @return nanoseconds from the start of the warm up to the phase, -1 if not reached
+   */
+  public long getElapsedNanos(Phase phase) {
+    long time = phaseTimes.get(phase.ordinal());
+    long start = phaseTimes.get(Phase.WARM_UP.ordinal());
+    return time == 0 || start == 0 ? -1 : time - start;
+  }
+
+  /**
+   * Writes one line per phase reached, in milliseconds since the start of the warm up.
+   */
+  public void dump(Appendable out) throws IOException {
+    for (Phase phase : Phase.values()) {
+      long elapsed = getElapsedNanos(phase);
+      if (elapsed >= 0) {
+        out.append(String.format(Locale.US, "%-18s +%8.1f ms%n", phase.getLabel(), elapsed / 1e6));
+      }
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package com.mapbox.navhud.location;
+
+import android.content.Context;
+import android.location.Location;
+import android.os.BatteryManager;
+import android.os.Process;
+import android.os.SystemClock;
+
+import com.mapbox.android.core.location.LocationEngine;
+import com.mapbox.android.core.location.LocationEnginePriority;
+
+/**
+ * Adjusts the {@link LocationEngine} request while navigating.
+ * <p>
+ * Every fix and progress update is fed to a {@link LocationUpdatePolicy}; when the policy
+ * settles on a different {@link LocationUpdateTier} the new interval and priority are applied
+ * by re-requesting updates on the same engine, navigation keeps running with the engine it
+ * was given. A minimum interval, e.g. while the device is hot, caps every tier. Must be used
+ * from the main thread.
+ */
+public class AdaptiveLocationScheduler {
+
+  // How long after a milestone fired it still counts as recent for the policy
+  private static final long MILESTONE_WINDOW_MILLIS = 15000;
+  private static final long FIX_RATE_WINDOW_MILLIS = 60000;
+
+  private final LocationEngine locationEngine;
+  private final BatteryManager batteryManager;
+  private final LocationUpdatePolicy policy = new LocationUpdatePolicy();
+  private LocationUpdateTier appliedTier;
+  private long minInterval;
+
+  private float speed;
+  private double stepDistanceRemaining = Double.MAX_VALUE;
+  private long lastMilestoneTime = -MILESTONE_WINDOW_MILLIS;
+
+  private long fixCount;
+  private long tierChangeCount;
+  private long fixWindowStart;
+  private int fixWindowCount;
+  private float fixRate;
+  private final long startCpuTime;
+  private final long startTime;
+  private final int startBatteryCharge;
+
+  public AdaptiveLocationScheduler(Context context, LocationEngine locationEngine) {
+    this.locationEngine = locationEngine;
+    this.batteryManager = (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
+    startCpuTime = Process.getElapsedCpuTime();
+    startTime = SystemClock.elapsedRealtime();
+    fixWindowStart = startTime;
+    startBatteryCharge = readBatteryCharge();
+    apply(policy.getCurrentTier());
+  }
+
+  public void onLocationChanged(Location location) {
+    long now = SystemClock.elapsedRealtime();
+    fixCount++;
+    fixWindowCount++;
+    if (now - fixWindowStart >= FIX_RATE_WINDOW_MILLIS) {
+      fixRate = fixWindowCount * 60000f / (now - fixWindowStart);
+      fixWindowStart = now;
+      fixWindowCount = 0;
+    }
+    speed = location.hasSpeed() ? location.getSpeed() : 0;
+    evaluate(now);
+  }
+
+  public void onProgressChange(double stepDistanceRemaining) {
+    this.stepDistanceRemaining = stepDistanceRemaining;
+    evaluate(SystemClock.elapsedRealtime());
+  }
+
+  public void onMilestone() {
+    lastMilestoneTime = SystemClock.elapsedRealtime();
+    evaluate(lastMilestoneTime);
+  }
+
+  /**
+   * Requests updates no more often than the given interval whatever the tier.
+   *
+   * @param minInterval shortest interval in milliseconds, 0 to leave it to the tiers
+   */
+  public void setMinInterval(long minInterval) {
+    if (minInterval != this.minInterval) {
+      this.minInterval = minInterval;
+      apply(appliedTier);
+    }
+  }
+
+  public LocationUpdateTier getTier() {
+    return appliedTier;
+  }
+
+  public long getFixCount() {
+    return fixCount;
+  }
+
+  /**
+   * @return fixes per minute over the last full minute
+   */
+  public float getFixRate() {
+    return fixRate;
+  }
+
+  public long getTierChangeCount() {
+    return tierChangeCount;
+  }
+
+  /**
+   * @return CPU time used by the process since the scheduler was created, per minute of
+   * wall time, in milliseconds
+   */
+  public long getCpuMillisPerMinute() {
+    long elapsed = SystemClock.elapsedRealtime() - startTime;
+    if (elapsed <= 0) {
+      return 0;
+    }
+    return (Process.getElapsedCpuTime() - startCpuTime) * 60000 / elapsed;
+  }
+
+  /**
+   * @return battery charge used since the scheduler was created in microampere-hours,
+   * 0 if the device does not report it
+   */
+  public int getBatteryChargeUsed() {
+    int charge = readBatteryCharge();
+    if (charge <= 0 || startBatteryCharge <= 0) {
+      return 0;
+    }
+    return startBatteryCharge - charge;
+  }
+
+  private void evaluate(long now) {
+    boolean milestoneRecent = now - lastMilestoneTime < MILESTONE_WINDOW_MILLIS;
+    LocationUpdateTier tier = policy.evaluate(now, speed, stepDistanceRemaining, milestoneRecent);
+    if (tier != appliedTier) {
+      apply(tier);
+      tierChangeCount++;
+    }
+  }
+
+  @SuppressWarnings( {"MissingPermission"})
+  private void apply(LocationUpdateTier tier) {
+    locationEngine.setPriority(tier.isHighAccuracy()
+      ? LocationEnginePriority.HIGH_ACCURACY : LocationEnginePriority.BALANCED_POWER_ACCURACY);
+    locationEngine.setInterval((int) Math.max(tier.getInterval(), minInterval));
+    locationEngine.setFastestInterval((int) Math.max(tier.getFastestInterval(), minInterval));
+    if (locationEngine.isConnected()) {
+      // The engine only reads its settings when updates are requested, a warm engine
+      // already has them running
+      locationEngine.removeLocationUpdates();
+      locationEngine.requestLocationUpdates();
+    }
+    appliedTier = tier;
+  }
+
+  private int readBatteryCharge() {
+    if (batteryManager == null) {
+      return 0;
+    }
+    return batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CHARGE_COUNTER);
+  }
+}
@@ -0,0 +1,214 @@
+package com.mapbox.navhud.location;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * Reads recorded location traces in GPX, NMEA ({@code RMC} sentences) or JSON format.
+ * <p>
+ * The JSON format is an array of objects with {@code time} (UTC milliseconds),
+ * {@code latitude}, {@code longitude} and the optional {@code speed}, {@code bearing} and
+ * {@code accuracy} fields.
+ */
+public final class LocationTraceParser {
+
+  private static final float KNOTS_TO_METERS_PER_SECOND = 0.514444f;
+  private static final float UNKNOWN = -1;
+
+  private LocationTraceParser() {
+    // Prevent instantiation
+  }
+
+  /**
+   * Picks the format from the file extension.
+   */
+  public static List<TraceFix> parse(InputStream input, String fileName) throws IOException {
+    String name = fileName.toLowerCase(Locale.US);
+    if (name.endsWith(".gpx")) {
+      return parseGpx(input);
+    } else if (name.endsWith(".nmea") || name.endsWith(".txt")) {
+      return parseNmea(new InputStreamReader(input, "UTF-8"));
+    } else if (name.endsWith(".json")) {
+      return parseJson(new InputStreamReader(input, "UTF-8"));
+    }
+    throw new IOException("Unsupported trace format " + fileName);
+  }
+
+  public static List<TraceFix> parseGpx(InputStream input) throws IOException {
+    GpxHandler handler = new GpxHandler();
+    try {
+      SAXParserFactory factory = SAXParserFactory.newInstance();
+      factory.setNamespaceAware(true);
+      factory.newSAXParser().parse(input, handler);
+    } catch (ParserConfigurationException | SAXException exception) {
+      throw new IOException("Invalid GPX trace", exception);
+    }
+    return handler.fixes;
+  }
+
+  public static List<TraceFix> parseNmea(Reader input) throws IOException {
+    List<TraceFix> fixes = new ArrayList<>();
+    BufferedReader reader = new BufferedReader(input);
+    Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.US);
+    String line;
+    while ((line = reader.readLine()) != null) {
+      int checksum = line.indexOf('*');
+      String[] fields = (checksum >= 0 ? line.substring(0, checksum) : line).trim().split(",", -1);
+      if (fields.length < 10 || !fields[0].endsWith("RMC") || !"A".equals(fields[2])) {
+        continue;
+      }
+      try {
+        double latitude = parseNmeaCoordinate(fields[3], 2) * ("S".equals(fields[4]) ? -1 : 1);
+        double longitude = parseNmeaCoordinate(fields[5], 3) * ("W".equals(fields[6]) ? -1 : 1);
+        float speed = fields[7].isEmpty() ? UNKNOWN
+          : Float.parseFloat(fields[7]) * KNOTS_TO_METERS_PER_SECOND;
+        float bearing = fields[8].isEmpty() ? UNKNOWN : Float.parseFloat(fields[8]);
+        fixes.add(new TraceFix(parseNmeaTime(calendar, fields[1], fields[9]), latitude, longitude,
+          speed, bearing, UNKNOWN));
+      } catch (NumberFormatException | StringIndexOutOfBoundsException exception) {
+        // Skip corrupt sentences, recorded traces often contain a few
+      }
+    }
+    return fixes;
+  }
+
+  public static List<TraceFix> parseJson(Reader input) throws IOException {
+    List<TraceFix> fixes = new ArrayList<>();
+    try {
+      JsonArray array = new JsonParser().parse(input).getAsJsonArray();
+      for (JsonElement element : array) {
+        JsonObject fix = element.getAsJsonObject();
+        fixes.add(new TraceFix(fix.get("time").getAsLong(),
+          fix.get("latitude").getAsDouble(),
+          fix.get("longitude").getAsDouble(),
+          optionalFloat(fix, "speed"),
+          optionalFloat(fix, "bearing"),
+          optionalFloat(fix, "accuracy")));
+      }
+    } catch (RuntimeException exception) {
+      throw new IOException("Invalid JSON trace", exception);
+    }
+    return fixes;
+  }
+
+  private static float optionalFloat(JsonObject object, String name) {
+    JsonElement element = object.get(name);
+    return element == null || element.isJsonNull() ? UNKNOWN : element.getAsFloat();
+  }
+
+  private static double parseNmeaCoordinate(String value, int degreeDigits) {
+    double degrees = Double.parseDouble(value.substring(0, degreeDigits));
+    double minutes = Double.parseDouble(value.substring(degreeDigits));
+    return degrees + minutes / 60;
+  }
+
+  private static long parseNmeaTime(Calendar calendar, String time, String date) {
+    calendar.clear();
+    calendar.set(2000 + Integer.parseInt(date.substring(4, 6)),
+      Integer.parseInt(date.substring(2, 4)) - 1,
+      Integer.parseInt(date.substring(0, 2)),
+      Integer.parseInt(time.substring(0, 2)),
+      Integer.parseInt(time.substring(2, 4)),
+      Integer.parseInt(time.substring(4, 6)));
+    long millis = calendar.getTimeInMillis();
+    if (time.length() > 7) {
+      millis += Math.round(Double.parseDouble("0" + time.substring(6)) * 1000);
+    }
+    return millis;
+  }
+
+  private static class GpxHandler extends DefaultHandler {
+
+    private final List<TraceFix> fixes = new ArrayList<>();
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+    private final StringBuilder text = new StringBuilder();
+    private boolean inPoint;
+    private double latitude;
+    private double longitude;
+    private long time;
+    private float speed;
+    private float bearing;
+
+    GpxHandler() {
+      dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+      text.setLength(0);
+      if ("trkpt".equals(localName)) {
+        inPoint = true;
+        latitude = Double.parseDouble(attributes.getValue("lat"));
+        longitude = Double.parseDouble(attributes.getValue("lon"));
+        time = 0;
+        speed = UNKNOWN;
+        bearing = UNKNOWN;
+      }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      text.append(ch, start, length);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+      if (!inPoint) {
+        return;
+      }
+      String value = text.toString().trim();
+      switch (localName) {
+        case "time":
+          time = parseGpxTime(value);
+          break;
+        case "speed":
+          speed = Float.parseFloat(value);
+          break;
+        case "course":
+          bearing = Float.parseFloat(value);
+          break;
+        case "trkpt":
+          fixes.add(new TraceFix(time, latitude, longitude, speed, bearing, UNKNOWN));
+          inPoint = false;
+          break;
+        default:
+          break;
+      }
+    }
+
+    private long parseGpxTime(String value) throws SAXException {
+      try {
+        long millis = dateFormat.parse(value.substring(0, 19)).getTime();
+        int fractionEnd = value.indexOf('Z');
+        if (value.length() > 20 && value.charAt(19) == '.' && fractionEnd > 20) {
+          millis += Math.round(Double.parseDouble("0" + value.substring(19, fractionEnd)) * 1000);
+        }
+        return millis;
+      } catch (ParseException | StringIndexOutOfBoundsException exception) {
+        throw new SAXException("Invalid GPX time " + value);
+      }
+    }
+  }
+}
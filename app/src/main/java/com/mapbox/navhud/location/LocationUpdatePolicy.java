@@ -0,0 +1,68 @@
+package com.mapbox.navhud.location;
+
+/**
+ * Picks the {@link LocationUpdateTier} for the current driving situation.
+ * <p>
+ * The tier depends on the current speed, the distance left to the next maneuver and whether
+ * a milestone fired recently, the maneuver it announced is then still ahead. Nothing here
+ * predicts the next milestone. Moving to a more frequent tier happens right away, moving to a
+ * less frequent one only after the situation has held for a minimum time, so the request
+ * does not flap around threshold values.
+ */
+public class LocationUpdatePolicy {
+
+  static final float STATIONARY_SPEED = 0.5f;
+  static final double MANEUVER_DISTANCE = 500;
+  static final double MANEUVER_SECONDS = 30;
+  static final double LONG_HAUL_DISTANCE = 3000;
+  static final double LONG_HAUL_SECONDS = 150;
+  static final long RELAX_DELAY_MILLIS = 10000;
+
+  private LocationUpdateTier currentTier = LocationUpdateTier.MANEUVER;
+  private LocationUpdateTier candidateTier = LocationUpdateTier.MANEUVER;
+  private long candidateSince;
+
+  public LocationUpdateTier getCurrentTier() {
+    return currentTier;
+  }
+
+  /**
+   * @param nowMillis             monotonic time of the evaluation
+   * @param speed                 current speed in meters per second
+   * @param stepDistanceRemaining distance to the next maneuver in meters
+   * @param milestoneRecent       true if a milestone fired within the caller's recent window
+   * @return the tier that should be requested now
+   */
+  public LocationUpdateTier evaluate(long nowMillis, float speed, double stepDistanceRemaining,
+                                     boolean milestoneRecent) {
+    LocationUpdateTier target = targetTier(speed, stepDistanceRemaining, milestoneRecent);
+    if (target.ordinal() <= currentTier.ordinal()) {
+      currentTier = target;
+      candidateTier = target;
+      candidateSince = nowMillis;
+    } else if (target != candidateTier) {
+      candidateTier = target;
+      candidateSince = nowMillis;
+    } else if (nowMillis - candidateSince >= RELAX_DELAY_MILLIS) {
+      currentTier = target;
+    }
+    return currentTier;
+  }
+
+  static LocationUpdateTier targetTier(float speed, double stepDistanceRemaining, boolean milestoneRecent) {
+    if (milestoneRecent || stepDistanceRemaining < MANEUVER_DISTANCE) {
+      return LocationUpdateTier.MANEUVER;
+    }
+    if (speed < STATIONARY_SPEED) {
+      return LocationUpdateTier.STATIONARY;
+    }
+    double secondsToManeuver = stepDistanceRemaining / speed;
+    if (secondsToManeuver < MANEUVER_SECONDS) {
+      return LocationUpdateTier.MANEUVER;
+    }
+    if (stepDistanceRemaining > LONG_HAUL_DISTANCE && secondsToManeuver > LONG_HAUL_SECONDS) {
+      return LocationUpdateTier.LONG_HAUL;
+    }
+    return LocationUpdateTier.CRUISING;
+  }
+}
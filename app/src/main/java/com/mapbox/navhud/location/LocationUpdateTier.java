@@ -0,0 +1,49 @@
+package com.mapbox.navhud.location;
+
+/**
+ * Location request settings, ordered from the most to the least frequent updates.
+ */
+public enum LocationUpdateTier {
+
+  /**
+   * Close to a maneuver or just after a milestone, every fix counts.
+   */
+  MANEUVER(0, 1000, true),
+
+  /**
+   * Regular driving with the next maneuver still some way ahead.
+   */
+  CRUISING(1000, 1000, true),
+
+  /**
+   * Long stretch without maneuvers, e.g. a highway.
+   */
+  LONG_HAUL(3000, 2000, true),
+
+  /**
+   * Not moving.
+   */
+  STATIONARY(5000, 3000, false);
+
+  private final long interval;
+  private final long fastestInterval;
+  private final boolean highAccuracy;
+
+  LocationUpdateTier(long interval, long fastestInterval, boolean highAccuracy) {
+    this.interval = interval;
+    this.fastestInterval = fastestInterval;
+    this.highAccuracy = highAccuracy;
+  }
+
+  public long getInterval() {
+    return interval;
+  }
+
+  public long getFastestInterval() {
+    return fastestInterval;
+  }
+
+  public boolean isHighAccuracy() {
+    return highAccuracy;
+  }
+}
@@ -0,0 +1,168 @@
+package com.mapbox.navhud.location;
+
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.mapbox.android.core.location.LocationEngine;
+import com.mapbox.android.core.location.LocationEngineListener;
+
+import java.util.List;
+
+/**
+ * {@link LocationEngine} that plays back a recorded trace instead of using the GPS.
+ * <p>
+ * Fixes are delivered on the main thread, like the platform engines do, with the recorded
+ * spacing divided by the speed factor. A speed factor of 0 or less plays the trace as fast as
+ * the main thread can take it, which is what load tests of the HUD pipeline want. Fixes
+ * without a recorded speed get one derived from the previous fix.
+ */
+public class ReplayLocationEngine extends LocationEngine {
+
+  private static final String PROVIDER = "replay";
+
+  private final List<TraceFix> fixes;
+  private final float speedFactor;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private boolean connected;
+  private boolean requested;
+  private int nextFix;
+  private long replayStartUptime;
+  private long replayStartFixTime;
+  private Location lastLocation;
+
+  private final Runnable deliverRunnable = new Runnable() {
+    @Override
+    public void run() {
+      deliverNextFix();
+    }
+  };
+
+  /**
+   * @param fixes       the trace, in chronological order
+   * @param speedFactor 1 for real time, N for N times faster, 0 or less for as fast as possible
+   */
+  public ReplayLocationEngine(List<TraceFix> fixes, float speedFactor) {
+    this.fixes = fixes;
+    this.speedFactor = speedFactor;
+  }
+
+  @Override
+  public void activate() {
+    connected = true;
+    if (!fixes.isEmpty() && lastLocation == null) {
+      lastLocation = toLocation(fixes.get(0), null);
+    }
+    for (LocationEngineListener listener : locationListeners) {
+      listener.onConnected();
+    }
+  }
+
+  @Override
+  public void deactivate() {
+    removeLocationUpdates();
+    connected = false;
+  }
+
+  @Override
+  public boolean isConnected() {
+    return connected;
+  }
+
+  @Override
+  public Location getLastLocation() {
+    return lastLocation;
+  }
+
+  @Override
+  public void requestLocationUpdates() {
+    if (!connected || requested) {
+      return;
+    }
+    // Updates are re-requested whenever the request settings change, the replay simply
+    // continues from where it was
+    requested = true;
+    scheduleNextFix(true);
+  }
+
+  @Override
+  public void removeLocationUpdates() {
+    requested = false;
+    handler.removeCallbacks(deliverRunnable);
+  }
+
+  @Override
+  public Type obtainType() {
+    return Type.MOCK;
+  }
+
+  public boolean isFinished() {
+    return nextFix >= fixes.size();
+  }
+
+  /**
+   * @return number of fixes delivered so far
+   */
+  public int getReplayedFixCount() {
+    return nextFix;
+  }
+
+  private void deliverNextFix() {
+    if (!requested || isFinished()) {
+      return;
+    }
+    Location location = toLocation(fixes.get(nextFix), lastLocation);
+    lastLocation = location;
+    nextFix++;
+    for (LocationEngineListener listener : locationListeners) {
+      listener.onLocationChanged(location);
+    }
+    scheduleNextFix(false);
+  }
+
+  private void scheduleNextFix(boolean restart) {
+    if (isFinished()) {
+      return;
+    }
+    if (speedFactor <= 0) {
+      handler.post(deliverRunnable);
+      return;
+    }
+    long fixTime = fixes.get(nextFix).getTime();
+    if (restart) {
+      replayStartUptime = SystemClock.uptimeMillis();
+      replayStartFixTime = fixTime;
+    }
+    long offset = (long) ((fixTime - replayStartFixTime) / speedFactor);
+    handler.postAtTime(deliverRunnable, replayStartUptime + offset);
+  }
+
+  private Location toLocation(TraceFix fix, Location previous) {
+    Location location = new Location(PROVIDER);
+    location.setLatitude(fix.getLatitude());
+    location.setLongitude(fix.getLongitude());
+    // Navigation checks the age of fixes, so they are stamped with the replay time
+    location.setTime(System.currentTimeMillis());
+    location.setElapsedRealtimeNanos(SystemClock.elapsedRealtimeNanos());
+    if (fix.hasSpeed()) {
+      location.setSpeed(fix.getSpeed());
+    } else if (previous != null && fix.getTime() > previousFixTime()) {
+      float seconds = (fix.getTime() - previousFixTime()) / 1000f;
+      location.setSpeed(previous.distanceTo(location) / seconds);
+    }
+    if (fix.hasBearing()) {
+      location.setBearing(fix.getBearing());
+    } else if (previous != null && previous.distanceTo(location) > 0) {
+      location.setBearing(previous.bearingTo(location));
+    }
+    if (fix.hasAccuracy()) {
+      location.setAccuracy(fix.getAccuracy());
+    }
+    return location;
+  }
+
+  private long previousFixTime() {
+    return nextFix > 0 ? fixes.get(nextFix - 1).getTime() : Long.MAX_VALUE;
+  }
+}
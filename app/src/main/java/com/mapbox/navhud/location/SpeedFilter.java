@@ -0,0 +1,163 @@
+package com.mapbox.navhud.location;
+
+/**
+ * Alpha beta filter estimating speed from position, speed and bearing of location fixes.
+ * <p>
+ * Positions are projected onto a local plane around the first fix and tracked together with
+ * a velocity vector. Every fix corrects the predicted position, the residual corrects the
+ * velocity, so speed is still estimated from positional deltas when a fix has none. Speed and
+ * bearing reported by the provider, usually from Doppler shift and far less noisy than
+ * positions, pull the velocity towards them. Between fixes the velocity is held for up to
+ * {@link #MAX_PREDICTION_MILLIS}, after that there is no estimate until the next fix.
+ * <p>
+ * Updates only touch primitive fields, nothing is allocated per fix. Not thread safe.
+ */
+public class SpeedFilter {
+
+  static final long MAX_PREDICTION_MILLIS = 5000;
+  // Fixes further apart start the filter over
+  static final long RESET_MILLIS = 10000;
+  // Estimates below about 1 mph are shown as standing still
+  static final double MIN_MOVING_SPEED = 0.45;
+
+  private static final double ALPHA = 0.5;
+  private static final double BETA = 0.15;
+  // Velocity correction from positions while the provider reports speed
+  private static final double MEASURED_SPEED_BETA = 0.02;
+  private static final double SPEED_GAIN = 0.3;
+  private static final double REFERENCE_ACCURACY = 5;
+  private static final double METERS_PER_DEGREE_LATITUDE = 110574;
+  private static final double METERS_PER_DEGREE_LONGITUDE = 111320;
+  // Moves the projection origin along before the plane gets distorted
+  private static final double MAX_ORIGIN_DISTANCE = 10000;
+
+  private boolean initialized;
+  private double originLatitude;
+  private double originLongitude;
+  private double metersPerDegreeLongitude;
+  private double x;
+  private double y;
+  private double velocityX;
+  private double velocityY;
+  private long lastFixTime;
+
+  /**
+   * @param timeMillis monotonic time of the fix, e.g. from its elapsed realtime
+   * @param speed      meters per second, ignored unless hasSpeed
+   * @param bearing    degrees clockwise from north, ignored unless hasBearing
+   * @param accuracy   horizontal accuracy in meters, 0 or less if unknown
+   */
+  public void update(long timeMillis, double latitude, double longitude, boolean hasSpeed, float speed,
+                     boolean hasBearing, float bearing, float accuracy) {
+    long elapsed = timeMillis - lastFixTime;
+    if (!initialized || elapsed > RESET_MILLIS || elapsed < 0) {
+      initialize(timeMillis, latitude, longitude, hasSpeed, speed, hasBearing, bearing);
+      return;
+    }
+    if (elapsed == 0) {
+      return;
+    }
+    double seconds = elapsed / 1000d;
+    double predictedX = x + velocityX * seconds;
+    double predictedY = y + velocityY * seconds;
+    double residualX = projectX(longitude) - predictedX;
+    double residualY = projectY(latitude) - predictedY;
+
+    // Poor fixes move the estimate less
+    double weight = accuracy > REFERENCE_ACCURACY ? REFERENCE_ACCURACY / accuracy : 1;
+    x = predictedX + ALPHA * weight * residualX;
+    y = predictedY + ALPHA * weight * residualY;
+    double beta = (hasSpeed ? MEASURED_SPEED_BETA : BETA) * weight / seconds;
+    velocityX += beta * residualX;
+    velocityY += beta * residualY;
+
+    if (hasSpeed && hasBearing) {
+      double radians = Math.toRadians(bearing);
+      velocityX += SPEED_GAIN * (speed * Math.sin(radians) - velocityX);
+      velocityY += SPEED_GAIN * (speed * Math.cos(radians) - velocityY);
+    } else if (hasSpeed) {
+      double current = Math.hypot(velocityX, velocityY);
+      double corrected = current + SPEED_GAIN * (speed - current);
+      if (current > MIN_MOVING_SPEED) {
+        velocityX *= corrected / current;
+        velocityY *= corrected / current;
+      }
+    }
+    lastFixTime = timeMillis;
+    moveOriginIfFar();
+  }
+
+  /**
+   * @return whether a fix recent enough for a speed estimate was seen
+   */
+  public boolean hasEstimate(long timeMillis) {
+    return initialized && timeMillis - lastFixTime <= MAX_PREDICTION_MILLIS;
+  }
+
+  /**
+   * @return estimated speed in meters per second at the given time, 0 without an estimate
+   */
+  public double getSpeed(long timeMillis) {
+    if (!hasEstimate(timeMillis)) {
+      return 0;
+    }
+    double speed = Math.hypot(velocityX, velocityY);
+    return speed < MIN_MOVING_SPEED ? 0 : speed;
+  }
+
+  public void reset() {
+    initialized = false;
+  }
+
+  /**
+   * Rounds a value for display, keeping the shown value while the new one is less than the
+   * hysteresis past the rounding boundary, so a value hovering around x.5 does not flicker.
+   */
+  public static int roundStable(double value, int shown, double hysteresis) {
+    if (Math.abs(value - shown) < 0.5 + hysteresis) {
+      return shown;
+    }
+    return (int) Math.round(value);
+  }
+
+  private void initialize(long timeMillis, double latitude, double longitude, boolean hasSpeed,
+                          float speed, boolean hasBearing, float bearing) {
+    initialized = true;
+    setOrigin(latitude, longitude);
+    x = 0;
+    y = 0;
+    if (hasSpeed && hasBearing) {
+      double radians = Math.toRadians(bearing);
+      velocityX = speed * Math.sin(radians);
+      velocityY = speed * Math.cos(radians);
+    } else {
+      velocityX = 0;
+      velocityY = 0;
+    }
+    lastFixTime = timeMillis;
+  }
+
+  private void moveOriginIfFar() {
+    if (Math.abs(x) < MAX_ORIGIN_DISTANCE && Math.abs(y) < MAX_ORIGIN_DISTANCE) {
+      return;
+    }
+    setOrigin(originLatitude + y / METERS_PER_DEGREE_LATITUDE,
+      originLongitude + x / metersPerDegreeLongitude);
+    x = 0;
+    y = 0;
+  }
+
+  private void setOrigin(double latitude, double longitude) {
+    originLatitude = latitude;
+    originLongitude = longitude;
+    metersPerDegreeLongitude = METERS_PER_DEGREE_LONGITUDE * Math.cos(Math.toRadians(latitude));
+  }
+
+  private double projectX(double longitude) {
+    return (longitude - originLongitude) * metersPerDegreeLongitude;
+  }
+
+  private double projectY(double latitude) {
+    return (latitude - originLatitude) * METERS_PER_DEGREE_LATITUDE;
+  }
+}
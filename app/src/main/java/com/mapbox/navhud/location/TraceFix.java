@@ -0,0 +1,67 @@
+package com.mapbox.navhud.location;
+
+/**
+ * Single recorded location fix of a trace.
+ */
+public class TraceFix {
+
+  private final long time;
+  private final double latitude;
+  private final double longitude;
+  private final float speed;
+  private final float bearing;
+  private final float accuracy;
+
+  /**
+   * @param time      UTC time of the fix in milliseconds
+   * @param latitude  latitude in degrees
+   * @param longitude longitude in degrees
+   * @param speed     speed in meters per second, negative if unknown
+   * @param bearing   bearing in degrees, negative if unknown
+   * @param accuracy  horizontal accuracy in meters, negative if unknown
+   */
+  public TraceFix(long time, double latitude, double longitude, float speed, float bearing, float accuracy) {
+    this.time = time;
+    this.latitude = latitude;
+    this.longitude = longitude;
+    this.speed = speed;
+    this.bearing = bearing;
+    this.accuracy = accuracy;
+  }
+
+  public long getTime() {
+    return time;
+  }
+
+  public double getLatitude() {
+    return latitude;
+  }
+
+  public double getLongitude() {
+    return longitude;
+  }
+
+  public boolean hasSpeed() {
+    return speed >= 0;
+  }
+
+  public float getSpeed() {
+    return speed;
+  }
+
+  public boolean hasBearing() {
+    return bearing >= 0;
+  }
+
+  public float getBearing() {
+    return bearing;
+  }
+
+  public boolean hasAccuracy() {
+    return accuracy >= 0;
+  }
+
+  public float getAccuracy() {
+    return accuracy;
+  }
+}
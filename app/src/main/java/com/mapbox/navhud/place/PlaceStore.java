@@ -0,0 +1,159 @@
+package com.mapbox.navhud.place;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recent and favorite destinations, persisted in a single file and searchable offline
+ * through a {@link PlaceIndex}.
+ * <p>
+ * The file holds the places in rank order, coordinates as fixed point integers. It is
+ * rewritten on every change and the index rebuilt, once the store holds more than its limit
+ * the lowest ranked places that are not favorites are dropped.
+ * <p>
+ * {@link #search(String, int)} reads the current index and can be called from any thread,
+ * the other methods do disk IO and should be called off the main thread.
+ */
+public class PlaceStore {
+
+  private static final int MAGIC = 0x4e505331;
+  private static final double COORDINATE_FACTOR = 1e6;
+  private static final int FLAG_FAVORITE = 1;
+
+  private final File file;
+  private final int maxPlaces;
+  private final Map<String, StoredPlace> places = new HashMap<>();
+  private volatile PlaceIndex index = PlaceIndex.empty();
+
+  public PlaceStore(File file, int maxPlaces) {
+    this.file = file;
+    this.maxPlaces = maxPlaces;
+  }
+
+  /**
+   * Reads the stored places, a missing or unreadable file leaves the store empty.
+   */
+  public synchronized void load() {
+    places.clear();
+    if (file.exists()) {
+      try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+        if (input.readInt() == MAGIC) {
+          int count = input.readInt();
+          for (int i = 0; i < count; i++) {
+            StoredPlace place = readPlace(input);
+            places.put(place.key(), place);
+          }
+        }
+      } catch (IOException | RuntimeException exception) {
+        places.clear();
+      }
+    }
+    index = PlaceIndex.build(places.values(), System.currentTimeMillis());
+  }
+
+  /**
+   * @return at most limit places matching the query, see {@link PlaceIndex#search(String, int)}
+   */
+  public List<StoredPlace> search(String query, int limit) {
+    return index.search(query, limit);
+  }
+
+  public int size() {
+    return index.size();
+  }
+
+  /**
+   * Remembers a trip to a place, adding it if it is not stored yet.
+   *
+   * @return the place with its updated use count
+   */
+  public synchronized StoredPlace recordVisit(String name, String address, double latitude,
+                                              double longitude) throws IOException {
+    long now = System.currentTimeMillis();
+    StoredPlace visited = new StoredPlace(name, address == null ? "" : address, latitude, longitude,
+      false, 0, now);
+    StoredPlace stored = places.get(visited.key());
+    visited = (stored != null ? stored : visited).withVisit(now);
+    places.put(visited.key(), visited);
+    commit(now);
+    return visited;
+  }
+
+  public synchronized void setFavorite(StoredPlace place, boolean favorite) throws IOException {
+    StoredPlace stored = places.get(place.key());
+    if (stored == null || stored.isFavorite() == favorite) {
+      return;
+    }
+    places.put(stored.key(), stored.withFavorite(favorite));
+    commit(System.currentTimeMillis());
+  }
+
+  public synchronized void remove(StoredPlace place) throws IOException {
+    if (places.remove(place.key()) != null) {
+      commit(System.currentTimeMillis());
+    }
+  }
+
+  private void commit(long now) throws IOException {
+    PlaceIndex ranked = PlaceIndex.build(places.values(), now);
+    for (int i = ranked.size() - 1; i >= 0 && places.size() > maxPlaces; i--) {
+      if (!ranked.get(i).isFavorite()) {
+        places.remove(ranked.get(i).key());
+      }
+    }
+    if (places.size() != ranked.size()) {
+      ranked = PlaceIndex.build(places.values(), now);
+    }
+    write(ranked);
+    index = ranked;
+  }
+
+  private void write(PlaceIndex ranked) throws IOException {
+    File directory = file.getParentFile();
+    if (directory != null && !directory.exists() && !directory.mkdirs()) {
+      throw new IOException("Unable to create place store directory " + directory);
+    }
+    File temp = new File(file.getPath() + ".tmp");
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+      output.writeInt(MAGIC);
+      output.writeInt(ranked.size());
+      for (int i = 0; i < ranked.size(); i++) {
+        writePlace(output, ranked.get(i));
+      }
+    }
+    if (!temp.renameTo(file)) {
+      temp.delete();
+      throw new IOException("Unable to write place store " + file);
+    }
+  }
+
+  private static void writePlace(DataOutputStream output, StoredPlace place) throws IOException {
+    output.writeUTF(place.getName());
+    output.writeUTF(place.getAddress());
+    output.writeInt((int) Math.round(place.getLatitude() * COORDINATE_FACTOR));
+    output.writeInt((int) Math.round(place.getLongitude() * COORDINATE_FACTOR));
+    output.writeByte(place.isFavorite() ? FLAG_FAVORITE : 0);
+    output.writeInt(place.getUseCount());
+    output.writeLong(place.getLastUsedMillis());
+  }
+
+  private static StoredPlace readPlace(DataInputStream input) throws IOException {
+    String name = input.readUTF();
+    String address = input.readUTF();
+    double latitude = input.readInt() / COORDINATE_FACTOR;
+    double longitude = input.readInt() / COORDINATE_FACTOR;
+    boolean favorite = (input.readByte() & FLAG_FAVORITE) != 0;
+    int useCount = input.readInt();
+    long lastUsedMillis = input.readLong();
+    return new StoredPlace(name, address, latitude, longitude, favorite, useCount, lastUsedMillis);
+  }
+}
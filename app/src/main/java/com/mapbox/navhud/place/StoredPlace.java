@@ -0,0 +1,81 @@
+package com.mapbox.navhud.place;
+
+import java.util.Locale;
+
+/**
+ * A destination remembered by the {@link PlaceStore}, with how often and how recently it was
+ * driven to.
+ */
+public class StoredPlace {
+
+  // Places closer than about 10 meters with the same name are the same place
+  private static final double KEY_PRECISION = 10000;
+
+  private final String name;
+  private final String address;
+  private final double latitude;
+  private final double longitude;
+  private final boolean favorite;
+  private final int useCount;
+  private final long lastUsedMillis;
+
+  public StoredPlace(String name, String address, double latitude, double longitude, boolean favorite,
+                     int useCount, long lastUsedMillis) {
+    this.name = name;
+    this.address = address;
+    this.latitude = latitude;
+    this.longitude = longitude;
+    this.favorite = favorite;
+    this.useCount = useCount;
+    this.lastUsedMillis = lastUsedMillis;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getAddress() {
+    return address;
+  }
+
+  public double getLatitude() {
+    return latitude;
+  }
+
+  public double getLongitude() {
+    return longitude;
+  }
+
+  public boolean isFavorite() {
+    return favorite;
+  }
+
+  public int getUseCount() {
+    return useCount;
+  }
+
+  public long getLastUsedMillis() {
+    return lastUsedMillis;
+  }
+
+  StoredPlace withVisit(long timeMillis) {
+    return new StoredPlace(name, address, latitude, longitude, favorite, useCount + 1, timeMillis);
+  }
+
+  StoredPlace withFavorite(boolean favorite) {
+    return new StoredPlace(name, address, latitude, longitude, favorite, useCount, lastUsedMillis);
+  }
+
+  String key() {
+    return String.format(Locale.US, "%d_%d_%s", Math.round(latitude * KEY_PRECISION),
+      Math.round(longitude * KEY_PRECISION), name.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * @return the name, marked with a star for favorites, as shown in the suggestion list
+   */
+  @Override
+  public String toString() {
+    return favorite ? "\u2605 " + name : name;
+  }
+}
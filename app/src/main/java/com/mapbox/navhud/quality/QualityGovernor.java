@@ -0,0 +1,137 @@
+package com.mapbox.navhud.quality;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.mapbox.navhud.instrumentation.HudInstrumentation;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Degrades the HUD while the device is hot, low on battery or dropping frames, and restores
+ * it once it recovers.
+ * <p>
+ * Every {@link #EVALUATION_INTERVAL_MILLIS} the battery temperature and level are read from
+ * the sticky battery broadcast and the frames drawn since the previous evaluation from
+ * {@link HudInstrumentation}, and a {@link QualityPolicy} settles on a tier. Changes are
+ * handed to the {@link Listener}, which applies the tier, and kept for
+ * {@link #dump(Appendable)} so the thresholds can be tuned from real drives. Must be used
+ * from the main thread.
+ */
+public class QualityGovernor {
+
+  public interface Listener {
+
+    /**
+     * Called on the main thread, once with the initial tier when started.
+     */
+    void onQualityChanged(QualityTransition transition);
+  }
+
+  static final long EVALUATION_INTERVAL_MILLIS = 10000;
+  private static final int MAX_TRANSITIONS = 256;
+
+  private final Context context;
+  private final Listener listener;
+  private final QualityPolicy policy = new QualityPolicy();
+  private final HudInstrumentation instrumentation = HudInstrumentation.getInstance();
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final IntentFilter batteryFilter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+  private final ArrayDeque<QualityTransition> transitions = new ArrayDeque<>();
+  private QualityTier appliedTier;
+  private long lastFrameCount;
+  private long lastSlowFrameCount;
+
+  private final Runnable evaluateRunnable = new Runnable() {
+    @Override
+    public void run() {
+      evaluate();
+      handler.postDelayed(this, EVALUATION_INTERVAL_MILLIS);
+    }
+  };
+
+  public QualityGovernor(Context context, Listener listener) {
+    this.context = context.getApplicationContext();
+    this.listener = listener;
+  }
+
+  /**
+   * Evaluates right away, so a device that is already hot starts degraded, then periodically.
+   */
+  public void start() {
+    lastFrameCount = instrumentation.getFrameCount();
+    lastSlowFrameCount = instrumentation.getSlowFrameCount();
+    handler.removeCallbacks(evaluateRunnable);
+    handler.post(evaluateRunnable);
+  }
+
+  public void stop() {
+    handler.removeCallbacks(evaluateRunnable);
+  }
+
+  /**
+   * @return the tier last handed to the listener, null before the first evaluation
+   */
+  public QualityTier getTier() {
+    return appliedTier;
+  }
+
+  /**
+   * @return the latest tier changes, oldest first
+   */
+  public List<QualityTransition> getTransitions() {
+    return new ArrayList<>(transitions);
+  }
+
+  /**
+   * Writes one line per tier change, oldest first.
+   */
+  public void dump(Appendable out) throws IOException {
+    for (QualityTransition transition : transitions) {
+      out.append(transition.toString()).append('\n');
+    }
+  }
+
+  private void evaluate() {
+    Intent battery = context.registerReceiver(null, batteryFilter);
+    float temperature = 0;
+    float batteryLevel = -1;
+    boolean charging = false;
+    if (battery != null) {
+      temperature = battery.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0) / 10f;
+      int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+      int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+      batteryLevel = level >= 0 && scale > 0 ? level / (float) scale : -1;
+      charging = battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+    }
+    long frameCount = instrumentation.getFrameCount();
+    long slowFrameCount = instrumentation.getSlowFrameCount();
+    int frames = (int) (frameCount - lastFrameCount);
+    int slowFrames = (int) (slowFrameCount - lastSlowFrameCount);
+    lastFrameCount = frameCount;
+    lastSlowFrameCount = slowFrameCount;
+
+    QualityTier tier = policy.evaluate(SystemClock.elapsedRealtime(), temperature, batteryLevel, charging,
+      frames, slowFrames);
+    if (tier == appliedTier) {
+      return;
+    }
+    QualityTransition transition = new QualityTransition(System.currentTimeMillis(),
+      appliedTier != null ? appliedTier : QualityTier.FULL, tier, policy.getReason(), temperature, batteryLevel,
+      frames > 0 ? slowFrames / (float) frames : 0);
+    if (transitions.size() == MAX_TRANSITIONS) {
+      transitions.removeFirst();
+    }
+    transitions.addLast(transition);
+    appliedTier = tier;
+    listener.onQualityChanged(transition);
+  }
+}
@@ -0,0 +1,117 @@
+package com.mapbox.navhud.quality;
+
+/**
+ * Picks the {@link QualityTier} for the current device state.
+ * <p>
+ * The battery temperature, the phone's best thermal signal on the API levels we support, maps
+ * to a tier through fixed thresholds, a low battery that is not charging to a moderately
+ * degraded one, and the worse of the two applies. When too many frames were slow in the last
+ * window the tier is degraded one step further, whatever the cause. Degrading happens right
+ * away, recovering one tier at a time once the temperature has dropped well below the
+ * threshold and the tier has held for a minimum time, so the HUD does not flap while the
+ * device hovers around a threshold.
+ */
+public class QualityPolicy {
+
+  public enum Reason {
+    TEMPERATURE,
+    BATTERY,
+    SLOW_FRAMES,
+    RECOVERED
+  }
+
+  /**
+   * Battery temperatures in degrees Celsius from which the tiers after {@link QualityTier#FULL}
+   * apply.
+   */
+  static final float[] TEMPERATURE_THRESHOLDS = {38, 40, 42, 44};
+  static final float TEMPERATURE_HYSTERESIS = 1.5f;
+  static final float LOW_BATTERY_LEVEL = 0.2f;
+  static final float CRITICAL_BATTERY_LEVEL = 0.1f;
+  static final int MIN_FRAME_COUNT = 10;
+  static final float SLOW_FRAME_FRACTION = 0.1f;
+  static final long RECOVERY_DELAY_MILLIS = 120000;
+
+  private QualityTier currentTier = QualityTier.FULL;
+  private Reason reason = Reason.RECOVERED;
+  private long changeTime;
+
+  public QualityTier getCurrentTier() {
+    return currentTier;
+  }
+
+  /**
+   * @return why the current tier was entered
+   */
+  public Reason getReason() {
+    return reason;
+  }
+
+  /**
+   * @param nowMillis       monotonic time of the evaluation
+   * @param temperature     battery temperature in degrees Celsius
+   * @param batteryLevel    battery level from 0 to 1, negative if unknown
+   * @param charging        true if the device is plugged in
+   * @param frameCount      frames drawn since the previous evaluation
+   * @param slowFrameCount  frames among them that took too long
+   * @return the tier that should apply now
+   */
+  public QualityTier evaluate(long nowMillis, float temperature, float batteryLevel, boolean charging,
+                              int frameCount, int slowFrameCount) {
+    QualityTier thermalTier = thermalTier(temperature);
+    QualityTier batteryTier = batteryTier(batteryLevel, charging);
+    QualityTier target = thermalTier;
+    Reason targetReason = Reason.TEMPERATURE;
+    if (batteryTier.ordinal() > target.ordinal()) {
+      target = batteryTier;
+      targetReason = Reason.BATTERY;
+    }
+    boolean slowFrames = frameCount >= MIN_FRAME_COUNT && slowFrameCount > frameCount * SLOW_FRAME_FRACTION;
+    if (slowFrames && target.ordinal() <= currentTier.ordinal()) {
+      target = degrade(currentTier);
+      targetReason = Reason.SLOW_FRAMES;
+    }
+
+    if (target.ordinal() > currentTier.ordinal()) {
+      change(target, targetReason, nowMillis);
+    } else if (!slowFrames && nowMillis - changeTime >= RECOVERY_DELAY_MILLIS) {
+      QualityTier settled = thermalTier(temperature + TEMPERATURE_HYSTERESIS);
+      if (batteryTier.ordinal() > settled.ordinal()) {
+        settled = batteryTier;
+      }
+      if (settled.ordinal() < currentTier.ordinal()) {
+        change(QualityTier.values()[currentTier.ordinal() - 1], Reason.RECOVERED, nowMillis);
+      }
+    }
+    return currentTier;
+  }
+
+  static QualityTier thermalTier(float temperature) {
+    int level = 0;
+    while (level < TEMPERATURE_THRESHOLDS.length && temperature >= TEMPERATURE_THRESHOLDS[level]) {
+      level++;
+    }
+    return QualityTier.values()[level];
+  }
+
+  static QualityTier batteryTier(float batteryLevel, boolean charging) {
+    if (charging || batteryLevel < 0) {
+      return QualityTier.FULL;
+    }
+    if (batteryLevel <= CRITICAL_BATTERY_LEVEL) {
+      return QualityTier.SPARSE_FIXES;
+    }
+    return batteryLevel <= LOW_BATTERY_LEVEL ? QualityTier.SIMPLE_PROGRESS : QualityTier.FULL;
+  }
+
+  private static QualityTier degrade(QualityTier tier) {
+    QualityTier[] tiers = QualityTier.values();
+    return tiers[Math.min(tier.ordinal() + 1, tiers.length - 1)];
+  }
+
+  private void change(QualityTier tier, Reason reason, long nowMillis) {
+    currentTier = tier;
+    this.reason = reason;
+    changeTime = nowMillis;
+  }
+}
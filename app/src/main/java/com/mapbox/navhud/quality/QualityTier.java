@@ -0,0 +1,72 @@
+package com.mapbox.navhud.quality;
+
+/**
+ * HUD quality settings, ordered from full quality to the most degraded. Every tier keeps the
+ * degradations of the ones before it.
+ */
+public enum QualityTier {
+
+  /**
+   * Everything as configured.
+   */
+  FULL(0, true, 0, true),
+
+  /**
+   * Fewer HUD frames, on both the canvas and the view HUD.
+   */
+  REDUCED_FRAME_RATE(8, true, 0, true),
+
+  /**
+   * The progress bar moves with each update instead of animating between them.
+   */
+  SIMPLE_PROGRESS(8, false, 0, true),
+
+  /**
+   * Location fixes at most every two seconds, also close to a maneuver.
+   */
+  SPARSE_FIXES(4, false, 2000, true),
+
+  /**
+   * Instructions are only played from pre-synthesized audio, no live text to speech.
+   */
+  CACHED_VOICE(4, false, 2000, false);
+
+  private final int maxFrameRate;
+  private final boolean progressAnimated;
+  private final long minFixInterval;
+  private final boolean liveSpeech;
+
+  QualityTier(int maxFrameRate, boolean progressAnimated, long minFixInterval, boolean liveSpeech) {
+    this.maxFrameRate = maxFrameRate;
+    this.progressAnimated = progressAnimated;
+    this.minFixInterval = minFixInterval;
+    this.liveSpeech = liveSpeech;
+  }
+
+  /**
+   * @param framesPerSecond configured frame rate, 0 for every frame
+   * @return the configured frame rate, capped to this tier's
+   */
+  public int capFrameRate(int framesPerSecond) {
+    if (maxFrameRate == 0) {
+      return framesPerSecond;
+    }
+    return framesPerSecond == 0 ? maxFrameRate : Math.min(framesPerSecond, maxFrameRate);
+  }
+
+  public boolean isProgressAnimated() {
+    return progressAnimated;
+  }
+
+  /**
+   * @return shortest location request interval in milliseconds, 0 to leave it to the
+   * location scheduler
+   */
+  public long getMinFixInterval() {
+    return minFixInterval;
+  }
+
+  public boolean isLiveSpeech() {
+    return liveSpeech;
+  }
+}
@@ -0,0 +1,74 @@
+package com.mapbox.navhud.quality;
+
+import java.util.Locale;
+
+/**
+ * A change of the {@link QualityTier} and the device state that caused it. Immutable.
+ */
+public class QualityTransition {
+
+  private final long time;
+  private final QualityTier previousTier;
+  private final QualityTier tier;
+  private final QualityPolicy.Reason reason;
+  private final float temperature;
+  private final float batteryLevel;
+  private final float slowFrameFraction;
+
+  /**
+   * @param time wall clock time in milliseconds since the epoch
+   */
+  public QualityTransition(long time, QualityTier previousTier, QualityTier tier, QualityPolicy.Reason reason,
+                           float temperature, float batteryLevel, float slowFrameFraction) {
+    this.time = time;
+    this.previousTier = previousTier;
+    this.tier = tier;
+    this.reason = reason;
+    this.temperature = temperature;
+    this.batteryLevel = batteryLevel;
+    this.slowFrameFraction = slowFrameFraction;
+  }
+
+  public long getTime() {
+    return time;
+  }
+
+  public QualityTier getPreviousTier() {
+    return previousTier;
+  }
+
+  public QualityTier getTier() {
+    return tier;
+  }
+
+  public QualityPolicy.Reason getReason() {
+    return reason;
+  }
+
+  /**
+   * @return battery temperature in degrees Celsius
+   */
+  public float getTemperature() {
+    return temperature;
+  }
+
+  /**
+   * @return battery level from 0 to 1, negative if unknown
+   */
+  public float getBatteryLevel() {
+    return batteryLevel;
+  }
+
+  /**
+   * @return fraction of the frames that were slow in the window before the transition
+   */
+  public float getSlowFrameFraction() {
+    return slowFrameFraction;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.US, "%tT %-18s -> %-18s %-11s %5.1f C battery %3.0f%% slow frames %3.0f%%",
+      time, previousTier, tier, reason, temperature, batteryLevel * 100, slowFrameFraction * 100);
+  }
+}
@@ -0,0 +1,200 @@
+package com.mapbox.navhud.route;
+
+import com.mapbox.api.directions.v5.models.LegStep;
+import com.mapbox.api.directions.v5.models.StepManeuver;
+import com.mapbox.core.utils.PolylineUtils;
+import com.mapbox.geojson.Point;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read only view of a route encoded by {@link BinaryRouteWriter}.
+ * <p>
+ * The file is laid out as a fixed header, the first step index of every leg, a columnar step
+ * table (one column per step attribute), an interned string table and the delta encoded step
+ * geometries. It is read through a memory mapped buffer, so opening a route only maps the
+ * file and each step, string or geometry is decoded when it is first asked for. Only the
+ * steps the HUD is about to show need to exist on the heap, however long the route is.
+ * <p>
+ * Decoded strings are kept per string table id, the rest is read from the buffer on every
+ * call. Instances are not thread safe.
+ */
+public class BinaryRoute {
+
+  static final int MAGIC = 0x4e485242;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 32;
+  static final int COLUMN_COUNT = 10;
+  static final int NO_STRING = -1;
+  static final double COORDINATE_FACTOR = 1e6;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final int COLUMN_DISTANCE = 0;
+  private static final int COLUMN_DURATION = 1;
+  private static final int COLUMN_NAME = 2;
+  private static final int COLUMN_INSTRUCTION = 3;
+  private static final int COLUMN_TYPE = 4;
+  private static final int COLUMN_MODIFIER = 5;
+  private static final int COLUMN_LONGITUDE = 6;
+  private static final int COLUMN_LATITUDE = 7;
+  private static final int COLUMN_GEOMETRY_START = 8;
+  private static final int COLUMN_GEOMETRY_POINTS = 9;
+
+  private final ByteBuffer buffer;
+  private final int legCount;
+  private final int stepCount;
+  private final int stepTableOffset;
+  private final int stringOffsetsStart;
+  private final int stringDataStart;
+  private final int geometryOffset;
+  private final String[] strings;
+
+  public static BinaryRoute open(File file) throws IOException {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+      FileChannel channel = randomAccessFile.getChannel();
+      return new BinaryRoute(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  BinaryRoute(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+      throw new IOException("Not a binary route file");
+    }
+    legCount = buffer.getInt(8);
+    stepCount = buffer.getInt(12);
+    int stringCount = buffer.getInt(16);
+    int stringTableOffset = buffer.getInt(20);
+    geometryOffset = buffer.getInt(24);
+    stepTableOffset = HEADER_SIZE + legCount * 4;
+    stringOffsetsStart = stringTableOffset;
+    stringDataStart = stringTableOffset + (stringCount + 1) * 4;
+    strings = new String[stringCount];
+  }
+
+  public int getLegCount() {
+    return legCount;
+  }
+
+  public int getStepCount() {
+    return stepCount;
+  }
+
+  /**
+   * @return index of the given leg step in the flattened step table
+   */
+  public int stepIndex(int legIndex, int legStepIndex) {
+    return buffer.getInt(HEADER_SIZE + legIndex * 4) + legStepIndex;
+  }
+
+  public double distance(int step) {
+    return buffer.getFloat(column(COLUMN_DISTANCE, step));
+  }
+
+  public double duration(int step) {
+    return buffer.getFloat(column(COLUMN_DURATION, step));
+  }
+
+  public String name(int step) {
+    return string(buffer.getInt(column(COLUMN_NAME, step)));
+  }
+
+  public String instruction(int step) {
+    return string(buffer.getInt(column(COLUMN_INSTRUCTION, step)));
+  }
+
+  public String maneuverType(int step) {
+    return string(buffer.getInt(column(COLUMN_TYPE, step)));
+  }
+
+  public String maneuverModifier(int step) {
+    return string(buffer.getInt(column(COLUMN_MODIFIER, step)));
+  }
+
+  public Point maneuverLocation(int step) {
+    return Point.fromLngLat(buffer.getInt(column(COLUMN_LONGITUDE, step)) / COORDINATE_FACTOR,
+      buffer.getInt(column(COLUMN_LATITUDE, step)) / COORDINATE_FACTOR);
+  }
+
+  public List<Point> geometry(int step) {
+    int pointCount = buffer.getInt(column(COLUMN_GEOMETRY_POINTS, step));
+    List<Point> points = new ArrayList<>(pointCount);
+    int position = geometryOffset + buffer.getInt(column(COLUMN_GEOMETRY_START, step));
+    int lon = 0;
+    int lat = 0;
+    for (int i = 0; i < pointCount; i++) {
+      int value = 0;
+      int shift = 0;
+      byte read;
+      do {
+        read = buffer.get(position++);
+        value |= (read & 0x7F) << shift;
+        shift += 7;
+      } while ((read & 0x80) != 0);
+      lon += (value >>> 1) ^ -(value & 1);
+      value = 0;
+      shift = 0;
+      do {
+        read = buffer.get(position++);
+        value |= (read & 0x7F) << shift;
+        shift += 7;
+      } while ((read & 0x80) != 0);
+      lat += (value >>> 1) ^ -(value & 1);
+      points.add(Point.fromLngLat(lon / COORDINATE_FACTOR, lat / COORDINATE_FACTOR));
+    }
+    return points;
+  }
+
+  /**
+   * Materializes a single step as a {@link LegStep}. Only the attributes stored in the
+   * binary format are set.
+   */
+  public LegStep step(int step, int geometryPrecision) {
+    Point location = maneuverLocation(step);
+    StepManeuver maneuver = StepManeuver.builder()
+      .rawLocation(new double[] {location.longitude(), location.latitude()})
+      .type(maneuverType(step))
+      .modifier(maneuverModifier(step))
+      .instruction(instruction(step))
+      .build();
+    return LegStep.builder()
+      .distance(distance(step))
+      .duration(duration(step))
+      .weight(duration(step))
+      .mode("driving")
+      .name(name(step))
+      .geometry(PolylineUtils.encode(geometry(step), geometryPrecision))
+      .maneuver(maneuver)
+      .build();
+  }
+
+  private int column(int column, int step) {
+    return stepTableOffset + (column * stepCount + step) * 4;
+  }
+
+  private String string(int id) {
+    if (id == NO_STRING) {
+      return null;
+    }
+    String value = strings[id];
+    if (value == null) {
+      int start = buffer.getInt(stringOffsetsStart + id * 4);
+      int end = buffer.getInt(stringOffsetsStart + (id + 1) * 4);
+      byte[] bytes = new byte[end - start];
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = buffer.get(stringDataStart + start + i);
+      }
+      value = new String(bytes, UTF_8);
+      strings[id] = value;
+    }
+    return value;
+  }
+}
@@ -0,0 +1,186 @@
+package com.mapbox.navhud.route;
+
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.api.directions.v5.models.LegStep;
+import com.mapbox.api.directions.v5.models.RouteLeg;
+import com.mapbox.api.directions.v5.models.StepManeuver;
+import com.mapbox.core.utils.PolylineUtils;
+import com.mapbox.geojson.Point;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.mapbox.navhud.route.BinaryRoute.COLUMN_COUNT;
+import static com.mapbox.navhud.route.BinaryRoute.COORDINATE_FACTOR;
+import static com.mapbox.navhud.route.BinaryRoute.HEADER_SIZE;
+import static com.mapbox.navhud.route.BinaryRoute.MAGIC;
+import static com.mapbox.navhud.route.BinaryRoute.NO_STRING;
+import static com.mapbox.navhud.route.BinaryRoute.VERSION;
+
+/**
+ * Encodes a {@link DirectionsRoute} into the {@link BinaryRoute} file format.
+ */
+public class BinaryRouteWriter {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final int geometryPrecision;
+
+  /**
+   * @param geometryPrecision polyline precision of the route geometry, 6 for routes requested
+   *                          by the Navigation SDK
+   */
+  public BinaryRouteWriter(int geometryPrecision) {
+    this.geometryPrecision = geometryPrecision;
+  }
+
+  public void write(DirectionsRoute route, File file) throws IOException {
+    ByteBuffer buffer = encode(route);
+    try (FileChannel channel = new FileOutputStream(file).getChannel()) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  ByteBuffer encode(DirectionsRoute route) {
+    List<LegStep> steps = new ArrayList<>();
+    List<RouteLeg> legs = route.legs();
+    int legCount = legs == null ? 0 : legs.size();
+    int[] legOffsets = new int[legCount];
+    for (int i = 0; i < legCount; i++) {
+      legOffsets[i] = steps.size();
+      List<LegStep> legSteps = legs.get(i).steps();
+      if (legSteps != null) {
+        steps.addAll(legSteps);
+      }
+    }
+
+    int stepCount = steps.size();
+    StringTable strings = new StringTable();
+    ByteArrayOutputStream geometry = new ByteArrayOutputStream(stepCount * 16);
+    ByteBuffer columns = ByteBuffer.allocate(stepCount * COLUMN_COUNT * 4);
+    float[] distance = new float[stepCount];
+    float[] duration = new float[stepCount];
+    int[][] intColumns = new int[COLUMN_COUNT - 2][stepCount];
+    for (int i = 0; i < stepCount; i++) {
+      LegStep step = steps.get(i);
+      StepManeuver maneuver = step.maneuver();
+      distance[i] = (float) step.distance();
+      duration[i] = (float) step.duration();
+      intColumns[0][i] = strings.intern(step.name());
+      intColumns[1][i] = strings.intern(maneuver.instruction());
+      intColumns[2][i] = strings.intern(maneuver.type());
+      intColumns[3][i] = strings.intern(maneuver.modifier());
+      intColumns[4][i] = (int) Math.round(maneuver.location().longitude() * COORDINATE_FACTOR);
+      intColumns[5][i] = (int) Math.round(maneuver.location().latitude() * COORDINATE_FACTOR);
+      intColumns[6][i] = geometry.size();
+      intColumns[7][i] = writeGeometry(step.geometry(), geometry);
+    }
+    for (float value : distance) {
+      columns.putFloat(value);
+    }
+    for (float value : duration) {
+      columns.putFloat(value);
+    }
+    for (int[] column : intColumns) {
+      for (int value : column) {
+        columns.putInt(value);
+      }
+    }
+
+    byte[] stringData = strings.data.toByteArray();
+    int legTableSize = legCount * 4;
+    int stringTableOffset = HEADER_SIZE + legTableSize + columns.capacity();
+    int stringTableSize = (strings.offsets.size() + 1) * 4 + stringData.length;
+    int geometryOffset = stringTableOffset + stringTableSize;
+
+    ByteBuffer buffer = ByteBuffer.allocate(geometryOffset + geometry.size());
+    buffer.putInt(MAGIC);
+    buffer.putInt(VERSION);
+    buffer.putInt(legCount);
+    buffer.putInt(stepCount);
+    buffer.putInt(strings.offsets.size());
+    buffer.putInt(stringTableOffset);
+    buffer.putInt(geometryOffset);
+    buffer.putInt(0);
+    for (int legOffset : legOffsets) {
+      buffer.putInt(legOffset);
+    }
+    buffer.put(columns.array());
+    for (int offset : strings.offsets) {
+      buffer.putInt(offset);
+    }
+    buffer.putInt(stringData.length);
+    buffer.put(stringData);
+    buffer.put(geometry.toByteArray());
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Writes the step geometry as zig-zag varint deltas of the fixed point coordinates.
+   *
+   * @return number of points written
+   */
+  private int writeGeometry(String polyline, ByteArrayOutputStream output) {
+    if (polyline == null || polyline.isEmpty()) {
+      return 0;
+    }
+    List<Point> points = PolylineUtils.decode(polyline, geometryPrecision);
+    int previousLon = 0;
+    int previousLat = 0;
+    for (Point point : points) {
+      int lon = (int) Math.round(point.longitude() * COORDINATE_FACTOR);
+      int lat = (int) Math.round(point.latitude() * COORDINATE_FACTOR);
+      writeVarInt(output, zigZag(lon - previousLon));
+      writeVarInt(output, zigZag(lat - previousLat));
+      previousLon = lon;
+      previousLat = lat;
+    }
+    return points.size();
+  }
+
+  private static int zigZag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  private static void writeVarInt(ByteArrayOutputStream output, int value) {
+    while ((value & ~0x7F) != 0) {
+      output.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    output.write(value);
+  }
+
+  private static class StringTable {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<Integer> offsets = new ArrayList<>();
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+    int intern(String value) {
+      if (value == null) {
+        return NO_STRING;
+      }
+      Integer id = ids.get(value);
+      if (id == null) {
+        id = offsets.size();
+        ids.put(value, id);
+        offsets.add(data.size());
+        byte[] bytes = value.getBytes(UTF_8);
+        data.write(bytes, 0, bytes.length);
+      }
+      return id;
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package com.mapbox.navhud.route;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Posts to the main thread, where the route callbacks are delivered outside of tests.
+ */
+class MainThreadExecutor implements Executor {
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  @Override
+  public void execute(Runnable command) {
+    handler.post(command);
+  }
+}
@@ -0,0 +1,74 @@
+package com.mapbox.navhud.route;
+
+/**
+ * Estimates how likely it is that the driver has left the route, updated with every fix.
+ * <p>
+ * Each fix is snapped to the route through a {@link RouteGeometryIndex} and turned into
+ * evidence between 0 and 1: how far it lies beyond the tolerance its accuracy allows, or
+ * whether it heads against the matched segment. The likelihood follows the evidence with
+ * exponential smoothing, so a single bad fix does not trigger a reroute but a few
+ * consistent ones do.
+ */
+public class OffRouteDetector {
+
+  static final double MIN_TOLERANCE = 20;
+  static final double ACCURACY_FACTOR = 1.5;
+  static final double SEARCH_RADIUS = 250;
+  static final float MIN_HEADING_SPEED = 3;
+  static final double HEADING_TOLERANCE = 90;
+  static final double HEADING_EVIDENCE = 0.6;
+  static final double SMOOTHING = 0.35;
+  static final double OFF_ROUTE_LIKELIHOOD = 0.7;
+
+  private RouteSnap snap = new RouteSnap();
+  private RouteGeometryIndex index;
+  private double likelihood;
+
+  /**
+   * Switches to a new route and forgets the evidence collected so far.
+   */
+  public synchronized void setRoute(RouteGeometryIndex index) {
+    this.index = index;
+    snap = new RouteSnap();
+    likelihood = 0;
+  }
+
+  /**
+   * @param accuracy horizontal accuracy in meters, 0 if unknown
+   * @param speed    speed in meters per second, 0 if unknown
+   * @param bearing  bearing in degrees, negative if unknown
+   * @return the updated off route likelihood
+   */
+  public synchronized double update(double latitude, double longitude, float accuracy, float speed,
+                                    float bearing) {
+    if (index == null) {
+      return likelihood;
+    }
+    double evidence;
+    if (!index.track(latitude, longitude, SEARCH_RADIUS, snap)) {
+      evidence = 1;
+    } else {
+      double tolerance = Math.max(MIN_TOLERANCE, ACCURACY_FACTOR * accuracy);
+      evidence = Math.max(0, Math.min(1, (snap.getDistance() - tolerance) / tolerance));
+      if (speed >= MIN_HEADING_SPEED && bearing >= 0
+        && angleDifference(bearing, snap.getBearing()) > HEADING_TOLERANCE) {
+        evidence = Math.max(evidence, HEADING_EVIDENCE);
+      }
+    }
+    likelihood += (evidence - likelihood) * SMOOTHING;
+    return likelihood;
+  }
+
+  public synchronized double getLikelihood() {
+    return likelihood;
+  }
+
+  public synchronized boolean isOffRoute() {
+    return likelihood >= OFF_ROUTE_LIKELIHOOD;
+  }
+
+  static double angleDifference(double first, double second) {
+    double difference = Math.abs(first - second) % 360;
+    return difference > 180 ? 360 - difference : difference;
+  }
+}
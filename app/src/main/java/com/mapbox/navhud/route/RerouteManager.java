@@ -0,0 +1,218 @@
+package com.mapbox.navhud.route;
+
+import android.location.Location;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.mapbox.api.directions.v5.DirectionsCriteria;
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.core.constants.Constants;
+import com.mapbox.geojson.Point;
+import com.mapbox.services.android.navigation.v5.navigation.MapboxNavigationOptions;
+import com.mapbox.services.android.navigation.v5.offroute.OffRoute;
+import com.mapbox.services.android.navigation.v5.offroute.OffRouteListener;
+import com.mapbox.services.android.navigation.v5.routeprogress.RouteProgress;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reroutes the driver without waiting for the network when possible.
+ * <p>
+ * {@link #getOffRouteEngine()} replaces the off route check of {@code MapboxNavigation} with
+ * an {@link OffRouteDetector}, which keeps an off route likelihood per fix. While on route,
+ * alternatives from the next decision points are prefetched by a {@link RoutePrefetcher}.
+ * When the driver leaves the route, a matching prefetched route is handed over right away and
+ * a regular Directions request is only made if there is none.
+ * <p>
+ * Apart from the off route engine, methods must be called from the main thread.
+ */
+public class RerouteManager implements OffRouteListener {
+
+  private static final String TAG = RerouteManager.class.getSimpleName();
+  private static final String PROFILE = DirectionsCriteria.PROFILE_DRIVING_TRAFFIC;
+  private static final long RETRY_DELAY_MILLIS = 5000;
+
+  public interface RerouteListener {
+
+    /**
+     * Called on the main thread with the route to continue on.
+     *
+     * @param prefetched true if the route was ready before the driver left the route
+     */
+    void onRerouted(DirectionsRoute route, boolean prefetched);
+
+    void onRerouteError(Throwable throwable);
+  }
+
+  private final RoutePrefetcher prefetcher;
+  private final OffRouteDetector detector = new OffRouteDetector();
+  private final RerouteListener listener;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  // Separate from the prefetching one, the driver is waiting for a reroute
+  private final ExecutorService rerouteExecutor = Executors.newSingleThreadExecutor();
+  private final Executor mainExecutor;
+  private volatile boolean shutdown;
+  private int legIndex = -1;
+  private int stepIndex = -1;
+  private boolean rerouting;
+  private long lastFailureTime = -RETRY_DELAY_MILLIS;
+  private long prefetchedReroutes;
+  private long requestedReroutes;
+
+  private final OffRoute offRouteEngine = new OffRoute() {
+    @Override
+    public boolean isUserOffRoute(Location location, RouteProgress routeProgress,
+                                  MapboxNavigationOptions options) {
+      detector.update(location.getLatitude(), location.getLongitude(), location.getAccuracy(),
+        location.getSpeed(), location.hasBearing() ? location.getBearing() : -1);
+      return detector.isOffRoute();
+    }
+  };
+
+  public RerouteManager(String accessToken, RerouteListener listener) {
+    this(new RoutePrefetcher(accessToken, PROFILE, Constants.BASE_API_URL), new MainThreadExecutor(), listener);
+  }
+
+  /**
+   * @param mainExecutor runs the listener callbacks, on the thread the other methods are called on
+   */
+  RerouteManager(RoutePrefetcher prefetcher, Executor mainExecutor, RerouteListener listener) {
+    this.prefetcher = prefetcher;
+    this.mainExecutor = mainExecutor;
+    this.listener = listener;
+  }
+
+  /**
+   * @return the engine to pass to {@code MapboxNavigation#setOffRouteEngine}
+   */
+  public OffRoute getOffRouteEngine() {
+    return offRouteEngine;
+  }
+
+  /**
+   * Sets the route navigation runs on, both initially and after every reroute. Until its
+   * geometry index is passed to {@link #setRouteIndex(RouteGeometryIndex)}, the driver is
+   * not checked against any route.
+   */
+  public void setRoute(final DirectionsRoute route, final Point destination) {
+    rerouting = false;
+    legIndex = -1;
+    stepIndex = -1;
+    detector.setRoute(null);
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        prefetcher.setRoute(route, destination);
+      }
+    });
+  }
+
+  /**
+   * @param routeIndex geometry index of the route last passed to {@link #setRoute}
+   */
+  public void setRouteIndex(RouteGeometryIndex routeIndex) {
+    detector.setRoute(routeIndex);
+  }
+
+  public void onProgressChange(RouteProgress routeProgress) {
+    final int currentLegIndex = routeProgress.legIndex();
+    final int currentStepIndex = routeProgress.currentLegProgress().stepIndex();
+    if (rerouting || (currentLegIndex == legIndex && currentStepIndex == stepIndex)) {
+      return;
+    }
+    legIndex = currentLegIndex;
+    stepIndex = currentStepIndex;
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        prefetcher.prefetch(currentLegIndex, currentStepIndex);
+      }
+    });
+  }
+
+  @Override
+  public void userOffRoute(Location location) {
+    onOffRoute(location.getLatitude(), location.getLongitude(),
+      location.hasBearing() ? (double) location.getBearing() : null);
+  }
+
+  /**
+   * @param bearing direction the driver is heading in, null if unknown
+   */
+  void onOffRoute(double latitude, double longitude, final Double bearing) {
+    if (rerouting || SystemClock.elapsedRealtime() - lastFailureTime < RETRY_DELAY_MILLIS) {
+      return;
+    }
+    rerouting = true;
+    DirectionsRoute alternative = prefetcher.findAlternative(latitude, longitude);
+    if (alternative != null) {
+      prefetchedReroutes++;
+      listener.onRerouted(alternative, true);
+      return;
+    }
+    requestedReroutes++;
+    final Point origin = Point.fromLngLat(longitude, latitude);
+    rerouteExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          final DirectionsRoute route = prefetcher.fetchRoute(origin, bearing);
+          deliver(new Runnable() {
+            @Override
+            public void run() {
+              listener.onRerouted(route, false);
+            }
+          });
+        } catch (final IOException | RuntimeException exception) {
+          Log.e(TAG, "Reroute failed", exception);
+          deliver(new Runnable() {
+            @Override
+            public void run() {
+              rerouting = false;
+              lastFailureTime = SystemClock.elapsedRealtime();
+              listener.onRerouteError(exception);
+            }
+          });
+        }
+      }
+    });
+  }
+
+  public double getOffRouteLikelihood() {
+    return detector.getLikelihood();
+  }
+
+  /**
+   * @return number of reroutes served from a prefetched route
+   */
+  public long getPrefetchedRerouteCount() {
+    return prefetchedReroutes;
+  }
+
+  /**
+   * @return number of reroutes that needed a Directions request
+   */
+  public long getRequestedRerouteCount() {
+    return requestedReroutes;
+  }
+
+  public void shutdown() {
+    shutdown = true;
+    executor.shutdownNow();
+    rerouteExecutor.shutdownNow();
+  }
+
+  private void deliver(final Runnable delivery) {
+    mainExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (!shutdown) {
+          delivery.run();
+        }
+      }
+    });
+  }
+}
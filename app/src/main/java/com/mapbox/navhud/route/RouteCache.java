@@ -0,0 +1,204 @@
+package com.mapbox.navhud.route;
+
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.geojson.Point;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persistent cache of {@link DirectionsRoute}s keyed by origin, destination and profile.
+ * <p>
+ * Coordinates are quantized to roughly 100 meters, so repeated trips between the same
+ * places hit the same entry. Each route is stored in its own file as a small header followed
+ * by the gzip compressed route JSON. Entries expire after a fixed time to live and the least
+ * recently used ones are evicted once the cache grows past its size limit.
+ * <p>
+ * All methods do disk IO and should be called off the main thread.
+ */
+public class RouteCache {
+
+  private static final int MAGIC = 0x4e524331;
+  private static final String FILE_EXTENSION = ".route";
+  private static final double COORDINATE_PRECISION = 1000;
+
+  private final File directory;
+  private final long maxSizeBytes;
+  private final long timeToLiveMillis;
+
+  public RouteCache(File directory, long maxSizeBytes, long timeToLiveMillis) {
+    this.directory = directory;
+    this.maxSizeBytes = maxSizeBytes;
+    this.timeToLiveMillis = timeToLiveMillis;
+  }
+
+  public static String key(Point origin, Point destination, String profile) {
+    return String.format(Locale.US, "%s_%d_%d_%d_%d", profile.replaceAll("[^A-Za-z0-9-]", "-"),
+      quantize(origin.latitude()), quantize(origin.longitude()),
+      quantize(destination.latitude()), quantize(destination.longitude()));
+  }
+
+  /**
+   * Key of a route through several stops. Besides the end points it holds the number of
+   * stops and a hash of all of them, to keep file names short on routes with many stops.
+   *
+   * @param coordinates origin, stops and destination in driving order
+   */
+  public static String key(List<Point> coordinates, String profile) {
+    long hash = 1125899906842597L;
+    for (Point point : coordinates) {
+      hash = 31 * hash + quantize(point.latitude());
+      hash = 31 * hash + quantize(point.longitude());
+    }
+    return String.format(Locale.US, "%s_%dstops_%016x",
+      key(coordinates.get(0), coordinates.get(coordinates.size() - 1), profile), coordinates.size(), hash);
+  }
+
+  /**
+   * @return the cached route, or null if there is no entry or it has expired
+   */
+  public synchronized DirectionsRoute get(String key) {
+    File file = fileFor(key);
+    if (!file.exists()) {
+      return null;
+    }
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (input.readInt() != MAGIC) {
+        delete(file);
+        return null;
+      }
+      long createdAt = input.readLong();
+      if (isExpired(createdAt)) {
+        delete(file);
+        return null;
+      }
+      String json = readJson(input);
+      file.setLastModified(System.currentTimeMillis());
+      return DirectionsRoute.fromJson(json);
+    } catch (IOException | RuntimeException exception) {
+      delete(file);
+      return null;
+    }
+  }
+
+  public synchronized void put(String key, DirectionsRoute route) throws IOException {
+    if (!directory.exists() && !directory.mkdirs()) {
+      throw new IOException("Unable to create route cache directory " + directory);
+    }
+    File file = fileFor(key);
+    File temp = new File(directory, file.getName() + ".tmp");
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+      output.writeInt(MAGIC);
+      output.writeLong(System.currentTimeMillis());
+      GZIPOutputStream gzip = new GZIPOutputStream(output);
+      gzip.write(route.toJson().getBytes("UTF-8"));
+      gzip.finish();
+    }
+    if (!temp.renameTo(file)) {
+      delete(temp);
+      throw new IOException("Unable to write route cache entry " + file);
+    }
+    trimToSize();
+  }
+
+  public synchronized void remove(String key) {
+    delete(fileFor(key));
+  }
+
+  /**
+   * @return current size of all cache entries on disk, in bytes
+   */
+  public synchronized long size() {
+    long size = 0;
+    for (File file : listEntries()) {
+      size += file.length();
+    }
+    return size;
+  }
+
+  /**
+   * Drops expired entries, then the least recently used ones until the cache fits its
+   * size limit.
+   */
+  synchronized void trimToSize() {
+    File[] entries = listEntries();
+    Arrays.sort(entries, new Comparator<File>() {
+      @Override
+      public int compare(File first, File second) {
+        return Long.compare(second.lastModified(), first.lastModified());
+      }
+    });
+    long size = 0;
+    for (File entry : entries) {
+      if (isExpired(readCreatedAt(entry)) || size + entry.length() > maxSizeBytes) {
+        delete(entry);
+      } else {
+        size += entry.length();
+      }
+    }
+  }
+
+  private static long quantize(double coordinate) {
+    return Math.round(coordinate * COORDINATE_PRECISION);
+  }
+
+  private boolean isExpired(long createdAt) {
+    return System.currentTimeMillis() - createdAt > timeToLiveMillis;
+  }
+
+  private long readCreatedAt(File file) {
+    try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+      return input.readInt() == MAGIC ? input.readLong() : 0;
+    } catch (IOException exception) {
+      return 0;
+    }
+  }
+
+  private static String readJson(DataInputStream input) throws IOException {
+    GZIPInputStream gzip = new GZIPInputStream(input);
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = gzip.read(buffer)) != -1) {
+      json.write(buffer, 0, read);
+    }
+    return json.toString("UTF-8");
+  }
+
+  private File[] listEntries() {
+    File[] entries = directory.listFiles();
+    if (entries == null) {
+      return new File[0];
+    }
+    int count = 0;
+    for (File entry : entries) {
+      if (entry.getName().endsWith(FILE_EXTENSION)) {
+        entries[count++] = entry;
+      }
+    }
+    return Arrays.copyOf(entries, count);
+  }
+
+  private File fileFor(String key) {
+    return new File(directory, key + FILE_EXTENSION);
+  }
+
+  private static void delete(File file) {
+    if (file.exists()) {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,352 @@
+package com.mapbox.navhud.route;
+
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.api.directions.v5.models.LegStep;
+import com.mapbox.api.directions.v5.models.RouteLeg;
+import com.mapbox.core.utils.PolylineUtils;
+import com.mapbox.geojson.Point;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Spatial index over the step geometries of a route, for finding the route segment closest
+ * to a location without scanning the whole route.
+ * <p>
+ * The step geometries are concatenated into one point array, segment {@code i} runs from
+ * point {@code i} to point {@code i + 1} unless point {@code i} is the last one of its step.
+ * Segments are registered in a uniform grid of roughly {@link #CELL_SIZE} meter cells, stored
+ * as sorted cell keys with the segments of each cell in a flat array, so a lookup is a binary
+ * search per cell around the location. Immutable once built, build it off the main thread.
+ * <p>
+ * While following the route, {@link #track(double, double, double, RouteSnap)} first searches
+ * a short window of the route around the previous match and only falls back to the grid when
+ * the location is not close to it, so the cost per fix does not depend on the route length.
+ */
+public class RouteGeometryIndex {
+
+  static final double CELL_SIZE = 100;
+  static final double METERS_PER_DEGREE = 111319.49;
+  static final double WINDOW_BEHIND = 50;
+  static final double WINDOW_AHEAD = 300;
+  static final double WINDOW_MATCH_DISTANCE = 50;
+
+  // Cell key and segment are packed into one positive long so the entries sort by cell
+  private static final int CELL_BITS = 20;
+  private static final int CELL_OFFSET = 1 << (CELL_BITS - 1);
+  private static final int SEGMENT_BITS = 63 - 2 * CELL_BITS;
+  private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+  private final double[] latitudes;
+  private final double[] longitudes;
+  private final int[] segmentSteps;
+  private final double[] distances;
+  private final int stepCount;
+  private final double[] stepStartDistances;
+  private final double[] stepEndDistances;
+  private final double originLatitude;
+  private final double originLongitude;
+  private final double cellLatitude;
+  private final double cellLongitude;
+  private final long[] cellKeys;
+  private final int[] cellStarts;
+  private final int[] cellSegments;
+
+  /**
+   * @param stepGeometries geometry of every step of the route, over all legs in order
+   */
+  public RouteGeometryIndex(List<List<Point>> stepGeometries) {
+    int pointCount = 0;
+    for (List<Point> geometry : stepGeometries) {
+      pointCount += geometry.size();
+    }
+    if (pointCount > SEGMENT_MASK) {
+      throw new IllegalArgumentException("Route has too many points: " + pointCount);
+    }
+    stepCount = stepGeometries.size();
+    latitudes = new double[pointCount];
+    longitudes = new double[pointCount];
+    segmentSteps = new int[pointCount];
+    distances = new double[pointCount];
+    stepStartDistances = new double[stepCount];
+    stepEndDistances = new double[stepCount];
+    int index = 0;
+    for (int step = 0; step < stepGeometries.size(); step++) {
+      List<Point> geometry = stepGeometries.get(step);
+      int stepStart = index;
+      for (int point = 0; point < geometry.size(); point++) {
+        latitudes[index] = geometry.get(point).latitude();
+        longitudes[index] = geometry.get(point).longitude();
+        segmentSteps[index] = point + 1 < geometry.size() ? step : -1;
+        if (index > 0) {
+          distances[index] = distances[index - 1] + distance(latitudes[index - 1],
+            longitudes[index - 1], latitudes[index], longitudes[index]);
+        }
+        index++;
+      }
+      double previousEnd = step > 0 ? stepEndDistances[step - 1] : 0;
+      stepStartDistances[step] = index > stepStart ? distances[stepStart] : previousEnd;
+      stepEndDistances[step] = index > stepStart ? distances[index - 1] : previousEnd;
+    }
+
+    originLatitude = pointCount > 0 ? latitudes[0] : 0;
+    originLongitude = pointCount > 0 ? longitudes[0] : 0;
+    cellLatitude = CELL_SIZE / METERS_PER_DEGREE;
+    cellLongitude = CELL_SIZE / (METERS_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(originLatitude))));
+
+    long[] entries = cellEntries();
+    Arrays.sort(entries);
+    int cellCount = 0;
+    int entryCount = 0;
+    long previousKey = Long.MIN_VALUE;
+    for (int i = 0; i < entries.length; i++) {
+      if (i > 0 && entries[i] == entries[i - 1]) {
+        continue;
+      }
+      entries[entryCount++] = entries[i];
+      long key = entries[i] >>> SEGMENT_BITS;
+      if (cellCount == 0 || key != previousKey) {
+        cellCount++;
+        previousKey = key;
+      }
+    }
+    cellKeys = new long[cellCount];
+    cellStarts = new int[cellCount + 1];
+    cellSegments = new int[entryCount];
+    int cell = -1;
+    for (int i = 0; i < entryCount; i++) {
+      long key = entries[i] >>> SEGMENT_BITS;
+      if (cell < 0 || cellKeys[cell] != key) {
+        cell++;
+        cellKeys[cell] = key;
+        cellStarts[cell] = i;
+      }
+      cellSegments[i] = (int) (entries[i] & SEGMENT_MASK);
+    }
+    cellStarts[cellCount] = entryCount;
+  }
+
+  public static RouteGeometryIndex fromRoute(DirectionsRoute route, int precision) {
+    List<List<Point>> stepGeometries = new ArrayList<>();
+    for (RouteLeg leg : route.legs()) {
+      for (LegStep step : leg.steps()) {
+        stepGeometries.add(PolylineUtils.decode(step.geometry(), precision));
+      }
+    }
+    return new RouteGeometryIndex(stepGeometries);
+  }
+
+  public int getPointCount() {
+    return latitudes.length;
+  }
+
+  public int getStepCount() {
+    return stepCount;
+  }
+
+  /**
+   * @return length of the route geometry in meters
+   */
+  public double getLength() {
+    return latitudes.length > 0 ? distances[latitudes.length - 1] : 0;
+  }
+
+  /**
+   * @return distance from the start of the route to the start of the step in meters
+   */
+  public double getStepStartDistance(int step) {
+    return stepStartDistances[step];
+  }
+
+  /**
+   * @return distance from the start of the route to the end of the step in meters
+   */
+  public double getStepEndDistance(int step) {
+    return stepEndDistances[step];
+  }
+
+  /**
+   * Finds the segment closest to the location, starting from the segment the result was
+   * last matched to. The segments from {@link #WINDOW_BEHIND} meters before to
+   * {@link #WINDOW_AHEAD} meters after it are searched first, if none of them is within
+   * {@link #WINDOW_MATCH_DISTANCE} the whole index is searched as {@link #snap} does.
+   * <p>
+   * Pass a new {@link RouteSnap}, or one last matched on this index, for every route.
+   *
+   * @return true if a segment was found, its details are written to the result
+   */
+  public boolean track(double latitude, double longitude, double radius, RouteSnap result) {
+    int previous = result.segment;
+    if (previous < 0 || previous >= latitudes.length - 1) {
+      return snap(latitude, longitude, radius, result);
+    }
+    double longitudeScale = Math.max(0.01, Math.cos(Math.toRadians(latitude)));
+    double maxDistance = Math.min(radius, WINDOW_MATCH_DISTANCE);
+    double bestDistance = maxDistance * maxDistance;
+    int bestSegment = -1;
+    double bestFraction = 0;
+    int first = previous;
+    while (first > 0 && distances[previous] - distances[first - 1] <= WINDOW_BEHIND) {
+      first--;
+    }
+    for (int segment = first; segment < latitudes.length - 1
+      && distances[segment] - distances[previous] <= WINDOW_AHEAD; segment++) {
+      if (segmentSteps[segment] < 0) {
+        continue;
+      }
+      double fraction = fraction(segment, latitude, longitude, longitudeScale);
+      double distance = distanceSquared(segment, fraction, latitude, longitude, longitudeScale);
+      if (distance < bestDistance || (distance == bestDistance && segment < bestSegment)) {
+        bestDistance = distance;
+        bestSegment = segment;
+        bestFraction = fraction;
+      }
+    }
+    if (bestSegment < 0) {
+      return snap(latitude, longitude, radius, result);
+    }
+    fill(result, bestSegment, bestFraction, bestDistance, longitudeScale);
+    return true;
+  }
+
+  /**
+   * Finds the segment closest to the location within the radius.
+   *
+   * @return true if a segment was found, its details are written to the result
+   */
+  public boolean snap(double latitude, double longitude, double radius, RouteSnap result) {
+    double longitudeScale = Math.max(0.01, Math.cos(Math.toRadians(latitude)));
+    double radiusLatitude = radius / METERS_PER_DEGREE;
+    double radiusLongitude = radius / (METERS_PER_DEGREE * longitudeScale);
+    // One extra cell on every side, segments are only registered in the cells they were
+    // sampled in
+    int minCellX = cellX(longitude - radiusLongitude) - 1;
+    int maxCellX = cellX(longitude + radiusLongitude) + 1;
+    int minCellY = cellY(latitude - radiusLatitude) - 1;
+    int maxCellY = cellY(latitude + radiusLatitude) + 1;
+
+    double bestDistance = radius * radius;
+    int bestSegment = -1;
+    double bestFraction = 0;
+    for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+      for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+        int cell = Arrays.binarySearch(cellKeys, cellKey(cellX, cellY));
+        if (cell < 0) {
+          continue;
+        }
+        for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+          int segment = cellSegments[i];
+          double fraction = fraction(segment, latitude, longitude, longitudeScale);
+          double distance = distanceSquared(segment, fraction, latitude, longitude, longitudeScale);
+          if (distance < bestDistance || (distance == bestDistance && segment < bestSegment)) {
+            bestDistance = distance;
+            bestSegment = segment;
+            bestFraction = fraction;
+          }
+        }
+      }
+    }
+    if (bestSegment < 0) {
+      return false;
+    }
+    fill(result, bestSegment, bestFraction, bestDistance, longitudeScale);
+    return true;
+  }
+
+  private void fill(RouteSnap result, int segment, double fraction, double distanceSquared,
+                    double longitudeScale) {
+    result.segment = segment;
+    result.stepIndex = segmentSteps[segment];
+    result.distance = Math.sqrt(distanceSquared);
+    result.fraction = fraction;
+    result.distanceAlongRoute = distances[segment]
+      + fraction * (distances[segment + 1] - distances[segment]);
+    result.bearing = bearing(segment, longitudeScale);
+  }
+
+  /**
+   * @return position of the point of the segment closest to the location, from 0 to 1
+   */
+  private double fraction(int segment, double latitude, double longitude, double longitudeScale) {
+    double startX = (longitudes[segment] - longitude) * longitudeScale;
+    double startY = latitudes[segment] - latitude;
+    double deltaX = (longitudes[segment + 1] - longitudes[segment]) * longitudeScale;
+    double deltaY = latitudes[segment + 1] - latitudes[segment];
+    double lengthSquared = deltaX * deltaX + deltaY * deltaY;
+    return lengthSquared > 0
+      ? Math.max(0, Math.min(1, -(startX * deltaX + startY * deltaY) / lengthSquared)) : 0;
+  }
+
+  /**
+   * @return squared distance in meters from the location to the given point of the segment
+   */
+  private double distanceSquared(int segment, double fraction, double latitude, double longitude,
+                                 double longitudeScale) {
+    double x = (longitudes[segment] + fraction * (longitudes[segment + 1] - longitudes[segment])
+      - longitude) * longitudeScale * METERS_PER_DEGREE;
+    double y = (latitudes[segment] + fraction * (latitudes[segment + 1] - latitudes[segment])
+      - latitude) * METERS_PER_DEGREE;
+    return x * x + y * y;
+  }
+
+  private double bearing(int segment, double longitudeScale) {
+    double deltaX = (longitudes[segment + 1] - longitudes[segment]) * longitudeScale;
+    double deltaY = latitudes[segment + 1] - latitudes[segment];
+    double bearing = Math.toDegrees(Math.atan2(deltaX, deltaY));
+    return bearing < 0 ? bearing + 360 : bearing;
+  }
+
+  /**
+   * Samples every segment at most half a cell apart on each axis, so every point of a
+   * segment is in or next to a cell it is registered in.
+   *
+   * @return packed cell key and segment index of every sample
+   */
+  private long[] cellEntries() {
+    long[] entries = new long[Math.max(16, latitudes.length * 2)];
+    int count = 0;
+    for (int segment = 0; segment < latitudes.length - 1; segment++) {
+      if (segmentSteps[segment] < 0) {
+        continue;
+      }
+      double deltaLatitude = latitudes[segment + 1] - latitudes[segment];
+      double deltaLongitude = longitudes[segment + 1] - longitudes[segment];
+      int samples = 1 + (int) Math.ceil(2 * Math.max(Math.abs(deltaLatitude) / cellLatitude,
+        Math.abs(deltaLongitude) / cellLongitude));
+      for (int sample = 0; sample <= samples; sample++) {
+        double fraction = (double) sample / samples;
+        long key = cellKey(cellX(longitudes[segment] + fraction * deltaLongitude),
+          cellY(latitudes[segment] + fraction * deltaLatitude));
+        if (count == entries.length) {
+          entries = Arrays.copyOf(entries, count * 2);
+        }
+        entries[count++] = key << SEGMENT_BITS | segment;
+      }
+    }
+    return Arrays.copyOf(entries, count);
+  }
+
+  private int cellX(double longitude) {
+    return (int) Math.floor((longitude - originLongitude) / cellLongitude);
+  }
+
+  private int cellY(double latitude) {
+    return (int) Math.floor((latitude - originLatitude) / cellLatitude);
+  }
+
+  private static long cellKey(int cellX, int cellY) {
+    long x = Math.max(0, Math.min((1 << CELL_BITS) - 1, cellX + CELL_OFFSET));
+    long y = Math.max(0, Math.min((1 << CELL_BITS) - 1, cellY + CELL_OFFSET));
+    return x << CELL_BITS | y;
+  }
+
+  /**
+   * Equirectangular distance in meters, accurate enough at the scale of route segments.
+   */
+  static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+    double x = (longitude2 - longitude1) * Math.cos(Math.toRadians((latitude1 + latitude2) / 2));
+    double y = latitude2 - latitude1;
+    return Math.sqrt(x * x + y * y) * METERS_PER_DEGREE;
+  }
+}
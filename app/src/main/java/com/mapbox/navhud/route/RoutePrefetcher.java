@@ -0,0 +1,300 @@
+package com.mapbox.navhud.route;
+
+import com.mapbox.api.directions.v5.DirectionsCriteria;
+import com.mapbox.api.directions.v5.MapboxDirections;
+import com.mapbox.api.directions.v5.models.DirectionsResponse;
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.api.directions.v5.models.LegStep;
+import com.mapbox.api.directions.v5.models.RouteLeg;
+import com.mapbox.api.directions.v5.models.StepManeuver;
+import com.mapbox.core.constants.Constants;
+import com.mapbox.geojson.Point;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import retrofit2.Response;
+
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_ARRIVE;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_CONTINUE;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_DEPART;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_NEW_NAME;
+import static com.mapbox.navhud.Constants.STEP_MANEUVER_TYPE_NOTIFICATION;
+
+/**
+ * Fetches routes to the destination for the case the driver misses one of the next
+ * maneuvers, before it happens.
+ * <p>
+ * For each of the next few decision points on the route, a route is requested from a point
+ * a short distance past the maneuver in the direction the driver approaches it. When the
+ * driver leaves the route, {@link #findAlternative(double, double)} returns the one they
+ * are on, so the reroute needs no network request.
+ * <p>
+ * On a route through several stops, routes are requested to the stop ending the leg of the
+ * maneuver and the remaining legs of the current route are appended, so no stop is skipped.
+ * <p>
+ * {@link #prefetch(int, int)} and {@link #fetchRoute(Point, Double)} block on the network and
+ * must be called off the main thread.
+ */
+public class RoutePrefetcher {
+
+  static final int DECISION_POINTS = 3;
+  static final double MISSED_TURN_DISTANCE = 80;
+  static final double BEARING_TOLERANCE = 45;
+  static final double JOIN_RADIUS = 50;
+  static final double MAX_JOIN_DISTANCE = 300;
+
+  private final String accessToken;
+  private final String profile;
+  private final String baseUrl;
+  private final AtomicLong requestCount = new AtomicLong();
+
+  // Guarded by this
+  private final List<Alternative> alternatives = new ArrayList<>();
+  private List<LegStep> steps = new ArrayList<>();
+  private int[] legStepOffsets = new int[0];
+  private DirectionsRoute route;
+  private Point[] legDestinations = new Point[0];
+  private int currentLeg;
+  private int generation;
+
+  public RoutePrefetcher(String accessToken, String profile, String baseUrl) {
+    this.accessToken = accessToken;
+    this.profile = profile;
+    this.baseUrl = baseUrl;
+  }
+
+  /**
+   * Switches to a new route and drops the alternatives of the previous one.
+   */
+  public synchronized void setRoute(DirectionsRoute route, Point destination) {
+    this.route = route;
+    steps = new ArrayList<>();
+    int legCount = route.legs().size();
+    legStepOffsets = new int[legCount];
+    legDestinations = new Point[legCount];
+    for (int leg = 0; leg < legCount; leg++) {
+      RouteLeg routeLeg = route.legs().get(leg);
+      legStepOffsets[leg] = steps.size();
+      steps.addAll(routeLeg.steps());
+      // Legs end with the arrival at their stop
+      legDestinations[leg] = leg == legCount - 1 || steps.isEmpty() ? destination
+        : steps.get(steps.size() - 1).maneuver().location();
+    }
+    currentLeg = 0;
+    alternatives.clear();
+    generation++;
+  }
+
+  /**
+   * Drops the alternatives for maneuvers already passed and fetches the missing ones for the
+   * next decision points.
+   */
+  public void prefetch(int legIndex, int stepIndex) {
+    List<LegStep> routeSteps;
+    List<Integer> decisionSteps = new ArrayList<>();
+    int routeGeneration;
+    DirectionsRoute currentRoute;
+    int[] stepOffsets;
+    Point[] destinations;
+    synchronized (this) {
+      if (legIndex >= legStepOffsets.length) {
+        return;
+      }
+      currentLeg = legIndex;
+      int currentStep = legStepOffsets[legIndex] + stepIndex;
+      Iterator<Alternative> iterator = alternatives.iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next().decisionStep <= currentStep) {
+          iterator.remove();
+        }
+      }
+      for (int step = currentStep + 1; step < steps.size() && decisionSteps.size() < DECISION_POINTS; step++) {
+        if (isDecision(steps.get(step).maneuver())) {
+          decisionSteps.add(step);
+        }
+      }
+      routeSteps = steps;
+      routeGeneration = generation;
+      currentRoute = route;
+      stepOffsets = legStepOffsets;
+      destinations = legDestinations;
+    }
+
+    for (int step : decisionSteps) {
+      if (hasAlternative(step, routeGeneration)) {
+        continue;
+      }
+      StepManeuver maneuver = routeSteps.get(step).maneuver();
+      Double bearing = maneuver.bearingBefore();
+      int leg = legOf(stepOffsets, step);
+      try {
+        DirectionsRoute legRoute = fetchRoute(missedTurnOrigin(maneuver), bearing, destinations[leg]);
+        // Joining only looks at the start, the index leaves out the legs after
+        Alternative alternative = new Alternative(step, withLegsAfter(legRoute, currentRoute, leg),
+          RouteGeometryIndex.fromRoute(legRoute, Constants.PRECISION_6));
+        synchronized (this) {
+          if (generation != routeGeneration) {
+            return;
+          }
+          alternatives.add(alternative);
+        }
+      } catch (IOException | RuntimeException exception) {
+        // Prefetching is best effort, the reroute falls back to a regular request
+      }
+    }
+  }
+
+  /**
+   * @return a prefetched route the location has just joined, or null if there is none
+   */
+  public synchronized DirectionsRoute findAlternative(double latitude, double longitude) {
+    RouteSnap snap = new RouteSnap();
+    DirectionsRoute closest = null;
+    double closestDistance = Double.MAX_VALUE;
+    for (Alternative alternative : alternatives) {
+      if (alternative.index.snap(latitude, longitude, JOIN_RADIUS, snap)
+        && snap.getDistanceAlongRoute() <= MAX_JOIN_DISTANCE && snap.getDistance() < closestDistance) {
+        closest = alternative.route;
+        closestDistance = snap.getDistance();
+      }
+    }
+    return closest;
+  }
+
+  /**
+   * Requests a route from the origin to the destination of the current route, through the
+   * stops not reached yet.
+   *
+   * @param bearing direction the driver is heading in, null if unknown
+   */
+  public DirectionsRoute fetchRoute(Point origin, Double bearing) throws IOException {
+    DirectionsRoute currentRoute;
+    Point legDestination;
+    int leg;
+    synchronized (this) {
+      currentRoute = route;
+      leg = currentLeg;
+      legDestination = leg < legDestinations.length ? legDestinations[leg] : null;
+    }
+    if (legDestination == null) {
+      throw new IOException("No destination to route to");
+    }
+    return withLegsAfter(fetchRoute(origin, bearing, legDestination), currentRoute, leg);
+  }
+
+  public synchronized int getAlternativeCount() {
+    return alternatives.size();
+  }
+
+  /**
+   * @return number of Directions requests made so far
+   */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  private DirectionsRoute fetchRoute(Point origin, Double bearing, Point destination) throws IOException {
+    MapboxDirections.Builder builder = MapboxDirections.builder()
+      .accessToken(accessToken)
+      .baseUrl(baseUrl)
+      .profile(profile)
+      .origin(origin)
+      .destination(destination)
+      .geometries(DirectionsCriteria.GEOMETRY_POLYLINE6)
+      .overview(DirectionsCriteria.OVERVIEW_FULL)
+      .steps(true)
+      .continueStraight(true)
+      .roundaboutExits(true)
+      .voiceInstructions(true)
+      .bannerInstructions(true);
+    if (bearing != null) {
+      builder.addBearing(bearing, BEARING_TOLERANCE);
+      builder.addBearing(null, null);
+    }
+    requestCount.incrementAndGet();
+    Response<DirectionsResponse> response = builder.build().executeCall();
+    DirectionsResponse body = response.body();
+    if (body == null || body.routes() == null || body.routes().isEmpty()) {
+      throw new IOException("No route returned, status " + response.code());
+    }
+    return body.routes().get(0);
+  }
+
+  /**
+   * @return the route to the end of a leg followed by the legs after it on the current route
+   */
+  private static DirectionsRoute withLegsAfter(DirectionsRoute legRoute, DirectionsRoute currentRoute,
+                                               int leg) {
+    if (leg + 1 >= currentRoute.legs().size()) {
+      return legRoute;
+    }
+    return RouteStitcher.stitch(Arrays.asList(legRoute,
+      RouteStitcher.legsFrom(currentRoute, leg + 1, Constants.PRECISION_6)), Constants.PRECISION_6);
+  }
+
+  private static int legOf(int[] legStepOffsets, int step) {
+    int leg = Arrays.binarySearch(legStepOffsets, step);
+    if (leg < 0) {
+      return -leg - 2;
+    }
+    // Legs without steps share their offset with the next one
+    while (leg + 1 < legStepOffsets.length && legStepOffsets[leg + 1] == step) {
+      leg++;
+    }
+    return leg;
+  }
+
+  private synchronized boolean hasAlternative(int step, int routeGeneration) {
+    if (generation != routeGeneration) {
+      return true;
+    }
+    for (Alternative alternative : alternatives) {
+      if (alternative.decisionStep == step) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the point the driver reaches after going straight through the maneuver
+   */
+  static Point missedTurnOrigin(StepManeuver maneuver) {
+    Point location = maneuver.location();
+    Double bearing = maneuver.bearingBefore();
+    if (bearing == null) {
+      return location;
+    }
+    double radians = Math.toRadians(bearing);
+    double latitude = location.latitude()
+      + MISSED_TURN_DISTANCE * Math.cos(radians) / RouteGeometryIndex.METERS_PER_DEGREE;
+    double longitude = location.longitude() + MISSED_TURN_DISTANCE * Math.sin(radians)
+      / (RouteGeometryIndex.METERS_PER_DEGREE * Math.cos(Math.toRadians(location.latitude())));
+    return Point.fromLngLat(longitude, latitude);
+  }
+
+  private static boolean isDecision(StepManeuver maneuver) {
+    String type = maneuver.type();
+    return type != null && !STEP_MANEUVER_TYPE_DEPART.equals(type) && !STEP_MANEUVER_TYPE_ARRIVE.equals(type)
+      && !STEP_MANEUVER_TYPE_NEW_NAME.equals(type) && !STEP_MANEUVER_TYPE_CONTINUE.equals(type)
+      && !STEP_MANEUVER_TYPE_NOTIFICATION.equals(type);
+  }
+
+  private static class Alternative {
+
+    private final int decisionStep;
+    private final DirectionsRoute route;
+    private final RouteGeometryIndex index;
+
+    Alternative(int decisionStep, DirectionsRoute route, RouteGeometryIndex index) {
+      this.decisionStep = decisionStep;
+      this.route = route;
+      this.index = index;
+    }
+  }
+}
@@ -0,0 +1,345 @@
+package com.mapbox.navhud.route;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.mapbox.api.directions.v5.DirectionsCriteria;
+import com.mapbox.api.directions.v5.models.DirectionsResponse;
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.core.constants.Constants;
+import com.mapbox.geojson.Point;
+import com.mapbox.services.android.navigation.v5.navigation.NavigationRoute;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Provides routes from the {@link RouteCache} when possible and from the Directions API
+ * otherwise.
+ * <p>
+ * A cached route is delivered as soon as it is read from disk. The Directions request is
+ * still made in the background and its result replaces the cache entry, so the next trip
+ * starts from a fresh route.
+ */
+public class RouteRepository {
+
+  private static final String TAG = RouteRepository.class.getSimpleName();
+  private static final String CACHE_DIRECTORY = "route-cache";
+  private static final long CACHE_MAX_SIZE = 10 * 1024 * 1024;
+  private static final long CACHE_TIME_TO_LIVE = TimeUnit.DAYS.toMillis(7);
+  private static final String PROFILE = DirectionsCriteria.PROFILE_DRIVING_TRAFFIC;
+  // The traffic profile only takes three coordinates per request
+  private static final String WAYPOINT_PROFILE = DirectionsCriteria.PROFILE_DRIVING;
+  private static final int MAX_WAYPOINT_COORDINATES = 25;
+  private static final String ACTIVE_ROUTE_FILE = "active-route.bin";
+
+  public interface RouteListener {
+
+    /**
+     * Called on the main thread, possibly twice per request: first with the cached route, then
+     * with the one returned by the Directions API.
+     */
+    void onRouteReady(DirectionsRoute route, boolean fromCache);
+
+    void onRouteError(Throwable throwable);
+  }
+
+  /**
+   * Makes the Directions requests, {@link NavigationRoute} outside of tests.
+   */
+  interface DirectionsClient {
+
+    /**
+     * @param coordinates origin, waypoints and destination
+     * @param callback    called on the main thread
+     */
+    void getRoute(String profile, List<Point> coordinates, Callback<DirectionsResponse> callback);
+  }
+
+  public interface BinaryRouteListener {
+
+    /**
+     * Called on the main thread once the route has been encoded and mapped and its geometry
+     * indexed.
+     *
+     * @param binaryRoute the mapped route, null if it could not be written
+     */
+    void onBinaryRouteReady(BinaryRoute binaryRoute, RouteGeometryIndex routeIndex);
+  }
+
+  private final RouteCache routeCache;
+  private final File routeDirectory;
+  private final DirectionsClient directionsClient;
+  private final Executor mainExecutor;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private volatile boolean shutdown;
+
+  public RouteRepository(Context context, String accessToken) {
+    this(new RouteCache(new File(context.getFilesDir(), CACHE_DIRECTORY), CACHE_MAX_SIZE, CACHE_TIME_TO_LIVE),
+      context.getFilesDir(), new NavigationRouteClient(context.getApplicationContext(), accessToken),
+      new MainThreadExecutor());
+  }
+
+  /**
+   * @param routeDirectory where the {@link BinaryRoute} of the active route is written
+   * @param mainExecutor   runs the listener callbacks, on the thread the Directions callbacks
+   *                       arrive on
+   */
+  RouteRepository(RouteCache routeCache, File routeDirectory, DirectionsClient directionsClient,
+                  Executor mainExecutor) {
+    this.routeCache = routeCache;
+    this.routeDirectory = routeDirectory;
+    this.directionsClient = directionsClient;
+    this.mainExecutor = mainExecutor;
+  }
+
+  public void requestRoute(final Point origin, final Point destination, final RouteListener listener) {
+    final String key = RouteCache.key(origin, destination, PROFILE);
+    deliverCachedRoute(key, listener);
+
+    directionsClient.getRoute(PROFILE, Arrays.asList(origin, destination),
+      new Callback<DirectionsResponse>() {
+        @Override
+        public void onResponse(Call<DirectionsResponse> call, Response<DirectionsResponse> response) {
+          if (shutdown) {
+            return;
+          }
+          if (response.body() != null && response.body().routes().size() > 0) {
+            DirectionsRoute route = response.body().routes().get(0);
+            storeRoute(key, route);
+            listener.onRouteReady(route, false);
+          } else {
+            listener.onRouteError(new IOException("No route, status " + response.code()));
+          }
+        }
+
+        @Override
+        public void onFailure(Call<DirectionsResponse> call, Throwable throwable) {
+          if (!shutdown) {
+            listener.onRouteError(throwable);
+          }
+        }
+      });
+  }
+
+  /**
+   * Requests a route with a leg per stop. Stops beyond the coordinate limit of a request are
+   * split into batches, requested in parallel and stitched into one route by
+   * {@link RouteStitcher}, which is only delivered once every batch succeeded.
+   *
+   * @param stops stops in driving order, the last one is the destination
+   */
+  public void requestRoute(Point origin, List<Point> stops, RouteListener listener) {
+    if (stops.size() == 1) {
+      requestRoute(origin, stops.get(0), listener);
+      return;
+    }
+    List<Point> coordinates = new ArrayList<>(stops.size() + 1);
+    coordinates.add(origin);
+    coordinates.addAll(stops);
+    String key = RouteCache.key(coordinates, WAYPOINT_PROFILE);
+    deliverCachedRoute(key, listener);
+    new WaypointRequest(key, RouteStitcher.batch(coordinates, MAX_WAYPOINT_COORDINATES), listener).start();
+  }
+
+  /**
+   * Encodes the route in the {@link BinaryRoute} format and maps it from disk, so the HUD can
+   * read upcoming steps without walking the route object graph. The
+   * {@link RouteGeometryIndex} for snapping fixes to the route is built along with it, and
+   * delivered even if the route could not be written.
+   */
+  public void openBinaryRoute(final DirectionsRoute route, final BinaryRouteListener listener) {
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        final RouteGeometryIndex routeIndex = RouteGeometryIndex.fromRoute(route, Constants.PRECISION_6);
+        final BinaryRoute binaryRoute = writeBinaryRoute(route);
+        deliver(new Runnable() {
+          @Override
+          public void run() {
+            listener.onBinaryRouteReady(binaryRoute, routeIndex);
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Stops delivering routes, including those already on their way to the main thread.
+   */
+  public void shutdown() {
+    shutdown = true;
+    executor.shutdown();
+  }
+
+  /**
+   * @return the mapped route, null if it could not be written
+   */
+  private BinaryRoute writeBinaryRoute(DirectionsRoute route) {
+    try {
+      File file = new File(routeDirectory, ACTIVE_ROUTE_FILE);
+      File temp = new File(routeDirectory, ACTIVE_ROUTE_FILE + ".tmp");
+      new BinaryRouteWriter(Constants.PRECISION_6).write(route, temp);
+      if (!temp.renameTo(file)) {
+        throw new IOException("Unable to write " + file);
+      }
+      return BinaryRoute.open(file);
+    } catch (IOException exception) {
+      Log.e(TAG, "Unable to map the route", exception);
+      return null;
+    }
+  }
+
+  private void deliver(final Runnable delivery) {
+    mainExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (!shutdown) {
+          delivery.run();
+        }
+      }
+    });
+  }
+
+  private void deliverCachedRoute(final String key, final RouteListener listener) {
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        final DirectionsRoute cachedRoute = routeCache.get(key);
+        if (cachedRoute != null) {
+          deliver(new Runnable() {
+            @Override
+            public void run() {
+              listener.onRouteReady(cachedRoute, true);
+            }
+          });
+        }
+      }
+    });
+  }
+
+  private void storeRoute(final String key, final DirectionsRoute route) {
+    if (executor.isShutdown()) {
+      return;
+    }
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          routeCache.put(key, route);
+        } catch (IOException exception) {
+          Log.e(TAG, exception.getMessage());
+        }
+      }
+    });
+  }
+
+  /**
+   * Batches of one route through many stops, callbacks arrive on the main thread.
+   */
+  private class WaypointRequest {
+
+    private final String key;
+    private final List<List<Point>> batches;
+    private final RouteListener listener;
+    private final DirectionsRoute[] parts;
+    private int remaining;
+    private boolean failed;
+
+    WaypointRequest(String key, List<List<Point>> batches, RouteListener listener) {
+      this.key = key;
+      this.batches = batches;
+      this.listener = listener;
+      parts = new DirectionsRoute[batches.size()];
+      remaining = batches.size();
+    }
+
+    void start() {
+      for (int i = 0; i < batches.size(); i++) {
+        directionsClient.getRoute(WAYPOINT_PROFILE, batches.get(i), callback(i));
+      }
+    }
+
+    private Callback<DirectionsResponse> callback(final int batch) {
+      return new Callback<DirectionsResponse>() {
+        @Override
+        public void onResponse(Call<DirectionsResponse> call, Response<DirectionsResponse> response) {
+          if (response.body() != null && response.body().routes().size() > 0) {
+            onPart(batch, response.body().routes().get(0));
+          } else {
+            onFailure(call, new IOException("No route for stops of batch " + batch + ", status "
+              + response.code()));
+          }
+        }
+
+        @Override
+        public void onFailure(Call<DirectionsResponse> call, Throwable throwable) {
+          if (!failed && !shutdown) {
+            failed = true;
+            listener.onRouteError(throwable);
+          }
+        }
+      };
+    }
+
+    private void onPart(int batch, DirectionsRoute part) {
+      parts[batch] = part;
+      if (--remaining > 0 || failed || shutdown) {
+        return;
+      }
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          final DirectionsRoute route = RouteStitcher.stitch(Arrays.asList(parts),
+            Constants.PRECISION_6);
+          try {
+            routeCache.put(key, route);
+          } catch (IOException exception) {
+            Log.e(TAG, exception.getMessage());
+          }
+          deliver(new Runnable() {
+            @Override
+            public void run() {
+              listener.onRouteReady(route, false);
+            }
+          });
+        }
+      });
+    }
+  }
+
+  private static class NavigationRouteClient implements DirectionsClient {
+
+    private final Context context;
+    private final String accessToken;
+
+    NavigationRouteClient(Context context, String accessToken) {
+      this.context = context;
+      this.accessToken = accessToken;
+    }
+
+    @Override
+    public void getRoute(String profile, List<Point> coordinates, Callback<DirectionsResponse> callback) {
+      NavigationRoute.Builder builder = NavigationRoute.builder(context)
+        .accessToken(accessToken)
+        .profile(profile)
+        .origin(coordinates.get(0))
+        .destination(coordinates.get(coordinates.size() - 1));
+      for (Point waypoint : coordinates.subList(1, coordinates.size() - 1)) {
+        builder.addWaypoint(waypoint);
+      }
+      builder.build().getRoute(callback);
+    }
+  }
+}
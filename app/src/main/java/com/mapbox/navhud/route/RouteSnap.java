@@ -0,0 +1,56 @@
+package com.mapbox.navhud.route;
+
+/**
+ * Result of snapping a location to a {@link RouteGeometryIndex}, reused between fixes.
+ */
+public class RouteSnap {
+
+  int segment = -1;
+  int stepIndex = -1;
+  double distance;
+  double fraction;
+  double distanceAlongRoute;
+  double bearing;
+
+  /**
+   * @return index of the matched segment, the one starting at the point with this index
+   */
+  public int getSegment() {
+    return segment;
+  }
+
+  /**
+   * @return index of the matched step, counted over all legs of the route
+   */
+  public int getStepIndex() {
+    return stepIndex;
+  }
+
+  /**
+   * @return distance from the location to the route in meters
+   */
+  public double getDistance() {
+    return distance;
+  }
+
+  /**
+   * @return position of the snapped point on its segment, from 0 to 1
+   */
+  public double getFraction() {
+    return fraction;
+  }
+
+  /**
+   * @return distance from the start of the route to the snapped point in meters
+   */
+  public double getDistanceAlongRoute() {
+    return distanceAlongRoute;
+  }
+
+  /**
+   * @return bearing of the matched segment in degrees
+   */
+  public double getBearing() {
+    return bearing;
+  }
+}
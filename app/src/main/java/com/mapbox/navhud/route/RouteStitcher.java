@@ -0,0 +1,132 @@
+package com.mapbox.navhud.route;
+
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.api.directions.v5.models.LegStep;
+import com.mapbox.api.directions.v5.models.RouteLeg;
+import com.mapbox.api.directions.v5.models.RouteOptions;
+import com.mapbox.core.utils.PolylineUtils;
+import com.mapbox.geojson.Point;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits routes through many stops into Directions requests within the coordinate limit and
+ * joins the returned routes back into one route with a leg per stop.
+ * <p>
+ * Consecutive batches share a stop, the route of one batch ends where the next one departs,
+ * so the joined route has exactly the legs a single request would have returned.
+ */
+public final class RouteStitcher {
+
+  private RouteStitcher() {
+    // Prevent instantiation
+  }
+
+  /**
+   * @param coordinates    origin, stops and destination in driving order, at least two
+   * @param maxCoordinates coordinates allowed per request, at least two
+   * @return the coordinates of every request, each batch starting with the last coordinate
+   * of the one before
+   */
+  public static List<List<Point>> batch(List<Point> coordinates, int maxCoordinates) {
+    if (coordinates.size() < 2 || maxCoordinates < 2) {
+      throw new IllegalArgumentException("Need at least two coordinates per route");
+    }
+    List<List<Point>> batches = new ArrayList<>();
+    for (int start = 0; start < coordinates.size() - 1; start += maxCoordinates - 1) {
+      int end = Math.min(start + maxCoordinates, coordinates.size());
+      batches.add(new ArrayList<>(coordinates.subList(start, end)));
+    }
+    return batches;
+  }
+
+  /**
+   * Joins routes that follow each other into one, keeping all of their legs.
+   *
+   * @param precision polyline precision of the route geometries
+   */
+  public static DirectionsRoute stitch(List<DirectionsRoute> parts, int precision) {
+    DirectionsRoute first = parts.get(0);
+    List<RouteLeg> legs = new ArrayList<>();
+    List<Point> geometry = new ArrayList<>();
+    double distance = 0;
+    double duration = 0;
+    double weight = 0;
+    for (DirectionsRoute part : parts) {
+      legs.addAll(part.legs());
+      distance += part.distance();
+      duration += part.duration();
+      weight += part.weight() != null ? part.weight() : 0;
+      appendPoints(geometry, PolylineUtils.decode(part.geometry(), precision));
+    }
+    return first.toBuilder()
+      .legs(legs)
+      .distance(distance)
+      .duration(duration)
+      .weight(weight)
+      .geometry(PolylineUtils.encode(geometry, precision))
+      .routeOptions(stitchOptions(parts))
+      .build();
+  }
+
+  /**
+   * @return the route from the start of a leg on, e.g. the stops left after a reroute to
+   * the next one
+   */
+  public static DirectionsRoute legsFrom(DirectionsRoute route, int firstLeg, int precision) {
+    List<RouteLeg> legs = new ArrayList<>(route.legs().subList(firstLeg, route.legs().size()));
+    List<Point> geometry = new ArrayList<>();
+    double distance = 0;
+    double duration = 0;
+    double weight = 0;
+    for (RouteLeg leg : legs) {
+      distance += leg.distance();
+      duration += leg.duration();
+      for (LegStep step : leg.steps()) {
+        weight += step.weight();
+        appendPoints(geometry, PolylineUtils.decode(step.geometry(), precision));
+      }
+    }
+    RouteOptions options = route.routeOptions();
+    if (options != null && options.coordinates().size() == route.legs().size() + 1) {
+      List<Point> coordinates = options.coordinates();
+      options = options.toBuilder()
+        .coordinates(new ArrayList<>(coordinates.subList(firstLeg, coordinates.size())))
+        .build();
+    } else {
+      options = null;
+    }
+    return route.toBuilder()
+      .legs(legs)
+      .distance(distance)
+      .duration(duration)
+      .weight(weight)
+      .geometry(PolylineUtils.encode(geometry, precision))
+      .routeOptions(options)
+      .build();
+  }
+
+  /**
+   * @return options of the first part with the coordinates of all parts, null unless every
+   * part has options
+   */
+  private static RouteOptions stitchOptions(List<DirectionsRoute> parts) {
+    List<Point> coordinates = new ArrayList<>();
+    for (DirectionsRoute part : parts) {
+      if (part.routeOptions() == null) {
+        return null;
+      }
+      appendPoints(coordinates, part.routeOptions().coordinates());
+    }
+    return parts.get(0).routeOptions().toBuilder().coordinates(coordinates).build();
+  }
+
+  /**
+   * Appends the points, without the first one if the line already ends there.
+   */
+  private static void appendPoints(List<Point> line, List<Point> points) {
+    int start = !line.isEmpty() && !points.isEmpty() && line.get(line.size() - 1).equals(points.get(0)) ? 1 : 0;
+    line.addAll(points.subList(start, points.size()));
+  }
+}
@@ -0,0 +1,110 @@
+package com.mapbox.navhud.trip;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends closed trip log segments to the collection endpoint in batches.
+ * <p>
+ * Every request is a POST of up to the maximum number of segments, each one prefixed with
+ * its length as a big endian int. The files are streamed into the request through NIO
+ * channels with a fixed content length, nothing is buffered in memory. Segments are deleted
+ * once the endpoint accepted them, a failed request leaves them for the next upload.
+ * <p>
+ * Uploads block, call them off the main thread.
+ */
+public class TripLogUploader {
+
+  static final String CONTENT_TYPE = "application/octet-stream";
+  static final String SEGMENT_COUNT_HEADER = "X-Segment-Count";
+  private static final int TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(15);
+
+  private final File directory;
+  private final URL endpoint;
+  private final int maxBatchSegments;
+  private final long maxBatchBytes;
+  private final ByteBuffer lengthPrefix = ByteBuffer.allocate(4);
+
+  /**
+   * @param maxBatchBytes size of a request above which no further segment is added to it
+   */
+  public TripLogUploader(File directory, URL endpoint, int maxBatchSegments, long maxBatchBytes) {
+    this.directory = directory;
+    this.endpoint = endpoint;
+    this.maxBatchSegments = maxBatchSegments;
+    this.maxBatchBytes = maxBatchBytes;
+  }
+
+  /**
+   * Uploads the closed segments, oldest first, until none are left or a request fails.
+   *
+   * @return number of segments uploaded
+   */
+  public synchronized int upload() throws IOException {
+    File[] segments = TripLogWriter.listSegments(directory);
+    int uploaded = 0;
+    while (uploaded < segments.length) {
+      int end = uploaded;
+      long batchBytes = 0;
+      while (end < segments.length && end - uploaded < maxBatchSegments && batchBytes < maxBatchBytes) {
+        batchBytes += 4 + segments[end].length();
+        end++;
+      }
+      post(segments, uploaded, end, batchBytes);
+      for (int i = uploaded; i < end; i++) {
+        segments[i].delete();
+      }
+      uploaded = end;
+    }
+    return uploaded;
+  }
+
+  private void post(File[] segments, int start, int end, long contentLength) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+    try {
+      connection.setRequestMethod("POST");
+      connection.setDoOutput(true);
+      connection.setConnectTimeout(TIMEOUT_MILLIS);
+      connection.setReadTimeout(TIMEOUT_MILLIS);
+      connection.setFixedLengthStreamingMode(contentLength);
+      connection.setRequestProperty("Content-Type", CONTENT_TYPE);
+      connection.setRequestProperty(SEGMENT_COUNT_HEADER, String.valueOf(end - start));
+      try (OutputStream output = connection.getOutputStream()) {
+        WritableByteChannel body = Channels.newChannel(output);
+        for (int i = start; i < end; i++) {
+          writeSegment(segments[i], body);
+        }
+      }
+      int status = connection.getResponseCode();
+      if (status < 200 || status >= 300) {
+        throw new IOException("Trip log upload rejected with status " + status);
+      }
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private void writeSegment(File segment, WritableByteChannel body) throws IOException {
+    try (FileChannel file = new FileInputStream(segment).getChannel()) {
+      long size = file.size();
+      lengthPrefix.clear();
+      lengthPrefix.putInt((int) size).flip();
+      while (lengthPrefix.hasRemaining()) {
+        body.write(lengthPrefix);
+      }
+      long position = 0;
+      while (position < size) {
+        position += file.transferTo(position, size - position, body);
+      }
+    }
+  }
+}
@@ -0,0 +1,269 @@
+package com.mapbox.navhud.trip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Writes the records drained from a {@link TripRecordBuffer} in batches to compressed
+ * segment files.
+ * <p>
+ * A segment is a {@link #HEADER_SIZE} byte header (magic, record size, trip id, sequence
+ * number) followed by one zlib stream of records. Every batch is sync flushed, so a segment
+ * cut short by the process dying still reads back up to its last batch. The open segment is
+ * written through a {@link FileChannel} as {@code .part} and renamed to {@code .seg} once it
+ * holds the maximum compressed size or the writer is closed, only those are uploaded. Segments
+ * left open by an earlier process are closed as they are, the oldest closed segments are
+ * deleted when more than the maximum are kept.
+ * <p>
+ * Not thread safe, meant to be used from a single writer thread. Writers of different trips
+ * may run at the same time, e.g. while the previous trip is still closing its last segment,
+ * the segments they have open are tracked per process so {@link #recover()} leaves them alone.
+ */
+public class TripLogWriter {
+
+  public static final String SEGMENT_SUFFIX = ".seg";
+  static final String OPEN_SUFFIX = ".part";
+  static final int MAGIC = 0x4e545231;
+  static final int HEADER_SIZE = 20;
+
+  // Absolute paths of the segments open in this process, guarded by itself
+  private static final Set<String> OPEN_SEGMENTS = new HashSet<>();
+
+  private static final FilenameFilter SEGMENT_FILTER = new FilenameFilter() {
+    @Override
+    public boolean accept(File directory, String name) {
+      return name.endsWith(SEGMENT_SUFFIX);
+    }
+  };
+
+  private final File directory;
+  private final long tripId;
+  private final long maxSegmentBytes;
+  private final int maxSegments;
+  private final ByteBuffer batch;
+  private final byte[] compressed;
+  private final ByteBuffer compressedView;
+  private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+  private FileChannel channel;
+  private File segmentFile;
+  private long segmentBytes;
+  private int sequence;
+  private int closedSegmentCount;
+
+  /**
+   * @param tripId          written to every segment, e.g. the wall clock at the start of the trip
+   * @param batchRecords    records compressed and written at once
+   * @param maxSegmentBytes compressed size at which a segment is closed
+   * @param maxSegments     closed segments kept, the oldest are deleted beyond that
+   */
+  public TripLogWriter(File directory, long tripId, int batchRecords, long maxSegmentBytes, int maxSegments) {
+    this.directory = directory;
+    this.tripId = tripId;
+    this.maxSegmentBytes = maxSegmentBytes;
+    this.maxSegments = maxSegments;
+    batch = ByteBuffer.allocate(batchRecords * TripRecordBuffer.RECORD_SIZE);
+    // Sync flushed output of a batch that does not compress stays within this
+    compressed = new byte[batch.capacity() + batch.capacity() / 1000 + 64];
+    compressedView = ByteBuffer.wrap(compressed);
+  }
+
+  /**
+   * Closes segments left open by an earlier process, call before the first flush. Segments
+   * other writers in this process still have open are skipped.
+   */
+  public void recover() throws IOException {
+    if (!directory.exists() && !directory.mkdirs()) {
+      throw new IOException("Unable to create trip log directory " + directory);
+    }
+    File[] openFiles = directory.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File directory, String name) {
+        return name.endsWith(OPEN_SUFFIX);
+      }
+    });
+    if (openFiles == null) {
+      return;
+    }
+    synchronized (OPEN_SEGMENTS) {
+      for (File openFile : openFiles) {
+        if (OPEN_SEGMENTS.contains(openFile.getAbsolutePath())) {
+          continue;
+        }
+        String name = openFile.getName();
+        if (openFile.length() <= HEADER_SIZE) {
+          openFile.delete();
+        } else {
+          openFile.renameTo(new File(directory, name.substring(0, name.length() - OPEN_SUFFIX.length())
+            + SEGMENT_SUFFIX));
+        }
+      }
+    }
+  }
+
+  /**
+   * Drains the buffer in batches into the open segment, closing it whenever it is full.
+   *
+   * @return number of records written
+   */
+  public int flush(TripRecordBuffer buffer) throws IOException {
+    int written = 0;
+    int count;
+    batch.clear();
+    while ((count = buffer.drainTo(batch)) > 0) {
+      writeBatch();
+      written += count;
+      batch.clear();
+      if (segmentBytes >= maxSegmentBytes) {
+        closeSegment();
+      }
+    }
+    return written;
+  }
+
+  /**
+   * Closes the open segment, if any, so it can be uploaded. The next flush starts a new one.
+   */
+  public void close() throws IOException {
+    closeSegment();
+  }
+
+  /**
+   * @return segments closed by this writer so far
+   */
+  public int getClosedSegmentCount() {
+    return closedSegmentCount;
+  }
+
+  /**
+   * @return the closed segments, oldest first
+   */
+  public static File[] listSegments(File directory) {
+    File[] segments = directory.listFiles(SEGMENT_FILTER);
+    if (segments == null) {
+      return new File[0];
+    }
+    // Names start with the zero padded trip id and sequence
+    Arrays.sort(segments);
+    return segments;
+  }
+
+  /**
+   * Reads the records of a segment, up to its last complete batch if it was not closed.
+   *
+   * @return the records, a multiple of {@link TripRecordBuffer#RECORD_SIZE} bytes
+   */
+  public static byte[] readRecords(InputStream segment) throws IOException {
+    DataInputStream input = new DataInputStream(segment);
+    if (input.readInt() != MAGIC || input.readInt() != TripRecordBuffer.RECORD_SIZE) {
+      throw new IOException("Not a trip log segment");
+    }
+    input.readLong();
+    input.readInt();
+    ByteArrayOutputStream records = new ByteArrayOutputStream();
+    byte[] chunk = new byte[8192];
+    try (InputStream inflater = new InflaterInputStream(input)) {
+      int read;
+      while ((read = inflater.read(chunk)) != -1) {
+        records.write(chunk, 0, read);
+      }
+    } catch (EOFException exception) {
+      // Segment of a process that died, keep what was flushed
+    }
+    byte[] bytes = records.toByteArray();
+    return Arrays.copyOf(bytes, bytes.length - bytes.length % TripRecordBuffer.RECORD_SIZE);
+  }
+
+  private void writeBatch() throws IOException {
+    if (channel == null) {
+      openSegment();
+    }
+    deflater.setInput(batch.array(), 0, batch.position());
+    int length;
+    do {
+      length = deflater.deflate(compressed, 0, compressed.length, Deflater.SYNC_FLUSH);
+      write(length);
+    } while (length == compressed.length);
+  }
+
+  private void openSegment() throws IOException {
+    if (!directory.exists() && !directory.mkdirs()) {
+      throw new IOException("Unable to create trip log directory " + directory);
+    }
+    segmentFile = new File(directory, String.format(Locale.US, "%013d-%05d%s", tripId, sequence,
+      OPEN_SUFFIX));
+    synchronized (OPEN_SEGMENTS) {
+      // Registered before the file exists, so a recovery never sees it unregistered
+      OPEN_SEGMENTS.add(segmentFile.getAbsolutePath());
+      try {
+        channel = new FileOutputStream(segmentFile).getChannel();
+      } catch (IOException exception) {
+        OPEN_SEGMENTS.remove(segmentFile.getAbsolutePath());
+        throw exception;
+      }
+    }
+    segmentBytes = 0;
+    deflater.reset();
+    compressedView.clear();
+    compressedView.putInt(MAGIC).putInt(TripRecordBuffer.RECORD_SIZE).putLong(tripId).putInt(sequence);
+    write(HEADER_SIZE);
+    sequence++;
+  }
+
+  private void closeSegment() throws IOException {
+    if (channel == null) {
+      return;
+    }
+    try {
+      deflater.finish();
+      while (!deflater.finished()) {
+        write(deflater.deflate(compressed));
+      }
+    } finally {
+      channel.close();
+      channel = null;
+    }
+    String name = segmentFile.getName();
+    File closedFile = new File(directory, name.substring(0, name.length() - OPEN_SUFFIX.length())
+      + SEGMENT_SUFFIX);
+    boolean renamed;
+    synchronized (OPEN_SEGMENTS) {
+      renamed = segmentFile.renameTo(closedFile);
+      OPEN_SEGMENTS.remove(segmentFile.getAbsolutePath());
+    }
+    if (!renamed) {
+      throw new IOException("Unable to close trip log segment " + segmentFile);
+    }
+    closedSegmentCount++;
+    deleteOldSegments();
+  }
+
+  private void write(int length) throws IOException {
+    compressedView.clear();
+    compressedView.limit(length);
+    while (compressedView.hasRemaining()) {
+      channel.write(compressedView);
+    }
+    segmentBytes += length;
+  }
+
+  private void deleteOldSegments() {
+    File[] segments = listSegments(directory);
+    for (int i = 0; i < segments.length - maxSegments; i++) {
+      segments[i].delete();
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package com.mapbox.navhud.trip;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Preallocated ring of fixed width trip records, appended by one thread and drained by
+ * another.
+ * <p>
+ * Every record takes {@link #RECORD_SIZE} bytes, big endian:
+ * <pre>
+ * offset  fix             progress                  milestone                 quality
+ *  0 int  type            type                      type                      type
+ *  4 int  FLAG_ bits      leg index                 milestone identifier      tier ordinal
+ *  8 long fix time        wall clock                wall clock, milliseconds since the epoch
+ * 16 dbl  latitude        route distance remaining  route distance remaining, meters
+ * 24 dbl  longitude       route duration remaining  route duration remaining, seconds
+ * 32 flt  speed m/s       leg distance remaining                              temperature C
+ * 36 flt  bearing         step distance remaining                             battery level
+ * 40 flt  accuracy m      step fraction traveled                              slow frames
+ * 44 int                  step index                step index                reason ordinal
+ * </pre>
+ * An append is a handful of absolute puts into the preallocated buffer and an ordered write
+ * publishing the record, no locks and no allocation. When the drain falls a whole ring
+ * behind, records are dropped and counted rather than waiting for it.
+ */
+public class TripRecordBuffer {
+
+  public static final int RECORD_SIZE = 48;
+
+  public static final int TYPE_FIX = 1;
+  public static final int TYPE_PROGRESS = 2;
+  public static final int TYPE_MILESTONE = 3;
+  public static final int TYPE_QUALITY = 4;
+
+  public static final int FLAG_SPEED = 1;
+  public static final int FLAG_BEARING = 1 << 1;
+  public static final int FLAG_ACCURACY = 1 << 2;
+
+  public static final int TYPE_OFFSET = 0;
+  public static final int INDEX_OFFSET = 4;
+  public static final int TIME_OFFSET = 8;
+  public static final int FIRST_VALUE_OFFSET = 16;
+  public static final int SECOND_VALUE_OFFSET = 24;
+  public static final int FIRST_MEASURE_OFFSET = 32;
+  public static final int SECOND_MEASURE_OFFSET = 36;
+  public static final int THIRD_MEASURE_OFFSET = 40;
+  public static final int STEP_OFFSET = 44;
+
+  private final int capacity;
+  private final int mask;
+  private final ByteBuffer records;
+  // Only used by the draining thread
+  private final ByteBuffer drainView;
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  // Only used by the appending thread
+  private long writePosition;
+  private long cachedTail;
+
+  /**
+   * @param capacity records kept until drained, rounded up to a power of two
+   */
+  public TripRecordBuffer(int capacity) {
+    if (capacity < 1 || capacity > (1 << 24)) {
+      throw new IllegalArgumentException("Capacity out of range: " + capacity);
+    }
+    this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    mask = this.capacity - 1;
+    records = ByteBuffer.allocate(this.capacity * RECORD_SIZE);
+    drainView = records.duplicate();
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return whether the fix was kept
+   */
+  public boolean appendFix(long fixTime, double latitude, double longitude, float speed, float bearing,
+                           float accuracy, int flags) {
+    return append(TYPE_FIX, flags, fixTime, latitude, longitude, speed, bearing, accuracy, 0);
+  }
+
+  /**
+   * @return whether the snapshot was kept
+   */
+  public boolean appendProgress(long time, int legIndex, int stepIndex, double distanceRemaining,
+                                double durationRemaining, float legDistanceRemaining,
+                                float stepDistanceRemaining, float stepFractionTraveled) {
+    return append(TYPE_PROGRESS, legIndex, time, distanceRemaining, durationRemaining,
+      legDistanceRemaining, stepDistanceRemaining, stepFractionTraveled, stepIndex);
+  }
+
+  /**
+   * @return whether the event was kept
+   */
+  public boolean appendMilestone(long time, int identifier, int stepIndex, double distanceRemaining,
+                                 double durationRemaining) {
+    return append(TYPE_MILESTONE, identifier, time, distanceRemaining, durationRemaining, 0, 0, 0,
+      stepIndex);
+  }
+
+  /**
+   * @return whether the quality change was kept
+   */
+  public boolean appendQuality(long time, int tier, int reason, float temperature, float batteryLevel,
+                               float slowFrameFraction) {
+    return append(TYPE_QUALITY, tier, time, 0, 0, temperature, batteryLevel, slowFrameFraction, reason);
+  }
+
+  /**
+   * Moves as many whole records as fit into the target, oldest first. Called from the
+   * draining thread only.
+   *
+   * @return number of records moved
+   */
+  public int drainTo(ByteBuffer target) {
+    long readPosition = tail.get();
+    int count = (int) Math.min(head.get() - readPosition, target.remaining() / RECORD_SIZE);
+    if (count == 0) {
+      return 0;
+    }
+    int first = (int) (readPosition & mask);
+    int contiguous = Math.min(count, capacity - first);
+    copy(first, contiguous, target);
+    copy(0, count - contiguous, target);
+    tail.lazySet(readPosition + count);
+    return count;
+  }
+
+  /**
+   * @return records appended but not drained yet
+   */
+  public int size() {
+    return (int) (head.get() - tail.get());
+  }
+
+  /**
+   * @return records dropped because the ring was full
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  private boolean append(int type, int index, long time, double firstValue, double secondValue,
+                         float firstMeasure, float secondMeasure, float thirdMeasure, int step) {
+    long position = writePosition;
+    if (position - cachedTail >= capacity) {
+      cachedTail = tail.get();
+      if (position - cachedTail >= capacity) {
+        dropped.incrementAndGet();
+        return false;
+      }
+    }
+    int offset = (int) (position & mask) * RECORD_SIZE;
+    records.putInt(offset + TYPE_OFFSET, type);
+    records.putInt(offset + INDEX_OFFSET, index);
+    records.putLong(offset + TIME_OFFSET, time);
+    records.putDouble(offset + FIRST_VALUE_OFFSET, firstValue);
+    records.putDouble(offset + SECOND_VALUE_OFFSET, secondValue);
+    records.putFloat(offset + FIRST_MEASURE_OFFSET, firstMeasure);
+    records.putFloat(offset + SECOND_MEASURE_OFFSET, secondMeasure);
+    records.putFloat(offset + THIRD_MEASURE_OFFSET, thirdMeasure);
+    records.putInt(offset + STEP_OFFSET, step);
+    writePosition = position + 1;
+    head.lazySet(writePosition);
+    return true;
+  }
+
+  private void copy(int first, int count, ByteBuffer target) {
+    if (count == 0) {
+      return;
+    }
+    drainView.clear();
+    drainView.limit((first + count) * RECORD_SIZE);
+    drainView.position(first * RECORD_SIZE);
+    target.put(drainView);
+  }
+}
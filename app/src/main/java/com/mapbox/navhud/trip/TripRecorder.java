@@ -0,0 +1,204 @@
+package com.mapbox.navhud.trip;
+
+import android.content.Context;
+import android.location.Location;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.util.Log;
+
+import com.mapbox.navhud.quality.QualityTransition;
+import com.mapbox.services.android.navigation.v5.milestone.Milestone;
+import com.mapbox.services.android.navigation.v5.routeprogress.RouteLegProgress;
+import com.mapbox.services.android.navigation.v5.routeprogress.RouteProgress;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps a log of the drive for fleet telemetry.
+ * <p>
+ * Fixes, progress snapshots, milestone events and HUD quality changes are appended to a {@link TripRecordBuffer}
+ * from the navigation callbacks, which costs a few field writes on the main thread. A writer
+ * thread flushes the buffer every {@link #FLUSH_INTERVAL_MILLIS} into compressed segments in
+ * the app's files directory through a {@link TripLogWriter}, and closed segments are sent by a
+ * {@link TripLogUploader} whenever a network is available. Without an upload URL segments are
+ * only kept on the device, up to {@link #MAX_SEGMENTS}.
+ * <p>
+ * Must be started and stopped from the main thread, records are appended from it only.
+ */
+public class TripRecorder {
+
+  private static final String TAG = TripRecorder.class.getSimpleName();
+  private static final String DIRECTORY = "trips";
+  // Many flush intervals of fixes and progress, a slow write does not drop records
+  private static final int BUFFER_RECORDS = 4096;
+  private static final long FLUSH_INTERVAL_MILLIS = 5000;
+  private static final int BATCH_RECORDS = 256;
+  private static final long MAX_SEGMENT_BYTES = 64 * 1024;
+  private static final int MAX_SEGMENTS = 256;
+  private static final int UPLOAD_BATCH_SEGMENTS = 16;
+  private static final long UPLOAD_BATCH_BYTES = 512 * 1024;
+
+  private final TripRecordBuffer buffer = new TripRecordBuffer(BUFFER_RECORDS);
+  private final TripLogWriter writer;
+  private final TripLogUploader uploader;
+  private final ConnectivityManager connectivityManager;
+  private final ScheduledExecutorService writerExecutor = Executors.newSingleThreadScheduledExecutor();
+  private final ExecutorService uploadExecutor = Executors.newSingleThreadExecutor();
+  private final AtomicBoolean uploadQueued = new AtomicBoolean();
+  private volatile boolean connected;
+
+  private final ConnectivityManager.NetworkCallback networkCallback = new ConnectivityManager.NetworkCallback() {
+    @Override
+    public void onAvailable(Network network) {
+      connected = true;
+      queueUpload();
+    }
+
+    @Override
+    public void onLost(Network network) {
+      connected = false;
+    }
+  };
+
+  private final Runnable flushTask = new Runnable() {
+    @Override
+    public void run() {
+      int closedSegments = writer.getClosedSegmentCount();
+      try {
+        writer.flush(buffer);
+      } catch (IOException exception) {
+        Log.e(TAG, "Unable to write trip log", exception);
+      }
+      if (writer.getClosedSegmentCount() != closedSegments) {
+        queueUpload();
+      }
+    }
+  };
+
+  /**
+   * @param uploadUrl collection endpoint, empty to keep the segments on the device
+   */
+  public TripRecorder(Context context, String uploadUrl) {
+    File directory = new File(context.getFilesDir(), DIRECTORY);
+    writer = new TripLogWriter(directory, System.currentTimeMillis(), BATCH_RECORDS, MAX_SEGMENT_BYTES,
+      MAX_SEGMENTS);
+    uploader = createUploader(directory, uploadUrl);
+    connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+  }
+
+  public void start() {
+    writerExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          writer.recover();
+        } catch (IOException exception) {
+          Log.e(TAG, "Unable to recover trip logs", exception);
+        }
+      }
+    });
+    writerExecutor.scheduleWithFixedDelay(flushTask, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS,
+      TimeUnit.MILLISECONDS);
+    if (uploader != null) {
+      connectivityManager.registerNetworkCallback(new NetworkRequest.Builder()
+        .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+        .build(), networkCallback);
+    }
+  }
+
+  public void recordFix(Location location) {
+    int flags = (location.hasSpeed() ? TripRecordBuffer.FLAG_SPEED : 0)
+      | (location.hasBearing() ? TripRecordBuffer.FLAG_BEARING : 0)
+      | (location.hasAccuracy() ? TripRecordBuffer.FLAG_ACCURACY : 0);
+    buffer.appendFix(location.getTime(), location.getLatitude(), location.getLongitude(),
+      location.getSpeed(), location.getBearing(), location.getAccuracy(), flags);
+  }
+
+  public void recordProgress(RouteProgress progress) {
+    RouteLegProgress legProgress = progress.currentLegProgress();
+    buffer.appendProgress(System.currentTimeMillis(), progress.legIndex(), legProgress.stepIndex(),
+      progress.distanceRemaining(), progress.durationRemaining(), (float) legProgress.distanceRemaining(),
+      (float) legProgress.currentStepProgress().distanceRemaining(),
+      legProgress.currentStepProgress().fractionTraveled());
+  }
+
+  public void recordMilestone(RouteProgress progress, Milestone milestone) {
+    buffer.appendMilestone(System.currentTimeMillis(), milestone.getIdentifier(),
+      progress.currentLegProgress().stepIndex(), progress.distanceRemaining(), progress.durationRemaining());
+  }
+
+  public void recordQualityChange(QualityTransition transition) {
+    buffer.appendQuality(transition.getTime(), transition.getTier().ordinal(), transition.getReason().ordinal(),
+      transition.getTemperature(), transition.getBatteryLevel(), transition.getSlowFrameFraction());
+  }
+
+  /**
+   * Writes what is left in the buffer, closes the last segment and uploads it if connected.
+   */
+  public void stop() {
+    if (uploader != null) {
+      connectivityManager.unregisterNetworkCallback(networkCallback);
+    }
+    writerExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        flushTask.run();
+        try {
+          writer.close();
+        } catch (IOException exception) {
+          Log.e(TAG, "Unable to close trip log", exception);
+        }
+        if (buffer.getDroppedCount() > 0) {
+          Log.w(TAG, "Trip log dropped " + buffer.getDroppedCount() + " records");
+        }
+        queueUpload();
+        uploadExecutor.shutdown();
+      }
+    });
+    writerExecutor.shutdown();
+  }
+
+  private void queueUpload() {
+    if (uploader == null || !connected || !uploadQueued.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      uploadExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          uploadQueued.set(false);
+          try {
+            uploader.upload();
+          } catch (IOException exception) {
+            Log.w(TAG, "Trip log upload failed, retrying when connected", exception);
+          }
+        }
+      });
+    } catch (RuntimeException exception) {
+      // Stopped, the segments are uploaded on the next trip
+      uploadQueued.set(false);
+    }
+  }
+
+  private static TripLogUploader createUploader(File directory, String uploadUrl) {
+    if (uploadUrl.isEmpty()) {
+      return null;
+    }
+    try {
+      return new TripLogUploader(directory, new URL(uploadUrl), UPLOAD_BATCH_SEGMENTS, UPLOAD_BATCH_BYTES);
+    } catch (MalformedURLException exception) {
+      Log.e(TAG, "Invalid trip upload URL " + uploadUrl, exception);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.mapbox.navhud.voice;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Disk cache of synthesized voice instructions keyed by text, locale and voice.
+ * <p>
+ * Each instruction is stored as its own audio file, named after a hash of the key. Files are
+ * written to a temporary name first and renamed into place, so a half written file is never
+ * played. The least recently used entries are evicted once the cache grows past its size
+ * limit.
+ * <p>
+ * All methods do disk IO and should be called off the main thread.
+ */
+public class VoiceInstructionCache {
+
+  private static final String FILE_EXTENSION = ".wav";
+  private static final String TEMP_EXTENSION = ".tmp";
+
+  private final File directory;
+  private final long maxSizeBytes;
+
+  public VoiceInstructionCache(File directory, long maxSizeBytes) {
+    this.directory = directory;
+    this.maxSizeBytes = maxSizeBytes;
+  }
+
+  public static String key(String text, Locale locale, String voice) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      byte[] hash = digest.digest((text + '\n' + locale + '\n' + voice).getBytes("UTF-8"));
+      StringBuilder key = new StringBuilder(hash.length * 2);
+      for (byte value : hash) {
+        key.append(Character.forDigit((value >> 4) & 0xf, 16));
+        key.append(Character.forDigit(value & 0xf, 16));
+      }
+      return key.toString();
+    } catch (NoSuchAlgorithmException | UnsupportedEncodingException exception) {
+      // Both are guaranteed to be available on every platform
+      throw new IllegalStateException(exception);
+    }
+  }
+
+  /**
+   * @return the audio file for the key, or null if it has not been cached
+   */
+  public synchronized File get(String key) {
+    File file = fileFor(key);
+    if (!file.exists()) {
+      return null;
+    }
+    file.setLastModified(System.currentTimeMillis());
+    return file;
+  }
+
+  public synchronized boolean contains(String key) {
+    return fileFor(key).exists();
+  }
+
+  /**
+   * @return the file new audio for the key should be written to before it is
+   * {@link #commit(String, File) committed}
+   */
+  public synchronized File createTempFile(String key) throws IOException {
+    if (!directory.exists() && !directory.mkdirs()) {
+      throw new IOException("Unable to create voice cache directory " + directory);
+    }
+    return new File(directory, key + TEMP_EXTENSION);
+  }
+
+  /**
+   * Moves written audio into the cache.
+   */
+  public synchronized void commit(String key, File temp) throws IOException {
+    File file = fileFor(key);
+    if (temp.length() == 0 || !temp.renameTo(file)) {
+      delete(temp);
+      throw new IOException("Unable to write voice cache entry " + file);
+    }
+    trimToSize();
+  }
+
+  public synchronized void remove(String key) {
+    delete(fileFor(key));
+  }
+
+  /**
+   * @return current size of all cache entries on disk, in bytes
+   */
+  public synchronized long size() {
+    long size = 0;
+    for (File file : listEntries()) {
+      size += file.length();
+    }
+    return size;
+  }
+
+  /**
+   * Drops the least recently used entries until the cache fits its size limit.
+   */
+  synchronized void trimToSize() {
+    File[] entries = listEntries();
+    Arrays.sort(entries, new Comparator<File>() {
+      @Override
+      public int compare(File first, File second) {
+        return Long.compare(second.lastModified(), first.lastModified());
+      }
+    });
+    long size = 0;
+    for (File entry : entries) {
+      if (size + entry.length() > maxSizeBytes) {
+        delete(entry);
+      } else {
+        size += entry.length();
+      }
+    }
+  }
+
+  private File[] listEntries() {
+    File[] entries = directory.listFiles();
+    if (entries == null) {
+      return new File[0];
+    }
+    int count = 0;
+    for (File entry : entries) {
+      if (entry.getName().endsWith(FILE_EXTENSION)) {
+        entries[count++] = entry;
+      }
+    }
+    return Arrays.copyOf(entries, count);
+  }
+
+  private File fileFor(String key) {
+    return new File(directory, key + FILE_EXTENSION);
+  }
+
+  private static void delete(File file) {
+    if (file.exists()) {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,384 @@
+package com.mapbox.navhud.voice;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.speech.tts.Voice;
+import android.util.Log;
+
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.api.directions.v5.models.LegStep;
+import com.mapbox.api.directions.v5.models.RouteLeg;
+import com.mapbox.api.directions.v5.models.VoiceInstructions;
+import com.mapbox.navhud.instrumentation.HudInstrumentation;
+import com.mapbox.navhud.instrumentation.StartupTrace;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Speaks milestone instructions, from pre-synthesized audio when possible.
+ * <p>
+ * When a route is prepared its voice announcements are synthesized to a
+ * {@link VoiceInstructionCache} in route order, a few instructions ahead of the last one
+ * spoken. An instruction found in the cache is played from its file, anything else falls
+ * back to live {@link TextToSpeech}. The time from {@link #play(String)} to the start of the
+ * audio is recorded for both paths.
+ * <p>
+ * With live speech disabled, e.g. while the device is hot, only the next instruction is
+ * synthesized ahead and an instruction missing from the cache is skipped and counted.
+ * <p>
+ * Public methods must be called from the main thread, the work happens on a background
+ * thread.
+ */
+public class VoiceInstructionPlayer extends UtteranceProgressListener
+  implements TextToSpeech.OnInitListener {
+
+  private static final String TAG = VoiceInstructionPlayer.class.getSimpleName();
+  private static final String THREAD_NAME = "VoiceInstructionPlayer";
+  private static final String CACHE_DIRECTORY = "voice-cache";
+  private static final long CACHE_MAX_SIZE = 20 * 1024 * 1024;
+  private static final int LOOKAHEAD = 10;
+  private static final String SYNTHESIS_UTTERANCE = "synthesis-";
+  private static final String SPEECH_UTTERANCE = "speech-";
+  private static final String DEFAULT_VOICE = "default";
+
+  private final TextToSpeech tts;
+  private final VoiceInstructionCache cache;
+  private final HandlerThread thread;
+  private final Handler handler;
+
+  // Only accessed from the player thread
+  private MediaPlayer mediaPlayer;
+  private boolean ready;
+  private Locale locale = Locale.getDefault();
+  private String voice = DEFAULT_VOICE;
+  private List<String> announcements = Collections.emptyList();
+  private int nextSynthesisIndex;
+  private int lastPlayedIndex = -1;
+  private int synthesisIndex = -1;
+  private String synthesisKey;
+  private File synthesisFile;
+  private int speechCount;
+  private long speechRequestTime;
+  private String speechUtterance;
+  private boolean liveSpeechEnabled = true;
+
+  private volatile long cachedPlayCount;
+  private volatile long cachedLatencyTotal;
+  private volatile long cachedLatencyMax;
+  private volatile long livePlayCount;
+  private volatile long liveLatencyTotal;
+  private volatile long liveLatencyMax;
+  private volatile long skippedPlayCount;
+
+  public VoiceInstructionPlayer(Context context) {
+    cache = new VoiceInstructionCache(new File(context.getCacheDir(), CACHE_DIRECTORY), CACHE_MAX_SIZE);
+    thread = new HandlerThread(THREAD_NAME);
+    thread.start();
+    handler = new Handler(thread.getLooper());
+    tts = new TextToSpeech(context, this);
+    tts.setOnUtteranceProgressListener(this);
+  }
+
+  @Override
+  public void onInit(int status) {
+    if (status != TextToSpeech.SUCCESS) {
+      Log.e(TAG, "Text to speech unavailable");
+      return;
+    }
+    tts.setLanguage(Locale.getDefault());
+    HudInstrumentation.getInstance().getStartupTrace().mark(StartupTrace.Phase.VOICE_READY);
+    Voice currentVoice = tts.getVoice();
+    final Locale voiceLocale = currentVoice != null ? currentVoice.getLocale() : Locale.getDefault();
+    final String voiceName = currentVoice != null ? currentVoice.getName() : DEFAULT_VOICE;
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        locale = voiceLocale;
+        voice = voiceName;
+        ready = true;
+        synthesizeNext();
+      }
+    });
+  }
+
+  /**
+   * Starts synthesizing the announcements of a new route, replacing the previous one.
+   */
+  public void prepare(DirectionsRoute route) {
+    final List<String> routeAnnouncements = new ArrayList<>();
+    for (RouteLeg leg : route.legs()) {
+      for (LegStep step : leg.steps()) {
+        List<VoiceInstructions> voiceInstructions = step.voiceInstructions();
+        if (voiceInstructions == null) {
+          continue;
+        }
+        for (VoiceInstructions instruction : voiceInstructions) {
+          if (instruction.announcement() != null) {
+            routeAnnouncements.add(instruction.announcement());
+          }
+        }
+      }
+    }
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        announcements = routeAnnouncements;
+        nextSynthesisIndex = 0;
+        lastPlayedIndex = -1;
+        synthesizeNext();
+      }
+    });
+  }
+
+  /**
+   * Speaks the instruction, interrupting anything still being spoken.
+   */
+  public void play(final String instruction) {
+    final long requestTime = SystemClock.elapsedRealtime();
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        playInstruction(instruction, requestTime);
+      }
+    });
+  }
+
+  /**
+   * @param enabled whether instructions missing from the cache are spoken live
+   */
+  public void setLiveSpeechEnabled(final boolean enabled) {
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        liveSpeechEnabled = enabled;
+        synthesizeNext();
+      }
+    });
+  }
+
+  public void shutdown() {
+    tts.stop();
+    tts.shutdown();
+    handler.removeCallbacksAndMessages(null);
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (mediaPlayer != null) {
+          mediaPlayer.release();
+          mediaPlayer = null;
+        }
+      }
+    });
+    thread.quitSafely();
+  }
+
+  public long getCachedPlayCount() {
+    return cachedPlayCount;
+  }
+
+  public long getLivePlayCount() {
+    return livePlayCount;
+  }
+
+  /**
+   * @return instructions not played because they were not cached while live speech was disabled
+   */
+  public long getSkippedPlayCount() {
+    return skippedPlayCount;
+  }
+
+  /**
+   * @return average time from {@link #play(String)} to the start of cached audio, in milliseconds
+   */
+  public long getAverageCachedLatency() {
+    long count = cachedPlayCount;
+    return count == 0 ? 0 : cachedLatencyTotal / count;
+  }
+
+  public long getMaxCachedLatency() {
+    return cachedLatencyMax;
+  }
+
+  /**
+   * @return average time from {@link #play(String)} to the start of live speech, in milliseconds
+   */
+  public long getAverageLiveLatency() {
+    long count = livePlayCount;
+    return count == 0 ? 0 : liveLatencyTotal / count;
+  }
+
+  public long getMaxLiveLatency() {
+    return liveLatencyMax;
+  }
+
+  @Override
+  public void onStart(final String utteranceId) {
+    final long startTime = SystemClock.elapsedRealtime();
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (utteranceId.equals(speechUtterance)) {
+          recordLiveLatency(startTime - speechRequestTime);
+        }
+      }
+    });
+  }
+
+  @Override
+  public void onDone(final String utteranceId) {
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (isCurrentSynthesis(utteranceId)) {
+          finishSynthesis(true);
+        }
+      }
+    });
+  }
+
+  @Override
+  public void onError(final String utteranceId) {
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (isCurrentSynthesis(utteranceId)) {
+          finishSynthesis(false);
+        }
+      }
+    });
+  }
+
+  @Override
+  public void onStop(final String utteranceId, boolean interrupted) {
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (isCurrentSynthesis(utteranceId)) {
+          // Flushed by live speech, synthesize it again
+          nextSynthesisIndex = Math.min(nextSynthesisIndex, synthesisIndex);
+          finishSynthesis(false);
+        }
+      }
+    });
+  }
+
+  private void playInstruction(String instruction, long requestTime) {
+    // Announcements can repeat, the match closest after the last one played is taken
+    int index = announcements.subList(lastPlayedIndex + 1, announcements.size()).indexOf(instruction);
+    if (index >= 0) {
+      lastPlayedIndex += index + 1;
+    }
+    String key = VoiceInstructionCache.key(instruction, locale, voice);
+    File file = cache.get(key);
+    if (file != null && playFile(file)) {
+      recordCachedLatency(SystemClock.elapsedRealtime() - requestTime);
+    } else {
+      if (file != null) {
+        cache.remove(key);
+      }
+      if (liveSpeechEnabled) {
+        speak(instruction, requestTime);
+      } else {
+        skippedPlayCount++;
+      }
+    }
+    synthesizeNext();
+  }
+
+  private boolean playFile(File file) {
+    tts.stop();
+    try {
+      if (mediaPlayer == null) {
+        mediaPlayer = new MediaPlayer();
+        mediaPlayer.setAudioAttributes(new AudioAttributes.Builder()
+          .setUsage(AudioAttributes.USAGE_ASSISTANCE_NAVIGATION_GUIDANCE)
+          .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+          .build());
+      }
+      mediaPlayer.reset();
+      mediaPlayer.setDataSource(file.getPath());
+      mediaPlayer.prepare();
+      mediaPlayer.start();
+      return true;
+    } catch (IOException | IllegalStateException exception) {
+      Log.e(TAG, "Unable to play cached instruction", exception);
+      return false;
+    }
+  }
+
+  private void speak(String instruction, long requestTime) {
+    if (mediaPlayer != null && mediaPlayer.isPlaying()) {
+      mediaPlayer.stop();
+    }
+    speechRequestTime = requestTime;
+    speechUtterance = SPEECH_UTTERANCE + speechCount++;
+    tts.speak(instruction, TextToSpeech.QUEUE_FLUSH, null, speechUtterance);
+  }
+
+  private void synthesizeNext() {
+    if (!ready || synthesisKey != null) {
+      return;
+    }
+    int lookahead = liveSpeechEnabled ? LOOKAHEAD : 1;
+    while (nextSynthesisIndex < announcements.size()
+      && nextSynthesisIndex <= lastPlayedIndex + lookahead) {
+      int index = nextSynthesisIndex++;
+      String key = VoiceInstructionCache.key(announcements.get(index), locale, voice);
+      if (cache.contains(key)) {
+        continue;
+      }
+      try {
+        synthesisFile = cache.createTempFile(key);
+      } catch (IOException exception) {
+        Log.e(TAG, exception.getMessage());
+        return;
+      }
+      synthesisIndex = index;
+      synthesisKey = key;
+      tts.synthesizeToFile(announcements.get(index), null, synthesisFile, SYNTHESIS_UTTERANCE + key);
+      return;
+    }
+  }
+
+  private boolean isCurrentSynthesis(String utteranceId) {
+    return synthesisKey != null && utteranceId.equals(SYNTHESIS_UTTERANCE + synthesisKey);
+  }
+
+  private void finishSynthesis(boolean success) {
+    try {
+      if (success) {
+        cache.commit(synthesisKey, synthesisFile);
+      } else {
+        synthesisFile.delete();
+      }
+    } catch (IOException exception) {
+      Log.e(TAG, exception.getMessage());
+    }
+    synthesisKey = null;
+    synthesisFile = null;
+    synthesizeNext();
+  }
+
+  private void recordCachedLatency(long latency) {
+    cachedLatencyTotal += latency;
+    cachedLatencyMax = Math.max(cachedLatencyMax, latency);
+    cachedPlayCount++;
+  }
+
+  private void recordLiveLatency(long latency) {
+    liveLatencyTotal += latency;
+    liveLatencyMax = Math.max(liveLatencyMax, latency);
+    livePlayCount++;
+  }
+}
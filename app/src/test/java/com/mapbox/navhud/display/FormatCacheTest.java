@@ -0,0 +1,71 @@
+package com.mapbox.navhud.display;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FormatCacheTest {
+
+  @Test
+  public void capacity_isRoundedUpToPowerOfTwo() throws Exception {
+    assertEquals(64, new FormatCache(64).capacity());
+    assertEquals(64, new FormatCache(50).capacity());
+  }
+
+  @Test
+  public void get_returnsStoredInstance() throws Exception {
+    FormatCache cache = new FormatCache(16);
+    String value = "0.4 mi";
+    cache.put(42L, value);
+
+    assertSame(value, cache.get(42L));
+    assertNull(cache.get(43L));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void clear_dropsAllEntries() throws Exception {
+    FormatCache cache = new FormatCache(16);
+    cache.put(1L, "1");
+    cache.clear();
+
+    assertNull(cache.get(1L));
+  }
+
+  @Test
+  public void quantizedTickSequence_hitsCacheWithoutAllocating() throws Exception {
+    FormatCache cache = new FormatCache(64);
+    double distance = 5000;
+    // Warm up with the values the loop below is going to display
+    for (double d = distance; d > 4000; d -= 1) {
+      long key = FormatQuantizer.distanceKey(d, true);
+      if (cache.get(key) == null) {
+        cache.put(key, String.valueOf(key));
+      }
+    }
+    long misses = cache.getMissCount();
+
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+      return;
+    }
+    com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+    long threadId = Thread.currentThread().getId();
+    int ticks = 1000;
+    long before = allocationBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < ticks; i++) {
+      cache.get(FormatQuantizer.distanceKey(distance - i, true));
+    }
+    long allocatedPerTick = (allocationBean.getThreadAllocatedBytes(threadId) - before) / ticks;
+
+    assertEquals(misses, cache.getMissCount());
+    assertTrue("Allocated " + allocatedPerTick + " bytes per tick", allocatedPerTick < 8);
+  }
+}
@@ -0,0 +1,71 @@
+package com.mapbox.navhud.display;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class FormatQuantizerTest {
+
+  @Test
+  public void distanceKey_roundsShortDistancesDownToFiftyFeet() throws Exception {
+    assertEquals(feetKey(100), feetKey(149));
+    assertNotEquals(feetKey(149), feetKey(150));
+    assertEquals(feetKey(150), feetKey(199));
+    assertNotEquals(feetKey(199), feetKey(200));
+    assertNotEquals(feetKey(180), feetKey(220));
+  }
+
+  @Test
+  public void distanceKey_neverRoundsShortDistancesToZero() throws Exception {
+    assertEquals(FormatQuantizer.distanceKey(0, true), feetKey(50));
+    assertEquals(feetKey(20), feetKey(99));
+  }
+
+  @Test
+  public void distanceKey_roundsMediumDistancesToTenthOfMile() throws Exception {
+    double mile = FormatQuantizer.METERS_PER_MILE;
+
+    assertEquals(FormatQuantizer.distanceKey(2.41 * mile, true),
+      FormatQuantizer.distanceKey(2.44 * mile, true));
+    assertNotEquals(FormatQuantizer.distanceKey(2.44 * mile, true),
+      FormatQuantizer.distanceKey(2.46 * mile, true));
+  }
+
+  @Test
+  public void distanceKey_roundsLongDistancesToWholeMiles() throws Exception {
+    double mile = FormatQuantizer.METERS_PER_MILE;
+
+    assertEquals(FormatQuantizer.distanceKey(24.6 * mile, true),
+      FormatQuantizer.distanceKey(25.4 * mile, true));
+  }
+
+  @Test
+  public void distanceKey_separatesUnitBands() throws Exception {
+    // 12 feet rounds to 50 feet, 12 miles rounds to 12 miles
+    assertNotEquals(FormatQuantizer.distanceKey(12 * FormatQuantizer.METERS_PER_FOOT, true),
+      FormatQuantizer.distanceKey(12 * FormatQuantizer.METERS_PER_MILE, true));
+  }
+
+  @Test
+  public void timeRemainingKey_roundsAtHalfMinute() throws Exception {
+    assertEquals(FormatQuantizer.timeRemainingKey(600), FormatQuantizer.timeRemainingKey(629.9));
+    assertNotEquals(FormatQuantizer.timeRemainingKey(629), FormatQuantizer.timeRemainingKey(630));
+  }
+
+  @Test
+  public void arrivalTimeKey_changesWithMinuteAndFormat() throws Exception {
+    long now = 1_500_000_000_000L - 1_500_000_000_000L % 60000;
+
+    assertEquals(FormatQuantizer.arrivalTimeKey(now, 60, false),
+      FormatQuantizer.arrivalTimeKey(now + 30000, 59, false));
+    assertNotEquals(FormatQuantizer.arrivalTimeKey(now, 60, false),
+      FormatQuantizer.arrivalTimeKey(now, 120, false));
+    assertNotEquals(FormatQuantizer.arrivalTimeKey(now, 60, false),
+      FormatQuantizer.arrivalTimeKey(now, 60, true));
+  }
+
+  private static long feetKey(double feet) {
+    return FormatQuantizer.distanceKey(feet * FormatQuantizer.METERS_PER_FOOT, true);
+  }
+}
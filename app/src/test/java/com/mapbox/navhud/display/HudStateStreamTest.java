@@ -0,0 +1,178 @@
+package com.mapbox.navhud.display;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HudStateStreamTest {
+
+  @Test
+  public void publish_deliversToEverySubscriber() throws Exception {
+    HudStateStream stream = new HudStateStream();
+    RecordingSubscriber first = new RecordingSubscriber();
+    RecordingSubscriber second = new RecordingSubscriber();
+    stream.subscribe(first, new DirectExecutor(), 0);
+    stream.subscribe(second, new DirectExecutor(), 0);
+
+    stream.publish(stateWithSpeed(42));
+
+    assertEquals(1, first.speeds.size());
+    assertEquals(42, (int) second.speeds.get(0));
+  }
+
+  @Test
+  public void publish_passesFieldsChangedSinceLastDelivery() throws Exception {
+    HudStateStream stream = new HudStateStream();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    stream.subscribe(subscriber, new DirectExecutor(), 0);
+    HudState state = stateWithSpeed(42);
+
+    stream.publish(state);
+    state.setStepDistance("0.3 mi");
+    stream.publish(state);
+    stream.publish(state);
+
+    assertEquals(HudState.ALL_FIELDS, (int) subscriber.changedFields.get(0));
+    assertEquals(HudState.FIELD_STEP_DISTANCE, (int) subscriber.changedFields.get(1));
+    assertEquals(0, (int) subscriber.changedFields.get(2));
+  }
+
+  @Test
+  public void publish_conflatesStatesForSlowSubscriber() throws Exception {
+    HudStateStream stream = new HudStateStream();
+    RecordingSubscriber fast = new RecordingSubscriber();
+    RecordingSubscriber slow = new RecordingSubscriber();
+    QueueExecutor slowExecutor = new QueueExecutor();
+    stream.subscribe(fast, new DirectExecutor(), 0);
+    HudStateStream.Subscription slowSubscription = stream.subscribe(slow, slowExecutor, 0);
+
+    for (int speed = 1; speed <= 10; speed++) {
+      stream.publish(stateWithSpeed(speed));
+    }
+    slowExecutor.runAll();
+
+    assertEquals(10, fast.speeds.size());
+    assertEquals(1, slow.speeds.size());
+    assertEquals(10, (int) slow.speeds.get(0));
+    assertEquals(9, slowSubscription.getConflatedCount());
+  }
+
+  @Test
+  public void publish_deliversStatePublishedDuringDelivery() throws Exception {
+    final HudStateStream stream = new HudStateStream();
+    final QueueExecutor executor = new QueueExecutor();
+    final List<Integer> speeds = new ArrayList<>();
+    stream.subscribe(new HudStateStream.Subscriber() {
+      @Override
+      public void onHudState(HudState state, int changedFields) {
+        speeds.add(state.getSpeed());
+        if (state.getSpeed() == 1) {
+          stream.publish(stateWithSpeed(2));
+        }
+      }
+    }, executor, 0);
+
+    stream.publish(stateWithSpeed(1));
+    executor.runAll();
+
+    assertEquals(2, speeds.size());
+    assertEquals(2, (int) speeds.get(1));
+  }
+
+  @Test
+  public void subscribe_limitsDeliveryRate() throws Exception {
+    HudStateStream stream = new HudStateStream();
+    final CountDownLatch delivered = new CountDownLatch(2);
+    final List<Long> deliveryTimes = new ArrayList<>();
+    final List<Integer> speeds = new ArrayList<>();
+    stream.subscribe(new HudStateStream.Subscriber() {
+      @Override
+      public void onHudState(HudState state, int changedFields) {
+        synchronized (deliveryTimes) {
+          deliveryTimes.add(System.nanoTime());
+          speeds.add(state.getSpeed());
+        }
+        delivered.countDown();
+      }
+    }, new DirectExecutor(), 100);
+
+    for (int speed = 1; speed <= 5; speed++) {
+      stream.publish(stateWithSpeed(speed));
+    }
+
+    assertTrue(delivered.await(2, TimeUnit.SECONDS));
+    synchronized (deliveryTimes) {
+      assertEquals(1, (int) speeds.get(0));
+      assertEquals(5, (int) speeds.get(1));
+      assertTrue(deliveryTimes.get(1) - deliveryTimes.get(0) >= TimeUnit.MILLISECONDS.toNanos(90));
+    }
+    stream.close();
+  }
+
+  @Test
+  public void cancel_stopsDeliveries() throws Exception {
+    HudStateStream stream = new HudStateStream();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    HudStateStream.Subscription subscription = stream.subscribe(subscriber, new DirectExecutor(), 0);
+
+    stream.publish(stateWithSpeed(1));
+    subscription.cancel();
+    stream.publish(stateWithSpeed(2));
+
+    assertEquals(1, subscriber.speeds.size());
+    assertEquals(0, stream.getSubscriberCount());
+  }
+
+  private static HudState stateWithSpeed(int speed) {
+    HudState state = new HudState();
+    state.setStepText("Vermont Avenue Northwest");
+    state.setSpeed(speed);
+    return state;
+  }
+
+  private static class RecordingSubscriber implements HudStateStream.Subscriber {
+
+    final List<Integer> speeds = new ArrayList<>();
+    final List<Integer> changedFields = new ArrayList<>();
+
+    @Override
+    public void onHudState(HudState state, int changedFields) {
+      speeds.add(state.getSpeed());
+      this.changedFields.add(changedFields);
+    }
+  }
+
+  private static class DirectExecutor implements Executor {
+
+    @Override
+    public void execute(Runnable runnable) {
+      runnable.run();
+    }
+  }
+
+  private static class QueueExecutor implements Executor {
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    @Override
+    public void execute(Runnable runnable) {
+      tasks.add(runnable);
+    }
+
+    void runAll() {
+      Runnable task;
+      while ((task = tasks.poll()) != null) {
+        task.run();
+      }
+    }
+  }
+}
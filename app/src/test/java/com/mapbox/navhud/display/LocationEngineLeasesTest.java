@@ -0,0 +1,126 @@
+package com.mapbox.navhud.display;
+
+import android.location.Location;
+
+import com.mapbox.android.core.location.LocationEngine;
+import com.mapbox.android.core.location.LocationEngineListener;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LocationEngineLeasesTest {
+
+  private final LocationEngineLeases leases = new LocationEngineLeases();
+  private final FakeLocationEngine engine = new FakeLocationEngine();
+
+  @Test
+  public void acquire_activatesOnceAndTellsLaterListenerItIsConnected() throws Exception {
+    RecordingListener previousTrip = new RecordingListener();
+    RecordingListener nextTrip = new RecordingListener();
+
+    leases.acquire(engine, previousTrip);
+    leases.acquire(engine, nextTrip);
+
+    assertEquals(1, engine.activateCount);
+    assertEquals(1, previousTrip.connectedCount);
+    assertEquals(1, nextTrip.connectedCount);
+    assertEquals(2, leases.getLeaseCount(engine));
+  }
+
+  @Test
+  public void release_keepsEngineActiveForNextTrip() throws Exception {
+    // The previous activity is destroyed after the next trip started warming up
+    RecordingListener previousTrip = new RecordingListener();
+    RecordingListener nextTrip = new RecordingListener();
+    leases.acquire(engine, previousTrip);
+    leases.acquire(engine, nextTrip);
+
+    leases.release(engine, previousTrip);
+
+    assertTrue(engine.isConnected());
+    assertFalse(engine.hasListener(previousTrip));
+    assertTrue(engine.hasListener(nextTrip));
+  }
+
+  @Test
+  public void release_lastLease_deactivatesEngine() throws Exception {
+    RecordingListener listener = new RecordingListener();
+    leases.acquire(engine, listener);
+
+    leases.release(engine, listener);
+    leases.release(engine, listener);
+
+    assertFalse(engine.isConnected());
+    assertEquals(1, engine.deactivateCount);
+    assertEquals(0, leases.getLeaseCount(engine));
+
+    leases.acquire(engine, listener);
+    assertEquals(2, engine.activateCount);
+  }
+
+  private static class FakeLocationEngine extends LocationEngine {
+
+    private boolean connected;
+    private int activateCount;
+    private int deactivateCount;
+
+    @Override
+    public void activate() {
+      activateCount++;
+      connected = true;
+      for (LocationEngineListener listener : locationListeners) {
+        listener.onConnected();
+      }
+    }
+
+    @Override
+    public void deactivate() {
+      deactivateCount++;
+      connected = false;
+    }
+
+    @Override
+    public boolean isConnected() {
+      return connected;
+    }
+
+    @Override
+    public Location getLastLocation() {
+      return null;
+    }
+
+    @Override
+    public void requestLocationUpdates() {
+    }
+
+    @Override
+    public void removeLocationUpdates() {
+    }
+
+    @Override
+    public Type obtainType() {
+      return Type.MOCK;
+    }
+
+    boolean hasListener(LocationEngineListener listener) {
+      return locationListeners.contains(listener);
+    }
+  }
+
+  private static class RecordingListener implements LocationEngineListener {
+
+    private int connectedCount;
+
+    @Override
+    public void onConnected() {
+      connectedCount++;
+    }
+
+    @Override
+    public void onLocationChanged(Location location) {
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package com.mapbox.navhud.display;
+
+import com.mapbox.api.directions.v5.models.DirectionsResponse;
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.navhud.route.RouteRepository;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Scanner;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RouteHandOffTest {
+
+  private final QueueExecutor executor = new QueueExecutor();
+  private final RecordingListener listener = new RecordingListener();
+  private RouteHandOff routeHandOff;
+  private DirectionsRoute cachedRoute;
+  private DirectionsRoute freshRoute;
+
+  @Before
+  public void setUp() throws Exception {
+    InputStream stream = getClass().getClassLoader().getResourceAsStream("directions_response.json");
+    String json = new Scanner(stream, "UTF-8").useDelimiter("\\A").next();
+    cachedRoute = DirectionsResponse.fromJson(json).routes().get(0);
+    freshRoute = DirectionsResponse.fromJson(json).routes().get(0);
+    routeHandOff = new RouteHandOff(executor);
+  }
+
+  @Test
+  public void handOff_deliversPendingRouteThroughExecutor() throws Exception {
+    routeHandOff.newRequest().onRouteReady(cachedRoute, true);
+
+    routeHandOff.handOff(listener);
+
+    assertTrue(listener.events.isEmpty());
+    executor.runAll();
+    assertEquals(1, listener.events.size());
+    assertSame(cachedRoute, listener.routes.get(0));
+    assertEquals("cache", listener.events.get(0));
+  }
+
+  @Test
+  public void handOff_freshRouteReplacesCachedButNotTheOtherWayRound() throws Exception {
+    RouteRepository.RouteListener request = routeHandOff.newRequest();
+    request.onRouteReady(cachedRoute, true);
+    request.onRouteReady(freshRoute, false);
+    request.onRouteReady(cachedRoute, true);
+
+    routeHandOff.handOff(listener);
+    executor.runAll();
+
+    assertEquals(1, listener.events.size());
+    assertSame(freshRoute, listener.routes.get(0));
+    assertEquals("network", listener.events.get(0));
+  }
+
+  @Test
+  public void handOff_keepsErrorOnlyWithoutRoute() throws Exception {
+    RouteRepository.RouteListener request = routeHandOff.newRequest();
+    request.onRouteReady(cachedRoute, true);
+    request.onRouteError(new IOException());
+
+    routeHandOff.handOff(listener);
+    executor.runAll();
+
+    assertEquals("cache", listener.events.get(0));
+
+    RecordingListener errorListener = new RecordingListener();
+    RouteHandOff errorHandOff = new RouteHandOff(executor);
+    errorHandOff.newRequest().onRouteError(new IOException());
+    errorHandOff.handOff(errorListener);
+    executor.runAll();
+
+    assertEquals(1, errorListener.events.size());
+    assertEquals("error", errorListener.events.get(0));
+  }
+
+  @Test
+  public void newRequest_ignoresRoutesOfEarlierRequest() throws Exception {
+    // The stops changed or the replay swapped the location engine
+    RouteRepository.RouteListener earlier = routeHandOff.newRequest();
+    earlier.onRouteReady(cachedRoute, true);
+    RouteRepository.RouteListener later = routeHandOff.newRequest();
+    earlier.onRouteReady(freshRoute, false);
+    routeHandOff.handOff(listener);
+    executor.runAll();
+
+    assertTrue(listener.events.isEmpty());
+    later.onRouteReady(freshRoute, false);
+    assertSame(freshRoute, listener.routes.get(0));
+  }
+
+  @Test
+  public void discard_dropsRouteWaitingForExecutor() throws Exception {
+    routeHandOff.newRequest().onRouteReady(cachedRoute, true);
+    routeHandOff.handOff(listener);
+
+    routeHandOff.discard();
+    executor.runAll();
+
+    assertTrue(listener.events.isEmpty());
+  }
+
+  @Test
+  public void afterHandOff_deliversDirectlyUntilCancelled() throws Exception {
+    RouteRepository.RouteListener request = routeHandOff.newRequest();
+    routeHandOff.handOff(listener);
+
+    request.onRouteReady(cachedRoute, true);
+    routeHandOff.cancel();
+    request.onRouteReady(freshRoute, false);
+
+    assertEquals(1, listener.events.size());
+    assertTrue(executor.tasks.isEmpty());
+  }
+
+  private static class RecordingListener implements RouteRepository.RouteListener {
+
+    private final List<String> events = new ArrayList<>();
+    private final List<DirectionsRoute> routes = new ArrayList<>();
+
+    @Override
+    public void onRouteReady(DirectionsRoute route, boolean fromCache) {
+      routes.add(route);
+      events.add(fromCache ? "cache" : "network");
+    }
+
+    @Override
+    public void onRouteError(Throwable throwable) {
+      events.add("error");
+    }
+  }
+
+  private static class QueueExecutor implements Executor {
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    @Override
+    public void execute(Runnable runnable) {
+      tasks.add(runnable);
+    }
+
+    void runAll() {
+      Runnable task;
+      while ((task = tasks.poll()) != null) {
+        task.run();
+      }
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.mapbox.navhud.display;
+
+import com.mapbox.api.directions.v5.models.DirectionsResponse;
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.core.constants.Constants;
+import com.mapbox.navhud.ManeuverMap;
+import com.mapbox.navhud.route.BinaryRoute;
+import com.mapbox.navhud.route.BinaryRouteWriter;
+import com.mapbox.navhud.route.RouteGeometryIndex;
+import com.mapbox.navhud.route.RouteStitcher;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+
+public class RouteHudTableTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private BinaryRoute binaryRoute;
+  private RouteGeometryIndex routeIndex;
+  private RouteHudTable table;
+
+  @Before
+  public void setUp() throws Exception {
+    InputStream stream = getClass().getClassLoader().getResourceAsStream("directions_response.json");
+    String json = new Scanner(stream, "UTF-8").useDelimiter("\\A").next();
+    DirectionsRoute leg = DirectionsResponse.fromJson(json).routes().get(0);
+    DirectionsRoute route = RouteStitcher.stitch(Arrays.asList(leg, leg, leg), Constants.PRECISION_6);
+    File file = folder.newFile("route.bin");
+    new BinaryRouteWriter(Constants.PRECISION_6).write(route, file);
+    routeIndex = RouteGeometryIndex.fromRoute(route, Constants.PRECISION_6);
+    binaryRoute = BinaryRoute.open(file);
+    table = RouteHudTable.build(binaryRoute, routeIndex, ManeuverMap.getInstance(), null);
+  }
+
+  @Test
+  public void stepIndex_continuesAcrossLegs() throws Exception {
+    assertEquals(3, table.getLegCount());
+    assertEquals(12, table.getStepCount());
+    assertEquals(4, table.stepIndex(0, 4));
+    assertEquals(4, table.stepIndex(1, 0));
+    assertEquals(10, table.stepIndex(2, 2));
+    assertEquals(0, table.getLeg(3));
+    assertEquals(1, table.getLeg(4));
+    assertEquals(2, table.getLeg(11));
+  }
+
+  @Test
+  public void steps_resolveManeuverAndText() throws Exception {
+    for (int leg = 0; leg < 3; leg++) {
+      int step = table.stepIndex(leg, 2);
+      assertEquals("Vermont Avenue Northwest", table.getStepText(step));
+      assertEquals(ManeuverMap.getInstance().getManeuverResource("turn", "left"),
+        table.getManeuverResource(step));
+    }
+  }
+
+  @Test
+  public void legEndDistance_isDistanceToStop() throws Exception {
+    assertEquals(routeIndex.getStepEndDistance(3), table.getLegEndDistance(0), 1e-6);
+    assertEquals(routeIndex.getStepEndDistance(7), table.getLegEndDistance(1), 1e-6);
+    assertEquals(routeIndex.getLength(), table.getLegEndDistance(2), 1e-6);
+  }
+
+  @Test
+  public void stepDistances_followRouteGeometry() throws Exception {
+    assertEquals(0, table.getStepStartDistance(0), 1e-6);
+    for (int step = 0; step < table.getStepCount(); step++) {
+      assertEquals(routeIndex.getStepStartDistance(step), table.getStepStartDistance(step), 1e-6);
+      assertEquals(routeIndex.getStepEndDistance(step), table.getStepEndDistance(step), 1e-6);
+    }
+  }
+
+  @Test
+  public void stepTextWidth_measuredWhenCompiled() throws Exception {
+    RouteHudTable measured = RouteHudTable.build(binaryRoute, routeIndex, ManeuverMap.getInstance(),
+      new RouteHudTable.TextMeasurer() {
+        @Override
+        public float measure(CharSequence text) {
+          return text.length() * 10f;
+        }
+      });
+
+    int step = measured.stepIndex(1, 2);
+    assertEquals("Vermont Avenue Northwest".length() * 10f, measured.getStepTextWidth(step), 1e-6);
+    assertEquals(-1f, table.getStepTextWidth(step), 1e-6);
+  }
+}
@@ -0,0 +1,124 @@
+package com.mapbox.navhud.display;
+
+import com.mapbox.api.directions.v5.models.DirectionsResponse;
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.core.constants.Constants;
+import com.mapbox.core.utils.PolylineUtils;
+import com.mapbox.geojson.Point;
+import com.mapbox.navhud.ManeuverMap;
+import com.mapbox.navhud.route.BinaryRoute;
+import com.mapbox.navhud.route.BinaryRouteWriter;
+import com.mapbox.navhud.route.RouteGeometryIndex;
+import com.mapbox.navhud.route.RouteStitcher;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RouteHudTrackerTest {
+
+  private static final RouteHudTracker.Formatter FORMATTER = new RouteHudTracker.Formatter() {
+    @Override
+    public CharSequence formatDistance(double distance) {
+      return String.valueOf(Math.round(distance));
+    }
+
+    @Override
+    public CharSequence formatTimeRemaining(double durationRemaining) {
+      return String.valueOf(Math.round(durationRemaining));
+    }
+
+    @Override
+    public CharSequence formatArrivalTime(double durationRemaining) {
+      return "eta";
+    }
+  };
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private DirectionsRoute route;
+  private RouteGeometryIndex routeIndex;
+  private RouteHudTable table;
+
+  @Before
+  public void setUp() throws Exception {
+    InputStream stream = getClass().getClassLoader().getResourceAsStream("directions_response.json");
+    String json = new Scanner(stream, "UTF-8").useDelimiter("\\A").next();
+    DirectionsRoute leg = DirectionsResponse.fromJson(json).routes().get(0);
+    route = RouteStitcher.stitch(Arrays.asList(leg, leg), Constants.PRECISION_6);
+    File file = folder.newFile("route.bin");
+    new BinaryRouteWriter(Constants.PRECISION_6).write(route, file);
+    routeIndex = RouteGeometryIndex.fromRoute(route, Constants.PRECISION_6);
+    table = RouteHudTable.build(BinaryRoute.open(file), routeIndex, ManeuverMap.getInstance(), null);
+  }
+
+  @Test
+  public void track_withoutRoute_doesNotSnap() throws Exception {
+    RouteHudTracker tracker = new RouteHudTracker(FORMATTER, 50);
+
+    assertFalse(tracker.track(38.9, -77.03));
+  }
+
+  @Test
+  public void updateFromSnap_takesStepAndDistancesFromTable() throws Exception {
+    RouteHudTracker tracker = new RouteHudTracker(FORMATTER, 50);
+    tracker.setRoute(table, routeIndex);
+    List<Point> stepGeometry = PolylineUtils.decode(route.legs().get(0).steps().get(1).geometry(),
+      Constants.PRECISION_6);
+    Point from = stepGeometry.get(0);
+    Point to = stepGeometry.get(1);
+    HudState state = new HudState();
+
+    assertTrue(tracker.track((from.latitude() + to.latitude()) / 2, (from.longitude() + to.longitude()) / 2));
+    assertTrue(tracker.updateFromSnap(state));
+
+    double traveled = tracker.getSnap().getDistanceAlongRoute();
+    assertEquals(1, tracker.getSnap().getStepIndex());
+    assertEquals(table.getStepText(2), state.getStepText());
+    assertEquals(table.getManeuverResource(2), state.getManeuverResource());
+    assertEquals(String.valueOf(Math.round(table.getStepEndDistance(1) - traveled)), state.getStepDistance());
+    assertEquals(String.valueOf(Math.round(table.getLegEndDistance(0) - traveled)), state.getRouteDistance());
+  }
+
+  @Test
+  public void updateFromSnap_withoutTable_leavesStepAndLegDistanceToCaller() throws Exception {
+    RouteHudTracker tracker = new RouteHudTracker(FORMATTER, 50);
+    tracker.setRoute(null, routeIndex);
+    Point start = PolylineUtils.decode(route.legs().get(0).steps().get(0).geometry(),
+      Constants.PRECISION_6).get(0);
+    HudState state = new HudState();
+
+    assertTrue(tracker.track(start.latitude(), start.longitude()));
+    assertFalse(tracker.updateFromSnap(state));
+
+    // The index spans both legs, its length is the distance to the last stop
+    assertEquals(null, state.getStepText());
+    assertEquals(null, state.getRouteDistance());
+    assertEquals(String.valueOf(Math.round(routeIndex.getStepEndDistance(0))), state.getStepDistance());
+  }
+
+  @Test
+  public void updateUpcomingStep_continuesAcrossLegs() throws Exception {
+    RouteHudTracker tracker = new RouteHudTracker(FORMATTER, 50);
+    HudState state = new HudState();
+
+    assertFalse(tracker.updateUpcomingStep(1, 1, state));
+    tracker.setRoute(table, routeIndex);
+    assertTrue(tracker.updateUpcomingStep(1, 1, state));
+
+    assertEquals("Vermont Avenue Northwest", state.getStepText());
+    assertFalse(tracker.updateUpcomingStep(2, 0, state));
+  }
+}
@@ -0,0 +1,100 @@
+package com.mapbox.navhud.instrumentation;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void bucketIndex_isExactBelowLinearLimit() throws Exception {
+    for (long micros = 0; micros < LatencyHistogram.LINEAR_LIMIT; micros++) {
+      int index = LatencyHistogram.bucketIndex(micros);
+      assertEquals(micros, LatencyHistogram.bucketUpperBound(index));
+    }
+  }
+
+  @Test
+  public void bucketUpperBound_isWithinPrecision() throws Exception {
+    for (long micros = LatencyHistogram.LINEAR_LIMIT; micros < 100000000L; micros = micros * 3 / 2 + 7) {
+      long upperBound = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(micros));
+      assertTrue(micros + " in bucket up to " + upperBound,
+        upperBound >= micros && upperBound <= micros * 1.04);
+    }
+  }
+
+  @Test
+  public void bucketIndex_clampsHugeValues() throws Exception {
+    assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE / 1000));
+  }
+
+  @Test
+  public void getPercentileNanos_followsRecordedValues() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram("test");
+    for (int millis = 1; millis <= 100; millis++) {
+      histogram.recordNanos(millis * 1000000L);
+    }
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(50.5e6, histogram.getMeanNanos(), 1e3);
+    assertEquals(50e6, histogram.getPercentileNanos(50), 50e6 * 0.04);
+    assertEquals(99e6, histogram.getPercentileNanos(99), 99e6 * 0.04);
+    assertEquals(100e6, histogram.getPercentileNanos(100), 0);
+    assertEquals(100e6, histogram.getMaxNanos(), 0);
+  }
+
+  @Test
+  public void getPercentileNanos_isZeroWhenEmpty() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram("test");
+
+    assertEquals(0, histogram.getPercentileNanos(99));
+    assertEquals(0, histogram.getMeanNanos());
+  }
+
+  @Test
+  public void reset_clearsRecordedValues() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram("test");
+    histogram.recordNanos(5000000);
+
+    histogram.reset();
+
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMaxNanos());
+    assertEquals(0, histogram.getPercentileNanos(50));
+  }
+
+  @Test
+  public void recordNanos_keepsEveryValueFromConcurrentThreads() throws Exception {
+    final LatencyHistogram histogram = new LatencyHistogram("test");
+    final int threadCount = 4;
+    final int valuesPerThread = 100000;
+    final CountDownLatch start = new CountDownLatch(1);
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException exception) {
+            return;
+          }
+          for (int value = 0; value < valuesPerThread; value++) {
+            histogram.recordNanos(value * 1000L);
+          }
+        }
+      });
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(threadCount * valuesPerThread, histogram.getCount());
+    assertEquals((valuesPerThread - 1) * 1000L, histogram.getMaxNanos());
+  }
+}
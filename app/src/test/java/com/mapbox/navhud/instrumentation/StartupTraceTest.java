@@ -0,0 +1,60 @@
+package com.mapbox.navhud.instrumentation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StartupTraceTest {
+
+  private static final long MILLIS = 1000000L;
+
+  @Test
+  public void mark_keepsFirstTimePhaseIsReached() throws Exception {
+    StartupTrace trace = new StartupTrace();
+    trace.start(1000 * MILLIS);
+
+    assertTrue(trace.mark(StartupTrace.Phase.ORIGIN_KNOWN, 1250 * MILLIS));
+    assertFalse(trace.mark(StartupTrace.Phase.ORIGIN_KNOWN, 1900 * MILLIS));
+    assertEquals(250 * MILLIS, trace.getElapsedNanos(StartupTrace.Phase.ORIGIN_KNOWN));
+    assertEquals(0, trace.getElapsedNanos(StartupTrace.Phase.WARM_UP));
+    assertEquals(-1, trace.getElapsedNanos(StartupTrace.Phase.ROUTE_READY));
+  }
+
+  @Test
+  public void mark_isIgnoredBeforeStart() throws Exception {
+    StartupTrace trace = new StartupTrace();
+
+    assertFalse(trace.mark(StartupTrace.Phase.ROUTE_READY, 1000 * MILLIS));
+    assertEquals(-1, trace.getElapsedNanos(StartupTrace.Phase.ROUTE_READY));
+  }
+
+  @Test
+  public void start_forgetsPreviousStartup() throws Exception {
+    StartupTrace trace = new StartupTrace();
+    trace.start(1000 * MILLIS);
+    trace.mark(StartupTrace.Phase.FIRST_INSTRUCTION, 3000 * MILLIS);
+    trace.start(5000 * MILLIS);
+
+    assertEquals(-1, trace.getElapsedNanos(StartupTrace.Phase.FIRST_INSTRUCTION));
+    assertTrue(trace.mark(StartupTrace.Phase.FIRST_INSTRUCTION, 6500 * MILLIS));
+    assertEquals(1500 * MILLIS, trace.getElapsedNanos(StartupTrace.Phase.FIRST_INSTRUCTION));
+  }
+
+  @Test
+  public void dump_listsReachedPhasesInOrder() throws Exception {
+    StartupTrace trace = new StartupTrace();
+    trace.start(1000 * MILLIS);
+    trace.mark(StartupTrace.Phase.ROUTE_READY, 1800 * MILLIS);
+    trace.mark(StartupTrace.Phase.ORIGIN_KNOWN, 1300 * MILLIS);
+    StringBuilder dump = new StringBuilder();
+    trace.dump(dump);
+
+    String[] lines = dump.toString().split("\n");
+    assertEquals(3, lines.length);
+    assertTrue(lines[0], lines[0].startsWith("warm up") && lines[0].contains("+     0.0 ms"));
+    assertTrue(lines[1], lines[1].startsWith("origin known") && lines[1].contains("+   300.0 ms"));
+    assertTrue(lines[2], lines[2].startsWith("route ready") && lines[2].contains("+   800.0 ms"));
+  }
+}
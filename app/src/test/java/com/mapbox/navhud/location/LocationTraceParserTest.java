@@ -0,0 +1,84 @@
+package com.mapbox.navhud.location;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LocationTraceParserTest {
+
+  private static final long START_TIME = 1528730150000L;
+  private static final double DELTA = 1e-6;
+
+  @Test
+  public void parseGpx_readsTrackPoints() throws Exception {
+    List<TraceFix> fixes = parse("trace.gpx");
+
+    assertEquals(3, fixes.size());
+    assertEquals(38.8977, fixes.get(0).getLatitude(), DELTA);
+    assertEquals(-77.0365, fixes.get(0).getLongitude(), DELTA);
+    assertEquals(START_TIME, fixes.get(0).getTime());
+    assertEquals(START_TIME + 5500, fixes.get(1).getTime());
+    assertFalse(fixes.get(0).hasSpeed());
+    assertFalse(fixes.get(0).hasBearing());
+  }
+
+  @Test
+  public void parseNmea_readsValidRmcSentences() throws Exception {
+    List<TraceFix> fixes = parse("trace.nmea");
+
+    assertEquals(3, fixes.size());
+    assertEquals(38.8977, fixes.get(0).getLatitude(), DELTA);
+    assertEquals(-77.0365, fixes.get(0).getLongitude(), DELTA);
+    assertEquals(START_TIME, fixes.get(0).getTime());
+    assertEquals(START_TIME + 5500, fixes.get(1).getTime());
+    assertEquals(20 * 0.514444, fixes.get(1).getSpeed(), 1e-3);
+    assertEquals(45, fixes.get(2).getBearing(), DELTA);
+  }
+
+  @Test
+  public void parseNmea_skipsCorruptSentences() throws Exception {
+    String trace = "$GPRMC,151550.00,A,38X3.862,N,07702.190,W,0.0,0.0,110618,,,A*4D\n"
+      + "$GPRMC,151555.50,A,3853.910,N,07702.190,W,20.0,0.0,110618,,,A*7B\n";
+
+    List<TraceFix> fixes = LocationTraceParser.parseNmea(new StringReader(trace));
+
+    assertEquals(1, fixes.size());
+  }
+
+  @Test
+  public void parseJson_readsOptionalFields() throws Exception {
+    List<TraceFix> fixes = parse("trace.json");
+
+    assertEquals(3, fixes.size());
+    assertEquals(START_TIME + 5500, fixes.get(1).getTime());
+    assertEquals(10.3, fixes.get(1).getSpeed(), 1e-3);
+    assertEquals(4, fixes.get(1).getAccuracy(), DELTA);
+    assertTrue(fixes.get(0).hasSpeed());
+    assertFalse(fixes.get(2).hasSpeed());
+    assertFalse(fixes.get(2).hasAccuracy());
+  }
+
+  @Test(expected = IOException.class)
+  public void parse_unknownExtensionFails() throws Exception {
+    LocationTraceParser.parse(new ByteArrayInputStream(new byte[0]), "trace.kml");
+  }
+
+  private List<TraceFix> parse(String name) throws IOException {
+    InputStream input = getClass().getClassLoader().getResourceAsStream(name);
+    try {
+      return LocationTraceParser.parse(input, name);
+    } finally {
+      if (input != null) {
+        input.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.mapbox.navhud.location;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LocationUpdatePolicyTest {
+
+  private static final float HIGHWAY_SPEED = 30;
+  private static final float CITY_SPEED = 12;
+
+  @Test
+  public void targetTier_nearManeuverIsMostFrequent() throws Exception {
+    assertEquals(LocationUpdateTier.MANEUVER,
+      LocationUpdatePolicy.targetTier(HIGHWAY_SPEED, 300, false));
+    assertEquals(LocationUpdateTier.MANEUVER,
+      LocationUpdatePolicy.targetTier(HIGHWAY_SPEED, 800, false));
+  }
+
+  @Test
+  public void targetTier_milestoneForcesMostFrequent() throws Exception {
+    assertEquals(LocationUpdateTier.MANEUVER,
+      LocationUpdatePolicy.targetTier(HIGHWAY_SPEED, 20000, true));
+  }
+
+  @Test
+  public void targetTier_longStretchRelaxesUpdates() throws Exception {
+    assertEquals(LocationUpdateTier.LONG_HAUL,
+      LocationUpdatePolicy.targetTier(HIGHWAY_SPEED, 20000, false));
+    assertEquals(LocationUpdateTier.CRUISING,
+      LocationUpdatePolicy.targetTier(CITY_SPEED, 1500, false));
+  }
+
+  @Test
+  public void targetTier_stationary() throws Exception {
+    assertEquals(LocationUpdateTier.STATIONARY,
+      LocationUpdatePolicy.targetTier(0, 2000, false));
+  }
+
+  @Test
+  public void evaluate_relaxesOnlyAfterDelay() throws Exception {
+    LocationUpdatePolicy policy = new LocationUpdatePolicy();
+
+    assertEquals(LocationUpdateTier.MANEUVER, policy.evaluate(0, HIGHWAY_SPEED, 20000, false));
+    assertEquals(LocationUpdateTier.MANEUVER,
+      policy.evaluate(LocationUpdatePolicy.RELAX_DELAY_MILLIS - 1, HIGHWAY_SPEED, 20000, false));
+    assertEquals(LocationUpdateTier.LONG_HAUL,
+      policy.evaluate(LocationUpdatePolicy.RELAX_DELAY_MILLIS, HIGHWAY_SPEED, 20000, false));
+  }
+
+  @Test
+  public void evaluate_tightensImmediately() throws Exception {
+    LocationUpdatePolicy policy = new LocationUpdatePolicy();
+    policy.evaluate(0, HIGHWAY_SPEED, 20000, false);
+    policy.evaluate(LocationUpdatePolicy.RELAX_DELAY_MILLIS, HIGHWAY_SPEED, 20000, false);
+
+    assertEquals(LocationUpdateTier.MANEUVER,
+      policy.evaluate(LocationUpdatePolicy.RELAX_DELAY_MILLIS + 1, HIGHWAY_SPEED, 400, false));
+  }
+}
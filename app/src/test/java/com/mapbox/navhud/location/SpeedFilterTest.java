@@ -0,0 +1,157 @@
+package com.mapbox.navhud.location;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mapbox.navhud.Constants.MPH_DOUBLE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays speed_trace.json, a synthetic 150 second drive at 1 Hz, generated with added noise
+ * rather than recorded in a car: standing for 10 seconds, accelerating to 20 m/s (45 mph),
+ * cruising with noisy positions and Doppler speed, fixes without speed from 90 to 100
+ * seconds, no fixes at all from 100 to 104 seconds, braking from 110 seconds and standing
+ * still from 130 seconds. The scenario is scripted, so real GPS noise and dropouts may look
+ * different.
+ */
+public class SpeedFilterTest {
+
+  private static final String TRACE = "speed_trace.json";
+  private static final long TICK_MILLIS = 250;
+  private static final double HYSTERESIS = 0.3;
+
+  @Test
+  public void cruise_readoutIsSteadierThanRawSpeed() throws Exception {
+    List<TraceFix> fixes = parse(TRACE);
+    int[] readouts = replay(fixes);
+
+    int rawChanges = 0;
+    int shownRaw = -1;
+    for (TraceFix fix : fixes) {
+      if (seconds(fixes, fix) >= 40 && seconds(fixes, fix) < 90) {
+        int raw = (int) (fix.getSpeed() * MPH_DOUBLE);
+        rawChanges += shownRaw >= 0 && raw != shownRaw ? 1 : 0;
+        shownRaw = raw;
+      }
+    }
+    int readoutChanges = 0;
+    for (int tick = ticks(40); tick < ticks(90); tick++) {
+      assertTrue("Readout " + readouts[tick], readouts[tick] >= 43 && readouts[tick] <= 47);
+      readoutChanges += readouts[tick] != readouts[tick - 1] ? 1 : 0;
+    }
+    assertTrue(readoutChanges + " readout changes, " + rawChanges + " raw", readoutChanges * 3 < rawChanges);
+  }
+
+  @Test
+  public void fixesWithoutSpeed_areEstimatedFromPositions() throws Exception {
+    int[] readouts = replay(parse(TRACE));
+
+    for (int tick = ticks(90); tick < ticks(100); tick++) {
+      assertTrue("Readout " + readouts[tick], readouts[tick] >= 40 && readouts[tick] <= 50);
+    }
+  }
+
+  @Test
+  public void gapWithoutFixes_holdsPredictedSpeed() throws Exception {
+    int[] readouts = replay(parse(TRACE));
+
+    for (int tick = ticks(100); tick < ticks(104); tick++) {
+      assertTrue("Readout " + readouts[tick], readouts[tick] >= 40 && readouts[tick] <= 50);
+    }
+  }
+
+  @Test
+  public void standingStill_readsZero() throws Exception {
+    int[] readouts = replay(parse(TRACE));
+
+    for (int tick = 0; tick < ticks(10); tick++) {
+      assertEquals(0, readouts[tick]);
+    }
+    for (int tick = ticks(134); tick < readouts.length; tick++) {
+      assertEquals(0, readouts[tick]);
+    }
+  }
+
+  @Test
+  public void positionsOnly_trackSpeed() throws Exception {
+    List<TraceFix> positions = new ArrayList<>();
+    for (TraceFix fix : parse(TRACE)) {
+      positions.add(new TraceFix(fix.getTime(), fix.getLatitude(), fix.getLongitude(), -1, -1,
+        fix.getAccuracy()));
+    }
+    int[] readouts = replay(positions);
+
+    for (int tick = ticks(40); tick < ticks(110); tick++) {
+      assertTrue("Readout " + readouts[tick], readouts[tick] >= 38 && readouts[tick] <= 52);
+    }
+    for (int tick = ticks(140); tick < readouts.length; tick++) {
+      assertTrue("Readout " + readouts[tick], readouts[tick] <= 3);
+    }
+  }
+
+  @Test
+  public void getSpeed_expiresWithoutFixes() throws Exception {
+    SpeedFilter filter = new SpeedFilter();
+    filter.update(1000, 38.8977, -77.0365, true, 20, true, 45, 5);
+
+    assertEquals(20, filter.getSpeed(1000 + SpeedFilter.MAX_PREDICTION_MILLIS), 1e-6);
+    assertFalse(filter.hasEstimate(1001 + SpeedFilter.MAX_PREDICTION_MILLIS));
+    assertEquals(0, filter.getSpeed(1001 + SpeedFilter.MAX_PREDICTION_MILLIS), 1e-6);
+  }
+
+  @Test
+  public void roundStable_keepsValueNearBoundary() throws Exception {
+    assertEquals(54, SpeedFilter.roundStable(54.6, 54, HYSTERESIS));
+    assertEquals(54, SpeedFilter.roundStable(53.3, 54, HYSTERESIS));
+    assertEquals(55, SpeedFilter.roundStable(54.9, 54, HYSTERESIS));
+    assertEquals(53, SpeedFilter.roundStable(53.1, 54, HYSTERESIS));
+  }
+
+  /**
+   * @return readout in mph every {@link #TICK_MILLIS} from the first fix on
+   */
+  private static int[] replay(List<TraceFix> fixes) {
+    SpeedFilter filter = new SpeedFilter();
+    long start = fixes.get(0).getTime();
+    long end = fixes.get(fixes.size() - 1).getTime();
+    int[] readouts = new int[(int) ((end - start) / TICK_MILLIS) + 1];
+    int next = 0;
+    int shown = 0;
+    for (int tick = 0; tick < readouts.length; tick++) {
+      long time = start + tick * TICK_MILLIS;
+      while (next < fixes.size() && fixes.get(next).getTime() <= time) {
+        TraceFix fix = fixes.get(next++);
+        filter.update(fix.getTime(), fix.getLatitude(), fix.getLongitude(), fix.hasSpeed(), fix.getSpeed(),
+          fix.hasBearing(), fix.getBearing(), fix.getAccuracy());
+      }
+      shown = SpeedFilter.roundStable(filter.getSpeed(time) * MPH_DOUBLE, shown, HYSTERESIS);
+      readouts[tick] = shown;
+    }
+    return readouts;
+  }
+
+  private static int ticks(int seconds) {
+    return (int) (seconds * 1000 / TICK_MILLIS);
+  }
+
+  private static long seconds(List<TraceFix> fixes, TraceFix fix) {
+    return (fix.getTime() - fixes.get(0).getTime()) / 1000;
+  }
+
+  private List<TraceFix> parse(String name) throws IOException {
+    InputStream input = getClass().getClassLoader().getResourceAsStream(name);
+    try {
+      return LocationTraceParser.parse(input, name);
+    } finally {
+      if (input != null) {
+        input.close();
+      }
+    }
+  }
+}
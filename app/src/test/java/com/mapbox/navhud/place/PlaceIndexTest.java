@@ -0,0 +1,112 @@
+package com.mapbox.navhud.place;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PlaceIndexTest {
+
+  private static final long NOW = 1500000000000L;
+  private static final long DAY = 24 * 60 * 60 * 1000L;
+
+  @Test
+  public void search_matchesWordPrefixesIgnoringCaseAndAccents() throws Exception {
+    PlaceIndex index = PlaceIndex.build(Arrays.asList(
+      place("Caf\u00e9 Milano", "3251 Prospect St NW", 1, NOW),
+      place("National Mall", "Washington, DC", 1, NOW),
+      place("Union Station", "50 Massachusetts Ave NE", 1, NOW)), NOW);
+
+    assertEquals(names("Caf\u00e9 Milano"), names(index.search("cafe", 5)));
+    assertEquals(names("Caf\u00e9 Milano"), names(index.search("MIL", 5)));
+    assertEquals(names("Union Station"), names(index.search("massach", 5)));
+    assertEquals(names("National Mall"), names(index.search("mall wash", 5)));
+    assertEquals(0, index.search("mall union", 5).size());
+    assertEquals(0, index.search("zzz", 5).size());
+  }
+
+  @Test
+  public void search_ranksFavoritesThenFrequentRecentPlaces() throws Exception {
+    PlaceIndex index = PlaceIndex.build(Arrays.asList(
+      place("Market Old", "", 20, NOW - 365 * DAY),
+      place("Market Often", "", 10, NOW - DAY),
+      place("Market Once", "", 1, NOW),
+      new StoredPlace("Market Favorite", "", 0, 0, true, 0, 0)), NOW);
+
+    assertEquals(names("Market Favorite", "Market Often", "Market Once", "Market Old"),
+      names(index.search("market", 10)));
+    assertEquals(names("Market Favorite", "Market Often"), names(index.search("", 2)));
+  }
+
+  @Test
+  public void search_returnsPlaceMatchingSeveralWordsOnce() throws Exception {
+    PlaceIndex index = PlaceIndex.build(Arrays.asList(
+      place("Main Street Mall", "Main Street", 1, NOW)), NOW);
+
+    assertEquals(1, index.search("ma", 5).size());
+  }
+
+  @Test
+  public void search_matchesBruteForceOnManyPlaces() throws Exception {
+    Random random = new Random(42);
+    String[] words = {"north", "park", "parkway", "main", "market", "station", "hill", "harbor", "oak", "ocean"};
+    List<StoredPlace> places = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      String name = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " " + i;
+      places.add(place(name, "", random.nextInt(50), NOW - random.nextInt(100) * DAY));
+    }
+    PlaceIndex index = PlaceIndex.build(places, NOW);
+
+    for (String query : new String[] {"par", "park", "o", "ma st", "hill 1", "h h"}) {
+      List<StoredPlace> expected = new ArrayList<>();
+      for (int rank = 0; rank < index.size() && expected.size() < 20; rank++) {
+        if (matches(index.get(rank), query)) {
+          expected.add(index.get(rank));
+        }
+      }
+      assertEquals(query, expected, index.search(query, 20));
+    }
+  }
+
+  @Test
+  public void score_decaysWithAge() throws Exception {
+    assertEquals(8, PlaceIndex.score(place("A", "", 8, NOW), NOW), 1e-9);
+    assertEquals(4, PlaceIndex.score(place("A", "", 8, NOW - PlaceIndex.HALF_LIFE_MILLIS), NOW), 1e-9);
+    assertTrue(PlaceIndex.score(place("A", "", 8, NOW - 10 * PlaceIndex.HALF_LIFE_MILLIS), NOW) < 0.01);
+  }
+
+  private static boolean matches(StoredPlace place, String query) {
+    List<String> placeWords = PlaceIndex.words(place.getName());
+    for (String queryWord : PlaceIndex.words(query)) {
+      boolean found = false;
+      for (String placeWord : placeWords) {
+        found |= placeWord.startsWith(queryWord);
+      }
+      if (!found) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static StoredPlace place(String name, String address, int useCount, long lastUsed) {
+    return new StoredPlace(name, address, 38.9, -77.0, false, useCount, lastUsed);
+  }
+
+  private static List<String> names(String... names) {
+    return Arrays.asList(names);
+  }
+
+  private static List<String> names(List<StoredPlace> places) {
+    List<String> names = new ArrayList<>();
+    for (StoredPlace place : places) {
+      names.add(place.getName());
+    }
+    return names;
+  }
+}
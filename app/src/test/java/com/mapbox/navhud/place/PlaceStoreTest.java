@@ -0,0 +1,80 @@
+package com.mapbox.navhud.place;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PlaceStoreTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void recordVisit_countsVisitsToTheSamePlace() throws Exception {
+    PlaceStore store = new PlaceStore(new File(folder.getRoot(), "places.bin"), 10);
+    store.recordVisit("Union Station", "50 Massachusetts Ave NE", 38.89767, -77.00636);
+    StoredPlace place = store.recordVisit("Union Station", "50 Massachusetts Ave NE", 38.89768, -77.00637);
+
+    assertEquals(1, store.size());
+    assertEquals(2, place.getUseCount());
+  }
+
+  @Test
+  public void load_restoresStoredPlaces() throws Exception {
+    File file = new File(folder.getRoot(), "places.bin");
+    PlaceStore store = new PlaceStore(file, 10);
+    store.recordVisit("Union Station", "50 Massachusetts Ave NE", 38.897675, -77.006364);
+    StoredPlace mall = store.recordVisit("National Mall", "Washington, DC", 38.889, -77.023);
+    store.setFavorite(mall, true);
+
+    PlaceStore reloaded = new PlaceStore(file, 10);
+    reloaded.load();
+    List<StoredPlace> places = reloaded.search("", 10);
+
+    assertEquals(2, places.size());
+    assertEquals("National Mall", places.get(0).getName());
+    assertTrue(places.get(0).isFavorite());
+    assertEquals("Union Station", places.get(1).getName());
+    assertEquals("50 Massachusetts Ave NE", places.get(1).getAddress());
+    assertEquals(38.897675, places.get(1).getLatitude(), 1e-6);
+    assertEquals(-77.006364, places.get(1).getLongitude(), 1e-6);
+    assertEquals(1, places.get(1).getUseCount());
+  }
+
+  @Test
+  public void recordVisit_dropsLowestRankedPlacesOverLimit() throws Exception {
+    PlaceStore store = new PlaceStore(new File(folder.getRoot(), "places.bin"), 2);
+    StoredPlace favorite = store.recordVisit("Favorite", "", 1, 1);
+    store.setFavorite(favorite, true);
+    store.recordVisit("Frequent", "", 2, 2);
+    store.recordVisit("Frequent", "", 2, 2);
+    store.recordVisit("Once", "", 3, 3);
+
+    assertEquals(2, store.size());
+    assertEquals(1, store.search("favorite", 5).size());
+    assertEquals(1, store.search("frequent", 5).size());
+    assertEquals(0, store.search("once", 5).size());
+  }
+
+  @Test
+  public void load_ignoresCorruptFile() throws Exception {
+    File file = new File(folder.getRoot(), "places.bin");
+    try (FileOutputStream output = new FileOutputStream(file)) {
+      output.write(new byte[] {1, 2, 3});
+    }
+    PlaceStore store = new PlaceStore(file, 10);
+    store.load();
+
+    assertEquals(0, store.size());
+    store.recordVisit("Union Station", "", 38.9, -77.0);
+    assertFalse(store.search("union", 5).isEmpty());
+  }
+}
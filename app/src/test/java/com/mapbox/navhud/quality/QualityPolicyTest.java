@@ -0,0 +1,81 @@
+package com.mapbox.navhud.quality;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class QualityPolicyTest {
+
+  private static final float COOL = 30;
+  private static final float FULL_BATTERY = 0.9f;
+
+  @Test
+  public void thermalTier_degradesWithTemperature() throws Exception {
+    assertEquals(QualityTier.FULL, QualityPolicy.thermalTier(COOL));
+    assertEquals(QualityTier.REDUCED_FRAME_RATE, QualityPolicy.thermalTier(38));
+    assertEquals(QualityTier.SPARSE_FIXES, QualityPolicy.thermalTier(43.5f));
+    assertEquals(QualityTier.CACHED_VOICE, QualityPolicy.thermalTier(50));
+  }
+
+  @Test
+  public void batteryTier_onlyWhenNotCharging() throws Exception {
+    assertEquals(QualityTier.FULL, QualityPolicy.batteryTier(FULL_BATTERY, false));
+    assertEquals(QualityTier.SIMPLE_PROGRESS, QualityPolicy.batteryTier(0.15f, false));
+    assertEquals(QualityTier.SPARSE_FIXES, QualityPolicy.batteryTier(0.05f, false));
+    assertEquals(QualityTier.FULL, QualityPolicy.batteryTier(0.05f, true));
+    assertEquals(QualityTier.FULL, QualityPolicy.batteryTier(-1, false));
+  }
+
+  @Test
+  public void evaluate_degradesImmediately() throws Exception {
+    QualityPolicy policy = new QualityPolicy();
+    policy.evaluate(0, COOL, FULL_BATTERY, false, 100, 0);
+
+    assertEquals(QualityTier.SIMPLE_PROGRESS, policy.evaluate(1, 41, FULL_BATTERY, false, 100, 0));
+    assertEquals(QualityPolicy.Reason.TEMPERATURE, policy.getReason());
+    assertEquals(QualityTier.SPARSE_FIXES, policy.evaluate(2, 41, 0.05f, false, 100, 0));
+    assertEquals(QualityPolicy.Reason.BATTERY, policy.getReason());
+  }
+
+  @Test
+  public void evaluate_slowFramesDegradeOneTierPerWindow() throws Exception {
+    QualityPolicy policy = new QualityPolicy();
+
+    assertEquals(QualityTier.REDUCED_FRAME_RATE, policy.evaluate(0, COOL, FULL_BATTERY, false, 100, 20));
+    assertEquals(QualityPolicy.Reason.SLOW_FRAMES, policy.getReason());
+    assertEquals(QualityTier.SIMPLE_PROGRESS, policy.evaluate(1, COOL, FULL_BATTERY, false, 100, 20));
+    assertEquals(QualityTier.SIMPLE_PROGRESS, policy.evaluate(2, COOL, FULL_BATTERY, false, 100, 5));
+    assertEquals(QualityTier.SIMPLE_PROGRESS, policy.evaluate(3, COOL, FULL_BATTERY, false, 5, 5));
+  }
+
+  @Test
+  public void evaluate_recoversOneTierAfterDelay() throws Exception {
+    QualityPolicy policy = new QualityPolicy();
+    policy.evaluate(0, 43, FULL_BATTERY, false, 100, 0);
+    long delay = QualityPolicy.RECOVERY_DELAY_MILLIS;
+
+    assertEquals(QualityTier.SPARSE_FIXES, policy.evaluate(delay - 1, COOL, FULL_BATTERY, false, 100, 0));
+    assertEquals(QualityTier.SIMPLE_PROGRESS, policy.evaluate(delay, COOL, FULL_BATTERY, false, 100, 0));
+    assertEquals(QualityPolicy.Reason.RECOVERED, policy.getReason());
+    assertEquals(QualityTier.SIMPLE_PROGRESS, policy.evaluate(delay + 1, COOL, FULL_BATTERY, false, 100, 0));
+    assertEquals(QualityTier.REDUCED_FRAME_RATE, policy.evaluate(2 * delay, COOL, FULL_BATTERY, false, 100, 0));
+  }
+
+  @Test
+  public void evaluate_staysDegradedJustBelowThreshold() throws Exception {
+    QualityPolicy policy = new QualityPolicy();
+    policy.evaluate(0, 40, FULL_BATTERY, false, 100, 0);
+    long delay = QualityPolicy.RECOVERY_DELAY_MILLIS;
+
+    assertEquals(QualityTier.SIMPLE_PROGRESS, policy.evaluate(delay, 39.5f, FULL_BATTERY, false, 100, 0));
+    assertEquals(QualityTier.REDUCED_FRAME_RATE, policy.evaluate(delay, 38, FULL_BATTERY, false, 100, 0));
+  }
+
+  @Test
+  public void capFrameRate_keepsLowerConfiguredRate() throws Exception {
+    assertEquals(15, QualityTier.FULL.capFrameRate(15));
+    assertEquals(8, QualityTier.REDUCED_FRAME_RATE.capFrameRate(15));
+    assertEquals(8, QualityTier.REDUCED_FRAME_RATE.capFrameRate(0));
+    assertEquals(5, QualityTier.REDUCED_FRAME_RATE.capFrameRate(5));
+  }
+}
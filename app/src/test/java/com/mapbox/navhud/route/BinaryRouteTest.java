@@ -0,0 +1,69 @@
+package com.mapbox.navhud.route;
+
+import com.mapbox.api.directions.v5.models.DirectionsResponse;
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.api.directions.v5.models.LegStep;
+import com.mapbox.core.constants.Constants;
+import com.mapbox.core.utils.PolylineUtils;
+import com.mapbox.geojson.Point;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+
+public class BinaryRouteTest {
+
+  private DirectionsRoute route;
+  private BinaryRoute binaryRoute;
+
+  @Before
+  public void setUp() throws Exception {
+    InputStream stream = getClass().getClassLoader().getResourceAsStream("directions_response.json");
+    String json = new Scanner(stream, "UTF-8").useDelimiter("\\A").next();
+    route = DirectionsResponse.fromJson(json).routes().get(0);
+    binaryRoute = new BinaryRoute(new BinaryRouteWriter(Constants.PRECISION_6).encode(route));
+  }
+
+  @Test
+  public void stepTable_matchesRoute() throws Exception {
+    List<LegStep> steps = route.legs().get(0).steps();
+
+    assertEquals(1, binaryRoute.getLegCount());
+    assertEquals(steps.size(), binaryRoute.getStepCount());
+    for (int i = 0; i < steps.size(); i++) {
+      LegStep step = steps.get(i);
+      assertEquals(step.distance(), binaryRoute.distance(i), 0.01);
+      assertEquals(step.name(), binaryRoute.name(i));
+      assertEquals(step.maneuver().instruction(), binaryRoute.instruction(i));
+      assertEquals(step.maneuver().type(), binaryRoute.maneuverType(i));
+      assertEquals(step.maneuver().modifier(), binaryRoute.maneuverModifier(i));
+    }
+  }
+
+  @Test
+  public void geometry_roundTrips() throws Exception {
+    LegStep step = route.legs().get(0).steps().get(1);
+    List<Point> expected = PolylineUtils.decode(step.geometry(), Constants.PRECISION_6);
+    List<Point> actual = binaryRoute.geometry(1);
+
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).longitude(), actual.get(i).longitude(), 1e-6);
+      assertEquals(expected.get(i).latitude(), actual.get(i).latitude(), 1e-6);
+    }
+  }
+
+  @Test
+  public void step_materializesSingleStep() throws Exception {
+    LegStep step = binaryRoute.step(2, Constants.PRECISION_6);
+
+    assertEquals("Vermont Avenue Northwest", step.name());
+    assertEquals("turn", step.maneuver().type());
+    assertEquals("left", step.maneuver().modifier());
+  }
+}
@@ -0,0 +1,170 @@
+package com.mapbox.navhud.route;
+
+import com.mapbox.api.directions.v5.models.DirectionsResponse;
+import com.mapbox.core.constants.Constants;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OffRouteDetectorTest {
+
+  private static final double FIFTEENTH_STREET_LONGITUDE = -77.0365;
+  private static final double H_STREET_LATITUDE = 38.899;
+  private static final float ACCURACY = 5;
+  private static final float SPEED = 10;
+  private static final float NORTH = 0;
+  private static final float SOUTH = 180;
+  // Roughly 100 meters at the latitude of the route
+  private static final double LONGITUDE_100_METERS = 0.00116;
+
+  private RouteGeometryIndex index;
+
+  @Before
+  public void setUp() throws Exception {
+    InputStream stream = getClass().getClassLoader().getResourceAsStream("directions_response.json");
+    String json = new Scanner(stream, "UTF-8").useDelimiter("\\A").next();
+    index = RouteGeometryIndex.fromRoute(DirectionsResponse.fromJson(json).routes().get(0),
+      Constants.PRECISION_6);
+  }
+
+  @Test
+  public void snap_findsClosestSegment() throws Exception {
+    RouteSnap snap = new RouteSnap();
+
+    assertTrue(index.snap(38.8980, FIFTEENTH_STREET_LONGITUDE + 0.0001, 50, snap));
+    assertEquals(0, snap.getStepIndex());
+    assertEquals(8.7, snap.getDistance(), 0.5);
+    assertEquals(0, snap.getBearing(), 0.1);
+
+    assertTrue(index.snap(H_STREET_LATITUDE + 0.0001, -77.0340, 50, snap));
+    assertEquals(1, snap.getStepIndex());
+    assertEquals(90, snap.getBearing(), 0.1);
+    assertEquals(144.6 + 217, snap.getDistanceAlongRoute(), 5);
+  }
+
+  @Test
+  public void snap_ignoresSegmentsOutsideRadius() throws Exception {
+    assertFalse(index.snap(38.8980, FIFTEENTH_STREET_LONGITUDE - LONGITUDE_100_METERS, 50,
+      new RouteSnap()));
+  }
+
+  @Test
+  public void track_continuesFromPreviousMatch() throws Exception {
+    RouteSnap snap = new RouteSnap();
+    assertTrue(index.track(38.8980, FIFTEENTH_STREET_LONGITUDE, 50, snap));
+    double previousDistance = snap.getDistanceAlongRoute();
+
+    assertTrue(index.track(38.8985, FIFTEENTH_STREET_LONGITUDE + 0.00005, 50, snap));
+
+    assertEquals(0, snap.getStepIndex());
+    assertEquals(previousDistance + 55.7, snap.getDistanceAlongRoute(), 1);
+  }
+
+  @Test
+  public void track_fallsBackToWholeRouteAwayFromWindow() throws Exception {
+    RouteSnap snap = new RouteSnap();
+    assertTrue(index.track(38.8978, FIFTEENTH_STREET_LONGITUDE, 50, snap));
+
+    // Next fix is on Vermont Avenue, well past the window around the previous match
+    assertTrue(index.track(38.9005, -77.0330, 50, snap));
+
+    assertEquals(2, snap.getStepIndex());
+    assertEquals(0, snap.getDistance(), 0.5);
+  }
+
+  @Test
+  public void stepDistances_matchStepGeometries() throws Exception {
+    assertEquals(0, index.getStepStartDistance(0), 0);
+    assertEquals(144.6, index.getStepEndDistance(0), 1);
+    assertEquals(index.getStepEndDistance(0), index.getStepStartDistance(1), 0);
+    assertEquals(index.getLength(), index.getStepEndDistance(index.getStepCount() - 1), 0);
+  }
+
+  @Test
+  public void update_followingRouteStaysOnRoute() throws Exception {
+    OffRouteDetector detector = new OffRouteDetector();
+    detector.setRoute(index);
+
+    for (double latitude = 38.8977; latitude < H_STREET_LATITUDE; latitude += 0.0001) {
+      detector.update(latitude, FIFTEENTH_STREET_LONGITUDE + 0.00005, ACCURACY, SPEED, NORTH);
+    }
+
+    assertFalse(detector.isOffRoute());
+    assertEquals(0, detector.getLikelihood(), 0.01);
+  }
+
+  @Test
+  public void update_singleOutlierDoesNotTrigger() throws Exception {
+    OffRouteDetector detector = new OffRouteDetector();
+    detector.setRoute(index);
+
+    detector.update(38.8980, FIFTEENTH_STREET_LONGITUDE, ACCURACY, SPEED, NORTH);
+    detector.update(38.8981, FIFTEENTH_STREET_LONGITUDE - LONGITUDE_100_METERS, ACCURACY, SPEED, NORTH);
+    detector.update(38.8982, FIFTEENTH_STREET_LONGITUDE, ACCURACY, SPEED, NORTH);
+
+    assertFalse(detector.isOffRoute());
+  }
+
+  @Test
+  public void update_leavingRouteTriggersWithinFewFixes() throws Exception {
+    OffRouteDetector detector = new OffRouteDetector();
+    detector.setRoute(index);
+    detector.update(38.8985, FIFTEENTH_STREET_LONGITUDE, ACCURACY, SPEED, NORTH);
+
+    // Missed the right turn onto H Street and kept going north
+    int fixes = 0;
+    for (double latitude = 38.8995; !detector.isOffRoute() && fixes < 10; latitude += 0.0002) {
+      detector.update(latitude, FIFTEENTH_STREET_LONGITUDE, ACCURACY, SPEED, NORTH);
+      fixes++;
+    }
+
+    assertTrue(detector.isOffRoute());
+    assertTrue("Took " + fixes + " fixes", fixes <= 6);
+  }
+
+  @Test
+  public void update_poorAccuracyWidensTolerance() throws Exception {
+    OffRouteDetector detector = new OffRouteDetector();
+    detector.setRoute(index);
+
+    for (int i = 0; i < 5; i++) {
+      detector.update(38.8980, FIFTEENTH_STREET_LONGITUDE - LONGITUDE_100_METERS / 2, 50, SPEED, NORTH);
+    }
+
+    assertFalse(detector.isOffRoute());
+  }
+
+  @Test
+  public void update_drivingAgainstRouteRaisesLikelihood() throws Exception {
+    OffRouteDetector detector = new OffRouteDetector();
+    detector.setRoute(index);
+
+    for (int i = 0; i < 10; i++) {
+      detector.update(38.8985 - i * 0.0001, FIFTEENTH_STREET_LONGITUDE, ACCURACY, SPEED, SOUTH);
+    }
+
+    assertEquals(OffRouteDetector.HEADING_EVIDENCE, detector.getLikelihood(), 0.05);
+    assertFalse(detector.isOffRoute());
+  }
+
+  @Test
+  public void setRoute_resetsLikelihood() throws Exception {
+    OffRouteDetector detector = new OffRouteDetector();
+    detector.setRoute(index);
+    for (int i = 0; i < 5; i++) {
+      detector.update(38.9100, -77.0500, ACCURACY, SPEED, NORTH);
+    }
+    assertTrue(detector.isOffRoute());
+
+    detector.setRoute(index);
+
+    assertFalse(detector.isOffRoute());
+  }
+}
@@ -0,0 +1,132 @@
+package com.mapbox.navhud.route;
+
+import com.mapbox.api.directions.v5.DirectionsCriteria;
+import com.mapbox.api.directions.v5.models.DirectionsResponse;
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.geojson.Point;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.Scanner;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RerouteManagerTest {
+
+  private static final String ACCESS_TOKEN = "pk.test";
+  private static final String PROFILE = DirectionsCriteria.PROFILE_DRIVING_TRAFFIC;
+  private static final Point DESTINATION = Point.fromLngLat(-77.0330, 38.9010);
+
+  private MockWebServer server;
+  private String responseJson;
+  private DirectionsRoute route;
+  private RoutePrefetcher prefetcher;
+  // Stands in for the main thread
+  private final ExecutorService mainExecutor = Executors.newSingleThreadExecutor();
+  private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+  private RerouteManager manager;
+
+  @Before
+  public void setUp() throws Exception {
+    InputStream stream = getClass().getClassLoader().getResourceAsStream("directions_response.json");
+    responseJson = new Scanner(stream, "UTF-8").useDelimiter("\\A").next();
+    route = DirectionsResponse.fromJson(responseJson).routes().get(0);
+    server = new MockWebServer();
+    server.start();
+    prefetcher = new RoutePrefetcher(ACCESS_TOKEN, PROFILE, server.url("/").toString());
+    prefetcher.setRoute(route, DESTINATION);
+    manager = new RerouteManager(prefetcher, mainExecutor, new RerouteManager.RerouteListener() {
+      @Override
+      public void onRerouted(DirectionsRoute route, boolean prefetched) {
+        events.add(prefetched ? "prefetched" : "requested");
+        events.add(route);
+      }
+
+      @Override
+      public void onRerouteError(Throwable throwable) {
+        events.add("error");
+        events.add(throwable);
+      }
+    });
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    manager.shutdown();
+    mainExecutor.shutdownNow();
+    server.shutdown();
+  }
+
+  @Test
+  public void offRoute_onPrefetchedAlternative_handsItOverWithoutRequest() throws Exception {
+    enqueueRoutes(2);
+    prefetcher.prefetch(0, 0);
+    int requestCount = server.getRequestCount();
+
+    manager.onOffRoute(38.8980, -77.0365, null);
+
+    assertEquals("prefetched", events.poll());
+    assertSame(prefetcher.findAlternative(38.8980, -77.0365), events.poll());
+    assertEquals(requestCount, server.getRequestCount());
+    assertEquals(1, manager.getPrefetchedRerouteCount());
+    assertEquals(0, manager.getRequestedRerouteCount());
+  }
+
+  @Test
+  public void offRoute_withoutAlternative_requestsRouteOnce() throws Exception {
+    enqueueRoutes(1);
+
+    manager.onOffRoute(38.9100, -77.0500, 90.0);
+    // Still rerouting, not requested again
+    manager.onOffRoute(38.9101, -77.0500, 90.0);
+
+    assertEquals("requested", events.poll(5, TimeUnit.SECONDS));
+    assertNotNull(events.poll());
+    assertEquals(1, server.getRequestCount());
+    assertEquals("90,45;", server.takeRequest().getRequestUrl().queryParameter("bearings"));
+    assertEquals(1, manager.getRequestedRerouteCount());
+  }
+
+  @Test
+  public void offRoute_requestFailure_reportsErrorAndWaitsBeforeRetrying() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(500));
+
+    manager.onOffRoute(38.9100, -77.0500, null);
+
+    assertEquals("error", events.poll(5, TimeUnit.SECONDS));
+    assertNotNull(events.poll());
+    manager.onOffRoute(38.9100, -77.0500, null);
+    assertNull(events.poll(500, TimeUnit.MILLISECONDS));
+    assertEquals(1, server.getRequestCount());
+  }
+
+  @Test
+  public void shutdown_dropsPendingReroute() throws Exception {
+    server.enqueue(new MockResponse().setBody(responseJson).setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+    manager.onOffRoute(38.9100, -77.0500, null);
+    manager.shutdown();
+
+    assertNull(events.poll(1, TimeUnit.SECONDS));
+  }
+
+  private void enqueueRoutes(int count) {
+    for (int i = 0; i < count; i++) {
+      server.enqueue(new MockResponse().setBody(responseJson));
+    }
+  }
+}
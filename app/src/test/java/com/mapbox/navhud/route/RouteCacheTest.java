@@ -0,0 +1,129 @@
+package com.mapbox.navhud.route;
+
+import com.mapbox.api.directions.v5.DirectionsCriteria;
+import com.mapbox.api.directions.v5.MapboxDirections;
+import com.mapbox.api.directions.v5.models.DirectionsResponse;
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.geojson.Point;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class RouteCacheTest {
+
+  private static final String ACCESS_TOKEN = "pk.test";
+  private static final String PROFILE = DirectionsCriteria.PROFILE_DRIVING_TRAFFIC;
+  private static final Point ORIGIN = Point.fromLngLat(-77.0365, 38.8977);
+  private static final Point DESTINATION = Point.fromLngLat(-77.0330, 38.9010);
+  private static final long TIME_TO_LIVE = TimeUnit.DAYS.toMillis(1);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private MockWebServer server;
+  private String responseJson;
+
+  @Before
+  public void setUp() throws Exception {
+    responseJson = loadFixture("directions_response.json");
+    server = new MockWebServer();
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.shutdown();
+  }
+
+  @Test
+  public void key_quantizesNearbyCoordinates() throws Exception {
+    Point nearbyOrigin = Point.fromLngLat(-77.03652, 38.89768);
+    Point otherOrigin = Point.fromLngLat(-77.0465, 38.8977);
+
+    assertEquals(RouteCache.key(ORIGIN, DESTINATION, PROFILE),
+      RouteCache.key(nearbyOrigin, DESTINATION, PROFILE));
+    assertNotEquals(RouteCache.key(ORIGIN, DESTINATION, PROFILE),
+      RouteCache.key(otherOrigin, DESTINATION, PROFILE));
+  }
+
+  @Test
+  public void get_returnsStoredRoute() throws Exception {
+    RouteCache cache = new RouteCache(folder.newFolder(), Long.MAX_VALUE, TIME_TO_LIVE);
+    DirectionsRoute route = fetchRoute();
+    String key = RouteCache.key(ORIGIN, DESTINATION, PROFILE);
+
+    cache.put(key, route);
+    DirectionsRoute cachedRoute = cache.get(key);
+
+    assertNotNull(cachedRoute);
+    assertEquals(route.distance(), cachedRoute.distance(), 0);
+    assertEquals(route.geometry(), cachedRoute.geometry());
+    assertEquals(firstInstruction(route), firstInstruction(cachedRoute));
+  }
+
+  @Test
+  public void get_expiredEntryReturnsNull() throws Exception {
+    RouteCache cache = new RouteCache(folder.newFolder(), Long.MAX_VALUE, -1);
+    String key = RouteCache.key(ORIGIN, DESTINATION, PROFILE);
+
+    cache.put(key, fetchRoute());
+
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  public void put_evictsLeastRecentlyUsedEntriesOverSizeLimit() throws Exception {
+    File directory = folder.newFolder();
+    DirectionsRoute route = fetchRoute();
+    RouteCache unbounded = new RouteCache(directory, Long.MAX_VALUE, TIME_TO_LIVE);
+    unbounded.put("first", route);
+    long entrySize = unbounded.size();
+    new File(directory, "first.route").setLastModified(System.currentTimeMillis() - 60000);
+
+    RouteCache cache = new RouteCache(directory, entrySize + entrySize / 2, TIME_TO_LIVE);
+    cache.put("second", route);
+
+    assertNull(cache.get("first"));
+    assertNotNull(cache.get("second"));
+  }
+
+  private DirectionsRoute fetchRoute() throws Exception {
+    server.enqueue(new MockResponse().setBody(responseJson));
+    Response<DirectionsResponse> response = MapboxDirections.builder()
+      .accessToken(ACCESS_TOKEN)
+      .profile(PROFILE)
+      .origin(ORIGIN)
+      .destination(DESTINATION)
+      .baseUrl(server.url("/").toString())
+      .build()
+      .executeCall();
+    return response.body().routes().get(0);
+  }
+
+  private static String firstInstruction(DirectionsRoute route) {
+    return route.legs().get(0).steps().get(0).maneuver().instruction();
+  }
+
+  private String loadFixture(String name) {
+    InputStream stream = getClass().getClassLoader().getResourceAsStream(name);
+    Scanner scanner = new Scanner(stream, "UTF-8").useDelimiter("\\A");
+    return scanner.hasNext() ? scanner.next() : "";
+  }
+}
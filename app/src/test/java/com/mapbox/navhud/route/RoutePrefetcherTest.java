@@ -0,0 +1,147 @@
+package com.mapbox.navhud.route;
+
+import com.mapbox.api.directions.v5.DirectionsCriteria;
+import com.mapbox.api.directions.v5.models.DirectionsResponse;
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.api.directions.v5.models.StepManeuver;
+import com.mapbox.geojson.Point;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RoutePrefetcherTest {
+
+  private static final String ACCESS_TOKEN = "pk.test";
+  private static final String PROFILE = DirectionsCriteria.PROFILE_DRIVING_TRAFFIC;
+  private static final Point DESTINATION = Point.fromLngLat(-77.0330, 38.9010);
+
+  private MockWebServer server;
+  private String responseJson;
+  private DirectionsRoute route;
+
+  @Before
+  public void setUp() throws Exception {
+    InputStream stream = getClass().getClassLoader().getResourceAsStream("directions_response.json");
+    responseJson = new Scanner(stream, "UTF-8").useDelimiter("\\A").next();
+    route = DirectionsResponse.fromJson(responseJson).routes().get(0);
+    server = new MockWebServer();
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.shutdown();
+  }
+
+  @Test
+  public void prefetch_requestsRoutesFromNextDecisionPoints() throws Exception {
+    RoutePrefetcher prefetcher = createPrefetcher();
+    enqueueRoutes(2);
+
+    prefetcher.prefetch(0, 0);
+
+    // Both turns, the arrival is not a decision point
+    assertEquals(2, server.getRequestCount());
+    assertEquals(2, prefetcher.getAlternativeCount());
+    RecordedRequest request = server.takeRequest(1, TimeUnit.SECONDS);
+    assertEquals("0,45;", request.getRequestUrl().queryParameter("bearings"));
+  }
+
+  @Test
+  public void prefetch_keepsAlternativesAlreadyFetched() throws Exception {
+    RoutePrefetcher prefetcher = createPrefetcher();
+    enqueueRoutes(2);
+    prefetcher.prefetch(0, 0);
+
+    prefetcher.prefetch(0, 1);
+
+    assertEquals(2, server.getRequestCount());
+    assertEquals(1, prefetcher.getAlternativeCount());
+  }
+
+  @Test
+  public void prefetch_failedRequestIsSkipped() throws Exception {
+    RoutePrefetcher prefetcher = createPrefetcher();
+    server.enqueue(new MockResponse().setResponseCode(500));
+    server.enqueue(new MockResponse().setBody(responseJson));
+
+    prefetcher.prefetch(0, 0);
+
+    assertEquals(1, prefetcher.getAlternativeCount());
+  }
+
+  @Test
+  public void findAlternative_returnsPrefetchedRouteWithoutRequest() throws Exception {
+    RoutePrefetcher prefetcher = createPrefetcher();
+    enqueueRoutes(2);
+    prefetcher.prefetch(0, 0);
+    int requestCount = server.getRequestCount();
+
+    DirectionsRoute alternative = prefetcher.findAlternative(38.8980, -77.0365);
+
+    assertNotNull(alternative);
+    assertEquals(requestCount, server.getRequestCount());
+  }
+
+  @Test
+  public void findAlternative_ignoresLocationsAwayFromAlternatives() throws Exception {
+    RoutePrefetcher prefetcher = createPrefetcher();
+    enqueueRoutes(2);
+    prefetcher.prefetch(0, 0);
+
+    // On an alternative, but too far along it to have just joined it
+    assertNull(prefetcher.findAlternative(38.9005, -77.0330));
+    assertNull(prefetcher.findAlternative(38.9100, -77.0500));
+  }
+
+  @Test
+  public void setRoute_dropsAlternatives() throws Exception {
+    RoutePrefetcher prefetcher = createPrefetcher();
+    enqueueRoutes(2);
+    prefetcher.prefetch(0, 0);
+
+    prefetcher.setRoute(route, DESTINATION);
+
+    assertEquals(0, prefetcher.getAlternativeCount());
+    assertNull(prefetcher.findAlternative(38.8980, -77.0365));
+  }
+
+  @Test
+  public void missedTurnOrigin_continuesInApproachDirection() throws Exception {
+    StepManeuver turn = route.legs().get(0).steps().get(2).maneuver();
+
+    Point origin = RoutePrefetcher.missedTurnOrigin(turn);
+
+    // Approaching Vermont Avenue eastbound, so going straight continues east
+    assertEquals(turn.location().latitude(), origin.latitude(), 1e-6);
+    assertEquals(RoutePrefetcher.MISSED_TURN_DISTANCE, RouteGeometryIndex.distance(
+      turn.location().latitude(), turn.location().longitude(), origin.latitude(), origin.longitude()), 0.5);
+    assertTrue(origin.longitude() > turn.location().longitude());
+  }
+
+  private RoutePrefetcher createPrefetcher() {
+    RoutePrefetcher prefetcher = new RoutePrefetcher(ACCESS_TOKEN, PROFILE, server.url("/").toString());
+    prefetcher.setRoute(route, DESTINATION);
+    return prefetcher;
+  }
+
+  private void enqueueRoutes(int count) {
+    for (int i = 0; i < count; i++) {
+      server.enqueue(new MockResponse().setBody(responseJson));
+    }
+  }
+}
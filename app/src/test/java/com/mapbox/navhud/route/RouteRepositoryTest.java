@@ -0,0 +1,271 @@
+package com.mapbox.navhud.route;
+
+import com.mapbox.api.directions.v5.DirectionsCriteria;
+import com.mapbox.api.directions.v5.MapboxDirections;
+import com.mapbox.api.directions.v5.models.DirectionsResponse;
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.geojson.Point;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class RouteRepositoryTest {
+
+  private static final String ACCESS_TOKEN = "pk.test";
+  private static final String PROFILE = DirectionsCriteria.PROFILE_DRIVING_TRAFFIC;
+  private static final Point ORIGIN = Point.fromLngLat(-77.0365, 38.8977);
+  private static final Point DESTINATION = Point.fromLngLat(-77.0330, 38.9010);
+  private static final long TIME_TO_LIVE = TimeUnit.DAYS.toMillis(1);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private MockWebServer server;
+  private String responseJson;
+  private DirectionsRoute route;
+  // Stands in for the main thread, callbacks and deliveries run on it one at a time
+  private final ExecutorService mainExecutor = Executors.newSingleThreadExecutor();
+  private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+  private final BlockingQueue<DirectionsRoute> routes = new LinkedBlockingQueue<>();
+
+  @Before
+  public void setUp() throws Exception {
+    InputStream stream = getClass().getClassLoader().getResourceAsStream("directions_response.json");
+    responseJson = new Scanner(stream, "UTF-8").useDelimiter("\\A").next();
+    route = DirectionsResponse.fromJson(responseJson).routes().get(0);
+    server = new MockWebServer();
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    mainExecutor.shutdownNow();
+    server.shutdown();
+  }
+
+  @Test
+  public void requestRoute_deliversCachedRouteThenNetworkRoute() throws Exception {
+    RouteCache cache = createCache();
+    cache.put(RouteCache.key(ORIGIN, DESTINATION, PROFILE), route);
+    RouteRepository repository = createRepository(cache);
+    server.enqueue(new MockResponse().setBody(responseJson).setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+    repository.requestRoute(ORIGIN, DESTINATION, listener());
+
+    assertEquals("cache", nextEvent());
+    assertEquals("network", nextEvent());
+    assertEquals(1, server.getRequestCount());
+  }
+
+  @Test
+  public void requestRoute_storesNetworkRouteForNextRequest() throws Exception {
+    RouteRepository repository = createRepository(createCache());
+    server.enqueue(new MockResponse().setBody(responseJson));
+    server.enqueue(new MockResponse().setResponseCode(500).setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+    repository.requestRoute(ORIGIN, DESTINATION, listener());
+    assertEquals("network", nextEvent());
+    repository.requestRoute(ORIGIN, DESTINATION, listener());
+
+    assertEquals("cache", nextEvent());
+    assertEquals("error", nextEvent());
+    assertEquals(2, server.getRequestCount());
+  }
+
+  @Test
+  public void shutdown_dropsCachedRouteDelivery() throws Exception {
+    RouteCache cache = createCache();
+    cache.put(RouteCache.key(ORIGIN, DESTINATION, PROFILE), route);
+    RouteRepository repository = createRepository(cache);
+    server.enqueue(new MockResponse().setResponseCode(500));
+
+    repository.requestRoute(ORIGIN, DESTINATION, listener());
+    repository.shutdown();
+
+    assertNull(events.poll(500, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void requestRoute_manyStops_stitchesBatchesAndCachesRoute() throws Exception {
+    RouteRepository repository = createRepository(createCache());
+    List<Point> stops = stops(30);
+    server.enqueue(new MockResponse().setBody(responseJson));
+    server.enqueue(new MockResponse().setBody(responseJson));
+
+    repository.requestRoute(ORIGIN, stops, listener());
+
+    assertEquals("network", nextEvent());
+    assertEquals(2, server.getRequestCount());
+    assertEquals(2 * route.legs().size(), routes.take().legs().size());
+
+    server.enqueue(new MockResponse().setResponseCode(500));
+    server.enqueue(new MockResponse().setResponseCode(500));
+    repository.requestRoute(ORIGIN, stops, listener());
+    assertEquals("cache", nextEvent());
+    assertEquals("error", nextEvent());
+  }
+
+  @Test
+  public void requestRoute_failedBatch_deliversSingleErrorAndNoRoute() throws Exception {
+    RouteRepository repository = createRepository(createCache());
+    server.enqueue(new MockResponse().setResponseCode(500));
+    server.enqueue(new MockResponse().setResponseCode(500));
+
+    repository.requestRoute(ORIGIN, stops(30), listener());
+
+    assertEquals("error", nextEvent());
+    assertNull(events.poll(500, TimeUnit.MILLISECONDS));
+    assertEquals(2, server.getRequestCount());
+  }
+
+  @Test
+  public void requestRoute_manyStops_noErrorAfterShutdown() throws Exception {
+    RouteRepository repository = createRepository(createCache());
+    server.enqueue(new MockResponse().setResponseCode(500).setBodyDelay(200, TimeUnit.MILLISECONDS));
+    server.enqueue(new MockResponse().setResponseCode(500).setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+    repository.requestRoute(ORIGIN, stops(30), listener());
+    repository.shutdown();
+
+    assertNull(events.poll(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void openBinaryRoute_deliversMappedRouteAndIndex() throws Exception {
+    RouteRepository repository = createRepository(createCache());
+    BlockingQueue<Object[]> ready = new LinkedBlockingQueue<>();
+
+    repository.openBinaryRoute(route, binaryRouteListener(ready));
+
+    Object[] delivered = ready.poll(5, TimeUnit.SECONDS);
+    assertNotNull(delivered);
+    assertNotNull(delivered[0]);
+    assertEquals(route.legs().get(0).steps().size(), ((BinaryRoute) delivered[0]).getStepCount());
+    assertNotNull(delivered[1]);
+  }
+
+  @Test
+  public void openBinaryRoute_writeFailure_stillDeliversIndex() throws Exception {
+    // Not a directory, so the route file cannot be created
+    RouteRepository repository = createRepository(createCache(), folder.newFile("routes"));
+    BlockingQueue<Object[]> ready = new LinkedBlockingQueue<>();
+
+    repository.openBinaryRoute(route, binaryRouteListener(ready));
+
+    Object[] delivered = ready.poll(5, TimeUnit.SECONDS);
+    assertNotNull(delivered);
+    assertNull(delivered[0]);
+    RouteGeometryIndex routeIndex = (RouteGeometryIndex) delivered[1];
+    assertEquals(route.legs().get(0).steps().size(), routeIndex.getStepCount());
+  }
+
+  private static List<Point> stops(int count) {
+    List<Point> stops = new ArrayList<>(count);
+    for (int i = 1; i <= count; i++) {
+      stops.add(Point.fromLngLat(ORIGIN.longitude() + i * 0.001, ORIGIN.latitude()));
+    }
+    return stops;
+  }
+
+  private RouteCache createCache() throws Exception {
+    return new RouteCache(folder.newFolder(), Long.MAX_VALUE, TIME_TO_LIVE);
+  }
+
+  private RouteRepository createRepository(RouteCache cache) throws Exception {
+    return createRepository(cache, folder.newFolder());
+  }
+
+  private RouteRepository createRepository(RouteCache cache, File routeDirectory) {
+    return new RouteRepository(cache, routeDirectory, new RouteRepository.DirectionsClient() {
+      @Override
+      public void getRoute(String profile, List<Point> coordinates, Callback<DirectionsResponse> callback) {
+        MapboxDirections.Builder builder = MapboxDirections.builder()
+          .accessToken(ACCESS_TOKEN)
+          .profile(profile)
+          .origin(coordinates.get(0))
+          .destination(coordinates.get(coordinates.size() - 1))
+          .baseUrl(server.url("/").toString());
+        for (Point waypoint : coordinates.subList(1, coordinates.size() - 1)) {
+          builder.addWaypoint(waypoint);
+        }
+        builder.build().enqueueCall(onMainExecutor(callback));
+      }
+    }, mainExecutor);
+  }
+
+  private Callback<DirectionsResponse> onMainExecutor(final Callback<DirectionsResponse> callback) {
+    return new Callback<DirectionsResponse>() {
+      @Override
+      public void onResponse(final Call<DirectionsResponse> call, final Response<DirectionsResponse> response) {
+        mainExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            callback.onResponse(call, response);
+          }
+        });
+      }
+
+      @Override
+      public void onFailure(final Call<DirectionsResponse> call, final Throwable throwable) {
+        mainExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            callback.onFailure(call, throwable);
+          }
+        });
+      }
+    };
+  }
+
+  private RouteRepository.RouteListener listener() {
+    return new RouteRepository.RouteListener() {
+      @Override
+      public void onRouteReady(DirectionsRoute route, boolean fromCache) {
+        routes.add(route);
+        events.add(fromCache ? "cache" : "network");
+      }
+
+      @Override
+      public void onRouteError(Throwable throwable) {
+        events.add("error");
+      }
+    };
+  }
+
+  private static RouteRepository.BinaryRouteListener binaryRouteListener(final BlockingQueue<Object[]> ready) {
+    return new RouteRepository.BinaryRouteListener() {
+      @Override
+      public void onBinaryRouteReady(BinaryRoute binaryRoute, RouteGeometryIndex routeIndex) {
+        ready.add(new Object[] {binaryRoute, routeIndex});
+      }
+    };
+  }
+
+  private String nextEvent() throws InterruptedException {
+    return events.poll(5, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,83 @@
+package com.mapbox.navhud.route;
+
+import com.mapbox.api.directions.v5.models.DirectionsResponse;
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.core.constants.Constants;
+import com.mapbox.core.utils.PolylineUtils;
+import com.mapbox.geojson.Point;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+
+public class RouteStitcherTest {
+
+  private DirectionsRoute route;
+
+  @Before
+  public void setUp() throws Exception {
+    InputStream stream = getClass().getClassLoader().getResourceAsStream("directions_response.json");
+    String json = new Scanner(stream, "UTF-8").useDelimiter("\\A").next();
+    route = DirectionsResponse.fromJson(json).routes().get(0);
+  }
+
+  @Test
+  public void batch_sharesStopsBetweenRequests() throws Exception {
+    List<Point> coordinates = new ArrayList<>();
+    for (int i = 0; i <= 80; i++) {
+      coordinates.add(Point.fromLngLat(-77 + i * 0.01, 38.9));
+    }
+    List<List<Point>> batches = RouteStitcher.batch(coordinates, 25);
+
+    assertEquals(4, batches.size());
+    int legs = 0;
+    for (int i = 0; i < batches.size(); i++) {
+      List<Point> batch = batches.get(i);
+      assertEquals(i < 3 ? 25 : 9, batch.size());
+      if (i > 0) {
+        List<Point> previous = batches.get(i - 1);
+        assertEquals(previous.get(previous.size() - 1), batch.get(0));
+      }
+      legs += batch.size() - 1;
+    }
+    assertEquals(80, legs);
+    List<Point> lastBatch = batches.get(batches.size() - 1);
+    assertEquals(coordinates.get(80), lastBatch.get(lastBatch.size() - 1));
+  }
+
+  @Test
+  public void batch_keepsShortRouteInOneRequest() throws Exception {
+    List<Point> coordinates = Arrays.asList(Point.fromLngLat(-77.0365, 38.8977),
+      Point.fromLngLat(-77.0330, 38.9010));
+
+    assertEquals(Arrays.asList(coordinates), RouteStitcher.batch(coordinates, 25));
+  }
+
+  @Test
+  public void stitch_keepsLegsOfEveryPart() throws Exception {
+    DirectionsRoute stitched = RouteStitcher.stitch(Arrays.asList(route, route), Constants.PRECISION_6);
+
+    assertEquals(2, stitched.legs().size());
+    assertEquals(2 * route.distance(), stitched.distance(), 1e-6);
+    assertEquals(2 * route.duration(), stitched.duration(), 1e-6);
+    assertEquals(8, PolylineUtils.decode(stitched.geometry(), Constants.PRECISION_6).size());
+  }
+
+  @Test
+  public void legsFrom_dropsLegsBefore() throws Exception {
+    DirectionsRoute stitched = RouteStitcher.stitch(Arrays.asList(route, route), Constants.PRECISION_6);
+    DirectionsRoute remaining = RouteStitcher.legsFrom(stitched, 1, Constants.PRECISION_6);
+
+    assertEquals(1, remaining.legs().size());
+    assertEquals(route.distance(), remaining.distance(), 1e-6);
+    assertEquals(PolylineUtils.decode(route.geometry(), Constants.PRECISION_6),
+      PolylineUtils.decode(remaining.geometry(), Constants.PRECISION_6));
+  }
+}
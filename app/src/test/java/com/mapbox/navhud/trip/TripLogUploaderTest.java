@@ -0,0 +1,135 @@
+package com.mapbox.navhud.trip;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TripLogUploaderTest {
+
+  private static final long TRIP_ID = 1528900000000L;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private MockWebServer server;
+  private File directory;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new MockWebServer();
+    server.start();
+    directory = folder.newFolder();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.shutdown();
+  }
+
+  @Test
+  public void upload_sendsSegmentsInBatches() throws Exception {
+    writeSegments(5, 100);
+    for (int i = 0; i < 3; i++) {
+      server.enqueue(new MockResponse().setResponseCode(204));
+    }
+    TripLogUploader uploader = new TripLogUploader(directory, server.url("/trips").url(), 2, Long.MAX_VALUE);
+
+    assertEquals(5, uploader.upload());
+
+    assertEquals(3, server.getRequestCount());
+    assertEquals("2", server.takeRequest().getHeader(TripLogUploader.SEGMENT_COUNT_HEADER));
+    assertEquals("2", server.takeRequest().getHeader(TripLogUploader.SEGMENT_COUNT_HEADER));
+    RecordedRequest last = server.takeRequest();
+    assertEquals("1", last.getHeader(TripLogUploader.SEGMENT_COUNT_HEADER));
+    assertEquals(TripLogUploader.CONTENT_TYPE, last.getHeader("Content-Type"));
+    assertEquals(0, TripLogWriter.listSegments(directory).length);
+  }
+
+  @Test
+  public void upload_keepsSegmentsRejectedByTheEndpoint() throws Exception {
+    writeSegments(3, 100);
+    server.enqueue(new MockResponse().setResponseCode(204));
+    server.enqueue(new MockResponse().setResponseCode(503));
+    TripLogUploader uploader = new TripLogUploader(directory, server.url("/trips").url(), 1, Long.MAX_VALUE);
+
+    try {
+      uploader.upload();
+      fail("Expected the rejected batch to fail the upload");
+    } catch (IOException expected) {
+      // Retried on the next upload
+    }
+
+    assertEquals(2, TripLogWriter.listSegments(directory).length);
+  }
+
+  @Test
+  public void upload_deliversEveryRecordOfLongTrip() throws Exception {
+    // A fix and a progress snapshot every second for about eight hours
+    int recordCount = 60000;
+    long start = System.nanoTime();
+    TripRecordBuffer buffer = new TripRecordBuffer(4096);
+    TripLogWriter writer = new TripLogWriter(directory, TRIP_ID, 256, 64 * 1024, 1000);
+    for (int i = 0; i < recordCount; i++) {
+      if (!buffer.appendFix(TRIP_ID + i * 500L, 38.8977 + i * 1e-6, -77.0365 - i * 1e-6, 13.4f,
+        92f, 4.5f, TripRecordBuffer.FLAG_SPEED)) {
+        writer.flush(buffer);
+        i--;
+      }
+    }
+    writer.flush(buffer);
+    writer.close();
+    int segmentCount = TripLogWriter.listSegments(directory).length;
+    int batchCount = (segmentCount + 15) / 16;
+    for (int i = 0; i < batchCount; i++) {
+      server.enqueue(new MockResponse().setResponseCode(204));
+    }
+    TripLogUploader uploader = new TripLogUploader(directory, server.url("/trips").url(), 16, 512 * 1024);
+
+    assertEquals(segmentCount, uploader.upload());
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    int received = 0;
+    long bytes = 0;
+    for (int i = 0; i < batchCount; i++) {
+      RecordedRequest request = server.takeRequest();
+      bytes += request.getBodySize();
+      DataInputStream body = new DataInputStream(new ByteArrayInputStream(request.getBody().readByteArray()));
+      while (body.available() > 0) {
+        byte[] segment = new byte[body.readInt()];
+        body.readFully(segment);
+        received += TripLogWriter.readRecords(new ByteArrayInputStream(segment)).length
+          / TripRecordBuffer.RECORD_SIZE;
+      }
+    }
+    assertEquals(recordCount, received);
+    assertTrue("Compressed to " + bytes + " bytes", bytes < recordCount * TripRecordBuffer.RECORD_SIZE / 2);
+    assertTrue(recordCount / seconds + " records per second", recordCount / seconds > 20000);
+  }
+
+  private void writeSegments(int segmentCount, int recordsPerSegment) throws Exception {
+    TripRecordBuffer buffer = new TripRecordBuffer(recordsPerSegment);
+    TripLogWriter writer = new TripLogWriter(directory, TRIP_ID, 64, Long.MAX_VALUE, 100);
+    for (int segment = 0; segment < segmentCount; segment++) {
+      for (int i = 0; i < recordsPerSegment; i++) {
+        buffer.appendMilestone(TRIP_ID + i, 1, i, 1000 - i, 100 - i);
+      }
+      writer.flush(buffer);
+      writer.close();
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package com.mapbox.navhud.trip;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TripLogWriterTest {
+
+  private static final long TRIP_ID = 1528900000000L;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void flush_writesRecordsReadBackFromTheSegment() throws Exception {
+    File directory = folder.newFolder();
+    TripRecordBuffer buffer = new TripRecordBuffer(1024);
+    TripLogWriter writer = new TripLogWriter(directory, TRIP_ID, 64, Long.MAX_VALUE, 10);
+    appendFixes(buffer, 0, 1000);
+
+    assertEquals(1000, writer.flush(buffer));
+    writer.close();
+
+    File[] segments = TripLogWriter.listSegments(directory);
+    assertEquals(1, segments.length);
+    assertTrue(segments[0].length() < 1000 * TripRecordBuffer.RECORD_SIZE / 2);
+    assertFixes(read(segments[0]), 0, 1000);
+  }
+
+  @Test
+  public void flush_closesSegmentsAtTheMaximumSize() throws Exception {
+    File directory = folder.newFolder();
+    TripRecordBuffer buffer = new TripRecordBuffer(4096);
+    TripLogWriter writer = new TripLogWriter(directory, TRIP_ID, 64, 2048, 100);
+    appendFixes(buffer, 0, 4000);
+
+    writer.flush(buffer);
+    writer.close();
+
+    File[] segments = TripLogWriter.listSegments(directory);
+    assertTrue(segments.length > 1);
+    assertEquals(segments.length, writer.getClosedSegmentCount());
+    int next = 0;
+    for (File segment : segments) {
+      ByteBuffer records = read(segment);
+      assertFixes(records, next, records.limit() / TripRecordBuffer.RECORD_SIZE);
+      next += records.limit() / TripRecordBuffer.RECORD_SIZE;
+    }
+    assertEquals(4000, next);
+  }
+
+  @Test
+  public void close_deletesOldestSegmentsBeyondTheMaximum() throws Exception {
+    File directory = folder.newFolder();
+    TripRecordBuffer buffer = new TripRecordBuffer(64);
+    TripLogWriter writer = new TripLogWriter(directory, TRIP_ID, 64, Long.MAX_VALUE, 2);
+    for (int i = 0; i < 4; i++) {
+      appendFixes(buffer, i * 10, 10);
+      writer.flush(buffer);
+      writer.close();
+    }
+
+    File[] segments = TripLogWriter.listSegments(directory);
+    assertEquals(2, segments.length);
+    assertFixes(read(segments[0]), 20, 10);
+    assertFixes(read(segments[1]), 30, 10);
+  }
+
+  @Test
+  public void recover_keepsFlushedRecordsOfSegmentLeftOpen() throws Exception {
+    File writerDirectory = folder.newFolder();
+    TripRecordBuffer buffer = new TripRecordBuffer(256);
+    TripLogWriter writer = new TripLogWriter(writerDirectory, TRIP_ID, 64, Long.MAX_VALUE, 10);
+    appendFixes(buffer, 0, 200);
+    writer.flush(buffer);
+    // What the process left behind when it died
+    File directory = folder.newFolder();
+    File openFile = writerDirectory.listFiles()[0];
+    Files.copy(openFile.toPath(), new File(directory, openFile.getName()).toPath());
+
+    new TripLogWriter(directory, TRIP_ID + 1, 64, Long.MAX_VALUE, 10).recover();
+
+    File[] segments = TripLogWriter.listSegments(directory);
+    assertEquals(1, segments.length);
+    assertFixes(read(segments[0]), 0, 200);
+  }
+
+  @Test
+  public void recover_leavesSegmentOfLiveWriterOpen() throws Exception {
+    // The previous trip is still closing while the next one starts
+    File directory = folder.newFolder();
+    TripRecordBuffer buffer = new TripRecordBuffer(256);
+    TripLogWriter previousTrip = new TripLogWriter(directory, TRIP_ID, 64, Long.MAX_VALUE, 10);
+    appendFixes(buffer, 0, 100);
+    previousTrip.flush(buffer);
+
+    new TripLogWriter(directory, TRIP_ID + 1, 64, Long.MAX_VALUE, 10).recover();
+    assertEquals(0, TripLogWriter.listSegments(directory).length);
+
+    appendFixes(buffer, 100, 100);
+    previousTrip.flush(buffer);
+    previousTrip.close();
+
+    File[] segments = TripLogWriter.listSegments(directory);
+    assertEquals(1, segments.length);
+    assertFixes(read(segments[0]), 0, 200);
+  }
+
+  private static void appendFixes(TripRecordBuffer buffer, int first, int count) {
+    for (int i = first; i < first + count; i++) {
+      buffer.appendFix(TRIP_ID + i * 1000L, 38.8977 + i * 1e-5, -77.0365, 13.4f, 92f, 4.5f,
+        TripRecordBuffer.FLAG_SPEED | TripRecordBuffer.FLAG_BEARING);
+    }
+  }
+
+  private static ByteBuffer read(File segment) throws Exception {
+    try (InputStream input = new FileInputStream(segment)) {
+      return ByteBuffer.wrap(TripLogWriter.readRecords(input));
+    }
+  }
+
+  private static void assertFixes(ByteBuffer records, int first, int count) {
+    assertEquals(count * TripRecordBuffer.RECORD_SIZE, records.limit());
+    for (int i = 0; i < count; i++) {
+      int offset = i * TripRecordBuffer.RECORD_SIZE;
+      assertEquals(TripRecordBuffer.TYPE_FIX, records.getInt(offset + TripRecordBuffer.TYPE_OFFSET));
+      assertEquals(TRIP_ID + (first + i) * 1000L, records.getLong(offset + TripRecordBuffer.TIME_OFFSET));
+      assertEquals(38.8977 + (first + i) * 1e-5,
+        records.getDouble(offset + TripRecordBuffer.FIRST_VALUE_OFFSET), 0);
+    }
+  }
+}
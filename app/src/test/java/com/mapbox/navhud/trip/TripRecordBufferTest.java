@@ -0,0 +1,142 @@
+package com.mapbox.navhud.trip;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TripRecordBufferTest {
+
+  @Test
+  public void constructor_roundsCapacityToPowerOfTwo() throws Exception {
+    assertEquals(1, new TripRecordBuffer(1).getCapacity());
+    assertEquals(8, new TripRecordBuffer(5).getCapacity());
+    assertEquals(4096, new TripRecordBuffer(4096).getCapacity());
+  }
+
+  @Test
+  public void appendFix_writesFixedWidthRecord() throws Exception {
+    TripRecordBuffer buffer = new TripRecordBuffer(4);
+    int flags = TripRecordBuffer.FLAG_SPEED | TripRecordBuffer.FLAG_ACCURACY;
+    buffer.appendFix(1528900000000L, 38.8977, -77.0365, 13.4f, 92f, 4.5f, flags);
+    ByteBuffer target = ByteBuffer.allocate(4 * TripRecordBuffer.RECORD_SIZE);
+
+    assertEquals(1, buffer.drainTo(target));
+    assertEquals(TripRecordBuffer.RECORD_SIZE, target.position());
+    assertEquals(TripRecordBuffer.TYPE_FIX, target.getInt(TripRecordBuffer.TYPE_OFFSET));
+    assertEquals(flags, target.getInt(TripRecordBuffer.INDEX_OFFSET));
+    assertEquals(1528900000000L, target.getLong(TripRecordBuffer.TIME_OFFSET));
+    assertEquals(38.8977, target.getDouble(TripRecordBuffer.FIRST_VALUE_OFFSET), 0);
+    assertEquals(-77.0365, target.getDouble(TripRecordBuffer.SECOND_VALUE_OFFSET), 0);
+    assertEquals(13.4f, target.getFloat(TripRecordBuffer.FIRST_MEASURE_OFFSET), 0);
+    assertEquals(92f, target.getFloat(TripRecordBuffer.SECOND_MEASURE_OFFSET), 0);
+    assertEquals(4.5f, target.getFloat(TripRecordBuffer.THIRD_MEASURE_OFFSET), 0);
+  }
+
+  @Test
+  public void drainTo_keepsOrderAcrossTheEndOfTheRing() throws Exception {
+    TripRecordBuffer buffer = new TripRecordBuffer(4);
+    ByteBuffer target = ByteBuffer.allocate(4 * TripRecordBuffer.RECORD_SIZE);
+    for (int i = 0; i < 3; i++) {
+      buffer.appendMilestone(i, i, i, 0, 0);
+    }
+    buffer.drainTo(target);
+    for (int i = 3; i < 7; i++) {
+      buffer.appendMilestone(i, i, i, 0, 0);
+    }
+    target.clear();
+
+    assertEquals(4, buffer.drainTo(target));
+    for (int i = 0; i < 4; i++) {
+      assertEquals(3 + i, target.getLong(i * TripRecordBuffer.RECORD_SIZE + TripRecordBuffer.TIME_OFFSET));
+    }
+  }
+
+  @Test
+  public void drainTo_onlyMovesWholeRecordsThatFit() throws Exception {
+    TripRecordBuffer buffer = new TripRecordBuffer(8);
+    for (int i = 0; i < 5; i++) {
+      buffer.appendProgress(i, 0, i, 100, 10, 100, 10, 0.5f);
+    }
+    ByteBuffer target = ByteBuffer.allocate(2 * TripRecordBuffer.RECORD_SIZE + 10);
+
+    assertEquals(2, buffer.drainTo(target));
+    assertEquals(3, buffer.size());
+  }
+
+  @Test
+  public void append_dropsRecordsWhenFull() throws Exception {
+    TripRecordBuffer buffer = new TripRecordBuffer(2);
+    assertTrue(buffer.appendMilestone(1, 0, 0, 0, 0));
+    assertTrue(buffer.appendMilestone(2, 0, 0, 0, 0));
+
+    assertFalse(buffer.appendMilestone(3, 0, 0, 0, 0));
+    assertEquals(1, buffer.getDroppedCount());
+    assertEquals(2, buffer.size());
+  }
+
+  @Test
+  public void append_isDrainedInOrderFromAnotherThread() throws Exception {
+    final TripRecordBuffer buffer = new TripRecordBuffer(256);
+    final int recordCount = 1000000;
+    final AtomicReference<String> failure = new AtomicReference<>();
+    Thread drain = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        ByteBuffer target = ByteBuffer.allocate(64 * TripRecordBuffer.RECORD_SIZE);
+        long expected = 0;
+        while (expected < recordCount) {
+          target.clear();
+          int count = buffer.drainTo(target);
+          for (int i = 0; i < count; i++) {
+            long time = target.getLong(i * TripRecordBuffer.RECORD_SIZE + TripRecordBuffer.TIME_OFFSET);
+            if (time != expected++) {
+              failure.set("Expected record " + (expected - 1) + " but got " + time);
+              return;
+            }
+          }
+        }
+      }
+    });
+    drain.start();
+
+    for (int i = 0; i < recordCount; i++) {
+      while (!buffer.appendFix(i, 0, 0, 0, 0, 0, 0)) {
+        Thread.yield();
+      }
+    }
+    drain.join(10000);
+
+    assertNull(failure.get());
+    assertFalse(drain.isAlive());
+  }
+
+  @Test
+  public void append_costsWellUnderAMicrosecond() throws Exception {
+    TripRecordBuffer buffer = new TripRecordBuffer(4096);
+    ByteBuffer target = ByteBuffer.allocate(buffer.getCapacity() * TripRecordBuffer.RECORD_SIZE);
+    int rounds = 500;
+    long appendNanos = 0;
+    for (int round = 0; round < rounds; round++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < 4096; i++) {
+        buffer.appendFix(i, 38.8977, -77.0365, 13.4f, 92f, 4.5f, TripRecordBuffer.FLAG_SPEED);
+      }
+      // The first rounds warm up the JIT
+      if (round >= rounds / 2) {
+        appendNanos += System.nanoTime() - start;
+      }
+      target.clear();
+      buffer.drainTo(target);
+    }
+    double nanosPerAppend = appendNanos / (rounds / 2 * 4096d);
+
+    assertEquals(0, buffer.getDroppedCount());
+    assertTrue(nanosPerAppend + " ns per append", nanosPerAppend < 250);
+  }
+}
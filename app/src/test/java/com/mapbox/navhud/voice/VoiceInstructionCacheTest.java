@@ -0,0 +1,98 @@
+package com.mapbox.navhud.voice;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VoiceInstructionCacheTest {
+
+  private static final String INSTRUCTION = "Turn left onto H Street Northwest";
+  private static final String VOICE = "en-us-x-sfg-local";
+  private static final int ENTRY_SIZE = 1000;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File directory;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = new File(folder.getRoot(), "voice");
+  }
+
+  @Test
+  public void key_dependsOnTextLocaleAndVoice() throws Exception {
+    String key = VoiceInstructionCache.key(INSTRUCTION, Locale.US, VOICE);
+
+    assertEquals(key, VoiceInstructionCache.key(INSTRUCTION, Locale.US, VOICE));
+    assertNotEquals(key, VoiceInstructionCache.key("Turn right", Locale.US, VOICE));
+    assertNotEquals(key, VoiceInstructionCache.key(INSTRUCTION, Locale.UK, VOICE));
+    assertNotEquals(key, VoiceInstructionCache.key(INSTRUCTION, Locale.US, "en-us-x-iol-local"));
+  }
+
+  @Test
+  public void commit_makesEntryAvailable() throws Exception {
+    VoiceInstructionCache cache = new VoiceInstructionCache(directory, 10 * ENTRY_SIZE);
+    String key = VoiceInstructionCache.key(INSTRUCTION, Locale.US, VOICE);
+    assertNull(cache.get(key));
+
+    cache.commit(key, write(cache, key));
+
+    File file = cache.get(key);
+    assertNotNull(file);
+    assertEquals(ENTRY_SIZE, file.length());
+    assertTrue(cache.contains(key));
+  }
+
+  @Test(expected = IOException.class)
+  public void commit_rejectsEmptyAudio() throws Exception {
+    VoiceInstructionCache cache = new VoiceInstructionCache(directory, 10 * ENTRY_SIZE);
+    String key = VoiceInstructionCache.key(INSTRUCTION, Locale.US, VOICE);
+    File temp = cache.createTempFile(key);
+    temp.createNewFile();
+
+    cache.commit(key, temp);
+  }
+
+  @Test
+  public void trimToSize_evictsLeastRecentlyUsed() throws Exception {
+    VoiceInstructionCache cache = new VoiceInstructionCache(directory, 2 * ENTRY_SIZE);
+    String first = VoiceInstructionCache.key("first", Locale.US, VOICE);
+    String second = VoiceInstructionCache.key("second", Locale.US, VOICE);
+    String third = VoiceInstructionCache.key("third", Locale.US, VOICE);
+    cache.commit(first, write(cache, first));
+    cache.commit(second, write(cache, second));
+    new File(directory, first + ".wav").setLastModified(System.currentTimeMillis() - 20000);
+    new File(directory, second + ".wav").setLastModified(System.currentTimeMillis() - 10000);
+    // Playing the first entry makes the second the least recently used one
+    cache.get(first);
+
+    cache.commit(third, write(cache, third));
+
+    assertTrue(cache.contains(first));
+    assertFalse(cache.contains(second));
+    assertTrue(cache.contains(third));
+    assertEquals(2 * ENTRY_SIZE, cache.size());
+  }
+
+  private static File write(VoiceInstructionCache cache, String key) throws IOException {
+    File temp = cache.createTempFile(key);
+    try (FileOutputStream output = new FileOutputStream(temp)) {
+      output.write(new byte[ENTRY_SIZE]);
+    }
+    return temp;
+  }
+}
@@ -0,0 +1,50 @@
+package com.mapbox.navhud;
+
+import com.mapbox.api.directions.v5.models.LegStep;
+import com.mapbox.navhud.display.RouteFixtures;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+@State(Scope.Thread)
+public class ManeuverMapBenchmark {
+
+  private static final int STEP_COUNT = 1024;
+
+  private LegStep[] steps;
+  private String[] types;
+  private String[] modifiers;
+  private int index;
+
+  @Setup
+  public void setUp() {
+    List<LegStep> stepList = RouteFixtures.steps(STEP_COUNT, 42);
+    steps = stepList.toArray(new LegStep[STEP_COUNT]);
+    types = new String[STEP_COUNT];
+    modifiers = new String[STEP_COUNT];
+    for (int i = 0; i < STEP_COUNT; i++) {
+      types[i] = steps[i].maneuver().type();
+      modifiers[i] = steps[i].maneuver().modifier();
+    }
+  }
+
+  @Benchmark
+  public int lookupTypeAndModifier() {
+    int i = next();
+    return ManeuverMap.getInstance().getManeuverResource(types[i], modifiers[i]);
+  }
+
+  @Benchmark
+  public int lookupStep() {
+    return ManeuverMap.getInstance().getManeuverResource(steps[next()]);
+  }
+
+  private int next() {
+    index = (index + 1) & (STEP_COUNT - 1);
+    return index;
+  }
+}
@@ -0,0 +1,46 @@
+package com.mapbox.navhud;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+import static com.mapbox.navhud.Constants.MPH_DOUBLE;
+
+/**
+ * Speed conversion that used to be done by {@code calculateMph} for every location fix, see
+ * SpeedFilterBenchmark for the filtered readout.
+ */
+@State(Scope.Thread)
+public class SpeedConversionBenchmark {
+
+  private static final int SPEED_COUNT = 1024;
+
+  private final float[] speeds = new float[SPEED_COUNT];
+  private int index;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    for (int i = 0; i < SPEED_COUNT; i++) {
+      speeds[i] = random.nextFloat() * 35;
+    }
+  }
+
+  @Benchmark
+  public int convert() {
+    return (int) (nextSpeed() * MPH_DOUBLE);
+  }
+
+  @Benchmark
+  public String convertAndFormat() {
+    return String.valueOf((int) (nextSpeed() * MPH_DOUBLE));
+  }
+
+  private float nextSpeed() {
+    index = (index + 1) & (SPEED_COUNT - 1);
+    return speeds[index];
+  }
+}
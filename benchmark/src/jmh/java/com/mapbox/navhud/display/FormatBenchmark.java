@@ -0,0 +1,54 @@
+package com.mapbox.navhud.display;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import static com.mapbox.navhud.display.RouteFixtures.SyntheticProgress;
+
+/**
+ * Distance, time remaining and arrival time formatting for one progress update, with and
+ * without the quantized format caches. Cache misses run the JVM stand-in for DistanceUtils and
+ * TimeUtils, see {@link StandInHudFormatter}.
+ */
+@State(Scope.Thread)
+public class FormatBenchmark {
+
+  private static final long NOW = 1_528_700_000_000L;
+
+  @Param( {"true", "false"})
+  public boolean cached;
+
+  private SyntheticProgress[] ticks;
+  private StandInHudFormatter formatter;
+  private int index;
+
+  @Setup
+  public void setUp() {
+    ticks = RouteFixtures.progress(RouteFixtures.steps(200, 42), 20);
+    formatter = new StandInHudFormatter(cached);
+  }
+
+  @Benchmark
+  public void formatDistances(Blackhole blackhole) {
+    SyntheticProgress tick = nextTick();
+    blackhole.consume(formatter.formatDistance(tick.stepDistanceRemaining));
+    blackhole.consume(formatter.formatDistance(tick.distanceRemaining));
+  }
+
+  @Benchmark
+  public void formatTimes(Blackhole blackhole) {
+    SyntheticProgress tick = nextTick();
+    blackhole.consume(formatter.formatTimeRemaining(tick.durationRemaining));
+    formatter.setNow(NOW + index * 1000L);
+    blackhole.consume(formatter.formatArrivalTime(tick.durationRemaining));
+  }
+
+  private SyntheticProgress nextTick() {
+    index = index + 1 == ticks.length ? 0 : index + 1;
+    return ticks[index];
+  }
+}
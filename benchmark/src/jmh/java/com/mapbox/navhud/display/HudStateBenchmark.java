@@ -0,0 +1,93 @@
+package com.mapbox.navhud.display;
+
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.core.constants.Constants;
+import com.mapbox.navhud.ManeuverMap;
+import com.mapbox.navhud.location.TraceFix;
+import com.mapbox.navhud.route.BinaryRoute;
+import com.mapbox.navhud.route.BinaryRouteWriter;
+import com.mapbox.navhud.route.RouteGeometryIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * What the {@link HudUpdatePipeline} computes for one progress update on a compiled route:
+ * the app's {@link RouteHudTracker} snapping the location and filling the state, published
+ * to a {@link HudStateStream} with one subscriber delivered inline.
+ * <p>
+ * The texts come from the {@link StandInHudFormatter}, the time remaining from the synthetic
+ * trace instead of a {@code RouteProgress}. The speed readout runs on its own timer on the
+ * device and is measured by {@code SpeedFilterBenchmark}.
+ */
+@State(Scope.Thread)
+public class HudStateBenchmark {
+
+  private static final long NOW = 1_528_700_000_000L;
+  private static final double SPEED = 20;
+
+  private static final Executor INLINE = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  };
+
+  private File binaryFile;
+  private List<TraceFix> fixes;
+  private StandInHudFormatter formatter;
+  private RouteHudTracker tracker;
+  private final HudState state = new HudState();
+  private final HudStateStream stream = new HudStateStream();
+  private int changedFields;
+  private int index;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    DirectionsRoute route = RouteFixtures.route(200, 42);
+    binaryFile = File.createTempFile("route", ".bin");
+    new BinaryRouteWriter(Constants.PRECISION_6).write(route, binaryFile);
+    RouteGeometryIndex routeIndex = RouteGeometryIndex.fromRoute(route, Constants.PRECISION_6);
+    RouteHudTable table = RouteHudTable.build(BinaryRoute.open(binaryFile), routeIndex,
+      ManeuverMap.getInstance(), null);
+    fixes = ReplayHarness.syntheticTrace(route.legs().get(0).steps(), SPEED);
+
+    formatter = new StandInHudFormatter(true);
+    tracker = new RouteHudTracker(formatter, 50);
+    tracker.setRoute(table, routeIndex);
+    stream.subscribe(new HudStateStream.Subscriber() {
+      @Override
+      public void onHudState(HudState state, int changedFields) {
+        HudStateBenchmark.this.changedFields = changedFields;
+      }
+    }, INLINE, 0);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    stream.close();
+    binaryFile.delete();
+  }
+
+  @Benchmark
+  public int updateUi() {
+    index = index + 1 == fixes.size() ? 0 : index + 1;
+    TraceFix fix = fixes.get(index);
+    formatter.setNow(NOW + index * 1000L);
+    if (tracker.track(fix.getLatitude(), fix.getLongitude())) {
+      tracker.updateFromSnap(state);
+    }
+    tracker.updateTimes(fixes.size() - index, state);
+    stream.publish(state);
+    return changedFields;
+  }
+}
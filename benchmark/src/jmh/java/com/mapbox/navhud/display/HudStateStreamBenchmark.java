@@ -0,0 +1,84 @@
+package com.mapbox.navhud.display;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of publishing one HUD state to the stream against the number of subscribers, on the
+ * pipeline thread. With {@code slowSubscribers} the deliveries never get to run, as with
+ * subscribers far behind, and every state is only conflated into their slots.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HudStateStreamBenchmark {
+
+  private static final Executor DIRECT = new Executor() {
+    @Override
+    public void execute(Runnable runnable) {
+      runnable.run();
+    }
+  };
+
+  private static final Executor NEVER = new Executor() {
+    @Override
+    public void execute(Runnable runnable) {
+      // Dropped, the slot stays scheduled
+    }
+  };
+
+  @Param( {"1", "4", "16"})
+  public int subscriberCount;
+
+  @Param( {"false", "true"})
+  public boolean slowSubscribers;
+
+  private final HudState state = new HudState();
+  private HudStateStream stream;
+  private int speed;
+  private int deliveredFields;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    stream = new HudStateStream();
+    HudStateStream.Subscriber subscriber = new HudStateStream.Subscriber() {
+      @Override
+      public void onHudState(HudState state, int changedFields) {
+        deliveredFields |= changedFields;
+      }
+    };
+    for (int i = 0; i < subscriberCount; i++) {
+      stream.subscribe(subscriber, slowSubscribers ? NEVER : DIRECT, 0);
+    }
+    state.setStepText("Vermont Avenue Northwest");
+    state.setStepDistance("0.3 mi");
+    state.setRouteDistance("4.1 mi");
+    state.setTimeRemaining("12 min");
+    state.setArrivalTime("5:42 PM");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    stream.close();
+  }
+
+  @Benchmark
+  public int publish() {
+    speed = speed == 80 ? 0 : speed + 1;
+    state.setSpeed(speed);
+    state.setStepProgress(speed * 100);
+    stream.publish(state);
+    return deliveredFields;
+  }
+}
@@ -0,0 +1,327 @@
+package com.mapbox.navhud.display;
+
+import com.mapbox.api.directions.v5.models.DirectionsResponse;
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.api.directions.v5.models.LegStep;
+import com.mapbox.core.constants.Constants;
+import com.mapbox.core.utils.PolylineUtils;
+import com.mapbox.geojson.Point;
+import com.mapbox.navhud.ManeuverMap;
+import com.mapbox.navhud.location.LocationTraceParser;
+import com.mapbox.navhud.location.SpeedFilter;
+import com.mapbox.navhud.location.TraceFix;
+import com.mapbox.navhud.route.BinaryRoute;
+import com.mapbox.navhud.route.BinaryRouteWriter;
+import com.mapbox.navhud.route.RouteGeometryIndex;
+import com.mapbox.navhud.route.RouteSnap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+import static com.mapbox.navhud.Constants.MPH_DOUBLE;
+
+/**
+ * Replays a location trace through the code the HUD pipeline runs for every fix on a plain JVM
+ * and reports per fix latency percentiles and allocations.
+ * <p>
+ * Each fix goes through the app's {@link SpeedFilter}, is snapped and turned into the HUD
+ * state by a {@link RouteHudTracker} on the compiled {@link RouteHudTable}, and the state is
+ * published to a {@link HudStateStream} with one subscriber delivered inline. Not covered: the
+ * fixes are paced here rather than by {@code ReplayLocationEngine}, the pipeline's hand over
+ * between threads and coalescing are left out, the texts come from the
+ * {@link StandInHudFormatter} and the time remaining is computed from the step durations
+ * instead of the navigation SDK's route progress.
+ * <p>
+ * Runs against a recorded trace and Directions response, or against a synthetic route and
+ * a trace driven along it when none are given:
+ * <pre>
+ * ./gradlew :benchmark:replay -PreplayArgs="--trace drive.gpx --route drive.json --speed 0"
+ * </pre>
+ * Options:
+ * <ul>
+ * <li>{@code --trace} GPX, NMEA or JSON trace</li>
+ * <li>{@code --route} Directions API response the trace was driven on</li>
+ * <li>{@code --speed} replay speed factor, 0 (default) for as fast as possible</li>
+ * <li>{@code --iterations} measured passes over the trace, after as many warmup passes</li>
+ * <li>{@code --max-p99-ms} exit with an error if the 99th percentile latency is higher</li>
+ * </ul>
+ */
+public final class ReplayHarness {
+
+  private static final double FRAME_BUDGET_NANOS = 1e9 / 60;
+  // HudUpdatePipeline.SNAP_RADIUS and SPEED_READOUT_HYSTERESIS
+  private static final double SNAP_RADIUS = 50;
+  private static final double SPEED_READOUT_HYSTERESIS = 0.3;
+  private static final double METERS_PER_DEGREE = 111319.49;
+  private static final double SYNTHETIC_SPEED = 15;
+  private static final int SYNTHETIC_STEP_COUNT = 500;
+
+  private static final Executor INLINE = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  };
+
+  private ReplayHarness() {
+    // Prevent instantiation
+  }
+
+  public static void main(String[] args) throws IOException {
+    String tracePath = option(args, "--trace", null);
+    String routePath = option(args, "--route", null);
+    float speedFactor = Float.parseFloat(option(args, "--speed", "0"));
+    int iterations = Integer.parseInt(option(args, "--iterations", "3"));
+    String maxP99 = option(args, "--max-p99-ms", null);
+
+    DirectionsRoute route = routePath != null ? readRoute(routePath)
+      : RouteFixtures.route(SYNTHETIC_STEP_COUNT, 42);
+    List<TraceFix> fixes = tracePath != null ? readTrace(tracePath)
+      : syntheticTrace(route.legs().get(0).steps(), SYNTHETIC_SPEED);
+    if (fixes.isEmpty()) {
+      throw new IllegalArgumentException("Trace has no fixes");
+    }
+
+    // Route setup is not part of the per fix work, it is done before measuring
+    File binaryFile = File.createTempFile("route", ".bin");
+    ReplayRoute replayRoute;
+    try {
+      new BinaryRouteWriter(Constants.PRECISION_6).write(route, binaryFile);
+      replayRoute = new ReplayRoute(route, BinaryRoute.open(binaryFile));
+    } finally {
+      binaryFile.delete();
+    }
+
+    for (int i = 0; i < iterations; i++) {
+      replay(replayRoute, fixes, 0, null, 0);
+    }
+    long[] latencies = new long[fixes.size() * iterations];
+    long gcCountBefore = gcCount();
+    long allocatedBefore = allocatedBytes();
+    long start = System.nanoTime();
+    int offRoute = 0;
+    for (int i = 0; i < iterations; i++) {
+      offRoute += replay(replayRoute, fixes, speedFactor, latencies, i * fixes.size());
+    }
+    long elapsed = System.nanoTime() - start;
+    long allocated = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+    long gcCount = gcCount() - gcCountBefore;
+
+    long p99 = report(latencies, offRoute, elapsed, allocated, gcCount);
+    if (maxP99 != null && p99 > Double.parseDouble(maxP99) * 1e6) {
+      System.err.println("p99 latency above " + maxP99 + " ms");
+      System.exit(1);
+    }
+  }
+
+  /**
+   * @return number of fixes that did not snap to the route
+   */
+  private static int replay(ReplayRoute route, List<TraceFix> fixes, float speedFactor, long[] latencies,
+                            int offset) {
+    StandInHudFormatter formatter = new StandInHudFormatter(true);
+    RouteHudTracker tracker = new RouteHudTracker(formatter, SNAP_RADIUS);
+    tracker.setRoute(route.table, route.index);
+    SpeedFilter speedFilter = new SpeedFilter();
+    HudState state = new HudState();
+    HudStateStream stream = new HudStateStream();
+    stream.subscribe(new HudStateStream.Subscriber() {
+      @Override
+      public void onHudState(HudState state, int changedFields) {
+        // Delivered inline, the renderer's share of the work is measured on the device
+      }
+    }, INLINE, 0);
+
+    int offRoute = 0;
+    long replayStart = System.nanoTime();
+    long firstFixTime = fixes.get(0).getTime();
+    for (int i = 0; i < fixes.size(); i++) {
+      TraceFix fix = fixes.get(i);
+      if (speedFactor > 0) {
+        waitUntil(replayStart + (long) ((fix.getTime() - firstFixTime) * 1e6 / speedFactor));
+      }
+      long fixStart = System.nanoTime();
+      speedFilter.update(fix.getTime(), fix.getLatitude(), fix.getLongitude(), fix.hasSpeed(), fix.getSpeed(),
+        fix.hasBearing(), fix.getBearing(), fix.hasAccuracy() ? fix.getAccuracy() : 0);
+      // Sampled per fix here, on a 250 ms timer in the pipeline
+      state.setSpeed(SpeedFilter.roundStable(speedFilter.getSpeed(fix.getTime()) * MPH_DOUBLE,
+        state.getSpeed(), SPEED_READOUT_HYSTERESIS));
+      formatter.setNow(fix.getTime());
+      if (tracker.track(fix.getLatitude(), fix.getLongitude())) {
+        tracker.updateFromSnap(state);
+        tracker.updateTimes(route.legDurationRemaining(tracker.getSnap()), state);
+      } else {
+        offRoute++;
+      }
+      stream.publish(state);
+      if (latencies != null) {
+        latencies[offset + i] = System.nanoTime() - fixStart;
+      }
+    }
+    stream.close();
+    return offRoute;
+  }
+
+  private static long report(long[] latencies, int offRoute, long elapsedNanos, long allocated, long gcCount) {
+    // The update runs on the pipeline thread, one longer than a frame delays the HUD by a frame
+    int overFrameBudget = 0;
+    for (long latency : latencies) {
+      if (latency > FRAME_BUDGET_NANOS) {
+        overFrameBudget++;
+      }
+    }
+    long[] sorted = latencies.clone();
+    Arrays.sort(sorted);
+    long p99 = percentile(sorted, 0.99);
+    System.out.println(String.format(Locale.US, "fixes            %d", sorted.length));
+    System.out.println(String.format(Locale.US, "off route        %d", offRoute));
+    System.out.println(String.format(Locale.US, "throughput       %.0f fixes/s",
+      sorted.length * 1e9 / elapsedNanos));
+    System.out.println(String.format(Locale.US, "latency p50      %.1f us", percentile(sorted, 0.5) / 1e3));
+    System.out.println(String.format(Locale.US, "latency p90      %.1f us", percentile(sorted, 0.9) / 1e3));
+    System.out.println(String.format(Locale.US, "latency p99      %.1f us", p99 / 1e3));
+    System.out.println(String.format(Locale.US, "latency max      %.1f us", sorted[sorted.length - 1] / 1e3));
+    System.out.println(String.format(Locale.US, "over 16.7 ms     %d fixes", overFrameBudget));
+    if (allocated >= 0) {
+      System.out.println(String.format(Locale.US, "allocated        %d bytes/fix", allocated / sorted.length));
+    }
+    System.out.println(String.format(Locale.US, "gc runs          %d", gcCount));
+    return p99;
+  }
+
+  private static long percentile(long[] sorted, double percentile) {
+    int index = (int) Math.ceil(percentile * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+  }
+
+  /**
+   * Fixes every second while driving the step geometries at a constant speed.
+   */
+  static List<TraceFix> syntheticTrace(List<LegStep> steps, double speed) {
+    List<TraceFix> fixes = new ArrayList<>();
+    long time = 1_528_700_000_000L;
+    for (LegStep step : steps) {
+      List<Point> points = PolylineUtils.decode(step.geometry(), Constants.PRECISION_6);
+      double carried = 0;
+      for (int i = 1; i < points.size(); i++) {
+        Point from = points.get(i - 1);
+        Point to = points.get(i);
+        double length = distance(from.latitude(), from.longitude(), to.latitude(), to.longitude());
+        double traveled = carried;
+        for (; traveled < length; traveled += speed) {
+          double fraction = traveled / length;
+          fixes.add(new TraceFix(time, from.latitude() + (to.latitude() - from.latitude()) * fraction,
+            from.longitude() + (to.longitude() - from.longitude()) * fraction, (float) speed, -1, 5));
+          time += 1000;
+        }
+        carried = traveled - length;
+      }
+    }
+    return fixes;
+  }
+
+  /**
+   * Equirectangular distance in meters, accurate enough at the scale of route segments.
+   */
+  private static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+    double x = (longitude2 - longitude1) * Math.cos(Math.toRadians((latitude1 + latitude2) / 2));
+    double y = latitude2 - latitude1;
+    return Math.sqrt(x * x + y * y) * METERS_PER_DEGREE;
+  }
+
+  private static DirectionsRoute readRoute(String path) throws IOException {
+    String json = new String(Files.readAllBytes(new File(path).toPath()), StandardCharsets.UTF_8);
+    return DirectionsResponse.fromJson(json).routes().get(0);
+  }
+
+  private static List<TraceFix> readTrace(String path) throws IOException {
+    File file = new File(path);
+    try (InputStream input = new FileInputStream(file)) {
+      return LocationTraceParser.parse(input, file.getName());
+    }
+  }
+
+  private static void waitUntil(long nanoTime) {
+    long remaining;
+    while ((remaining = nanoTime - System.nanoTime()) > 0) {
+      try {
+        Thread.sleep(remaining / 1000000, (int) (remaining % 1000000));
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private static long allocatedBytes() {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+    return ((com.sun.management.ThreadMXBean) threadBean)
+      .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, bean.getCollectionCount());
+    }
+    return count;
+  }
+
+  /**
+   * The compiled route and the step durations the time remaining is computed from.
+   */
+  private static final class ReplayRoute {
+
+    final RouteGeometryIndex index;
+    final RouteHudTable table;
+    private final double[] stepDurations;
+    private final double[] legDurationsAfter;
+
+    ReplayRoute(DirectionsRoute route, BinaryRoute binaryRoute) {
+      index = RouteGeometryIndex.fromRoute(route, Constants.PRECISION_6);
+      table = RouteHudTable.build(binaryRoute, index, ManeuverMap.getInstance(), null);
+      int stepCount = table.getStepCount();
+      stepDurations = new double[stepCount];
+      legDurationsAfter = new double[stepCount];
+      for (int step = 0; step < stepCount; step++) {
+        stepDurations[step] = binaryRoute.duration(step);
+      }
+      for (int step = stepCount - 2; step >= 0; step--) {
+        legDurationsAfter[step] = table.getLeg(step + 1) == table.getLeg(step)
+          ? legDurationsAfter[step + 1] + stepDurations[step + 1] : 0;
+      }
+    }
+
+    double legDurationRemaining(RouteSnap snap) {
+      int step = snap.getStepIndex();
+      double stepStart = table.getStepStartDistance(step);
+      double stepEnd = table.getStepEndDistance(step);
+      double fraction = stepEnd > stepStart ? (snap.getDistanceAlongRoute() - stepStart) / (stepEnd - stepStart) : 1;
+      return stepDurations[step] * (1 - Math.min(1, fraction)) + legDurationsAfter[step];
+    }
+  }
+
+  private static String option(String[] args, String name, String defaultValue) {
+    for (int i = 0; i < args.length - 1; i++) {
+      if (name.equals(args[i])) {
+        return args[i + 1];
+      }
+    }
+    return defaultValue;
+  }
+}
@@ -0,0 +1,128 @@
+package com.mapbox.navhud.display;
+
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.api.directions.v5.models.LegStep;
+import com.mapbox.api.directions.v5.models.RouteLeg;
+import com.mapbox.api.directions.v5.models.StepManeuver;
+import com.mapbox.core.constants.Constants;
+import com.mapbox.core.utils.PolylineUtils;
+import com.mapbox.geojson.Point;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic route data for the HUD benchmarks.
+ */
+public final class RouteFixtures {
+
+  private static final String[] TYPES = {
+    "turn", "new name", "depart", "arrive", "merge", "on ramp", "off ramp", "fork",
+    "end of road", "continue", "roundabout", "rotary", "roundabout turn", "notification"
+  };
+  private static final String[] MODIFIERS = {
+    null, "uturn", "sharp right", "right", "slight right", "straight", "slight left", "left",
+    "sharp left"
+  };
+
+  private RouteFixtures() {
+    // Prevent instantiation
+  }
+
+  public static List<LegStep> steps(int count, long seed) {
+    Random random = new Random(seed);
+    List<LegStep> steps = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      double longitude = -77.03 + i * 0.001;
+      List<Point> geometry = new ArrayList<>();
+      for (int point = 0; point < 4; point++) {
+        geometry.add(Point.fromLngLat(longitude + point * 0.00025, 38.90 + random.nextDouble() * 0.001));
+      }
+      StepManeuver maneuver = StepManeuver.builder()
+        .rawLocation(new double[] {longitude, 38.90})
+        .type(TYPES[random.nextInt(TYPES.length)])
+        .modifier(MODIFIERS[random.nextInt(MODIFIERS.length)])
+        .instruction("Turn onto Step Street " + i)
+        .build();
+      steps.add(LegStep.builder()
+        .distance(50 + random.nextInt(5000))
+        .duration(10 + random.nextInt(300))
+        .weight(10 + random.nextInt(300))
+        .mode("driving")
+        .name(i % 5 == 0 ? null : "Step Street " + random.nextInt(count / 4 + 1))
+        .geometry(PolylineUtils.encode(geometry, Constants.PRECISION_6))
+        .maneuver(maneuver)
+        .intersections(Collections.emptyList())
+        .build());
+    }
+    return steps;
+  }
+
+  public static DirectionsRoute route(int stepCount, long seed) {
+    List<LegStep> steps = steps(stepCount, seed);
+    double distance = 0;
+    double duration = 0;
+    List<Point> geometry = new ArrayList<>();
+    for (LegStep step : steps) {
+      distance += step.distance();
+      duration += step.duration();
+      geometry.addAll(PolylineUtils.decode(step.geometry(), Constants.PRECISION_6));
+    }
+    RouteLeg leg = RouteLeg.builder()
+      .distance(distance)
+      .duration(duration)
+      .summary("Synthetic route")
+      .steps(steps)
+      .build();
+    return DirectionsRoute.builder()
+      .distance(distance)
+      .duration(duration)
+      .weight(duration)
+      .weightName("routability")
+      .geometry(PolylineUtils.encode(geometry, Constants.PRECISION_6))
+      .legs(Collections.singletonList(leg))
+      .build();
+  }
+
+  /**
+   * Simulates driving the given steps with one progress update per second.
+   */
+  public static SyntheticProgress[] progress(List<LegStep> steps, double speed) {
+    List<SyntheticProgress> ticks = new ArrayList<>();
+    double routeDistance = 0;
+    for (LegStep step : steps) {
+      routeDistance += step.distance();
+    }
+    double routeDuration = routeDistance / speed;
+    for (int i = 0; i < steps.size() - 1; i++) {
+      LegStep step = steps.get(i);
+      for (double traveled = 0; traveled < step.distance(); traveled += speed) {
+        SyntheticProgress tick = new SyntheticProgress();
+        tick.upComingStep = steps.get(i + 1);
+        tick.stepDistanceRemaining = step.distance() - traveled;
+        tick.fractionTraveled = (float) (traveled / step.distance());
+        tick.distanceRemaining = routeDistance - traveled;
+        tick.durationRemaining = routeDuration - traveled / speed;
+        tick.speed = (float) speed;
+        ticks.add(tick);
+      }
+      routeDistance -= step.distance();
+      routeDuration -= step.distance() / speed;
+    }
+    return ticks.toArray(new SyntheticProgress[ticks.size()]);
+  }
+
+  /**
+   * Plain stand-in for the values the HUD reads from a {@code RouteProgress}.
+   */
+  public static class SyntheticProgress {
+    public LegStep upComingStep;
+    public double stepDistanceRemaining;
+    public float fractionTraveled;
+    public double distanceRemaining;
+    public double durationRemaining;
+    public float speed;
+  }
+}
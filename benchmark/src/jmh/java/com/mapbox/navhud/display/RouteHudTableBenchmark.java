@@ -0,0 +1,101 @@
+package com.mapbox.navhud.display;
+
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.api.directions.v5.models.LegStep;
+import com.mapbox.core.constants.Constants;
+import com.mapbox.navhud.ManeuverMap;
+import com.mapbox.navhud.route.BinaryRoute;
+import com.mapbox.navhud.route.BinaryRouteWriter;
+import com.mapbox.navhud.route.RouteGeometryIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiling the HUD table of a long route, once per route or reroute, against what it saves on
+ * every update: resolving the upcoming step from the compiled table versus from the
+ * {@link LegStep}s the way the pipeline does without one. Text measuring needs Android and is
+ * left out, the table is compiled without a measurer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RouteHudTableBenchmark {
+
+  @Param( {"5000"})
+  public int stepCount;
+
+  private File binaryFile;
+  private BinaryRoute binaryRoute;
+  private RouteGeometryIndex routeIndex;
+  private RouteHudTable table;
+  private List<LegStep> steps;
+  private final ManeuverMap maneuverMap = ManeuverMap.getInstance();
+  private int tick;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    DirectionsRoute route = RouteFixtures.route(stepCount, 42);
+    binaryFile = File.createTempFile("route", ".bin");
+    new BinaryRouteWriter(Constants.PRECISION_6).write(route, binaryFile);
+    binaryRoute = BinaryRoute.open(binaryFile);
+    routeIndex = RouteGeometryIndex.fromRoute(route, Constants.PRECISION_6);
+    table = RouteHudTable.build(binaryRoute, routeIndex, maneuverMap, null);
+    steps = route.legs().get(0).steps();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    binaryFile.delete();
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public RouteHudTable compile() {
+    return RouteHudTable.build(binaryRoute, routeIndex, maneuverMap, null);
+  }
+
+  @Benchmark
+  public Object tickFromTable() {
+    int step = nextStep();
+    int maneuverResource = table.getManeuverResource(step);
+    String text = table.getStepText(step);
+    double stepEnd = table.getStepEndDistance(step);
+    double legEnd = table.getLegEndDistance(table.getLeg(step));
+    return text != null && maneuverResource != 0 && stepEnd < legEnd ? text : null;
+  }
+
+  @Benchmark
+  public Object tickFromSteps() {
+    int step = nextStep();
+    LegStep upComingStep = steps.get(step);
+    int maneuverResource = maneuverMap.getManeuverResource(upComingStep);
+    String text = null;
+    if (upComingStep.name() != null && !upComingStep.name().isEmpty()) {
+      text = upComingStep.name();
+    } else if (upComingStep.maneuver().instruction() != null && !upComingStep.maneuver().instruction().isEmpty()) {
+      text = upComingStep.maneuver().instruction();
+    }
+    double stepEnd = routeIndex.getStepEndDistance(step);
+    double legEnd = routeIndex.getLength();
+    return text != null && maneuverResource != 0 && stepEnd < legEnd ? text : null;
+  }
+
+  private int nextStep() {
+    tick = tick + 1 < stepCount ? tick + 1 : 0;
+    return tick;
+  }
+}
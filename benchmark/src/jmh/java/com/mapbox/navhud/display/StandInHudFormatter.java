@@ -0,0 +1,95 @@
+package com.mapbox.navhud.display;
+
+import java.text.NumberFormat;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * Stand-in for {@link HudFormatter} on a plain JVM, with the same quantization and caches.
+ * <p>
+ * DistanceUtils and TimeUtils need Android, so a cache miss runs a JVM copy of their work
+ * instead: a new {@link NumberFormat} per distance in the same unit bands, the time remaining
+ * and arrival time built with a {@link StringBuilder} and a {@link Calendar}. The spans the
+ * real ones add to the text are left out, so misses cost somewhat less here than on a device.
+ * The cache hit path is the app's.
+ */
+class StandInHudFormatter implements RouteHudTracker.Formatter {
+
+  private static final double METERS_PER_MILE = FormatQuantizer.METERS_PER_MILE;
+  private static final double METERS_PER_FOOT = FormatQuantizer.METERS_PER_FOOT;
+
+  private final FormatCache distanceCache = new FormatCache(64);
+  private final FormatCache timeRemainingCache = new FormatCache(16);
+  private final FormatCache arrivalTimeCache = new FormatCache(16);
+  private final Calendar calendar = Calendar.getInstance();
+  private final boolean cached;
+  private long now;
+
+  StandInHudFormatter(boolean cached) {
+    this.cached = cached;
+  }
+
+  /**
+   * Sets the wall clock time the arrival times are computed from.
+   */
+  void setNow(long now) {
+    this.now = now;
+  }
+
+  @Override
+  public CharSequence formatDistance(double distance) {
+    long key = FormatQuantizer.distanceKey(distance, true);
+    CharSequence formatted = cached ? distanceCache.get(key) : null;
+    if (formatted == null) {
+      formatted = formatImperialDistance(distance);
+      distanceCache.put(key, formatted);
+    }
+    return formatted;
+  }
+
+  @Override
+  public CharSequence formatTimeRemaining(double durationRemaining) {
+    long key = FormatQuantizer.timeRemainingKey(durationRemaining);
+    CharSequence formatted = cached ? timeRemainingCache.get(key) : null;
+    if (formatted == null) {
+      long minutes = (long) Math.ceil(durationRemaining / 60);
+      StringBuilder builder = new StringBuilder();
+      if (minutes >= 60) {
+        builder.append(minutes / 60).append(" hr ");
+      }
+      formatted = builder.append(minutes % 60).append(" min").toString();
+      timeRemainingCache.put(key, formatted);
+    }
+    return formatted;
+  }
+
+  @Override
+  public CharSequence formatArrivalTime(double durationRemaining) {
+    long key = FormatQuantizer.arrivalTimeKey(now, durationRemaining, false);
+    CharSequence formatted = cached ? arrivalTimeCache.get(key) : null;
+    if (formatted == null) {
+      calendar.setTimeInMillis(now);
+      calendar.add(Calendar.SECOND, (int) durationRemaining);
+      int hour = calendar.get(Calendar.HOUR);
+      formatted = String.format(Locale.US, "%d:%02d %s", hour == 0 ? 12 : hour, calendar.get(Calendar.MINUTE),
+        calendar.get(Calendar.AM_PM) == Calendar.AM ? "am" : "pm");
+      arrivalTimeCache.put(key, formatted);
+    }
+    return formatted;
+  }
+
+  private static String formatImperialDistance(double distance) {
+    double miles = distance / METERS_PER_MILE;
+    NumberFormat numberFormat = NumberFormat.getNumberInstance(Locale.US);
+    if (miles > 10) {
+      numberFormat.setMaximumFractionDigits(0);
+      return numberFormat.format(miles) + " mi";
+    }
+    double feet = distance / METERS_PER_FOOT;
+    if (feet < 401) {
+      return Math.max(50, (int) Math.round(feet) / 50 * 50) + " ft";
+    }
+    numberFormat.setMaximumFractionDigits(1);
+    return numberFormat.format(miles) + " mi";
+  }
+}
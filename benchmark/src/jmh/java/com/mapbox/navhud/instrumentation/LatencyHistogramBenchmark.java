@@ -0,0 +1,52 @@
+package com.mapbox.navhud.instrumentation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording a stage latency, on its own and with the HUD threads recording into the
+ * same histogram at once, to check instrumentation can stay on in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LatencyHistogramBenchmark {
+
+  private final LatencyHistogram histogram = new LatencyHistogram("benchmark");
+  private long value;
+
+  @Benchmark
+  public void record() {
+    histogram.recordNanos(nextValue());
+  }
+
+  @Benchmark
+  @Threads(3)
+  public void recordContended() {
+    histogram.recordNanos(System.nanoTime() & 0xFFFFFFF);
+  }
+
+  @Benchmark
+  public void recordWithClock() {
+    long start = System.nanoTime();
+    histogram.recordNanos(System.nanoTime() - start);
+  }
+
+  @Benchmark
+  public long percentile() {
+    return histogram.getPercentileNanos(99);
+  }
+
+  private long nextValue() {
+    // Spread over a few milliseconds, like frame and pipeline latencies
+    value = (value * 6364136223846793005L + 1442695040888963407L);
+    return (value >>> 40) & 0x3FFFFF;
+  }
+}
@@ -0,0 +1,77 @@
+package com.mapbox.navhud.location;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.mapbox.navhud.Constants.MPH_DOUBLE;
+
+/**
+ * Per fix cost of the {@link SpeedFilter} and of sampling the speed readout from it. The GC
+ * profiler should report no allocations for either.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SpeedFilterBenchmark {
+
+  private static final int FIX_COUNT = 1024;
+  private static final double METERS_PER_DEGREE = 111000;
+
+  private final double[] latitudes = new double[FIX_COUNT];
+  private final double[] longitudes = new double[FIX_COUNT];
+  private final float[] speeds = new float[FIX_COUNT];
+  private final float[] bearings = new float[FIX_COUNT];
+  private final SpeedFilter filter = new SpeedFilter();
+  private long time;
+  private int fix;
+  private int shown;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(42);
+    for (int i = 0; i < FIX_COUNT; i++) {
+      // Driving north at 20 m/s with a few meters of noise, one fix per second
+      latitudes[i] = 38.9 + (i * 20 + random.nextGaussian() * 3) / METERS_PER_DEGREE;
+      longitudes[i] = -77.0 + random.nextGaussian() * 3 / METERS_PER_DEGREE;
+      speeds[i] = (float) (20 + random.nextGaussian() * 0.5);
+      bearings[i] = (float) ((360 + random.nextGaussian() * 2) % 360);
+    }
+  }
+
+  @Benchmark
+  public double update() {
+    fix = (fix + 1) & (FIX_COUNT - 1);
+    if (fix == 0) {
+      filter.reset();
+    }
+    time += 1000;
+    filter.update(time, latitudes[fix], longitudes[fix], true, speeds[fix], true, bearings[fix], 4);
+    return filter.getSpeed(time);
+  }
+
+  @Benchmark
+  public double updateWithoutSpeed() {
+    fix = (fix + 1) & (FIX_COUNT - 1);
+    if (fix == 0) {
+      filter.reset();
+    }
+    time += 1000;
+    filter.update(time, latitudes[fix], longitudes[fix], false, 0, false, 0, 4);
+    return filter.getSpeed(time);
+  }
+
+  @Benchmark
+  public int readout() {
+    shown = SpeedFilter.roundStable(filter.getSpeed(time) * MPH_DOUBLE, shown, 0.3);
+    return shown;
+  }
+}
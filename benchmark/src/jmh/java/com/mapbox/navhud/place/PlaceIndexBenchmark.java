@@ -0,0 +1,80 @@
+package com.mapbox.navhud.place;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a suggestion lookup in the place store against the number of stored places, for
+ * the prefixes typed while entering a destination. Names and addresses are drawn from small
+ * word lists, so short prefixes match a large share of the places, which is the worst case
+ * for the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlaceIndexBenchmark {
+
+  private static final int LIMIT = 8;
+  private static final long DAY = TimeUnit.DAYS.toMillis(1);
+  private static final String[] NAME_WORDS = {
+    "North", "South", "Park", "Parkway", "Main", "Market", "Station", "Hill", "Harbor", "Oak",
+    "Ocean", "River", "Lake", "Center", "Plaza", "Union", "Grand", "Cafe", "Museum", "Library",
+    "School", "Hospital", "Garden", "Bridge", "Tower", "Square", "Mall", "Church", "Stadium", "Theater"
+  };
+  private static final String[] STREET_WORDS = {
+    "Massachusetts", "Pennsylvania", "Connecticut", "Wisconsin", "Georgia", "Florida", "Maryland",
+    "Virginia", "Delaware", "Vermont", "Maine", "Ohio", "Texas", "Oregon", "Nevada", "Utah"
+  };
+  private static final String[] QUERIES = {"m", "ma", "mar", "mark", "market", "market pe", "union st 12"};
+
+  @Param( {"1000", "10000", "100000"})
+  public int placeCount;
+
+  private List<StoredPlace> places;
+  private PlaceIndex index;
+  private int query;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(42);
+    long now = System.currentTimeMillis();
+    places = new ArrayList<>(placeCount);
+    for (int i = 0; i < placeCount; i++) {
+      String name = NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " "
+        + NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " " + i;
+      String address = random.nextInt(5000) + " " + STREET_WORDS[random.nextInt(STREET_WORDS.length)]
+        + " Ave";
+      places.add(new StoredPlace(name, address, 38 + random.nextDouble(), -77 + random.nextDouble(),
+        random.nextInt(100) == 0, random.nextInt(50), now - random.nextInt(365) * DAY));
+    }
+    index = PlaceIndex.build(places, now);
+  }
+
+  @Benchmark
+  public List<StoredPlace> search() {
+    query = (query + 1) % QUERIES.length;
+    return index.search(QUERIES[query], LIMIT);
+  }
+
+  @Benchmark
+  public List<StoredPlace> searchSingleLetter() {
+    return index.search("m", LIMIT);
+  }
+
+  @Benchmark
+  public PlaceIndex build() {
+    return PlaceIndex.build(places, System.currentTimeMillis());
+  }
+}
@@ -0,0 +1,75 @@
+package com.mapbox.navhud.route;
+
+import com.mapbox.api.directions.v5.models.DirectionsRoute;
+import com.mapbox.api.directions.v5.models.LegStep;
+import com.mapbox.core.constants.Constants;
+import com.mapbox.navhud.display.RouteFixtures;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a long route from JSON versus mapping its binary encoding and reading the next
+ * few steps. The gc profiler's {@code gc.alloc.rate.norm} shows the heap each approach
+ * needs per load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BinaryRouteBenchmark {
+
+  private static final int UPCOMING_STEPS = 3;
+
+  @Param( {"1000", "10000", "20000"})
+  public int stepCount;
+
+  private String json;
+  private File binaryFile;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    DirectionsRoute route = RouteFixtures.route(stepCount, 42);
+    json = route.toJson();
+    binaryFile = File.createTempFile("route", ".bin");
+    new BinaryRouteWriter(Constants.PRECISION_6).write(route, binaryFile);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    binaryFile.delete();
+  }
+
+  @Benchmark
+  public LegStep loadJson() {
+    DirectionsRoute route = DirectionsRoute.fromJson(json);
+    return route.legs().get(0).steps().get(UPCOMING_STEPS);
+  }
+
+  @Benchmark
+  public LegStep loadBinary() throws IOException {
+    BinaryRoute route = BinaryRoute.open(binaryFile);
+    LegStep step = null;
+    for (int i = 0; i <= UPCOMING_STEPS; i++) {
+      step = route.step(i, Constants.PRECISION_6);
+    }
+    return step;
+  }
+
+  @Benchmark
+  public String readUpcomingStepName() throws IOException {
+    BinaryRoute route = BinaryRoute.open(binaryFile);
+    return route.name(route.stepIndex(0, UPCOMING_STEPS));
+  }
+}
@@ -0,0 +1,129 @@
+package com.mapbox.navhud.route;
+
+import com.mapbox.api.directions.v5.models.LegStep;
+import com.mapbox.core.constants.Constants;
+import com.mapbox.core.utils.PolylineUtils;
+import com.mapbox.geojson.Point;
+import com.mapbox.navhud.display.RouteFixtures;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per fix cost of snapping to the route against route length, with a scan over every
+ * segment, a grid lookup and a windowed search from the previous match. Each synthetic step
+ * is about 90 meters long, so 20000 steps are a route of roughly 1,800 km.
+ * <p>
+ * Fixes are taken in driving order, a few meters off the route.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RouteSnapBenchmark {
+
+  private static final double SNAP_RADIUS = 50;
+  private static final double NOISE_DEGREES = 0.00005;
+
+  @Param( {"100", "1000", "10000", "20000"})
+  public int stepCount;
+
+  private RouteGeometryIndex index;
+  private double[] latitudes;
+  private double[] longitudes;
+  private double[] fixLatitudes;
+  private double[] fixLongitudes;
+  private final RouteSnap snap = new RouteSnap();
+  private final RouteSnap trackedSnap = new RouteSnap();
+  private int fix;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    List<LegStep> steps = RouteFixtures.steps(stepCount, 42);
+    List<List<Point>> stepGeometries = new ArrayList<>(steps.size());
+    List<Point> points = new ArrayList<>();
+    for (LegStep step : steps) {
+      List<Point> geometry = PolylineUtils.decode(step.geometry(), Constants.PRECISION_6);
+      stepGeometries.add(geometry);
+      points.addAll(geometry);
+    }
+    index = new RouteGeometryIndex(stepGeometries);
+    latitudes = new double[points.size()];
+    longitudes = new double[points.size()];
+    for (int i = 0; i < points.size(); i++) {
+      latitudes[i] = points.get(i).latitude();
+      longitudes[i] = points.get(i).longitude();
+    }
+
+    Random random = new Random(42);
+    fixLatitudes = new double[points.size() - 1];
+    fixLongitudes = new double[points.size() - 1];
+    for (int i = 0; i < fixLatitudes.length; i++) {
+      fixLatitudes[i] = (latitudes[i] + latitudes[i + 1]) / 2 + random.nextGaussian() * NOISE_DEGREES;
+      fixLongitudes[i] = (longitudes[i] + longitudes[i + 1]) / 2 + random.nextGaussian() * NOISE_DEGREES;
+    }
+  }
+
+  @Benchmark
+  public int linearScan() {
+    int current = nextFix();
+    return scan(fixLatitudes[current], fixLongitudes[current]);
+  }
+
+  @Benchmark
+  public int gridSnap() {
+    int current = nextFix();
+    index.snap(fixLatitudes[current], fixLongitudes[current], SNAP_RADIUS, snap);
+    return snap.getSegment();
+  }
+
+  @Benchmark
+  public int windowedTrack() {
+    int current = nextFix();
+    index.track(fixLatitudes[current], fixLongitudes[current], SNAP_RADIUS, trackedSnap);
+    return trackedSnap.getSegment();
+  }
+
+  private int nextFix() {
+    int current = fix;
+    fix = current + 1 < fixLatitudes.length ? current + 1 : 0;
+    return current;
+  }
+
+  /**
+   * Closest segment by checking all of them, how fixes were matched before the index.
+   */
+  private int scan(double latitude, double longitude) {
+    double longitudeScale = Math.cos(Math.toRadians(latitude));
+    double bestDistance = Double.MAX_VALUE;
+    int bestSegment = -1;
+    for (int i = 0; i < latitudes.length - 1; i++) {
+      double startX = (longitudes[i] - longitude) * longitudeScale;
+      double startY = latitudes[i] - latitude;
+      double deltaX = (longitudes[i + 1] - longitudes[i]) * longitudeScale;
+      double deltaY = latitudes[i + 1] - latitudes[i];
+      double lengthSquared = deltaX * deltaX + deltaY * deltaY;
+      double position = lengthSquared > 0
+        ? Math.max(0, Math.min(1, -(startX * deltaX + startY * deltaY) / lengthSquared)) : 0;
+      double x = startX + position * deltaX;
+      double y = startY + position * deltaY;
+      double distance = x * x + y * y;
+      if (distance < bestDistance) {
+        bestDistance = distance;
+        bestSegment = i;
+      }
+    }
+    return bestSegment;
+  }
+}
@@ -0,0 +1,47 @@
+package com.mapbox.navhud.trip;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of appending trip records from the navigation callbacks on the main thread, with the
+ * ring drained whenever it fills up like the writer thread would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TripRecordBufferBenchmark {
+
+  private final TripRecordBuffer buffer = new TripRecordBuffer(4096);
+  private final ByteBuffer drained = ByteBuffer.allocate(4096 * TripRecordBuffer.RECORD_SIZE);
+  private long time;
+
+  @Benchmark
+  public boolean appendFix() {
+    time += 1000;
+    drainIfFull();
+    return buffer.appendFix(time, 38.8977, -77.0365, 13.4f, 92f, 4.5f,
+      TripRecordBuffer.FLAG_SPEED | TripRecordBuffer.FLAG_BEARING);
+  }
+
+  @Benchmark
+  public boolean appendProgress() {
+    time += 1000;
+    drainIfFull();
+    return buffer.appendProgress(time, 0, 3, 1250.5, 140.2, 1250.5f, 310.4f, 0.42f);
+  }
+
+  private void drainIfFull() {
+    if (buffer.size() == buffer.getCapacity()) {
+      drained.clear();
+      buffer.drainTo(drained);
+    }
+  }
+}